@@ -0,0 +1,250 @@
+package com.zeelo.android.architecture.assignment.booksapp.books;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import com.bumptech.glide.RequestManager;
+import com.zeelo.android.architecture.assignment.booksapp.R;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checks the updates {@link BooksAdapter#replaceData(List)} makes to a laid out books list: the
+ * rows it notifies of, and the rows the list then binds again.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class BooksAdapterTest {
+
+    private static final int BOOKS_COUNT = 10000;
+
+    private static final int CHANGE_EVERY = 100;
+
+    private static final int PAGE_SIZE = 20;
+
+    private CountingBooksAdapter mAdapter;
+
+    private RecyclerView mRecyclerView;
+
+    private RecordingObserver mObserver;
+
+    @Before
+    public void setup() {
+        final Context context = new ContextThemeWrapper(
+                InstrumentationRegistry.getTargetContext(), R.style.AppTheme);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mAdapter = new CountingBooksAdapter(mock(BooksViewModel.class),
+                        mock(RequestManager.class), context);
+                mRecyclerView = new RecyclerView(context);
+                mRecyclerView.setLayoutManager(new LinearLayoutManager(context));
+                // Rebinds the changed rows in place, rather than to new rows for the animation.
+                mRecyclerView.setItemAnimator(null);
+                mRecyclerView.setAdapter(mAdapter);
+            }
+        });
+    }
+
+    @Test
+    public void refreshOf10kBooksWithOnePercentChanged_rebindsOnlyChangedRows() throws Exception {
+        // Given 10k books shown
+        showBooks(GrowingBooksList.of(books(BOOKS_COUNT, -1)));
+
+        // When they are refreshed, 1% of them with a new title
+        List<BookListItem> refreshed = GrowingBooksList.of(books(BOOKS_COUNT, CHANGE_EVERY));
+        replaceData(refreshed);
+
+        // Then only the changed rows are notified, and only the visible ones are bound again
+        assertThat(mObserver.mChanged, is(BOOKS_COUNT / CHANGE_EVERY));
+        assertThat(mObserver.mInserted, is(0));
+        assertThat(mObserver.mRemoved, is(0));
+        assertThat(mObserver.mMoved, is(0));
+        assertThat(mObserver.mDataSetChanged, is(0));
+        assertThat(mAdapter.mBound, is(visibleChangedRows()));
+        assertThat(mAdapter.getItemCount(), is(BOOKS_COUNT));
+    }
+
+    @Test
+    public void pageAppendedTo10kBooks_onlyInsertsItsRows() throws Exception {
+        // Given 10k books shown
+        GrowingBooksList shown = GrowingBooksList.of(books(BOOKS_COUNT, -1));
+        showBooks(shown);
+
+        // When a page is appended to them
+        replaceData(shown.append(books(PAGE_SIZE, -1)));
+
+        // Then its rows are inserted after the books shown, which are not bound again
+        assertThat(mObserver.mInsertedRanges, is(1));
+        assertThat(mObserver.mFirstInserted, is(BOOKS_COUNT));
+        assertThat(mObserver.mInserted, is(PAGE_SIZE));
+        assertThat(mObserver.mChanged, is(0));
+        assertThat(mObserver.mRemoved, is(0));
+        assertThat(mObserver.mMoved, is(0));
+        assertThat(mObserver.mDataSetChanged, is(0));
+        assertThat(mAdapter.mBound, is(0));
+        assertThat(mAdapter.getItemCount(), is(BOOKS_COUNT + PAGE_SIZE));
+    }
+
+    /**
+     * Shows {@code books} in the empty list, which inserts them without a diff, and lays it out.
+     * The updates and binds are counted from then on.
+     */
+    private void showBooks(final List<BookListItem> books) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mAdapter.replaceData(books);
+                layOut();
+                mObserver = new RecordingObserver();
+                mAdapter.registerAdapterDataObserver(mObserver);
+                mAdapter.mBound = 0;
+            }
+        });
+    }
+
+    /**
+     * Replaces the books shown, waits for the diff to be dispatched, and lays the list out again.
+     */
+    private void replaceData(final List<BookListItem> books) throws InterruptedException {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mAdapter.replaceData(books);
+            }
+        });
+        assertTrue(mObserver.mNotified.await(5, TimeUnit.SECONDS));
+        // The diff is dispatched by a single message, so this runs once all of it is.
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                layOut();
+            }
+        });
+    }
+
+    private void layOut() {
+        mRecyclerView.measure(
+                View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, 1080, 1920);
+    }
+
+    private int visibleChangedRows() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        int changed = 0;
+        for (int i = layoutManager.findFirstVisibleItemPosition();
+             i <= layoutManager.findLastVisibleItemPosition(); i++) {
+            if (i % CHANGE_EVERY == 0) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @param changeEvery every how many books one gets a new title, or -1 for none.
+     */
+    private static List<BookListItem> books(int count, int changeEvery) {
+        List<BookListItem> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(changeEvery > 0 && i % changeEvery == 0
+                    ? new BookListItem("New title " + i, "id" + i)
+                    : new BookListItem("Title " + i, "id" + i));
+        }
+        return books;
+    }
+
+    /**
+     * Counts the rows the list binds.
+     */
+    private static class CountingBooksAdapter extends BooksAdapter {
+
+        int mBound;
+
+        CountingBooksAdapter(BooksViewModel booksViewModel, RequestManager glide,
+                             Context context) {
+            super(booksViewModel, glide, context.getResources());
+        }
+
+        @Override
+        public void onBindViewHolder(BookViewHolder holder, int position) {
+            mBound++;
+            super.onBindViewHolder(holder, position);
+        }
+    }
+
+    /**
+     * Counts the rows the adapter notifies the list of.
+     */
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+
+        final CountDownLatch mNotified = new CountDownLatch(1);
+
+        int mDataSetChanged;
+
+        int mChanged;
+
+        int mInserted;
+
+        int mInsertedRanges;
+
+        int mFirstInserted = -1;
+
+        int mRemoved;
+
+        int mMoved;
+
+        @Override
+        public void onChanged() {
+            mDataSetChanged++;
+            mNotified.countDown();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            mChanged += itemCount;
+            mNotified.countDown();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            if (mInsertedRanges++ == 0) {
+                mFirstInserted = positionStart;
+            }
+            mInserted += itemCount;
+            mNotified.countDown();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mRemoved += itemCount;
+            mNotified.countDown();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mMoved += itemCount;
+            mNotified.countDown();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.room.RoomDatabase.JournalMode;
+import android.content.Context;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.ObservableBooksDataSource;
+import com.zeelo.android.architecture.assignment.booksapp.util.AppExecutors;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.Histogram;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Measures the latency of {@link BooksLocalDataSource#getBookDetails(String,
+ * BooksDataSource.GetBookDetailsCallback)}, from the call to its callback on the main thread,
+ * while {@link BooksLocalDataSource#saveBooksListItems(List,
+ * ObservableBooksDataSource.SaveBooksListItemsCallback)} stores a large batch in the background,
+ * with the write-ahead log of the app and with the rollback journal it replaced. The latencies are
+ * logged under the {@value #TAG} tag:
+ * <pre>
+ * adb logcat -s BooksDatabaseWalBenchmark
+ * </pre>
+ * With the rollback journal, a read waits for the whole batch to commit.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BooksDatabaseWalBenchmark {
+
+    private static final String TAG = "BooksDatabaseWalBenchmark";
+
+    private static final String DATABASE_NAME = "books-wal-benchmark.db";
+
+    private static final int STORED_BOOKS = 500;
+
+    private static final int INSERTED_BOOKS = 20000;
+
+    private static final int READERS = 2;
+
+    private Context mContext;
+
+    @Before
+    public void deleteDatabase() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void cleanUp() {
+        BooksLocalDataSource.clearInstance();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void database_usesTheTunedWriteAheadLog() {
+        BooksDatabase database = BooksDatabase.newBuilder(mContext, DATABASE_NAME).build();
+        try {
+            assertThat(pragma(database, "journal_mode"), is("wal"));
+            assertThat(pragma(database, "wal_autocheckpoint"),
+                    is(String.valueOf(BooksDatabase.WAL_AUTOCHECKPOINT_PAGES)));
+            assertThat(pragma(database, "journal_size_limit"),
+                    is(String.valueOf(BooksDatabase.JOURNAL_SIZE_LIMIT_BYTES)));
+        } finally {
+            database.close();
+        }
+    }
+
+    @Test
+    public void getBookDetails_duringLargeSave() throws Exception {
+        Result truncate = measure(JournalMode.TRUNCATE);
+        mContext.deleteDatabase(DATABASE_NAME);
+        Result wal = measure(JournalMode.WRITE_AHEAD_LOGGING);
+
+        Log.i(TAG, "TRUNCATE " + truncate);
+        Log.i(TAG, "WAL " + wal);
+        // Reads are served while the batch is still being saved rather than after it.
+        assertThat(wal.mReadsDuringSave.get(), greaterThan(0L));
+    }
+
+    private Result measure(JournalMode journalMode) throws Exception {
+        BooksDatabase database = BooksDatabase.newBuilder(mContext, DATABASE_NAME)
+                .setJournalMode(journalMode)
+                .build();
+        try {
+            storeBooks(database.bookDao());
+            List<BookListItem> batch = new ArrayList<>(INSERTED_BOOKS);
+            for (int i = 0; i < INSERTED_BOOKS; i++) {
+                batch.add(new BookListItem("Inserted " + i, "inserted" + i));
+            }
+            BooksLocalDataSource.clearInstance();
+            BooksLocalDataSource dataSource =
+                    BooksLocalDataSource.getInstance(new AppExecutors(), database);
+
+            final Result result = new Result();
+            final AtomicLong saveEnd = new AtomicLong(Long.MAX_VALUE);
+            final CountDownLatch saved = new CountDownLatch(1);
+            long saveStart = System.nanoTime();
+            dataSource.saveBooksListItems(batch,
+                    new ObservableBooksDataSource.SaveBooksListItemsCallback() {
+                        @Override
+                        public void onBooksListItemsSaved() {
+                            saveEnd.set(System.nanoTime());
+                            saved.countDown();
+                        }
+
+                        @Override
+                        public void onSaveFailed() {
+                            saved.countDown();
+                        }
+                    });
+
+            // Keeps READERS reads in flight, as the screens reading books would, until it's saved.
+            int i = 0;
+            while (saved.getCount() > 0) {
+                final CountDownLatch read = new CountDownLatch(READERS);
+                for (int r = 0; r < READERS; r++) {
+                    final long start = System.nanoTime();
+                    dataSource.getBookDetails("stored" + (i++ % STORED_BOOKS),
+                            new BooksDataSource.GetBookDetailsCallback() {
+                                @Override
+                                public void onBookDetailsLoaded(Book book) {
+                                    record(System.nanoTime());
+                                }
+
+                                @Override
+                                public void onDataNotAvailable() {
+                                    record(System.nanoTime());
+                                }
+
+                                private void record(long end) {
+                                    result.mReadMicros.record(
+                                            TimeUnit.NANOSECONDS.toMicros(end - start));
+                                    if (end < saveEnd.get()) {
+                                        result.mReadsDuringSave.incrementAndGet();
+                                    }
+                                    read.countDown();
+                                }
+                            });
+                }
+                read.await(10, TimeUnit.SECONDS);
+            }
+            result.mSaveMillis = TimeUnit.NANOSECONDS.toMillis(saveEnd.get() - saveStart);
+            return result;
+        } finally {
+            database.close();
+        }
+    }
+
+    private static void storeBooks(BooksDao dao) {
+        List<BookListItem> items = new ArrayList<>(STORED_BOOKS);
+        List<Book> books = new ArrayList<>(STORED_BOOKS);
+        for (int i = 0; i < STORED_BOOKS; i++) {
+            items.add(new BookListItem("Stored " + i, "stored" + i));
+            books.add(new Book("Stored " + i, "stored" + i, "Description " + i));
+        }
+        dao.insertBookListItems(items);
+        dao.insertBooks(books);
+    }
+
+    /**
+     * Reads {@code pragma} on the connection that writes, which is the one that checkpoints: reads
+     * outside a transaction may run on another connection.
+     */
+    private static String pragma(BooksDatabase database, String pragma) {
+        database.beginTransaction();
+        try {
+            Cursor cursor = database.query("PRAGMA " + pragma, null);
+            try {
+                cursor.moveToFirst();
+                return cursor.getString(0);
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private static class Result {
+
+        final Histogram mReadMicros = new Histogram();
+
+        final AtomicLong mReadsDuringSave = new AtomicLong();
+
+        long mSaveMillis;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d reads during a %d ms save of %d books: "
+                            + "p50 %d us, p99 %d us, max %d us",
+                    mReadsDuringSave.get(), mSaveMillis, INSERTED_BOOKS,
+                    mReadMicros.getValueAtPercentile(50), mReadMicros.getValueAtPercentile(99),
+                    mReadMicros.getMax());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.DescriptionCodec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Measures what keeping the descriptions out of the {@code book} table saves on a synthetic
+ * catalogue of {@value #BOOKS} books with descriptions of a few kilobytes: the bytes stored for
+ * the descriptions, deflated or not, and the time and heap taken to read every book, with and
+ * without their descriptions. The results are logged under the {@value #TAG} tag:
+ * <pre>
+ * adb logcat -s BooksDescriptionBenchmark
+ * </pre>
+ */
+@RunWith(AndroidJUnit4.class)
+public class BooksDescriptionBenchmark {
+
+    private static final String TAG = "BooksDescriptionBenchmark";
+
+    private static final String DATABASE_NAME = "books-description-benchmark.db";
+
+    private static final int BOOKS = 50000;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final int DESCRIPTION_WORDS = 400;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String[] WORDS = ("the a of and to in is was his her that it with as for "
+            + "on by at from story novel author world life war love family young old man woman "
+            + "city house journey history century years first last new great small secret dark "
+            + "light night day time death friend enemy king queen power truth lies memory dream "
+            + "father mother son daughter brother sister village sea river mountain forest road "
+            + "letter book library school teacher student doctor soldier captain stranger heart "
+            + "finds loses discovers returns leaves remembers writes reads fights escapes falls "
+            + "begins ends changes becomes must cannot will would never always again together "
+            + "beautiful terrible quiet strange ancient modern classic award winning bestselling "
+            + "acclaimed unforgettable moving funny haunting brilliant epic tale portrait").split(" ");
+
+    private Context mContext;
+
+    private BooksDatabase mDatabase;
+
+    @Before
+    public void createDatabase() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(DATABASE_NAME);
+        mDatabase = BooksDatabase.newBuilder(mContext, DATABASE_NAME).build();
+    }
+
+    @After
+    public void cleanUp() {
+        mDatabase.close();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void descriptions_storedApartAndDeflated() {
+        BooksDao dao = mDatabase.bookDao();
+        long rawBytes = storeBooks(dao);
+        long storedBytes = queryLong("SELECT SUM(length(description)) FROM book_description");
+        Log.i(TAG, String.format(Locale.US, "%d descriptions: %d KB as UTF-8, %d KB stored "
+                        + "(%.1f%%), database file %d KB", BOOKS, rawBytes / 1024,
+                storedBytes / 1024, 100.0 * storedBytes / rawBytes,
+                mContext.getDatabasePath(DATABASE_NAME).length() / 1024));
+
+        long heap = usedHeap();
+        long start = System.nanoTime();
+        List<Book> books = dao.getBooks();
+        long booksMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long booksHeap = usedHeap() - heap;
+        Log.i(TAG, String.format(Locale.US, "Books without descriptions: %d books in %d ms, "
+                + "%d KB of heap", books.size(), booksMillis, booksHeap / 1024));
+
+        start = System.nanoTime();
+        List<String> descriptions = readDescriptions();
+        long describedMillis = booksMillis
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long describedHeap = usedHeap() - heap;
+        // The books are still referenced here, so they count in the heap measured above.
+        Log.i(TAG, String.format(Locale.US, "Books with descriptions: %d books and %d "
+                        + "descriptions in %d ms, %d KB of heap", books.size(),
+                descriptions.size(), describedMillis, describedHeap / 1024));
+
+        assertThat(storedBytes, lessThan(rawBytes));
+    }
+
+    /**
+     * @return the size of the descriptions stored, as UTF-8.
+     */
+    private static long storeBooks(BooksDao dao) {
+        Random random = new Random(BOOKS);
+        long rawBytes = 0;
+        for (int first = 0; first < BOOKS; first += BATCH_SIZE) {
+            List<BookListItem> items = new ArrayList<>(BATCH_SIZE);
+            List<Book> books = new ArrayList<>(BATCH_SIZE);
+            for (int i = first; i < first + BATCH_SIZE; i++) {
+                String description = description(random);
+                rawBytes += description.getBytes(UTF_8).length;
+                items.add(new BookListItem("Book " + i, "book" + i));
+                books.add(new Book("Book " + i, "book" + i, description));
+            }
+            dao.insertBookListItems(items);
+            dao.insertBooks(books);
+        }
+        return rawBytes;
+    }
+
+    private static String description(Random random) {
+        StringBuilder description = new StringBuilder(DESCRIPTION_WORDS * 7);
+        for (int i = 0; i < DESCRIPTION_WORDS; i++) {
+            description.append(WORDS[random.nextInt(WORDS.length)]);
+            description.append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        return description.toString();
+    }
+
+    private List<String> readDescriptions() {
+        List<String> descriptions = new ArrayList<>(BOOKS);
+        Cursor cursor = mDatabase.query("SELECT description FROM book_description", null);
+        try {
+            while (cursor.moveToNext()) {
+                descriptions.add(DescriptionCodec.decode(cursor.getBlob(0)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return descriptions;
+    }
+
+    private long queryLong(String query) {
+        Cursor cursor = mDatabase.query(query, null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
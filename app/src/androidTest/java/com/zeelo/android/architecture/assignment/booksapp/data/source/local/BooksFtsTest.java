@@ -0,0 +1,163 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.room.Room;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.google.common.collect.Lists;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Checks that the triggers of {@link BooksFts}, and the descriptions {@link BooksDao} indexes,
+ * keep {@code books_fts} in sync as rows of {@code bookslist} and {@code book} are inserted,
+ * edited and deleted: the search finds the new text, and no longer the old one.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BooksFtsTest {
+
+    private static final List<String> ID1 = Collections.singletonList("id1");
+
+    private static final List<String> NONE = Collections.emptyList();
+
+    private BooksDatabase mDatabase;
+
+    private BooksDao mBooksDao;
+
+    @Before
+    public void initDb() {
+        mDatabase = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getContext(),
+                BooksDatabase.class)
+                .addCallback(BooksDatabase.CREATE_TRIGGERS)
+                .build();
+        mBooksDao = mDatabase.bookDao();
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void insertingListItem_indexesItsTitleAndAuthors() {
+        mBooksDao.insertBookListItem(newListItem("Dune", "Frank Herbert"));
+
+        assertThat(search("dune"), is(ID1));
+        assertThat(search("herbert"), is(ID1));
+        assertThat(indexedRows(), is(1));
+    }
+
+    @Test
+    public void replacingListItem_indexesTheNewTextOnly() {
+        // Given a stored list item
+        mBooksDao.insertBookListItem(newListItem("Dune", "Frank Herbert"));
+
+        // When it is replaced, as saving a book does
+        mBooksDao.insertBookListItem(newListItem("Emma", "Jane Austen"));
+
+        // Then only the new title and authors are found, once
+        assertThat(search("dune"), is(NONE));
+        assertThat(search("herbert"), is(NONE));
+        assertThat(search("emma"), is(ID1));
+        assertThat(search("austen"), is(ID1));
+        assertThat(indexedRows(), is(1));
+    }
+
+    @Test
+    public void updatingListItemTitle_indexesTheNewTitle() {
+        mBooksDao.insertBookListItem(newListItem("Dune", "Frank Herbert"));
+
+        mDatabase.getOpenHelper().getWritableDatabase()
+                .execSQL("UPDATE bookslist SET title = 'Emma' WHERE id = 'id1'");
+
+        assertThat(search("dune"), is(NONE));
+        assertThat(search("emma"), is(ID1));
+        assertThat(search("herbert"), is(ID1));
+    }
+
+    @Test
+    public void deletingListItem_removesItFromTheIndex() {
+        mBooksDao.insertBookListItem(newListItem("Dune", "Frank Herbert"));
+        mBooksDao.insertBook(new Book("Dune", "id1", "Spice melange"));
+
+        mBooksDao.deleteBookListItemsByIds(ID1);
+
+        assertThat(search("dune"), is(NONE));
+        assertThat(search("melange"), is(NONE));
+        assertThat(indexedRows(), is(0));
+    }
+
+    @Test
+    public void insertingBook_indexesItsDescription() {
+        mBooksDao.insertBookListItem(newListItem("Dune", "Frank Herbert"));
+
+        mBooksDao.insertBook(new Book("Dune", "id1", "Spice melange"));
+
+        assertThat(search("melange"), is(ID1));
+        assertThat(search("dune"), is(ID1));
+    }
+
+    @Test
+    public void updatingBook_indexesTheNewDescriptionOnly() {
+        // Given a stored book with a description
+        mBooksDao.insertBookListItem(newListItem("Dune", "Frank Herbert"));
+        mBooksDao.insertBook(new Book("Dune", "id1", "Spice melange"));
+
+        // When its description is edited
+        mBooksDao.updateBook(new Book("Dune", "id1", "Giant sandworms"));
+
+        // Then only the new description is found
+        assertThat(search("melange"), is(NONE));
+        assertThat(search("sandworms"), is(ID1));
+    }
+
+    @Test
+    public void deletingBook_removesItsDescriptionButKeepsItsListItem() {
+        mBooksDao.insertBookListItem(newListItem("Dune", "Frank Herbert"));
+        mBooksDao.insertBook(new Book("Dune", "id1", "Spice melange"));
+
+        mBooksDao.deleteBookById("id1");
+
+        assertThat(search("melange"), is(NONE));
+        assertThat(search("dune"), is(ID1));
+        assertThat(search("herbert"), is(ID1));
+    }
+
+    private static BookListItem newListItem(String title, String author) {
+        BookListItem item = new BookListItem(title, "id1");
+        item.getVolumeInfo().setAuthors(Lists.newArrayList(author));
+        return item;
+    }
+
+    private List<String> search(String token) {
+        List<String> ids = new ArrayList<>();
+        for (BookListItem book : mBooksDao.searchBookListItems(
+                Collections.singletonList(token), 0, 10)) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+
+    private int indexedRows() {
+        Cursor cursor = mDatabase.query("SELECT count(*) FROM books_fts", null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -50,11 +50,10 @@ public class BooksLocalDataSourceTest {
         mDatabase = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getContext(),
                 BooksDatabase.class)
                 .build();
-        BooksDao booksDao = mDatabase.bookDao();
 
         // Make sure that we're not keeping a reference to the wrong instance.
         BooksLocalDataSource.clearInstance();
-        mLocalDataSource = BooksLocalDataSource.getInstance(new SingleExecutors(), booksDao);
+        mLocalDataSource = BooksLocalDataSource.getInstance(new SingleExecutors(), mDatabase);
     }
 
     @After
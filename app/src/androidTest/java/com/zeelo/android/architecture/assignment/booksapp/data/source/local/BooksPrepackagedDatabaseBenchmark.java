@@ -0,0 +1,173 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksFilterType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSortType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.remote.BooksJsonStreamParser;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.Histogram;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the time from a first launch to the first page of the books list read from the
+ * database, when the books are parsed from books.json and inserted, as the app used to do, and
+ * when the database is copied from the {@link BooksPrepackagedDatabase#ASSET} asset. The times are
+ * logged under the {@value #TAG} tag:
+ * <pre>
+ * adb logcat -s BooksPrepackagedDbBenchmark
+ * </pre>
+ * Only the prod flavor ships the asset; with the mock one, the benchmark is skipped.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BooksPrepackagedDatabaseBenchmark {
+
+    private static final String TAG = "BooksPrepackagedDbBenchmark";
+
+    private static final String DATABASE_NAME = "books-prepackaged-benchmark.db";
+
+    private static final String BOOKS_ASSET = "books.json";
+
+    private static final int PAGE_SIZE = 50;
+
+    private static final int ROUNDS = 20;
+
+    private Context mContext;
+
+    @Before
+    public void deleteDatabase() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void cleanUp() {
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void prepackagedDatabase_holdsTheBooksOfTheFeed() throws IOException {
+        assumeTrue(hasPrepackagedDatabase());
+        List<String> seeded = firstPageIds(seed());
+        mContext.deleteDatabase(DATABASE_NAME);
+
+        List<String> prepackaged = firstPageIds(install());
+
+        assertThat(prepackaged, is(not(empty())));
+        assertThat(prepackaged, is(seeded));
+    }
+
+    @Test
+    public void prepackagedDatabase_isSearchable() {
+        assumeTrue(hasPrepackagedDatabase());
+        BooksDatabase database = install();
+        try {
+            assertThat(database.bookDao().searchBookListItems(
+                    Collections.singletonList("android"), 0, PAGE_SIZE), is(not(empty())));
+        } finally {
+            database.close();
+        }
+    }
+
+    @Test
+    public void firstPage_seededOrPrepackaged() throws IOException {
+        assumeTrue(hasPrepackagedDatabase());
+        Histogram seeded = new Histogram();
+        Histogram prepackaged = new Histogram();
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            firstPageIds(seed());
+            seeded.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            mContext.deleteDatabase(DATABASE_NAME);
+
+            start = System.nanoTime();
+            firstPageIds(install());
+            prepackaged.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            mContext.deleteDatabase(DATABASE_NAME);
+        }
+
+        Log.i(TAG, "Parsed and inserted " + format(seeded));
+        Log.i(TAG, "Prepackaged " + format(prepackaged));
+    }
+
+    /**
+     * Creates the database and inserts the books parsed from books.json, as the repository does
+     * when the database is empty.
+     */
+    private BooksDatabase seed() throws IOException {
+        final List<BookListItem> items = new ArrayList<>();
+        new BooksJsonStreamParser().parse(mContext.getAssets().open(BOOKS_ASSET),
+                new BooksJsonStreamParser.Consumer() {
+                    @Override
+                    public void onBatch(@NonNull List<BookListItem> bookListItems,
+                                        @NonNull List<Book> books) {
+                        items.addAll(bookListItems);
+                    }
+                });
+        BooksDatabase database = BooksDatabase.newBuilder(mContext, DATABASE_NAME).build();
+        database.bookDao().insertBookListItems(items);
+        return database;
+    }
+
+    /**
+     * Copies the asset, as {@link BooksDatabase#getInstance(Context)} does on first launch, and
+     * opens it.
+     */
+    private BooksDatabase install() {
+        assertThat(BooksPrepackagedDatabase.install(mContext, DATABASE_NAME), is(true));
+        return BooksDatabase.newBuilder(mContext, DATABASE_NAME).build();
+    }
+
+    private static List<String> firstPageIds(BooksDatabase database) {
+        try {
+            List<String> ids = new ArrayList<>();
+            for (BookListRow row : database.bookDao().getBookListRowsPage(
+                    BooksSortType.TITLE, BooksFilterType.ALL_BOOKS, null, PAGE_SIZE)) {
+                ids.add(row.toBookListItem().getId());
+            }
+            return ids;
+        } finally {
+            database.close();
+        }
+    }
+
+    private boolean hasPrepackagedDatabase() {
+        try {
+            mContext.getAssets().open(BooksPrepackagedDatabase.ASSET).close();
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String format(Histogram micros) {
+        return String.format(Locale.US, "first page of %d books: p50 %d us, p99 %d us, max %d us",
+                PAGE_SIZE, micros.getValueAtPercentile(50), micros.getValueAtPercentile(99),
+                micros.getMax());
+    }
+}
@@ -0,0 +1,256 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.db.SimpleSQLiteQuery;
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteProgram;
+import android.arch.persistence.db.SupportSQLiteQuery;
+import android.arch.persistence.room.Room;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.google.common.collect.Lists;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksCollation;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksFilterType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksPageKey;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSortType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Checks with EXPLAIN QUERY PLAN that the queries of the list screen, in every sort order and
+ * with the favorite filter, read the tables through an index rather than scanning them, and never
+ * sort in a temporary b-tree. The books of an author are the exception: they are found through the index of the
+ * authors, and only those are sorted.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BooksQueryPlanTest {
+
+    private static final BookListItem BOOK = newBook();
+
+    private static final BookListItem UNTITLED_BOOK = new BookListItem(null, "Id");
+
+    private BooksDatabase mDatabase;
+
+    @Before
+    public void initDb() {
+        mDatabase = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getContext(),
+                BooksDatabase.class)
+                .addCallback(BooksDatabase.CREATE_TRIGGERS)
+                .build();
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+    }
+
+    /**
+     * A book with a value for every {@link BooksSortType}.
+     */
+    private static BookListItem newBook() {
+        BookListItem book = new BookListItem("Title", "Id");
+        book.getVolumeInfo().setAuthors(Lists.newArrayList("Author"));
+        book.getVolumeInfo().setPublishedDate("2018-05-01");
+        book.getVolumeInfo().setPageCount(320);
+        return book;
+    }
+
+    @Test
+    public void firstListPage_walksSortIndex() {
+        for (BooksSortType sortType : BooksSortType.values()) {
+            List<String> plan = explain(BooksSortKeys.pageQuery(sortType,
+                    BooksFilterType.ALL_BOOKS, null, 20));
+
+            assertUsesIndex(plan, sortIndex(sortType));
+        }
+    }
+
+    @Test
+    public void listPageAfter_seeksSortIndex() {
+        for (BooksSortType sortType : BooksSortType.values()) {
+            List<String> plan = explain(BooksSortKeys.pageQuery(sortType,
+                    BooksFilterType.ALL_BOOKS, BooksPageKey.after(sortType, BOOK), 20));
+
+            assertUsesIndex(plan, sortIndex(sortType));
+            assertThat(plan.get(0), containsString("SEARCH"));
+        }
+    }
+
+    @Test
+    public void listPageAfterMissingValue_walksSortIndex() {
+        for (BooksSortType sortType : BooksSortType.values()) {
+            List<String> plan = explain(BooksSortKeys.pageQuery(sortType,
+                    BooksFilterType.ALL_BOOKS, BooksPageKey.after(sortType, UNTITLED_BOOK), 20));
+
+            assertUsesIndex(plan, sortIndex(sortType));
+        }
+    }
+
+    @Test
+    public void firstFilteredListPage_searchesFavoriteSortIndex() {
+        for (BooksSortType sortType : BooksSortType.values()) {
+            List<String> plan = explain(BooksSortKeys.pageQuery(sortType,
+                    BooksFilterType.FAVORITED_BOOKS, null, 20));
+
+            assertUsesIndex(plan, favoriteSortIndex(sortType));
+            assertThat(plan.get(0), containsString("SEARCH"));
+        }
+    }
+
+    @Test
+    public void filteredListPageAfter_searchesFavoriteSortIndex() {
+        for (BooksSortType sortType : BooksSortType.values()) {
+            List<String> plan = explain(BooksSortKeys.pageQuery(sortType,
+                    BooksFilterType.FAVORITED_BOOKS, BooksPageKey.after(sortType, BOOK), 20));
+
+            assertUsesIndex(plan, favoriteSortIndex(sortType));
+            assertThat(plan.get(0), containsString("SEARCH"));
+        }
+    }
+
+    @Test
+    public void filteredListPageAfterMissingValue_searchesFavoriteSortIndex() {
+        for (BooksSortType sortType : BooksSortType.values()) {
+            List<String> plan = explain(BooksSortKeys.pageQuery(sortType,
+                    BooksFilterType.NOT_FAVORITED_BOOKS,
+                    BooksPageKey.after(sortType, UNTITLED_BOOK), 20));
+
+            assertUsesIndex(plan, favoriteSortIndex(sortType));
+        }
+    }
+
+    @Test
+    public void firstAuthorListPage_searchesAuthorIndex() {
+        List<String> plan = explain(BooksDao.AUTHOR_FIRST_LIST_ROWS_PAGE, "Author", 20);
+
+        assertSearchesAuthor(plan);
+    }
+
+    @Test
+    public void authorListPageAfter_searchesAuthorIndex() {
+        List<String> plan = explain(BooksDao.AUTHOR_LIST_ROWS_PAGE_AFTER, "Author",
+                BooksCollation.key("Title"), "Id", 20);
+
+        assertSearchesAuthor(plan);
+    }
+
+    @Test
+    public void authorListPageAfterUntitled_searchesAuthorIndex() {
+        List<String> plan = explain(BooksDao.AUTHOR_LIST_ROWS_PAGE_AFTER_UNTITLED, "Author",
+                "Id", 20);
+
+        assertSearchesAuthor(plan);
+    }
+
+    @Test
+    public void authorNamesByPrefix_seeksNameIndex() {
+        List<String> plan = explain(BooksDao.AUTHOR_NAMES_BY_PREFIX, "Tol", "Tol", 20);
+
+        assertUsesIndex(plan, "index_author_name");
+        assertThat(plan.get(0), containsString("SEARCH"));
+    }
+
+    @Test
+    public void favoriteOfBooks_searchesFavoriteIndex() {
+        List<String> plan = explain("SELECT id FROM book WHERE favorite = ?", 1);
+
+        assertUsesIndex(plan, "index_book_favorite");
+    }
+
+    @Test
+    public void bookById_searchesPrimaryKey() {
+        List<String> plan = explain("SELECT * FROM Book WHERE id = ?", "Id");
+
+        assertNoFullScan(plan);
+        assertThat(plan.get(0), containsString("SEARCH"));
+    }
+
+    private List<String> explain(String query, Object... args) {
+        return explain(new SimpleSQLiteQuery(query, args));
+    }
+
+    private List<String> explain(final SupportSQLiteQuery query) {
+        SupportSQLiteDatabase db = mDatabase.getOpenHelper().getReadableDatabase();
+        List<String> plan = new ArrayList<>();
+        Cursor cursor = db.query(new SupportSQLiteQuery() {
+            @Override
+            public String getSql() {
+                return "EXPLAIN QUERY PLAN " + query.getSql();
+            }
+
+            @Override
+            public void bindTo(SupportSQLiteProgram statement) {
+                query.bindTo(statement);
+            }
+
+            @Override
+            public int getArgCount() {
+                return query.getArgCount();
+            }
+        });
+        try {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detail));
+            }
+        } finally {
+            cursor.close();
+        }
+        return plan;
+    }
+
+    private static String sortIndex(BooksSortType sortType) {
+        return "index_bookslist_" + BooksSortKeys.columnOf(sortType) + "_id";
+    }
+
+    private static String favoriteSortIndex(BooksSortType sortType) {
+        return "index_bookslist_favorite_" + BooksSortKeys.columnOf(sortType) + "_id";
+    }
+
+    private static void assertUsesIndex(List<String> plan, String index) {
+        assertNoFullScan(plan);
+        boolean used = false;
+        for (String step : plan) {
+            used |= step.contains(index);
+        }
+        assertThat(plan + " uses " + index, used, is(true));
+    }
+
+    /**
+     * The author is looked up by name, then their books through book_author, without scanning.
+     */
+    private static void assertSearchesAuthor(List<String> plan) {
+        assertThat(plan.get(0), containsString("SEARCH"));
+        assertThat(plan.get(0), containsString("index_book_author_author_id_book_id"));
+        boolean searchesName = false;
+        for (String step : plan) {
+            assertThat(step, not(containsString("SCAN")));
+            searchesName |= step.contains("index_author_name");
+        }
+        assertThat(plan + " uses index_author_name", searchesName, is(true));
+    }
+
+    private static void assertNoFullScan(List<String> plan) {
+        assertThat(plan.isEmpty(), is(false));
+        for (String step : plan) {
+            // A scan in index order stops at the LIMIT; a scan of the table itself doesn't.
+            if (step.startsWith("SCAN")) {
+                assertThat(step, containsString("INDEX"));
+            }
+            assertThat(step, not(containsString("TEMP B-TREE")));
+        }
+    }
+}
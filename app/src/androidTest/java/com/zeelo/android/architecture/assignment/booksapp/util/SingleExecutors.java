@@ -32,6 +32,6 @@ public class SingleExecutors extends AppExecutors {
     };
 
     public SingleExecutors() {
-        super(instant, instant, instant);
+        super(instant, instant, instant, instant);
     }
 }
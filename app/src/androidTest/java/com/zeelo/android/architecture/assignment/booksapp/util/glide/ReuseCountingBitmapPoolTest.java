@@ -0,0 +1,60 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.glide;
+
+import android.graphics.Bitmap;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Scrolls a simulated list of thumbnails through a {@link ReuseCountingBitmapPool} to check how
+ * many bitmaps are reused rather than allocated.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReuseCountingBitmapPoolTest {
+
+    private static final int THUMBNAIL_WIDTH = 168;
+
+    private static final int THUMBNAIL_HEIGHT = 240;
+
+    private static final int VISIBLE_ROWS = 8;
+
+    private static final int ROWS = 200;
+
+    @Test
+    public void scrollingFixedSizeThumbnails_reusesTheBitmapsOfRecycledRows() {
+        ReuseCountingBitmapPool pool = new ReuseCountingBitmapPool(4 * 1024 * 1024);
+        Deque<Bitmap> visible = new ArrayDeque<>();
+
+        for (int row = 0; row < ROWS; row++) {
+            visible.addLast(pool.getDirty(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT,
+                    Bitmap.Config.RGB_565));
+            if (visible.size() > VISIBLE_ROWS) {
+                // The row scrolled out, and its thumbnail was cleared.
+                pool.put(visible.removeFirst());
+            }
+        }
+
+        // Only the first screen of rows allocates.
+        assertThat(pool.getAllocationCount(), is((long) VISIBLE_ROWS + 1));
+        assertThat(pool.getReuseCount(), is((long) ROWS - VISIBLE_ROWS - 1));
+        assertThat(pool.getReuseRate(), greaterThan(0.9));
+    }
+
+    @Test
+    public void emptyPool_hasNoReuse() {
+        ReuseCountingBitmapPool pool = new ReuseCountingBitmapPool(4 * 1024 * 1024);
+
+        pool.get(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, Bitmap.Config.RGB_565);
+
+        assertThat(pool.getReuseRate(), is(0.0));
+        assertThat(pool.getAllocationCount(), is(1L));
+    }
+}
@@ -77,10 +77,32 @@ public class AddEditBookViewModel extends AndroidViewModel implements BooksDataS
     public void onBookDetailsLoaded(Book book) {
         title.set(book.getTitle());
         if (book.getVolumeInfo() != null) {
-            description.set(book.getVolumeInfo().getDescription());
             favorite.set(book.isFavorite());
+            if (book.getVolumeInfo().getDescription() != null) {
+                description.set(book.getVolumeInfo().getDescription());
+                onBookLoaded();
+                return;
+            }
         }
 
+        // Books read from the database come without their description. Saving before it loads
+        // would drop it, so the book is still loading until then.
+        mBooksRepository.getBookDescription(book.getId(),
+                new BooksDataSource.GetBookDescriptionCallback() {
+                    @Override
+                    public void onDescriptionLoaded(@Nullable String loaded) {
+                        description.set(loaded);
+                        onBookLoaded();
+                    }
+
+                    @Override
+                    public void onDataNotAvailable() {
+                        AddEditBookViewModel.this.onDataNotAvailable();
+                    }
+                });
+    }
+
+    private void onBookLoaded() {
         dataLoading.set(false);
         mIsDataLoaded = true;
 
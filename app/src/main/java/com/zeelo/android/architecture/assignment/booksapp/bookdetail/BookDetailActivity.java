@@ -16,6 +16,7 @@ import com.zeelo.android.architecture.assignment.booksapp.R;
 import com.zeelo.android.architecture.assignment.booksapp.ViewModelFactory;
 import com.zeelo.android.architecture.assignment.booksapp.addeditbook.AddEditBookActivity;
 import com.zeelo.android.architecture.assignment.booksapp.addeditbook.AddEditBookFragment;
+import com.zeelo.android.architecture.assignment.booksapp.books.BooksActivity;
 import com.zeelo.android.architecture.assignment.booksapp.util.ActivityUtils;
 
 import static com.zeelo.android.architecture.assignment.booksapp.addeditbook.AddEditBookActivity.ADD_EDIT_RESULT_OK;
@@ -96,6 +97,14 @@ public class BookDetailActivity extends AppCompatActivity implements BookDetailN
                 BookDetailActivity.this.onBookDeleted();
             }
         });
+        viewModel.getOpenAuthorCommand().observe(this, new Observer<String>() {
+            @Override
+            public void onChanged(@Nullable String author) {
+                if (author != null) {
+                    BookDetailActivity.this.onOpenAuthor(author);
+                }
+            }
+        });
     }
 
     @Override
@@ -131,4 +140,10 @@ public class BookDetailActivity extends AppCompatActivity implements BookDetailN
         startActivityForResult(intent, REQUEST_EDIT_TASK);
     }
 
+    @Override
+    public void onOpenAuthor(String author) {
+        Intent intent = new Intent(this, BooksActivity.class);
+        intent.putExtra(BooksActivity.EXTRA_AUTHOR, author);
+        startActivity(intent);
+    }
 }
@@ -15,6 +15,8 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.CheckBox;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.RequestOptions;
@@ -24,6 +26,8 @@ import com.zeelo.android.architecture.assignment.booksapp.data.Book;
 import com.zeelo.android.architecture.assignment.booksapp.databinding.BookdetailFragBinding;
 import com.zeelo.android.architecture.assignment.booksapp.util.SnackbarUtils;
 
+import java.util.List;
+
 
 /**
  * Main UI for the book detail screen.
@@ -36,6 +40,8 @@ public class BookDetailFragment extends Fragment {
 
     private BookDetailViewModel mViewModel;
 
+    private LinearLayout mAuthorsLayout;
+
     public static BookDetailFragment newInstance(String bookId) {
         Bundle arguments = new Bundle();
         arguments.putString(ARGUMENT_BOOK_ID, bookId);
@@ -98,6 +104,8 @@ public class BookDetailFragment extends Fragment {
 
         viewDataBinding.setListener(actionsListener);
 
+        mAuthorsLayout = viewDataBinding.bookAuthors;
+
         subscribeToModel(mViewModel);
 
         setHasOptionsMenu(true);
@@ -114,10 +122,32 @@ public class BookDetailFragment extends Fragment {
                 model.setBook(book);
 
                 updateBookLargeThumbnail(book);
+
+                showAuthors(model.getAuthors());
             }
         });
     }
 
+    /**
+     * Shows every author of the book, each opening the list of their books when clicked.
+     */
+    private void showAuthors(List<String> authors) {
+        mAuthorsLayout.removeAllViews();
+        LayoutInflater inflater = LayoutInflater.from(getContext());
+        for (final String author : authors) {
+            TextView authorView = (TextView) inflater.inflate(R.layout.bookdetail_author,
+                    mAuthorsLayout, false);
+            authorView.setText(author);
+            authorView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    mViewModel.openAuthor(author);
+                }
+            });
+            mAuthorsLayout.addView(authorView);
+        }
+    }
+
     private void updateBookLargeThumbnail(Book book) {
         ImageView appBarImage = getActivity().findViewById(R.id.book_large_thumbnail);
         ImageView bookImage = getActivity().findViewById(R.id.book_small_thumbnail);
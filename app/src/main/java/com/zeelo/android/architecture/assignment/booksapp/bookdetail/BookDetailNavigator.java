@@ -9,4 +9,6 @@ public interface BookDetailNavigator {
     void onBookDeleted();
 
     void onStartEditBook();
+
+    void onOpenAuthor(String author);
 }
@@ -4,9 +4,11 @@ package com.zeelo.android.architecture.assignment.booksapp.bookdetail;
 import android.app.Application;
 import android.arch.lifecycle.AndroidViewModel;
 import android.arch.lifecycle.LiveData;
-import android.arch.lifecycle.MutableLiveData;
+import android.arch.lifecycle.MediatorLiveData;
+import android.arch.lifecycle.Observer;
 import android.databinding.ObservableBoolean;
 import android.databinding.ObservableField;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringRes;
 
@@ -18,6 +20,10 @@ import com.zeelo.android.architecture.assignment.booksapp.data.Book;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksRepository;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 
 /**
  * Listens to user actions from the list item in ({@link BooksFragment}) and redirects them to the
@@ -25,16 +31,33 @@ import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksRepos
  */
 public class BookDetailViewModel extends AndroidViewModel implements BooksDataSource.GetBookDetailsCallback {
 
-    private final MutableLiveData<Book> mObservableBook = new MutableLiveData<>();
+    /**
+     * The book loaded by {@link #start(String)}, then the book stored as it changes.
+     */
+    private final MediatorLiveData<Book> mObservableBook = new MediatorLiveData<>();
+
+    /**
+     * The stored book {@link #mObservableBook} follows, or null before {@link #start(String)}.
+     */
+    @Nullable
+    private LiveData<Book> mStoredBook;
 
     public final ObservableField<Book> book = new ObservableField<>();
 
+    /**
+     * The description of {@link #book}, which books read from the database don't carry: it is
+     * loaded on its own once the book is.
+     */
+    public final ObservableField<String> description = new ObservableField<>();
+
     public final ObservableBoolean favorited = new ObservableBoolean();
 
     private final SingleLiveEvent<Void> mEditBookCommand = new SingleLiveEvent<>();
 
     private final SingleLiveEvent<Void> mDeleteBookCommand = new SingleLiveEvent<>();
 
+    private final SingleLiveEvent<String> mOpenAuthorCommand = new SingleLiveEvent<>();
+
     private final BooksRepository mBooksRepository;
 
     private final SnackbarMessage mSnackbarText = new SnackbarMessage();
@@ -57,6 +80,13 @@ public class BookDetailViewModel extends AndroidViewModel implements BooksDataSo
         mEditBookCommand.call();
     }
 
+    /**
+     * Lists the other books of {@code author}, one of {@link #getAuthors()}.
+     */
+    public void openAuthor(String author) {
+        mOpenAuthorCommand.setValue(author);
+    }
+
     public SnackbarMessage getSnackbarMessage() {
         return mSnackbarText;
     }
@@ -69,6 +99,10 @@ public class BookDetailViewModel extends AndroidViewModel implements BooksDataSo
         return mDeleteBookCommand;
     }
 
+    public SingleLiveEvent<String> getOpenAuthorCommand() {
+        return mOpenAuthorCommand;
+    }
+
     public LiveData<Book> getObservableBook() {
         return mObservableBook;
     }
@@ -89,11 +123,36 @@ public class BookDetailViewModel extends AndroidViewModel implements BooksDataSo
 
     public void start(String bookId) {
         if (bookId != null) {
+            observeStoredBook(bookId);
             mIsDataLoading = true;
             mBooksRepository.getBookDetails(bookId, this);
         }
     }
 
+    /**
+     * Follows the stored book while the screen observes it, so an edit or a sync shows without
+     * loading the book again. A book that is no longer stored keeps showing until the screen
+     * closes.
+     */
+    private void observeStoredBook(String bookId) {
+        LiveData<Book> storedBook = mBooksRepository.observeBook(bookId);
+        if (storedBook == mStoredBook) {
+            return;
+        }
+        if (mStoredBook != null) {
+            mObservableBook.removeSource(mStoredBook);
+        }
+        mStoredBook = storedBook;
+        mObservableBook.addSource(storedBook, new Observer<Book>() {
+            @Override
+            public void onChanged(@Nullable Book book) {
+                if (book != null) {
+                    onBookDetailsLoaded(book);
+                }
+            }
+        });
+    }
+
     public void setBook(Book book) {
         this.book.set(book);
     }
@@ -111,14 +170,44 @@ public class BookDetailViewModel extends AndroidViewModel implements BooksDataSo
         setBook(book);
         this.mObservableBook.setValue(book);
         mIsDataLoading = false;
+        loadDescription(book);
     }
 
     @Override
     public void onDataNotAvailable() {
         book.set(null);
+        description.set(null);
         mIsDataLoading = false;
     }
 
+    private void loadDescription(@Nullable final Book book) {
+        if (book == null) {
+            description.set(null);
+            return;
+        }
+        if (book.getVolumeInfo() != null && book.getVolumeInfo().getDescription() != null) {
+            description.set(book.getVolumeInfo().getDescription());
+            return;
+        }
+        mBooksRepository.getBookDescription(book.getId(),
+                new BooksDataSource.GetBookDescriptionCallback() {
+                    @Override
+                    public void onDescriptionLoaded(@Nullable String loaded) {
+                        // Ignore a description that arrives after another book was loaded.
+                        if (BookDetailViewModel.this.book.get() == book) {
+                            description.set(loaded);
+                        }
+                    }
+
+                    @Override
+                    public void onDataNotAvailable() {
+                        if (BookDetailViewModel.this.book.get() == book) {
+                            description.set(null);
+                        }
+                    }
+                });
+    }
+
     public void onRefresh() {
         if (book.get() != null) {
             start(book.get().getId());
@@ -130,12 +219,24 @@ public class BookDetailViewModel extends AndroidViewModel implements BooksDataSo
         return book.get().getId();
     }
 
-    @Nullable
-    public String getAuthor() {
-        if (book.get().getVolumeInfo() != null && book.get().getVolumeInfo().getAuthors() != null) {
-            return book.get().getVolumeInfo().getAuthors().get(0);
+    /**
+     * @return the authors of the book, in the order it lists them, or an empty list if it has
+     * none or isn't loaded.
+     */
+    @NonNull
+    public List<String> getAuthors() {
+        Book book = this.book.get();
+        if (book == null || book.getVolumeInfo() == null
+                || book.getVolumeInfo().getAuthors() == null) {
+            return Collections.emptyList();
+        }
+        List<String> authors = new ArrayList<>();
+        for (String author : book.getVolumeInfo().getAuthors()) {
+            if (author != null && !author.isEmpty()) {
+                authors.add(author);
+            }
         }
-        return null;
+        return authors;
     }
 
     private void showSnackbarMessage(@StringRes Integer message) {
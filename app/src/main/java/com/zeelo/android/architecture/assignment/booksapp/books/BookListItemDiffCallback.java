@@ -0,0 +1,41 @@
+package com.zeelo.android.architecture.assignment.booksapp.books;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+
+import com.google.common.base.Objects;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+/**
+ * Compares {@link BookListItem}s for the books list. Items are the same book when their ids match,
+ * and need to be rebound only when something shown in the row changed.
+ * <p>
+ * A list a page was appended to holds the very same items as the list shown, so those are only
+ * compared by reference.
+ */
+class BookListItemDiffCallback extends DiffUtil.ItemCallback<BookListItem> {
+
+    @Override
+    public boolean areItemsTheSame(BookListItem oldItem, BookListItem newItem) {
+        return oldItem == newItem || oldItem.getId().equals(newItem.getId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(BookListItem oldItem, BookListItem newItem) {
+        if (oldItem == newItem) {
+            return true;
+        }
+        return Objects.equal(oldItem.getTitle(), newItem.getTitle())
+                && Objects.equal(thumbnailOf(oldItem), thumbnailOf(newItem));
+    }
+
+    @Nullable
+    private static String thumbnailOf(@NonNull BookListItem item) {
+        BookListItem.VolumeInfo volumeInfo = item.getVolumeInfo();
+        if (volumeInfo == null || volumeInfo.getImageLinks() == null) {
+            return null;
+        }
+        return volumeInfo.getImageLinks().getThumbnail();
+    }
+}
@@ -21,10 +21,22 @@ import com.zeelo.android.architecture.assignment.booksapp.addeditbook.AddEditBoo
 import com.zeelo.android.architecture.assignment.booksapp.bookdetail.BookDetailActivity;
 import com.zeelo.android.architecture.assignment.booksapp.statistics.StatisticsActivity;
 import com.zeelo.android.architecture.assignment.booksapp.util.ActivityUtils;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.BooksMetrics;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.StartupTrace;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.Arrays;
 
 
 public class BooksActivity extends AppCompatActivity implements BookItemNavigator, BooksNavigator {
 
+    /**
+     * The author whose books to list, as the detail screen links to them. Without it, all the
+     * books are listed.
+     */
+    public static final String EXTRA_AUTHOR = "AUTHOR";
+
     private DrawerLayout mDrawerLayout;
 
     private BooksViewModel mViewModel;
@@ -42,6 +54,12 @@ public class BooksActivity extends AppCompatActivity implements BookItemNavigato
 
         mViewModel = obtainViewModel(this);
 
+        String author = getIntent().getStringExtra(EXTRA_AUTHOR);
+        if (author != null) {
+            mViewModel.setAuthor(author);
+            setTitle(author);
+        }
+
         // Subscribe to "open book" event
         mViewModel.getOpenBookEvent().observe(this, new Observer<String>() {
             @Override
@@ -86,10 +104,16 @@ public class BooksActivity extends AppCompatActivity implements BookItemNavigato
         Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
         ActionBar ab = getSupportActionBar();
-        ab.setHomeAsUpIndicator(R.drawable.ic_menu);
+        if (!isAuthorListed()) {
+            ab.setHomeAsUpIndicator(R.drawable.ic_menu);
+        }
         ab.setDisplayHomeAsUpEnabled(true);
     }
 
+    private boolean isAuthorListed() {
+        return getIntent().hasExtra(EXTRA_AUTHOR);
+    }
+
     private void setupNavigationDrawer() {
         mDrawerLayout = (DrawerLayout) findViewById(R.id.drawer_layout);
         mDrawerLayout.setStatusBarBackground(R.color.colorPrimary);
@@ -103,6 +127,11 @@ public class BooksActivity extends AppCompatActivity implements BookItemNavigato
     public boolean onOptionsItemSelected(MenuItem item) {
         switch (item.getItemId()) {
             case android.R.id.home:
+                if (isAuthorListed()) {
+                    // Go back to the book the author was opened from.
+                    onBackPressed();
+                    return true;
+                }
                 // Open the navigation drawer when the home icon is selected from the toolbar.
                 mDrawerLayout.openDrawer(GravityCompat.START);
                 return true;
@@ -154,4 +183,22 @@ public class BooksActivity extends AppCompatActivity implements BookItemNavigato
         Intent intent = new Intent(this, AddEditBookActivity.class);
         startActivityForResult(intent, AddEditBookActivity.REQUEST_CODE);
     }
+
+    /**
+     * Prints the metrics of the data layer and the startup report as JSON with
+     * {@code adb shell dumpsys activity <package>/.books.BooksActivity}, and also logs them with
+     * {@code --log}.
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println(BooksMetrics.get().toJson());
+        writer.print(prefix);
+        writer.println(StartupTrace.get().toJson());
+        if (args != null && Arrays.asList(args).contains("--log")) {
+            BooksMetrics.get().log();
+            StartupTrace.get().log();
+        }
+    }
 }
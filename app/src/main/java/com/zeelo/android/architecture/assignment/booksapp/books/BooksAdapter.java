@@ -1,104 +1,178 @@
 package com.zeelo.android.architecture.assignment.booksapp.books;
 
-import android.databinding.DataBindingUtil;
+import android.content.res.Resources;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.recyclerview.extensions.AsyncListDiffer;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
-import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.ImageView;
 
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
 import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
 import com.zeelo.android.architecture.assignment.booksapp.R;
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
 import com.zeelo.android.architecture.assignment.booksapp.databinding.BookItemBinding;
 
+import java.util.Collections;
 import java.util.List;
 
-
-public class BooksAdapter extends BaseAdapter {
+/**
+ * Shows the books list. Every new list is diffed against the current one on a background thread
+ * by an {@link AsyncListDiffer}, so only the rows that changed are rebound, and a page appended to
+ * the list only inserts its rows.
+ * <p>
+ * Thumbnails are decoded in RGB_565 at the size of the row's image, so they take a quarter of the
+ * memory of full resolution ARGB_8888 images and the bitmaps of the rows that scroll out can be
+ * reused for the ones that scroll in. The adapter also provides the thumbnails of the rows about
+ * to scroll in to a {@link com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader},
+ * with the very same options, so they are already in the memory cache when bound.
+ */
+public class BooksAdapter extends RecyclerView.Adapter<BooksAdapter.BookViewHolder>
+        implements ListPreloader.PreloadModelProvider<String> {
+
+    private final AsyncListDiffer<BookListItem> mDiffer =
+            new AsyncListDiffer<>(this, new BookListItemDiffCallback());
 
     private final BooksViewModel mBooksViewModel;
 
-    private List<BookListItem> mBookItems;
-
     private final RequestManager glide;
 
-    public BooksAdapter(List<BookListItem> books,
-                        BooksViewModel booksViewModel,
-                        RequestManager glide) {
+    /**
+     * The options of every thumbnail, locked so they are shared rather than copied.
+     */
+    private final RequestOptions mThumbnailOptions;
+
+    private final FixedPreloadSizeProvider<String> mPreloadSizeProvider;
+
+    private final BookItemUserActionsListener mUserActionsListener =
+            new BookItemUserActionsListener() {
+
+                @Override
+                public void onBookClicked(BookListItem book) {
+                    mBooksViewModel.getOpenBookEvent().setValue(book.getId());
+                }
+            };
+
+    public BooksAdapter(BooksViewModel booksViewModel,
+                        RequestManager glide,
+                        Resources resources) {
         mBooksViewModel = booksViewModel;
         this.glide = glide;
-        setList(books);
 
+        int width = resources.getDimensionPixelSize(R.dimen.list_item_width);
+        int height = resources.getDimensionPixelSize(R.dimen.list_item_height);
+        mThumbnailOptions = new RequestOptions()
+                .placeholder(R.drawable.loadingBookBackground)
+                .error(R.drawable.logo)
+                .centerInside()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .override(width, height)
+                .lock();
+        mPreloadSizeProvider = new FixedPreloadSizeProvider<>(width, height);
     }
 
-    public void replaceData(List<BookListItem> books) {
-        setList(books);
+    /**
+     * @return the size the thumbnails are decoded at, for the preloader.
+     */
+    public FixedPreloadSizeProvider<String> getPreloadSizeProvider() {
+        return mPreloadSizeProvider;
     }
 
-    @Override
-    public int getCount() {
-        return mBookItems != null ? mBookItems.size() : 0;
+    /**
+     * @param newBooks the new books, which must not be modified afterwards.
+     */
+    public void replaceData(@Nullable List<BookListItem> newBooks) {
+        // An empty list is submitted as null, so the rows are removed without being diffed.
+        mDiffer.submitList(newBooks != null && !newBooks.isEmpty() ? newBooks : null);
     }
 
     @Override
-    public BookListItem getItem(int position) {
-        return mBookItems.get(position);
+    public int getItemCount() {
+        return mDiffer.getCurrentList().size();
+    }
+
+    private BookListItem getItem(int position) {
+        return mDiffer.getCurrentList().get(position);
     }
 
     @Override
-    public long getItemId(int position) {
-        return position;
+    public BookViewHolder onCreateViewHolder(ViewGroup viewGroup, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(viewGroup.getContext());
+        BookItemBinding binding = BookItemBinding.inflate(inflater, viewGroup, false);
+        binding.setListener(mUserActionsListener);
+        return new BookViewHolder(binding);
     }
 
     @Override
-    public View getView(int position, final View view, final ViewGroup viewGroup) {
-        BookItemBinding binding;
-        if (view == null) {
-            // Inflate
-            LayoutInflater inflater = LayoutInflater.from(viewGroup.getContext());
-
-            // Create the binding
-            binding = BookItemBinding.inflate(inflater, viewGroup, false);
+    public void onBindViewHolder(BookViewHolder holder, int position) {
+        BookItemBinding binding = holder.mBinding;
+        BookListItem book = getItem(position);
+
+        binding.setBook(book);
+
+        String thumbnail = getThumbnail(book);
+        if (thumbnail != null) {
+            loadThumbnail(thumbnail, binding.bookThumbnail);
         } else {
-            // Recycling view
-            binding = DataBindingUtil.getBinding(view);
+            glide.clear(binding.bookThumbnail);
         }
 
-        BookItemUserActionsListener userActionsListener = new BookItemUserActionsListener() {
-
-            @Override
-            public void onBookClicked(BookListItem book) {
-                mBooksViewModel.getOpenBookEvent().setValue(book.getId());
-            }
-        };
+        binding.executePendingBindings();
+    }
 
-        binding.setBook(mBookItems.get(position));
+    /**
+     * Releases the thumbnail of a row that scrolled out, so its bitmap goes back to the pool.
+     */
+    @Override
+    public void onViewRecycled(BookViewHolder holder) {
+        glide.clear(holder.mBinding.bookThumbnail);
+    }
 
-        BookListItem.VolumeInfo volumeInfo = mBookItems.get(position).getVolumeInfo();
-        if (volumeInfo != null && volumeInfo.getImageLinks() != null) {
-            loadThumbnail(volumeInfo.getImageLinks().getThumbnail(), binding.bookThumbnail);
+    @NonNull
+    @Override
+    public List<String> getPreloadItems(int position) {
+        if (position >= getItemCount()) {
+            return Collections.emptyList();
         }
+        String thumbnail = getThumbnail(getItem(position));
+        return thumbnail != null
+                ? Collections.singletonList(thumbnail) : Collections.<String>emptyList();
+    }
 
-        binding.setListener(userActionsListener);
-
-        binding.executePendingBindings();
-        return binding.getRoot();
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull String url) {
+        return glide.load(url).apply(mThumbnailOptions);
     }
 
     private void loadThumbnail(String url, ImageView imageView) {
-        RequestOptions requestOptions = new RequestOptions();
-        requestOptions.placeholder(R.drawable.loadingBookBackground);
-        requestOptions.error(R.drawable.logo);
-        requestOptions.centerInside();
         glide.load(url)
-                .apply(requestOptions)
+                .apply(mThumbnailOptions)
                 .into(imageView);
     }
 
-    private void setList(List<BookListItem> books) {
-        mBookItems = books;
-        notifyDataSetChanged();
+    @Nullable
+    private static String getThumbnail(BookListItem book) {
+        BookListItem.VolumeInfo volumeInfo = book.getVolumeInfo();
+        if (volumeInfo == null || volumeInfo.getImageLinks() == null) {
+            return null;
+        }
+        return volumeInfo.getImageLinks().getThumbnail();
+    }
+
+    static class BookViewHolder extends RecyclerView.ViewHolder {
+
+        final BookItemBinding mBinding;
+
+        BookViewHolder(BookItemBinding binding) {
+            super(binding.getRoot());
+            mBinding = binding;
+        }
     }
 }
@@ -1,36 +1,53 @@
 
 package com.zeelo.android.architecture.assignment.booksapp.books;
 
+import android.arch.lifecycle.Observer;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringRes;
 import android.support.design.widget.FloatingActionButton;
 import android.support.v4.app.Fragment;
 import android.support.v4.content.ContextCompat;
+import android.support.v4.view.MenuItemCompat;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.PopupMenu;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ListView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
 import com.zeelo.android.architecture.assignment.booksapp.R;
 import com.zeelo.android.architecture.assignment.booksapp.ScrollChildSwipeRefreshLayout;
 import com.zeelo.android.architecture.assignment.booksapp.SnackbarMessage;
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksFilterType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSortType;
 import com.zeelo.android.architecture.assignment.booksapp.databinding.BooksFragBinding;
 import com.zeelo.android.architecture.assignment.booksapp.util.SnackbarUtils;
 
-import java.util.ArrayList;
-
 /**
  * Display a grid of {@link BookListItem}s. User can choose to view all, active or favorited books.
  */
 public class BooksFragment extends Fragment {
 
+    /**
+     * The next page is requested when fewer than this many rows are left below the last visible
+     * one.
+     */
+    private static final int PREFETCH_DISTANCE = 10;
+
+    /**
+     * The number of rows below the last visible one whose thumbnails are loaded ahead.
+     */
+    private static final int THUMBNAIL_PRELOAD_ROWS = 6;
+
     private BooksViewModel mBooksViewModel;
 
     private BooksFragBinding mBooksFragBinding;
@@ -75,6 +92,18 @@ public class BooksFragment extends Fragment {
             case R.id.menu_refresh:
                 mBooksViewModel.loadBooks(true);
                 break;
+            case R.id.sort_title:
+                sortBy(BooksSortType.TITLE);
+                break;
+            case R.id.sort_author:
+                sortBy(BooksSortType.AUTHOR);
+                break;
+            case R.id.sort_published_date:
+                sortBy(BooksSortType.PUBLISHED_DATE);
+                break;
+            case R.id.sort_page_count:
+                sortBy(BooksSortType.PAGE_COUNT);
+                break;
         }
         return true;
     }
@@ -82,6 +111,29 @@ public class BooksFragment extends Fragment {
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
         inflater.inflate(R.menu.books_fragment_menu, menu);
+        setupSearchView(menu.findItem(R.id.menu_search));
+        // The books of an author aren't filtered.
+        menu.findItem(R.id.menu_filter).setVisible(mBooksViewModel.getAuthor() == null);
+        // Nor sorted by anything else than their title.
+        menu.findItem(R.id.menu_sort).setVisible(mBooksViewModel.getAuthor() == null);
+    }
+
+    @Override
+    public void onPrepareOptionsMenu(Menu menu) {
+        switch (mBooksViewModel.getSorting()) {
+            case AUTHOR:
+                menu.findItem(R.id.sort_author).setChecked(true);
+                break;
+            case PUBLISHED_DATE:
+                menu.findItem(R.id.sort_published_date).setChecked(true);
+                break;
+            case PAGE_COUNT:
+                menu.findItem(R.id.sort_page_count).setChecked(true);
+                break;
+            default:
+                menu.findItem(R.id.sort_title).setChecked(true);
+                break;
+        }
     }
 
     @Override
@@ -90,6 +142,8 @@ public class BooksFragment extends Fragment {
 
         setupSnackbar();
 
+        setupStoredBooks();
+
         setupFab();
 
         setupListAdapter();
@@ -97,6 +151,25 @@ public class BooksFragment extends Fragment {
         setupRefreshLayout();
     }
 
+    private void setupSearchView(MenuItem searchItem) {
+        final SearchView searchView = (SearchView) MenuItemCompat.getActionView(searchItem);
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                mBooksViewModel.search(query);
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                mBooksViewModel.search(newText);
+                return true;
+            }
+        });
+    }
+
     private void setupSnackbar() {
         mBooksViewModel.getSnackbarMessage().observe(this, new SnackbarMessage.SnackbarObserver() {
             @Override
@@ -106,6 +179,22 @@ public class BooksFragment extends Fragment {
         });
     }
 
+    private void setupStoredBooks() {
+        mBooksViewModel.getStoredBooksVersion().observe(this, new Observer<Long>() {
+            @Override
+            public void onChanged(@Nullable Long version) {
+                mBooksViewModel.onStoredBooksChanged(version);
+            }
+        });
+    }
+
+    private void sortBy(BooksSortType sortType) {
+        if (sortType != mBooksViewModel.getSorting()) {
+            mBooksViewModel.setSorting(sortType);
+            mBooksViewModel.loadBooks(false);
+        }
+    }
+
     private void showFilteringPopUpMenu() {
         PopupMenu popup = new PopupMenu(getContext(), getActivity().findViewById(R.id.menu_filter));
         popup.getMenuInflater().inflate(R.menu.filter_books, popup.getMenu());
@@ -145,18 +234,33 @@ public class BooksFragment extends Fragment {
     }
 
     private void setupListAdapter() {
-        ListView listView =  mBooksFragBinding.booksList;
+        RecyclerView recyclerView = mBooksFragBinding.booksList;
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        recyclerView.setLayoutManager(layoutManager);
 
+        RequestManager glide = Glide.with(this);
         mListAdapter = new BooksAdapter(
-                new ArrayList<BookListItem>(0),
                 mBooksViewModel,
-                Glide.with(this)
+                glide,
+                getResources()
         );
-        listView.setAdapter(mListAdapter);
+        recyclerView.setAdapter(mListAdapter);
+        recyclerView.addOnScrollListener(new RecyclerViewPreloader<>(glide, mListAdapter,
+                mListAdapter.getPreloadSizeProvider(), THUMBNAIL_PRELOAD_ROWS));
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int itemCount = layoutManager.getItemCount();
+                if (itemCount > 0 && layoutManager.findLastVisibleItemPosition()
+                        + PREFETCH_DISTANCE >= itemCount) {
+                    mBooksViewModel.loadNextPage();
+                }
+            }
+        });
     }
 
     private void setupRefreshLayout() {
-        ListView listView =  mBooksFragBinding.booksList;
+        RecyclerView recyclerView = mBooksFragBinding.booksList;
         final ScrollChildSwipeRefreshLayout swipeRefreshLayout = mBooksFragBinding.refreshLayout;
         swipeRefreshLayout.setColorSchemeColors(
                 ContextCompat.getColor(getActivity(), R.color.colorPrimary),
@@ -164,7 +268,7 @@ public class BooksFragment extends Fragment {
                 ContextCompat.getColor(getActivity(), R.color.colorPrimaryDark)
         );
         // Set the scrolling view in the custom SwipeRefreshLayout.
-        swipeRefreshLayout.setScrollUpChild(listView);
+        swipeRefreshLayout.setScrollUpChild(recyclerView);
     }
 
 }
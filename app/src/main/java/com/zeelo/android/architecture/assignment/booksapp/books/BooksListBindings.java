@@ -1,8 +1,7 @@
-
 package com.zeelo.android.architecture.assignment.booksapp.books;
 
 import android.databinding.BindingAdapter;
-import android.widget.ListView;
+import android.support.v7.widget.RecyclerView;
 
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
 
@@ -15,8 +14,8 @@ public class BooksListBindings {
 
     @SuppressWarnings("unchecked")
     @BindingAdapter("app:items")
-    public static void setItems(ListView listView, List<BookListItem> items) {
-        BooksAdapter adapter = (BooksAdapter) listView.getAdapter();
+    public static void setItems(RecyclerView recyclerView, List<BookListItem> items) {
+        BooksAdapter adapter = (BooksAdapter) recyclerView.getAdapter();
         if (adapter != null)
         {
             adapter.replaceData(items);
@@ -3,14 +3,16 @@ package com.zeelo.android.architecture.assignment.booksapp.books;
 
 import android.app.Application;
 import android.arch.lifecycle.AndroidViewModel;
+import android.arch.lifecycle.LiveData;
 import android.content.Context;
 import android.databinding.BaseObservable;
 import android.databinding.Bindable;
-import android.databinding.ObservableArrayList;
 import android.databinding.ObservableBoolean;
 import android.databinding.ObservableField;
-import android.databinding.ObservableList;
 import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 
 import com.zeelo.android.architecture.assignment.booksapp.R;
 import com.zeelo.android.architecture.assignment.booksapp.SingleLiveEvent;
@@ -19,7 +21,11 @@ import com.zeelo.android.architecture.assignment.booksapp.addeditbook.AddEditBoo
 import com.zeelo.android.architecture.assignment.booksapp.bookdetail.BookDetailActivity;
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksFilterType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksPageKey;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksRepository;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSortType;
+import com.zeelo.android.architecture.assignment.booksapp.util.Debouncer;
 
 import java.util.List;
 
@@ -33,8 +39,23 @@ import java.util.List;
  */
 public class BooksViewModel extends AndroidViewModel {
 
+    /**
+     * Number of books loaded at a time as the list is scrolled.
+     */
+    static final int PAGE_SIZE = 50;
+
+    /**
+     * A search runs once the query hasn't changed for this long.
+     */
+    static final long SEARCH_DEBOUNCE_MILLIS = 300;
+
     // These observable fields will update Views automatically
-    public final ObservableList<BookListItem> items = new ObservableArrayList<>();
+    /**
+     * The books shown. Each change sets a new, unmodifiable list so the view can diff it against
+     * the previous one. Pages are appended to the list shown, so the view only inserts them.
+     */
+    public final ObservableField<List<BookListItem>> items =
+            new ObservableField<List<BookListItem>>(GrowingBooksList.empty());
 
     public final ObservableBoolean dataLoading = new ObservableBoolean(false);
 
@@ -52,6 +73,14 @@ public class BooksViewModel extends AndroidViewModel {
 
     private BooksFilterType mCurrentFiltering = BooksFilterType.ALL_BOOKS;
 
+    private BooksSortType mSortType = BooksSortType.TITLE;
+
+    /**
+     * The author whose books are listed, rather than the books passing the filter, or null.
+     */
+    @Nullable
+    private String mAuthor;
+
     private final BooksRepository mBooksRepository;
 
     private final ObservableBoolean mIsDataLoadingError = new ObservableBoolean(false);
@@ -62,19 +91,64 @@ public class BooksViewModel extends AndroidViewModel {
 
     private final SingleLiveEvent<Void> mNewBookEvent = new SingleLiveEvent<>();
 
+    /**
+     * Key of the next page to load, or null once the last page has been loaded.
+     */
+    @Nullable
+    private BooksPageKey mNextPageKey;
+
+    private boolean mPageLoading;
+
+    /**
+     * Incremented on every reload, so pages requested for a previous load are dropped.
+     */
+    private int mLoadGeneration;
+
+    private final Debouncer mSearchDebouncer;
+
+    /**
+     * The search whose matches are in {@link #items}, or null when all books are listed.
+     */
+    @Nullable
+    private String mSearchQuery;
+
+    private boolean mMoreSearchResults;
+
+    /**
+     * The version of the books stored when it was last observed, or null if it hasn't been
+     * observed yet.
+     */
+    @Nullable
+    private Long mStoredBooksVersion;
+
     public BooksViewModel(
             Application context,
             BooksRepository repository) {
+        this(context, repository, new Debouncer(SEARCH_DEBOUNCE_MILLIS));
+    }
+
+    @VisibleForTesting
+    BooksViewModel(
+            Application context,
+            BooksRepository repository,
+            Debouncer searchDebouncer) {
         super(context);
         mContext = context.getApplicationContext(); // Force use of Application Context.
         mBooksRepository = repository;
+        mSearchDebouncer = searchDebouncer;
 
         // Set initial state
         setFiltering(BooksFilterType.ALL_BOOKS);
     }
 
+    /**
+     * Loads the books the first time only. After that, the list is loaded again when the stored
+     * books change, rather than every time the screen is shown.
+     */
     public void start() {
-        loadBooks(false);
+        if (mLoadGeneration == 0) {
+            loadBooks(false);
+        }
     }
 
     public void loadBooks(boolean forceUpdate) {
@@ -117,6 +191,127 @@ public class BooksViewModel extends AndroidViewModel {
         }
     }
 
+    /**
+     * Sets the order of the books passing the filter. The books of an author are always sorted by
+     * title.
+     */
+    public void setSorting(@NonNull BooksSortType sortType) {
+        mSortType = sortType;
+    }
+
+    @NonNull
+    public BooksSortType getSorting() {
+        return mSortType;
+    }
+
+    /**
+     * Lists the books of {@code author} only, from the index of the authors, instead of the books
+     * passing the filter.
+     */
+    public void setAuthor(@NonNull String author) {
+        mAuthor = author;
+        currentFilteringLabel.set(mContext.getString(R.string.label_author, author));
+        noBooksLabel.set(mContext.getString(R.string.no_books_author));
+        booksAddViewVisible.set(false);
+    }
+
+    /**
+     * @return the author set by {@link #setAuthor(String)}, or null if the books are filtered.
+     */
+    @Nullable
+    public String getAuthor() {
+        return mAuthor;
+    }
+
+    /**
+     * Loads the page that follows the books already in {@link #items}. Does nothing if a page is
+     * already being loaded or the last page has been reached.
+     */
+    public void loadNextPage() {
+        if (mSearchQuery != null) {
+            loadNextSearchPage();
+            return;
+        }
+        if (mPageLoading || mNextPageKey == null) {
+            return;
+        }
+        mPageLoading = true;
+        final int generation = mLoadGeneration;
+
+        loadPage(mNextPageKey, new BooksDataSource.LoadBooksPageCallback() {
+            @Override
+            public void onBooksPageLoaded(List<BookListItem> books,
+                                          @Nullable BooksPageKey nextPageKey) {
+                if (generation != mLoadGeneration) {
+                    return;
+                }
+                mPageLoading = false;
+                mNextPageKey = nextPageKey;
+                appendItems(books);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                if (generation != mLoadGeneration) {
+                    return;
+                }
+                mPageLoading = false;
+                mIsDataLoadingError.set(true);
+            }
+        });
+    }
+
+    /**
+     * Searches the books as the user types. Only the last query of a burst is run, once it hasn't
+     * changed for {@link #SEARCH_DEBOUNCE_MILLIS}. An empty query lists all the books again.
+     */
+    public void search(@Nullable String query) {
+        final String trimmedQuery = query == null ? "" : query.trim();
+        if (trimmedQuery.equals(mSearchQuery == null ? "" : mSearchQuery)) {
+            mSearchDebouncer.cancel();
+            return;
+        }
+        if (trimmedQuery.isEmpty()) {
+            mSearchDebouncer.cancel();
+            mSearchQuery = null;
+            if (mAuthor != null) {
+                setAuthor(mAuthor);
+            } else {
+                setFiltering(mCurrentFiltering);
+            }
+            loadBooks(false, false);
+            return;
+        }
+        mSearchDebouncer.post(new Runnable() {
+            @Override
+            public void run() {
+                mSearchQuery = trimmedQuery;
+                loadSearchResults(trimmedQuery, false);
+            }
+        });
+    }
+
+    /**
+     * @return the version of the books stored, to pass to {@link #onStoredBooksChanged(Long)} as
+     * they change.
+     */
+    LiveData<Long> getStoredBooksVersion() {
+        return mBooksRepository.observeBooksVersion();
+    }
+
+    /**
+     * Reloads the list, quietly, once a book is added, edited or synced. The version first
+     * observed is the one of the books {@link #start()} loads, and observing the same version
+     * again, e.g. after a configuration change, reloads nothing.
+     */
+    void onStoredBooksChanged(@Nullable Long version) {
+        Long previousVersion = mStoredBooksVersion;
+        mStoredBooksVersion = version;
+        if (previousVersion != null && !previousVersion.equals(version)) {
+            loadBooks(false, false);
+        }
+    }
+
     SnackbarMessage getSnackbarMessage() {
         return mSnackbarText;
     }
@@ -157,6 +352,8 @@ public class BooksViewModel extends AndroidViewModel {
     }
 
     /**
+     * Reloads the list from its first page.
+     *
      * @param forceUpdate   Pass in true to refresh the data in the {@link BooksDataSource}
      * @param showLoadingUI Pass in true to display a loading icon in the UI
      */
@@ -168,24 +365,127 @@ public class BooksViewModel extends AndroidViewModel {
 
             mBooksRepository.refreshBooks();
         }
+        if (mSearchQuery != null) {
+            loadSearchResults(mSearchQuery, showLoadingUI);
+            return;
+        }
+
+        final int generation = ++mLoadGeneration;
+        mPageLoading = true;
 
-        mBooksRepository.getBooks(new BooksDataSource.LoadBooksListCallback() {
+        loadPage(null, new BooksDataSource.LoadBooksPageCallback() {
             @Override
-            public void onBooksListLoaded(List<BookListItem> books) {
+            public void onBooksPageLoaded(List<BookListItem> books,
+                                          @Nullable BooksPageKey nextPageKey) {
+                if (generation != mLoadGeneration) {
+                    return;
+                }
                 if (showLoadingUI) {
                     dataLoading.set(false);
                 }
                 mIsDataLoadingError.set(false);
+                mPageLoading = false;
+                mNextPageKey = nextPageKey;
 
-                items.clear();
-                items.addAll(books);
-                empty.set(items.isEmpty());
+                setItems(books);
+                empty.set(books.isEmpty());
             }
 
             @Override
             public void onDataNotAvailable() {
+                if (generation != mLoadGeneration) {
+                    return;
+                }
+                mPageLoading = false;
                 mIsDataLoadingError.set(true);
             }
         });
     }
+
+    private void loadPage(@Nullable BooksPageKey after,
+                          BooksDataSource.LoadBooksPageCallback callback) {
+        if (mAuthor != null) {
+            mBooksRepository.getBooksByAuthorPage(mAuthor, after, PAGE_SIZE, callback);
+        } else if (mSortType == BooksSortType.TITLE) {
+            mBooksRepository.getBooksPage(mCurrentFiltering, after, PAGE_SIZE, callback);
+        } else {
+            mBooksRepository.getSortedBooksPage(mSortType, mCurrentFiltering, after, PAGE_SIZE,
+                    callback);
+        }
+    }
+
+    /**
+     * Replaces {@link #items} with the first page of matches of {@code query}.
+     */
+    private void loadSearchResults(String query, final boolean showLoadingUI) {
+        final int generation = ++mLoadGeneration;
+        mPageLoading = true;
+
+        mBooksRepository.searchBooks(query, 0, PAGE_SIZE,
+                new BooksDataSource.LoadBooksListCallback() {
+                    @Override
+                    public void onBooksListLoaded(List<BookListItem> books) {
+                        if (generation != mLoadGeneration) {
+                            return;
+                        }
+                        if (showLoadingUI) {
+                            dataLoading.set(false);
+                        }
+                        mIsDataLoadingError.set(false);
+                        mPageLoading = false;
+                        mMoreSearchResults = books.size() == PAGE_SIZE;
+
+                        noBooksLabel.set(mContext.getString(R.string.no_books_found));
+                        setItems(books);
+                        empty.set(books.isEmpty());
+                    }
+
+                    @Override
+                    public void onDataNotAvailable() {
+                        if (generation != mLoadGeneration) {
+                            return;
+                        }
+                        mPageLoading = false;
+                        mIsDataLoadingError.set(true);
+                    }
+                });
+    }
+
+    private void loadNextSearchPage() {
+        if (mPageLoading || !mMoreSearchResults) {
+            return;
+        }
+        mPageLoading = true;
+        final int generation = mLoadGeneration;
+
+        mBooksRepository.searchBooks(mSearchQuery, items.get().size(), PAGE_SIZE,
+                new BooksDataSource.LoadBooksListCallback() {
+                    @Override
+                    public void onBooksListLoaded(List<BookListItem> books) {
+                        if (generation != mLoadGeneration) {
+                            return;
+                        }
+                        mPageLoading = false;
+                        mMoreSearchResults = books.size() == PAGE_SIZE;
+                        appendItems(books);
+                    }
+
+                    @Override
+                    public void onDataNotAvailable() {
+                        if (generation != mLoadGeneration) {
+                            return;
+                        }
+                        mPageLoading = false;
+                        mIsDataLoadingError.set(true);
+                    }
+                });
+    }
+
+    private void setItems(List<BookListItem> books) {
+        items.set(GrowingBooksList.of(books));
+    }
+
+    private void appendItems(List<BookListItem> books) {
+        items.set(((GrowingBooksList) items.get()).append(books));
+    }
 }
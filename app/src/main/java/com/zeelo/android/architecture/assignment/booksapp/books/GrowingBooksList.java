@@ -0,0 +1,104 @@
+package com.zeelo.android.architecture.assignment.booksapp.books;
+
+import android.support.annotation.NonNull;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An unmodifiable list of the books shown, which pages are appended to without copying it.
+ * <p>
+ * Appending returns a new list that shares the array of this one, so a page costs its own size
+ * rather than the size of the list. The lists appended from never change: the books they hold are
+ * never written again, so they can still be read, e.g. by a diff running in the background. The
+ * books a list shares with the list it was appended to are the very same instances, which the diff
+ * of the adapter compares by reference only.
+ */
+final class GrowingBooksList extends AbstractList<BookListItem> {
+
+    private static final GrowingBooksList EMPTY = new GrowingBooksList(new Books(0), 0);
+
+    private final Books mBooks;
+
+    private final BookListItem[] mItems;
+
+    private final int mSize;
+
+    private GrowingBooksList(@NonNull Books books, int size) {
+        mBooks = books;
+        mItems = books.mItems;
+        mSize = size;
+    }
+
+    static GrowingBooksList empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return a list of {@code books}, which must not be modified while it is built.
+     */
+    static GrowingBooksList of(@NonNull List<BookListItem> books) {
+        return EMPTY.append(books);
+    }
+
+    /**
+     * @return this list followed by {@code books}. Appending to a list that was already appended
+     * to copies it first.
+     */
+    GrowingBooksList append(@NonNull List<BookListItem> books) {
+        checkNotNull(books);
+        if (books.isEmpty()) {
+            return this;
+        }
+        Books target = mBooks;
+        if (this == EMPTY || target.mSize != mSize) {
+            target = new Books(mSize + books.size());
+            System.arraycopy(mItems, 0, target.mItems, 0, mSize);
+            target.mSize = mSize;
+        } else if (target.mItems.length < mSize + books.size()) {
+            target.grow(mSize + books.size());
+        }
+        for (BookListItem book : books) {
+            target.mItems[target.mSize++] = book;
+        }
+        return new GrowingBooksList(target, target.mSize);
+    }
+
+    @Override
+    public BookListItem get(int index) {
+        checkElementIndex(index, mSize);
+        return mItems[index];
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * The books shared by the lists appended to one another. Only the last of them appends here.
+     */
+    private static final class Books {
+
+        private BookListItem[] mItems;
+
+        private int mSize;
+
+        Books(int capacity) {
+            mItems = new BookListItem[capacity];
+        }
+
+        /**
+         * Moves the books to a larger array. The lists already built keep reading the old one.
+         */
+        void grow(int minCapacity) {
+            mItems = Arrays.copyOf(mItems, Math.max(minCapacity, mItems.length * 2));
+        }
+    }
+}
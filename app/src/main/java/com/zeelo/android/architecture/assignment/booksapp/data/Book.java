@@ -5,6 +5,7 @@ import android.arch.persistence.room.Embedded;
 import android.arch.persistence.room.Entity;
 import android.arch.persistence.room.ForeignKey;
 import android.arch.persistence.room.Ignore;
+import android.arch.persistence.room.Index;
 import android.arch.persistence.room.PrimaryKey;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -16,9 +17,10 @@ import java.util.ArrayList;
 import java.util.UUID;
 
 /**
- * Immutable model class for a Book.
+ * Immutable model class for a Book. The index on favorite backs filtering the books by it.
  */
 @Entity(tableName = "book",
+        indices = {@Index("favorite")},
         foreignKeys = {
                 @ForeignKey(entity = BookListItem.class,
                         parentColumns = "id",
@@ -147,7 +149,12 @@ public final class Book {
         @ColumnInfo(name = "authors")
         private ArrayList<String> authors;
 
+        /**
+         * Stored apart from the book, as a {@code BookDescription}, so books read from the
+         * database don't have one.
+         */
         @Nullable
+        @Ignore
         @SerializedName("description")
         private String description;
 
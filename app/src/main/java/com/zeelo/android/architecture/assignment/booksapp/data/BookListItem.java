@@ -4,12 +4,15 @@ import android.arch.persistence.room.ColumnInfo;
 import android.arch.persistence.room.Embedded;
 import android.arch.persistence.room.Entity;
 import android.arch.persistence.room.Ignore;
+import android.arch.persistence.room.Index;
 import android.arch.persistence.room.PrimaryKey;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.google.common.base.Objects;
 import com.google.gson.annotations.SerializedName;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksCollation;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSortType;
 
 import java.util.ArrayList;
 import java.util.UUID;
@@ -17,9 +20,15 @@ import java.util.UUID;
 import static com.zeelo.android.architecture.assignment.booksapp.data.source.remote.BooksRemoteDataSource.BOOK_DETAILS_API_PATH;
 
 /**
- * Immutable model class for a BookListItem.
+ * Immutable model class for a BookListItem. The list is sorted by any of the
+ * {@link BooksSortType sort types} and then by id, which the indices back, whether it is filtered
+ * by favorite or not.
  */
-@Entity(tableName = "bookslist")
+@Entity(tableName = "bookslist",
+        indices = {@Index({"title_key", "id"}), @Index({"favorite", "title_key", "id"}),
+                @Index({"author_key", "id"}), @Index({"favorite", "author_key", "id"}),
+                @Index({"published_date", "id"}), @Index({"favorite", "published_date", "id"}),
+                @Index({"page_count", "id"}), @Index({"favorite", "page_count", "id"})})
 public final class BookListItem {
 
     @PrimaryKey
@@ -30,6 +39,36 @@ public final class BookListItem {
     @Nullable
     private String link;
 
+    /**
+     * The version of the book on the server, which changes whenever the book does. Books created
+     * on the device don't have one until they are synced.
+     */
+    @Nullable
+    @SerializedName("etag")
+    private String etag;
+
+    /**
+     * Copy of {@link Book#isFavorite()}, which triggers of the database keep up to date, so the
+     * list can be filtered by it.
+     */
+    @ColumnInfo(name = "favorite")
+    private boolean favorite;
+
+    /**
+     * The {@link BooksCollation} key of the title, which the list is sorted by. Set by the
+     * database as the book is saved.
+     */
+    @Nullable
+    @ColumnInfo(name = "title_key")
+    private byte[] titleKey;
+
+    /**
+     * The {@link BooksCollation} key of the first author, set like {@link #titleKey}.
+     */
+    @Nullable
+    @ColumnInfo(name = "author_key")
+    private byte[] authorKey;
+
     @Nullable
     @Embedded
     @SerializedName("volumeInfo")
@@ -95,6 +134,52 @@ public final class BookListItem {
         this.link = link;
     }
 
+    @Nullable
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(@Nullable String etag) {
+        this.etag = etag;
+    }
+
+    public boolean isFavorite() {
+        return favorite;
+    }
+
+    public void setFavorite(boolean favorite) {
+        this.favorite = favorite;
+    }
+
+    @Nullable
+    public byte[] getTitleKey() {
+        return titleKey;
+    }
+
+    public void setTitleKey(@Nullable byte[] titleKey) {
+        this.titleKey = titleKey;
+    }
+
+    @Nullable
+    public byte[] getAuthorKey() {
+        return authorKey;
+    }
+
+    public void setAuthorKey(@Nullable byte[] authorKey) {
+        this.authorKey = authorKey;
+    }
+
+    /**
+     * @return the first of the authors of the book, or null if it has none.
+     */
+    @Nullable
+    public String getFirstAuthor() {
+        if (volumeInfo == null || volumeInfo.authors == null || volumeInfo.authors.isEmpty()) {
+            return null;
+        }
+        return volumeInfo.authors.get(0);
+    }
+
     @Nullable
     public VolumeInfo getVolumeInfo() {
         return volumeInfo;
@@ -133,6 +218,29 @@ public final class BookListItem {
         @ColumnInfo(name = "authors")
         private ArrayList<String> authors;
 
+        /**
+         * The ISO 639-1 code of the language of the book.
+         */
+        @Nullable
+        @ColumnInfo(name = "language")
+        private String language;
+
+        @Nullable
+        @ColumnInfo(name = "categories")
+        private ArrayList<String> categories;
+
+        /**
+         * The date the book was published, in ISO 8601: {@code 2010}, {@code 2010-03} or
+         * {@code 2010-03-19}.
+         */
+        @Nullable
+        @ColumnInfo(name = "published_date")
+        private String publishedDate;
+
+        @Nullable
+        @ColumnInfo(name = "page_count")
+        private Integer pageCount;
+
         @Nullable
         @Embedded
         @SerializedName("imageLinks")
@@ -166,6 +274,42 @@ public final class BookListItem {
             this.authors = authors;
         }
 
+        @Nullable
+        public String getLanguage() {
+            return language;
+        }
+
+        public void setLanguage(@Nullable String language) {
+            this.language = language;
+        }
+
+        @Nullable
+        public ArrayList<String> getCategories() {
+            return categories;
+        }
+
+        public void setCategories(@Nullable ArrayList<String> categories) {
+            this.categories = categories;
+        }
+
+        @Nullable
+        public String getPublishedDate() {
+            return publishedDate;
+        }
+
+        public void setPublishedDate(@Nullable String publishedDate) {
+            this.publishedDate = publishedDate;
+        }
+
+        @Nullable
+        public Integer getPageCount() {
+            return pageCount;
+        }
+
+        public void setPageCount(@Nullable Integer pageCount) {
+            this.pageCount = pageCount;
+        }
+
         @Nullable
         public ImageLinks getImageLinks() {
             return imageLinks;
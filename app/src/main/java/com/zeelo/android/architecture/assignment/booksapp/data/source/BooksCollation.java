@@ -0,0 +1,66 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.text.Collator;
+import java.util.Locale;
+
+/**
+ * Orders the titles and the authors of the books the way the language of the device orders words,
+ * ignoring case and accents before telling words apart by them.
+ * <p>
+ * SQLite only compares bytes, so the books list stores the {@link #key(String) collation key} of
+ * those, whose bytes compare like the strings they were made from. The keys of one locale don't
+ * compare with the ones of another, so the locale is the one the process started with, and the
+ * keys stored with another one are computed again when the database is opened.
+ */
+public final class BooksCollation {
+
+    private static final Locale LOCALE = Locale.getDefault();
+
+    /**
+     * Not thread-safe: guarded by itself.
+     */
+    private static final Collator COLLATOR = newCollator();
+
+    private BooksCollation() {
+    }
+
+    /**
+     * @return the locale the strings are ordered in.
+     */
+    @NonNull
+    public static Locale getLocale() {
+        return LOCALE;
+    }
+
+    /**
+     * Compares two strings in the order of their {@link #key(String) keys}.
+     */
+    public static int compare(@NonNull String string1, @NonNull String string2) {
+        synchronized (COLLATOR) {
+            return COLLATOR.compare(string1, string2);
+        }
+    }
+
+    /**
+     * @return the collation key of {@code string}, or null if it is null.
+     */
+    @Nullable
+    public static byte[] key(@Nullable String string) {
+        if (string == null) {
+            return null;
+        }
+        synchronized (COLLATOR) {
+            return COLLATOR.getCollationKey(string).toByteArray();
+        }
+    }
+
+    private static Collator newCollator() {
+        Collator collator = Collator.getInstance(LOCALE);
+        // Accented letters typed or stored decomposed sort with the composed ones.
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+        return collator;
+    }
+}
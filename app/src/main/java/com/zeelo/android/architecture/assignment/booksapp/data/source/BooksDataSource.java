@@ -2,9 +2,11 @@
 package com.zeelo.android.architecture.assignment.booksapp.data.source;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.zeelo.android.architecture.assignment.booksapp.data.Book;
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
 
 import java.util.List;
 
@@ -20,6 +22,28 @@ public interface BooksDataSource {
         void onDataNotAvailable();
     }
 
+    interface LoadBooksPageCallback {
+
+        /**
+         * @param books       the books of the page, in {@link BooksPageKey#ORDER}
+         * @param nextPageKey the key to load the following page with, or null if this was the last
+         *                    page
+         */
+        void onBooksPageLoaded(List<BookListItem> books, @Nullable BooksPageKey nextPageKey);
+
+        void onDataNotAvailable();
+    }
+
+    interface LoadAuthorsCallback {
+
+        /**
+         * @param authors the names of the authors, in order
+         */
+        void onAuthorsLoaded(List<String> authors);
+
+        void onDataNotAvailable();
+    }
+
     interface GetBookDetailsCallback {
 
         void onBookDetailsLoaded(Book book);
@@ -27,12 +51,98 @@ public interface BooksDataSource {
         void onDataNotAvailable();
     }
 
+    interface GetBookDescriptionCallback {
+
+        /**
+         * @param description the description of the book, or null if it has none
+         */
+        void onDescriptionLoaded(@Nullable String description);
+
+        void onDataNotAvailable();
+    }
+
+    interface GetStatisticsCallback {
+
+        void onStatisticsLoaded(BooksStatistics statistics);
+
+        void onDataNotAvailable();
+    }
+
     void getBooks(@NonNull LoadBooksListCallback callback);
 
+    /**
+     * Loads at most {@code pageSize} books that pass {@code filter} and come after {@code after},
+     * sorted by title.
+     *
+     * @param filter   the books to load
+     * @param after    the key returned with the previous page, or null for the first page
+     * @param pageSize the maximum number of books to load
+     */
+    void getBooksPage(@NonNull BooksFilterType filter, @Nullable BooksPageKey after, int pageSize,
+                      @NonNull LoadBooksPageCallback callback);
+
+    /**
+     * Loads at most {@code pageSize} books that pass {@code filter} and come after {@code after},
+     * sorted by {@code sortType}: the pages come in {@link BooksPageKey#order(BooksSortType)}
+     * rather than in {@link BooksPageKey#ORDER}.
+     *
+     * @param sortType the order of the books
+     * @param filter   the books to load
+     * @param after    the key returned with the previous page of the same sort type, or null for
+     *                 the first page
+     * @param pageSize the maximum number of books to load
+     */
+    void getSortedBooksPage(@NonNull BooksSortType sortType, @NonNull BooksFilterType filter,
+                            @Nullable BooksPageKey after, int pageSize,
+                            @NonNull LoadBooksPageCallback callback);
+
+    /**
+     * Loads at most {@code limit} books matching {@code query}, best matches first: books whose
+     * title matches come before the others, then books with more matching words. An empty list
+     * means that nothing (else) matched.
+     *
+     * @param query  the search typed by the user, see {@link BooksSearchQuery}
+     * @param offset the number of matches already loaded
+     * @param limit  the maximum number of books to load
+     */
+    void searchBooks(@NonNull String query, int offset, int limit,
+                     @NonNull LoadBooksListCallback callback);
+
+    /**
+     * Loads at most {@code pageSize} books by {@code author} that come after {@code after}, in the
+     * order of {@link #getBooksPage(BooksFilterType, BooksPageKey, int, LoadBooksPageCallback)}.
+     *
+     * @param author   the name of the author, as listed by the books; the case of ASCII letters
+     *                 doesn't matter
+     * @param after    the key returned with the previous page, or null for the first page
+     * @param pageSize the maximum number of books to load
+     */
+    void getBooksByAuthorPage(@NonNull String author, @Nullable BooksPageKey after, int pageSize,
+                              @NonNull LoadBooksPageCallback callback);
+
+    /**
+     * Loads the names of at most {@code limit} authors of the books starting with
+     * {@code prefix}, ignoring the case of ASCII letters, in alphabetical order.
+     */
+    void findAuthors(@NonNull String prefix, int limit, @NonNull LoadAuthorsCallback callback);
+
+    /**
+     * Counts the books of the list: how many are favorite, and how many there are by author, by
+     * language and by category.
+     */
+    void getStatistics(@NonNull GetStatisticsCallback callback);
+
     void saveBooksListItems(@NonNull List<BookListItem> booksListItems);
 
     void getBookDetails(@NonNull String bookId, @NonNull GetBookDetailsCallback callback);
 
+    /**
+     * Loads the description of a book, which the books loaded by
+     * {@link #getBookDetails(String, GetBookDetailsCallback)} may lack: it is only read when shown.
+     * {@link GetBookDescriptionCallback#onDataNotAvailable()} means the book isn't found.
+     */
+    void getBookDescription(@NonNull String bookId, @NonNull GetBookDescriptionCallback callback);
+
     void saveBook(@NonNull Book book);
 
     void favoriteBook(@NonNull Book book);
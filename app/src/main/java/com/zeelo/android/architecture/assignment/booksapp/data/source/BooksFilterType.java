@@ -0,0 +1,35 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+/**
+ * Used with the filter spinner in the books list.
+ */
+public enum BooksFilterType {
+    /**
+     * Do not filter books.
+     */
+    ALL_BOOKS,
+
+    /**
+     * Filters only the active (not favorited yet) books.
+     */
+    NOT_FAVORITED_BOOKS,
+
+    /**
+     * Filters only the favorited books.
+     */
+    FAVORITED_BOOKS;
+
+    /**
+     * @return true if a book that is favorite, or not, passes this filter.
+     */
+    public boolean accepts(boolean favorite) {
+        switch (this) {
+            case NOT_FAVORITED_BOOKS:
+                return !favorite;
+            case FAVORITED_BOOKS:
+                return favorite;
+            default:
+                return true;
+        }
+    }
+}
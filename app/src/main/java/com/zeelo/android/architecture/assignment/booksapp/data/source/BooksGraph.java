@@ -0,0 +1,107 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.cache.BooksSnapshotStore;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.BooksDatabase;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.BooksLocalDataSource;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksChangesSource;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksSyncEngine;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.SharedPreferencesSyncStateStore;
+import com.zeelo.android.architecture.assignment.booksapp.util.AppExecutors;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.StartupTrace;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Builds the data layer of the app without blocking the thread asking for it, which is the main
+ * thread creating the first screen.
+ * <p>
+ * The repository is returned at once, so the screen can show that it is loading. The remote data
+ * source, which reads its books from the assets, is created on the network executor, and the
+ * database and the local data source on the disk read executor. The repository reaches them
+ * through {@link DeferredBooksDataSource}s, which hold its calls until they are created. Nothing
+ * else it is built from touches the disk before it is used. Every phase is recorded in the
+ * {@link StartupTrace}.
+ */
+public final class BooksGraph {
+
+    private static final String SNAPSHOT_FILE = "books.snapshot";
+
+    private BooksGraph() {
+    }
+
+    /**
+     * @param remoteDataSource creates the remote data source, on the network executor
+     * @param withSnapshot     whether the repository keeps a snapshot of the books list
+     */
+    @NonNull
+    public static <R extends BooksDataSource & BooksChangesSource> BooksRepository newRepository(
+            @NonNull final Context context, @NonNull final AppExecutors appExecutors,
+            @NonNull Callable<R> remoteDataSource, boolean withSnapshot) {
+        checkNotNull(context);
+        checkNotNull(appExecutors);
+        checkNotNull(remoteDataSource);
+        StartupTrace trace = StartupTrace.get();
+        long start = trace.begin();
+
+        ListenableFuture<R> remote = trace.submit("remoteDataSource",
+                appExecutors.networkIO(), remoteDataSource);
+        ListenableFuture<BooksLocalDataSource> local = trace.submit("localDataSource",
+                appExecutors.diskRead(), new Callable<BooksLocalDataSource>() {
+                    @Override
+                    public BooksLocalDataSource call() {
+                        return BooksLocalDataSource.getInstance(appExecutors,
+                                BooksDatabase.getInstance(context));
+                    }
+                });
+        logWhenReady(remote, local, appExecutors);
+
+        DeferredRemoteBooksDataSource<R> deferredRemote =
+                new DeferredRemoteBooksDataSource<>(remote, appExecutors.mainThread());
+        DeferredLocalBooksDataSource<BooksLocalDataSource> deferredLocal =
+                new DeferredLocalBooksDataSource<>(local, appExecutors.mainThread());
+        BooksSnapshotStore snapshot = null;
+        if (withSnapshot) {
+            snapshot = new BooksSnapshotStore(new Supplier<File>() {
+                @Override
+                public File get() {
+                    return new File(context.getCacheDir(), SNAPSHOT_FILE);
+                }
+            }, appExecutors);
+        }
+        BooksRepository repository = BooksRepository.getInstance(deferredRemote, deferredLocal,
+                new BooksSyncEngine(deferredRemote, deferredLocal,
+                        new SharedPreferencesSyncStateStore(context), appExecutors.networkIO(),
+                        appExecutors.mainThread()), snapshot);
+
+        trace.end("repository", start);
+        return repository;
+    }
+
+    private static void logWhenReady(ListenableFuture<?> remote, ListenableFuture<?> local,
+                                     AppExecutors appExecutors) {
+        @SuppressWarnings("unchecked")
+        ListenableFuture<List<Object>> ready = Futures.allAsList(remote, local);
+        Futures.addCallback(ready, new FutureCallback<List<Object>>() {
+            @Override
+            public void onSuccess(List<Object> dataSources) {
+                StartupTrace.get().log();
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                // The deferred data sources report it.
+            }
+        }, appExecutors.mainThread());
+    }
+}
@@ -0,0 +1,229 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Strings;
+import com.google.common.primitives.UnsignedBytes;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keyset cursor for paged loads of {@link BookListItem}s.
+ * <p>
+ * Pages are sorted by a {@link BooksSortType}, then by id, with the books lacking the value sorted
+ * by first. A key identifies the last item of a page, and the next page starts right after it, so
+ * pages stay stable while books are added or removed elsewhere in the list.
+ */
+public final class BooksPageKey {
+
+    private static final Map<BooksSortType, Comparator<BookListItem>> ORDERS =
+            new EnumMap<>(BooksSortType.class);
+
+    static {
+        for (final BooksSortType sortType : BooksSortType.values()) {
+            ORDERS.put(sortType, new Comparator<BookListItem>() {
+                @Override
+                public int compare(BookListItem o1, BookListItem o2) {
+                    int byValue = compareValues(sortType, valueOf(sortType, o1),
+                            valueOf(sortType, o2));
+                    return byValue != 0 ? byValue : o1.getId().compareTo(o2.getId());
+                }
+            });
+        }
+    }
+
+    /**
+     * The order in which pages are returned by title, matching {@code ORDER BY title_key, id} in
+     * SQLite.
+     */
+    public static final Comparator<BookListItem> ORDER = ORDERS.get(BooksSortType.TITLE);
+
+    @NonNull
+    private final BooksSortType mSortType;
+
+    /**
+     * The title, the first author or the published date, or the page count, of the last item.
+     */
+    @Nullable
+    private final Object mValue;
+
+    @NonNull
+    private final String mId;
+
+    public BooksPageKey(@Nullable String title, @NonNull String id) {
+        this(BooksSortType.TITLE, title, id);
+    }
+
+    private BooksPageKey(@NonNull BooksSortType sortType, @Nullable Object value,
+                         @NonNull String id) {
+        mSortType = checkNotNull(sortType);
+        mValue = value;
+        mId = checkNotNull(id);
+    }
+
+    /**
+     * Returns the key of the page by title that ends with {@code item}.
+     */
+    public static BooksPageKey after(@NonNull BookListItem item) {
+        return after(BooksSortType.TITLE, item);
+    }
+
+    /**
+     * Returns the key of the page sorted by {@code sortType} that ends with {@code item}.
+     */
+    public static BooksPageKey after(@NonNull BooksSortType sortType,
+                                     @NonNull BookListItem item) {
+        checkNotNull(item);
+        return new BooksPageKey(sortType, valueOf(sortType, item), item.getId());
+    }
+
+    /**
+     * @return the order in which pages sorted by {@code sortType} are returned, matching
+     * {@code ORDER BY} the column of the sort type, then id, in SQLite.
+     */
+    public static Comparator<BookListItem> order(@NonNull BooksSortType sortType) {
+        return ORDERS.get(checkNotNull(sortType));
+    }
+
+    /**
+     * Sorts {@code books} in {@link #ORDER}. Their title keys are compared as bytes like SQLite
+     * does, rather than comparing the titles with the collator at every step of the sort. A book
+     * without a key yet gets one, as the database sets it, so it is only computed once.
+     */
+    public static void sortByTitle(@NonNull List<BookListItem> books) {
+        List<TitleKeyed> keyed = new ArrayList<>(books.size());
+        for (BookListItem book : books) {
+            keyed.add(new TitleKeyed(book));
+        }
+        Collections.sort(keyed);
+        for (int i = 0; i < keyed.size(); i++) {
+            books.set(i, keyed.get(i).mBook);
+        }
+    }
+
+    @NonNull
+    public BooksSortType getSortType() {
+        return mSortType;
+    }
+
+    /**
+     * @return the value the last item is sorted by, or null if it lacks one: a String, or an
+     * Integer when sorted by {@link BooksSortType#PAGE_COUNT}.
+     */
+    @Nullable
+    public Object getValue() {
+        return mValue;
+    }
+
+    @NonNull
+    public String getId() {
+        return mId;
+    }
+
+    /**
+     * @return true if {@code item} comes after this key in the {@link #order(BooksSortType)} of
+     * its sort type.
+     */
+    public boolean isBefore(@NonNull BookListItem item) {
+        int byValue = compareValues(mSortType, mValue, valueOf(mSortType, item));
+        return byValue < 0 || (byValue == 0 && mId.compareTo(item.getId()) < 0);
+    }
+
+    @Nullable
+    private static Object valueOf(BooksSortType sortType, BookListItem item) {
+        BookListItem.VolumeInfo volumeInfo = item.getVolumeInfo();
+        if (volumeInfo == null) {
+            return null;
+        }
+        switch (sortType) {
+            case AUTHOR:
+                // An empty name is sorted as no author at all.
+                return Strings.emptyToNull(item.getFirstAuthor());
+            case PUBLISHED_DATE:
+                return volumeInfo.getPublishedDate();
+            case PAGE_COUNT:
+                return volumeInfo.getPageCount();
+            default:
+                return volumeInfo.getTitle();
+        }
+    }
+
+    private static int compareValues(BooksSortType sortType, @Nullable Object value1,
+                                     @Nullable Object value2) {
+        if (value1 == null) {
+            return value2 == null ? 0 : -1;
+        } else if (value2 == null) {
+            return 1;
+        }
+        switch (sortType) {
+            case TITLE:
+            case AUTHOR:
+                return BooksCollation.compare((String) value1, (String) value2);
+            case PUBLISHED_DATE:
+                return ((String) value1).compareTo((String) value2);
+            default:
+                return ((Integer) value1).compareTo((Integer) value2);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BooksPageKey key = (BooksPageKey) o;
+        return mSortType == key.mSortType &&
+                Objects.equal(mValue, key.mValue) &&
+                Objects.equal(mId, key.mId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(mSortType, mValue, mId);
+    }
+
+    @Override
+    public String toString() {
+        return "BooksPageKey after " + mValue + " (" + mId + ") by " + mSortType;
+    }
+
+    private static final class TitleKeyed implements Comparable<TitleKeyed> {
+
+        private static final Comparator<byte[]> BYTES = UnsignedBytes.lexicographicalComparator();
+
+        private final BookListItem mBook;
+
+        @Nullable
+        private final byte[] mKey;
+
+        TitleKeyed(@NonNull BookListItem book) {
+            byte[] key = book.getTitleKey();
+            if (key == null) {
+                key = BooksCollation.key((String) valueOf(BooksSortType.TITLE, book));
+                book.setTitleKey(key);
+            }
+            mBook = book;
+            mKey = key;
+        }
+
+        @Override
+        public int compareTo(@NonNull TitleKeyed other) {
+            int byKey;
+            if (mKey == null) {
+                byKey = other.mKey == null ? 0 : -1;
+            } else {
+                byKey = other.mKey == null ? 1 : BYTES.compare(mKey, other.mKey);
+            }
+            return byKey != 0 ? byKey : mBook.getId().compareTo(other.mBook.getId());
+        }
+    }
+}
@@ -1,56 +1,267 @@
 
 package com.zeelo.android.architecture.assignment.booksapp.data.source;
 
+import android.arch.lifecycle.LiveData;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.zeelo.android.architecture.assignment.booksapp.data.Book;
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.cache.BooksCache;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.cache.BooksSnapshotStore;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatisticsCounter;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksDelta;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksSyncEngine;
 import com.zeelo.android.architecture.assignment.booksapp.util.EspressoIdlingResource;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.BooksMetrics;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.Metrics;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Concrete implementation to load books from the data sources into a cache.
  * <p>
- * For simplicity, this implements a dumb synchronisation between locally persisted data and data
- * obtained from the server, by using the remote data source only if the local database doesn't
- * exist or is empty.
- *
- * //TODO: Implement this class using LiveData.
+ * Books are read from the local data source. The remote data source is only read in full when
+ * the local database doesn't exist or is empty; after {@link #refreshBooks()}, the
+ * {@link BooksSyncEngine} applies just the changes made on the server since the last sync to both
+ * the local data source and the cache. While the books read in full are being stored, which reads
+ * of the local data source don't wait for, they are read from the remote data source instead.
+ * <p>
+ * The statistics of the books are counted once by the local data source, then kept up to date as
+ * the books change here.
+ * <p>
+ * Loads requested while an identical one is in flight, e.g. by several screens starting at once
+ * before the cache is warm, share it rather than reading the data sources again.
+ * <p>
+ * The latency of every load, until its callback, and how often each cache serves it are recorded
+ * in {@link BooksMetrics}.
+ * <p>
+ * The books can also be observed as they are stored by the local data source. Every observer of
+ * the same books shares a single {@link LiveData}, which is only read again when they change.
+ * <p>
+ * The books list is also kept in a {@link BooksSnapshotStore}, written after it is loaded and
+ * deleted as soon as the books change. The first load after a cold start fills the cache from the
+ * snapshot, if there is one, rather than from the local data source.
  */
-public class BooksRepository implements BooksDataSource {
+public class BooksRepository implements ObservableBooksDataSource {
+
+    /**
+     * List items are small, so their cache is bounded by count only, generously enough to keep a
+     * whole catalogue.
+     */
+    private static final long LIST_ITEMS_CACHE_MAX_ENTRIES = 100000;
+
+    /**
+     * Books from the remote data source carry their description, so their cache is bounded by the
+     * number of characters they hold: about 8 MB of text.
+     */
+    private static final long BOOKS_CACHE_MAX_CHARS = 4 * 1024 * 1024;
+
+    private static final long CACHE_EXPIRY_MINUTES = 30;
+
+    private static final BooksCache.Sorter<BookListItem> PAGE_ORDER =
+            new BooksCache.Sorter<BookListItem>() {
+                @Override
+                public void sort(@NonNull List<BookListItem> books) {
+                    BooksPageKey.sortByTitle(books);
+                }
+            };
+
+    private static final BooksCache.EntryWeigher<Book> BOOK_WEIGHER =
+            new BooksCache.EntryWeigher<Book>() {
+                @Override
+                public int weigh(@NonNull String id, @NonNull Book book) {
+                    int chars = id.length();
+                    Book.VolumeInfo volumeInfo = book.getVolumeInfo();
+                    if (volumeInfo != null) {
+                        chars += length(volumeInfo.getTitle()) + length(volumeInfo.getDescription());
+                        if (volumeInfo.getAuthors() != null) {
+                            for (String author : volumeInfo.getAuthors()) {
+                                chars += length(author);
+                            }
+                        }
+                        if (volumeInfo.getImageLinks() != null) {
+                            chars += length(volumeInfo.getImageLinks().getThumbnail());
+                        }
+                    }
+                    return chars;
+                }
+            };
 
     private volatile static BooksRepository INSTANCE = null;
 
     private final BooksDataSource mBooksRemoteDataSource;
 
-    private final BooksDataSource mBooksLocalDataSource;
+    private final ObservableBooksDataSource mBooksLocalDataSource;
+
+    private final BooksSyncEngine mSyncEngine;
+
+    @Nullable
+    private final BooksSnapshotStore mSnapshot;
+
+    /**
+     * Whether the first load after a cold start already read the snapshot, or went without.
+     */
+    private volatile boolean mSnapshotRead;
+
+    /**
+     * Whether the snapshot holds the books stored, or is about to.
+     */
+    private volatile boolean mSnapshotSaved;
 
     /**
      * This variable has package local visibility so it can be accessed from tests.
      */
-    Map<String, BookListItem> mCachedListItems;
+    final BooksCache<BookListItem> mCachedListItems = BooksCache.<BookListItem>newBuilder()
+            .maximumSize(LIST_ITEMS_CACHE_MAX_ENTRIES)
+            .expireAfterWrite(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    final BooksCache<Book> mCachedBooks = BooksCache.<Book>newBuilder()
+            .maximumWeight(BOOKS_CACHE_MAX_CHARS, BOOK_WEIGHER)
+            .expireAfterWrite(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * The first page of every filter. They are cleared whenever the books change, since a change
+     * can move a book in or out of any of them.
+     */
+    private final Map<BooksFilterType, FirstPage> mCachedFirstPages =
+            Collections.synchronizedMap(
+                    new EnumMap<BooksFilterType, FirstPage>(BooksFilterType.class));
+
+    /**
+     * Incremented whenever the books change, so first pages and statistics loaded before are not
+     * cached.
+     */
+    private volatile int mBooksGeneration;
+
+    /**
+     * The running statistics of the books list, or null if they have to be counted again.
+     */
+    @Nullable
+    private volatile BooksStatisticsCounter mStatistics;
+
+    /**
+     * How many lists of books fetched from the remote data source the local data source is
+     * storing. Its reads don't wait for them, so the remote data source is read meanwhile.
+     */
+    private volatile int mRemoteBooksStoring;
+
+    /**
+     * Marks the local data and the cache as possibly out of date, to sync them the next time the
+     * books are requested.
+     */
+    private volatile boolean mCacheIsDirty = false;
+
+    /**
+     * The loads of every book in flight, by whether they sync first.
+     */
+    private final InFlightLoads<Boolean, LoadBooksListCallback> mBooksLoads =
+            new InFlightLoads<>();
+
+    /**
+     * The loads of the statistics in flight, by whether they sync first.
+     */
+    private final InFlightLoads<Boolean, GetStatisticsCallback> mStatisticsLoads =
+            new InFlightLoads<>();
+
+    /**
+     * The loads of a book in flight, by id.
+     */
+    private final InFlightLoads<String, GetBookDetailsCallback> mBookLoads =
+            new InFlightLoads<>();
+
+    @Nullable
+    private LiveData<Long> mObservedBooksVersion;
+
+    @Nullable
+    private LiveData<BooksStatistics> mObservedStatistics;
+
+    /**
+     * The observed books, by id, as long as something holds on to them.
+     */
+    private final Map<String, WeakReference<LiveData<Book>>> mObservedBook = new HashMap<>();
+
+    private final Metrics.Timer mGetBooksTimer = BooksMetrics.get().timer("repository.getBooks");
+
+    private final Metrics.Timer mGetBooksPageTimer =
+            BooksMetrics.get().timer("repository.getBooksPage");
+
+    private final Metrics.Timer mGetSortedBooksPageTimer =
+            BooksMetrics.get().timer("repository.getSortedBooksPage");
+
+    private final Metrics.Timer mSearchBooksTimer =
+            BooksMetrics.get().timer("repository.searchBooks");
+
+    private final Metrics.Timer mGetBooksByAuthorPageTimer =
+            BooksMetrics.get().timer("repository.getBooksByAuthorPage");
+
+    private final Metrics.Timer mFindAuthorsTimer =
+            BooksMetrics.get().timer("repository.findAuthors");
+
+    private final Metrics.Timer mGetStatisticsTimer =
+            BooksMetrics.get().timer("repository.getStatistics");
+
+    private final Metrics.Timer mGetBookDetailsTimer =
+            BooksMetrics.get().timer("repository.getBookDetails");
+
+    private final Metrics.Timer mGetBookDescriptionTimer =
+            BooksMetrics.get().timer("repository.getBookDescription");
+
+    /**
+     * Whether the cache held the books, rather than the local data source.
+     */
+    private final Metrics.HitRatio mListItemsCacheRatio =
+            BooksMetrics.get().hitRatio("repository.listItemsCache");
+
+    /**
+     * Whether the local data source held the books, rather than the remote data source.
+     */
+    private final Metrics.HitRatio mListItemsLocalRatio =
+            BooksMetrics.get().hitRatio("repository.listItemsLocal");
+
+    private final Metrics.HitRatio mFirstPagesCacheRatio =
+            BooksMetrics.get().hitRatio("repository.firstPagesCache");
 
-    Map<String, Book> mCachedBooks;
+    private final Metrics.HitRatio mStatisticsCacheRatio =
+            BooksMetrics.get().hitRatio("repository.statisticsCache");
 
     /**
-     * Marks the cache as invalid, to force an update the next time data is requested. This variable
-     * has package local visibility so it can be accessed from tests.
+     * Whether the first load after a cold start was served from the snapshot.
      */
-    private boolean mBooksCacheIsDirty = false;
-    private boolean mListItemsCacheIsDirty = false;
+    private final Metrics.HitRatio mSnapshotRatio =
+            BooksMetrics.get().hitRatio("repository.snapshot");
+
+    private final Metrics.HitRatio mBooksCacheRatio =
+            BooksMetrics.get().hitRatio("repository.booksCache");
+
+    private final Metrics.HitRatio mBooksLocalRatio =
+            BooksMetrics.get().hitRatio("repository.booksLocal");
 
     // Prevent direct instantiation.
     private BooksRepository(@NonNull BooksDataSource booksRemoteDataSource,
-                            @NonNull BooksDataSource booksLocalDataSource) {
+                            @NonNull ObservableBooksDataSource booksLocalDataSource,
+                            @NonNull BooksSyncEngine syncEngine,
+                            @Nullable BooksSnapshotStore snapshot) {
         mBooksRemoteDataSource = checkNotNull(booksRemoteDataSource);
         mBooksLocalDataSource = checkNotNull(booksLocalDataSource);
+        mSyncEngine = checkNotNull(syncEngine);
+        mSnapshot = snapshot;
+        mSnapshotRead = snapshot == null;
     }
 
     /**
@@ -58,14 +269,20 @@ public class BooksRepository implements BooksDataSource {
      *
      * @param booksRemoteDataSource the backend data source
      * @param booksLocalDataSource  the device storage data source
+     * @param syncEngine            the engine syncing the device storage with the backend
+     * @param snapshot              the snapshot of the books list read at cold start, or null to
+     *                              always read the local data source
      * @return the {@link BooksRepository} instance
      */
     public static BooksRepository getInstance(BooksDataSource booksRemoteDataSource,
-                                              BooksDataSource booksLocalDataSource) {
+                                              ObservableBooksDataSource booksLocalDataSource,
+                                              BooksSyncEngine syncEngine,
+                                              @Nullable BooksSnapshotStore snapshot) {
         if (INSTANCE == null) {
             synchronized (BooksRepository.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = new BooksRepository(booksRemoteDataSource, booksLocalDataSource);
+                    INSTANCE = new BooksRepository(booksRemoteDataSource, booksLocalDataSource,
+                            syncEngine, snapshot);
                 }
             }
         }
@@ -73,7 +290,10 @@ public class BooksRepository implements BooksDataSource {
     }
 
     /**
-     * Used to force {@link #getInstance(BooksDataSource, BooksDataSource)} to create a new instance
+     * Used to force
+     * {@link #getInstance(BooksDataSource, ObservableBooksDataSource, BooksSyncEngine,
+     * BooksSnapshotStore)} to
+     * create a new instance
      * next time it's called.
      */
     public static void destroyInstance() {
@@ -82,49 +302,513 @@ public class BooksRepository implements BooksDataSource {
 
     /**
      * Gets books from cache, local data source (SQLite) or remote data source, whichever is
-     * available first.
+     * available first. If the cache is dirty, the changes on the server are synced first; if that
+     * fails, the books that are already stored are served.
      * <p>
      * Note: {@link LoadBooksListCallback#onDataNotAvailable()} is fired if all data sources fail to
      * get the data.
      */
     @Override
-    public void getBooks(@NonNull final LoadBooksListCallback callback) {
-        checkNotNull(callback);
+    public void getBooks(@NonNull LoadBooksListCallback booksCallback) {
+        checkNotNull(booksCallback);
+        LoadBooksListCallback timedCallback = timed(booksCallback, mGetBooksTimer);
 
-        // Respond immediately with cache if available and not dirty
-        if (mCachedListItems != null && !mListItemsCacheIsDirty) {
-            callback.onBooksListLoaded(new ArrayList<>(mCachedListItems.values()));
+        // Respond immediately with cache if it holds every book and is not dirty
+        if (mCachedListItems.isComplete() && !mCacheIsDirty) {
+            mListItemsCacheRatio.hit();
+            timedCallback.onBooksListLoaded(cachedListItems());
             return;
         }
+        mListItemsCacheRatio.miss();
+
+        final boolean sync = mCacheIsDirty;
+        if (!mBooksLoads.join(sync, timedCallback)) {
+            return;
+        }
+        final LoadBooksListCallback callback = sharedBooksLoad(sync);
 
         EspressoIdlingResource.increment(); // App is busy until further notice
 
-        if (mListItemsCacheIsDirty) {
-            // If the cache is dirty we need to fetch new data from the network.
-            getBooksFromRemoteDataSource(callback);
+        if (sync) {
+            // If the cache is dirty we need to fetch the changes from the network.
+            mSyncEngine.sync(new BooksSyncEngine.SyncCallback() {
+                @Override
+                public void onSynced(@NonNull BooksDelta applied) {
+                    applyDeltaToCache(applied);
+                    if (mCachedListItems.isComplete()) {
+                        EspressoIdlingResource.decrement(); // Set app as idle.
+                        callback.onBooksListLoaded(cachedListItems());
+                    } else {
+                        getBooksFromLocalDataSource(callback);
+                    }
+                }
+
+                @Override
+                public void onSyncFailed() {
+                    getBooksFromLocalDataSource(callback);
+                }
+            });
+        } else if (!mSnapshotRead) {
+            getBooksFromSnapshot(callback);
         } else {
-            // Query the local storage if available. If not, query the network.
-            mBooksLocalDataSource.getBooks(new LoadBooksListCallback() {
+            getBooksFromLocalDataSource(callback);
+        }
+    }
+
+    /**
+     * Fills the cache from the snapshot, if there is one and the books didn't change meanwhile.
+     * Otherwise, gets the books from the local data source.
+     */
+    private void getBooksFromSnapshot(@NonNull final LoadBooksListCallback callback) {
+        mSnapshotRead = true;
+        final int generation = mBooksGeneration;
+        mSnapshot.load(new LoadBooksListCallback() {
+            @Override
+            public void onBooksListLoaded(List<BookListItem> books) {
+                if (generation != mBooksGeneration) {
+                    onDataNotAvailable();
+                    return;
+                }
+                mSnapshotRatio.hit();
+                refreshListItemsCache(books);
+                mSnapshotSaved = true;
+
+                EspressoIdlingResource.decrement(); // Set app as idle.
+                callback.onBooksListLoaded(books);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                mSnapshotRatio.miss();
+                getBooksFromLocalDataSource(callback);
+            }
+        });
+    }
+
+    private void getBooksFromLocalDataSource(@NonNull final LoadBooksListCallback callback) {
+        // Query the local storage if available. If not, query the network.
+        mBooksLocalDataSource.getBooks(new LoadBooksListCallback() {
+            @Override
+            public void onBooksListLoaded(List<BookListItem> bookItems) {
+                mListItemsLocalRatio.hit();
+                refreshListItemsCache(bookItems);
+                if (!mSnapshotSaved) {
+                    saveSnapshot();
+                }
+
+                EspressoIdlingResource.decrement(); // Set app as idle.
+                callback.onBooksListLoaded(bookItems);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                mListItemsLocalRatio.miss();
+                getBooksFromRemoteDataSource(callback);
+            }
+        });
+    }
+
+    /**
+     * Gets a page of books from the local data source (SQLite). If the first page is requested
+     * while the cache is dirty, the changes on the server are synced first. If the first page is
+     * requested and the local data source is empty, the books are fetched from the remote data
+     * source and persisted before the page is served, so the following pages can be read locally.
+     * <p>
+     * The first page of every filter is cached until the books change, so switching back and
+     * forth between filters doesn't query them again. The following pages are not cached.
+     * <p>
+     * Note: {@link LoadBooksPageCallback#onDataNotAvailable()} is fired if all data sources fail to
+     * get the data.
+     */
+    @Override
+    public void getBooksPage(@NonNull final BooksFilterType filter,
+                             @Nullable final BooksPageKey after, final int pageSize,
+                             @NonNull LoadBooksPageCallback pageCallback) {
+        checkNotNull(filter);
+        checkArgument(pageSize > 0, "pageSize must be positive");
+        checkNotNull(pageCallback);
+        final LoadBooksPageCallback callback = timed(pageCallback, mGetBooksPageTimer);
+
+        if (after == null && !mCacheIsDirty) {
+            FirstPage cachedPage = mCachedFirstPages.get(filter);
+            if (cachedPage != null && cachedPage.mPageSize == pageSize) {
+                mFirstPagesCacheRatio.hit();
+                callback.onBooksPageLoaded(cachedPage.mBooks, cachedPage.mNextPageKey);
+                return;
+            }
+        }
+        if (after == null) {
+            mFirstPagesCacheRatio.miss();
+        }
+
+        EspressoIdlingResource.increment(); // App is busy until further notice
+
+        if (after == null && mCacheIsDirty) {
+            // If the cache is dirty we need to fetch the changes from the network.
+            mSyncEngine.sync(new BooksSyncEngine.SyncCallback() {
+                @Override
+                public void onSynced(@NonNull BooksDelta applied) {
+                    applyDeltaToCache(applied);
+                    getBooksPageFromLocalDataSource(filter, null, pageSize, callback);
+                }
+
                 @Override
-                public void onBooksListLoaded(List<BookListItem> bookItems) {
-                    refreshListItemsCache(bookItems);
+                public void onSyncFailed() {
+                    getBooksPageFromLocalDataSource(filter, null, pageSize, callback);
+                }
+            });
+        } else if (after == null && !mSnapshotRead) {
+            getFirstBooksPageFromSnapshot(filter, pageSize, callback);
+        } else {
+            getBooksPageFromLocalDataSource(filter, after, pageSize, callback);
+        }
+    }
 
+    /**
+     * Fills the cache from the snapshot, if there is one and the books didn't change meanwhile,
+     * and cuts the first page from it. Otherwise, gets the page from the local data source.
+     */
+    private void getFirstBooksPageFromSnapshot(@NonNull final BooksFilterType filter,
+                                               final int pageSize,
+                                               @NonNull final LoadBooksPageCallback callback) {
+        mSnapshotRead = true;
+        final int generation = mBooksGeneration;
+        mSnapshot.load(new LoadBooksListCallback() {
+            @Override
+            public void onBooksListLoaded(List<BookListItem> books) {
+                if (generation != mBooksGeneration) {
+                    onDataNotAvailable();
+                    return;
+                }
+                mSnapshotRatio.hit();
+                refreshListItemsCache(books);
+                mSnapshotSaved = true;
+                FirstPage page = FirstPage.of(books, filter, pageSize);
+                mCachedFirstPages.put(filter, page);
+
+                EspressoIdlingResource.decrement(); // Set app as idle.
+                callback.onBooksPageLoaded(page.mBooks, page.mNextPageKey);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                mSnapshotRatio.miss();
+                getBooksPageFromLocalDataSource(filter, null, pageSize, callback);
+            }
+        });
+    }
+
+    private void getBooksPageFromLocalDataSource(@NonNull final BooksFilterType filter,
+                                                 @Nullable final BooksPageKey after,
+                                                 final int pageSize,
+                                                 @NonNull final LoadBooksPageCallback callback) {
+        final int generation = mBooksGeneration;
+        listSource().getBooksPage(filter, after, pageSize, new LoadBooksPageCallback() {
+            @Override
+            public void onBooksPageLoaded(List<BookListItem> books,
+                                          @Nullable BooksPageKey nextPageKey) {
+                if (after == null && generation == mBooksGeneration) {
+                    mCachedFirstPages.put(filter, new FirstPage(books, nextPageKey, pageSize));
+                    snapshotStoredBooks();
+                }
+
+                EspressoIdlingResource.decrement(); // Set app as idle.
+                callback.onBooksPageLoaded(books, nextPageKey);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                if (after == null) {
+                    getBooksPageFromRemoteDataSource(BooksSortType.TITLE, filter, pageSize,
+                            callback);
+                } else {
                     EspressoIdlingResource.decrement(); // Set app as idle.
-                    callback.onBooksListLoaded(bookItems);
+                    callback.onDataNotAvailable();
                 }
+            }
+        });
+    }
+
+    /**
+     * Gets a page of books sorted by {@code sortType} from the local data source, which indexes
+     * every sort type. Sorted by title, these are the pages of
+     * {@link #getBooksPage(BooksFilterType, BooksPageKey, int, LoadBooksPageCallback)}, first pages
+     * cached included. Otherwise pages are not cached, and the first one is read like the first
+     * page by title: after syncing the changes on the server if the cache is dirty, and from the
+     * remote data source if the local one is empty.
+     * <p>
+     * Note: {@link LoadBooksPageCallback#onDataNotAvailable()} is fired if all data sources fail to
+     * get the data.
+     */
+    @Override
+    public void getSortedBooksPage(@NonNull final BooksSortType sortType,
+                                   @NonNull final BooksFilterType filter,
+                                   @Nullable final BooksPageKey after, final int pageSize,
+                                   @NonNull LoadBooksPageCallback pageCallback) {
+        checkNotNull(sortType);
+        if (sortType == BooksSortType.TITLE) {
+            getBooksPage(filter, after, pageSize, pageCallback);
+            return;
+        }
+        checkNotNull(filter);
+        checkArgument(pageSize > 0, "pageSize must be positive");
+        checkNotNull(pageCallback);
+        final LoadBooksPageCallback callback = timed(pageCallback, mGetSortedBooksPageTimer);
 
+        EspressoIdlingResource.increment(); // App is busy until further notice
+
+        if (after == null && mCacheIsDirty) {
+            mSyncEngine.sync(new BooksSyncEngine.SyncCallback() {
                 @Override
-                public void onDataNotAvailable() {
-                    getBooksFromRemoteDataSource(callback);
+                public void onSynced(@NonNull BooksDelta applied) {
+                    applyDeltaToCache(applied);
+                    getSortedBooksPageFromLocalDataSource(sortType, filter, null, pageSize,
+                            callback);
+                }
+
+                @Override
+                public void onSyncFailed() {
+                    getSortedBooksPageFromLocalDataSource(sortType, filter, null, pageSize,
+                            callback);
                 }
             });
+        } else {
+            getSortedBooksPageFromLocalDataSource(sortType, filter, after, pageSize, callback);
         }
     }
 
+    private void getSortedBooksPageFromLocalDataSource(
+            @NonNull final BooksSortType sortType, @NonNull final BooksFilterType filter,
+            @Nullable final BooksPageKey after, final int pageSize,
+            @NonNull final LoadBooksPageCallback callback) {
+        listSource().getSortedBooksPage(sortType, filter, after, pageSize,
+                new LoadBooksPageCallback() {
+                    @Override
+                    public void onBooksPageLoaded(List<BookListItem> books,
+                                                  @Nullable BooksPageKey nextPageKey) {
+                        EspressoIdlingResource.decrement(); // Set app as idle.
+                        callback.onBooksPageLoaded(books, nextPageKey);
+                    }
+
+                    @Override
+                    public void onDataNotAvailable() {
+                        if (after == null) {
+                            getBooksPageFromRemoteDataSource(sortType, filter, pageSize,
+                                    callback);
+                        } else {
+                            EspressoIdlingResource.decrement(); // Set app as idle.
+                            callback.onDataNotAvailable();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Searches the books persisted in the local data source, which keeps a full-text index of
+     * their titles, authors and descriptions. Matches are not cached.
+     * <p>
+     * Note: {@link LoadBooksListCallback#onDataNotAvailable()} is fired if the local data source
+     * can't be searched.
+     */
+    @Override
+    public void searchBooks(@NonNull String query, int offset, int limit,
+                            @NonNull LoadBooksListCallback searchCallback) {
+        checkNotNull(query);
+        checkArgument(offset >= 0, "offset can't be negative");
+        checkArgument(limit > 0, "limit must be positive");
+        checkNotNull(searchCallback);
+        final LoadBooksListCallback callback = timed(searchCallback, mSearchBooksTimer);
+
+        EspressoIdlingResource.increment(); // App is busy until further notice
+
+        listSource().searchBooks(query, offset, limit, new LoadBooksListCallback() {
+            @Override
+            public void onBooksListLoaded(List<BookListItem> books) {
+                EspressoIdlingResource.decrement(); // Set app as idle.
+                callback.onBooksListLoaded(books);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                EspressoIdlingResource.decrement(); // Set app as idle.
+                callback.onDataNotAvailable();
+            }
+        });
+    }
+
+    /**
+     * Gets a page of the books of an author from the local data source, which indexes the authors
+     * of the books it stores. Pages are not cached.
+     * <p>
+     * Note: {@link LoadBooksPageCallback#onDataNotAvailable()} is fired if the local data source
+     * can't be read.
+     */
+    @Override
+    public void getBooksByAuthorPage(@NonNull String author, @Nullable BooksPageKey after,
+                                     int pageSize, @NonNull LoadBooksPageCallback pageCallback) {
+        checkNotNull(author);
+        checkArgument(pageSize > 0, "pageSize must be positive");
+        checkNotNull(pageCallback);
+        final LoadBooksPageCallback callback = timed(pageCallback, mGetBooksByAuthorPageTimer);
+
+        EspressoIdlingResource.increment(); // App is busy until further notice
+
+        listSource().getBooksByAuthorPage(author, after, pageSize,
+                new LoadBooksPageCallback() {
+                    @Override
+                    public void onBooksPageLoaded(List<BookListItem> books,
+                                                  @Nullable BooksPageKey nextPageKey) {
+                        EspressoIdlingResource.decrement(); // Set app as idle.
+                        callback.onBooksPageLoaded(books, nextPageKey);
+                    }
+
+                    @Override
+                    public void onDataNotAvailable() {
+                        EspressoIdlingResource.decrement(); // Set app as idle.
+                        callback.onDataNotAvailable();
+                    }
+                });
+    }
+
+    /**
+     * Looks the authors up in the local data source.
+     * <p>
+     * Note: {@link LoadAuthorsCallback#onDataNotAvailable()} is fired if the local data source
+     * can't be read.
+     */
+    @Override
+    public void findAuthors(@NonNull String prefix, int limit,
+                            @NonNull LoadAuthorsCallback authorsCallback) {
+        checkNotNull(prefix);
+        checkArgument(limit > 0, "limit must be positive");
+        checkNotNull(authorsCallback);
+        final LoadAuthorsCallback callback = timed(authorsCallback, mFindAuthorsTimer);
+
+        EspressoIdlingResource.increment(); // App is busy until further notice
+
+        listSource().findAuthors(prefix, limit, new LoadAuthorsCallback() {
+            @Override
+            public void onAuthorsLoaded(List<String> authors) {
+                EspressoIdlingResource.decrement(); // Set app as idle.
+                callback.onAuthorsLoaded(authors);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                EspressoIdlingResource.decrement(); // Set app as idle.
+                callback.onDataNotAvailable();
+            }
+        });
+    }
+
+    /**
+     * Gets the statistics of the books list. The first time, the books are counted by the local
+     * data source, or by the remote data source if none are stored. From then on, they are kept up
+     * to date as the books are saved, favorited or deleted, and served without reading any book.
+     * If the cache is dirty, the changes on the server are synced first.
+     * <p>
+     * Note: {@link GetStatisticsCallback#onDataNotAvailable()} is fired if all data sources fail to
+     * get the data.
+     */
+    @Override
+    public void getStatistics(@NonNull GetStatisticsCallback statisticsCallback) {
+        checkNotNull(statisticsCallback);
+        GetStatisticsCallback timedCallback = timed(statisticsCallback, mGetStatisticsTimer);
+
+        BooksStatisticsCounter statistics = mStatistics;
+        if (statistics != null && !mCacheIsDirty) {
+            mStatisticsCacheRatio.hit();
+            timedCallback.onStatisticsLoaded(statistics.snapshot());
+            return;
+        }
+        mStatisticsCacheRatio.miss();
+
+        final boolean sync = mCacheIsDirty;
+        if (!mStatisticsLoads.join(sync, timedCallback)) {
+            return;
+        }
+        final GetStatisticsCallback callback = sharedStatisticsLoad(sync);
+
+        EspressoIdlingResource.increment(); // App is busy until further notice
+
+        if (sync) {
+            // If the cache is dirty we need to fetch the changes from the network.
+            mSyncEngine.sync(new BooksSyncEngine.SyncCallback() {
+                @Override
+                public void onSynced(@NonNull BooksDelta applied) {
+                    applyDeltaToCache(applied);
+                    getStatisticsFromLocalDataSource(callback);
+                }
+
+                @Override
+                public void onSyncFailed() {
+                    getStatisticsFromLocalDataSource(callback);
+                }
+            });
+        } else {
+            getStatisticsFromLocalDataSource(callback);
+        }
+    }
+
+    private void getStatisticsFromLocalDataSource(@NonNull final GetStatisticsCallback callback) {
+        BooksStatisticsCounter statistics = mStatistics;
+        if (statistics != null) {
+            // The sync kept them up to date.
+            EspressoIdlingResource.decrement(); // Set app as idle.
+            callback.onStatisticsLoaded(statistics.snapshot());
+            return;
+        }
+
+        final int generation = mBooksGeneration;
+        mBooksLocalDataSource.getStatistics(new GetStatisticsCallback() {
+            @Override
+            public void onStatisticsLoaded(BooksStatistics statistics) {
+                if (generation == mBooksGeneration) {
+                    mStatistics = new BooksStatisticsCounter(statistics);
+                }
+
+                EspressoIdlingResource.decrement(); // Set app as idle.
+                callback.onStatisticsLoaded(statistics);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                // Nothing is stored yet, so the remote statistics are not kept.
+                mBooksRemoteDataSource.getStatistics(new GetStatisticsCallback() {
+                    @Override
+                    public void onStatisticsLoaded(BooksStatistics statistics) {
+                        EspressoIdlingResource.decrement(); // Set app as idle.
+                        callback.onStatisticsLoaded(statistics);
+                    }
+
+                    @Override
+                    public void onDataNotAvailable() {
+                        EspressoIdlingResource.decrement(); // Set app as idle.
+                        callback.onDataNotAvailable();
+                    }
+                });
+            }
+        });
+    }
+
     @Override
     public void saveBooksListItems(@NonNull List<BookListItem> booksListItems) {
         checkNotNull(booksListItems);
         mBooksLocalDataSource.saveBooksListItems(booksListItems);
+        mStatistics = null;
+        clearFirstPages();
+        invalidateSnapshot();
+    }
+
+    @Override
+    public void saveBooksListItems(@NonNull List<BookListItem> booksListItems,
+                                   @NonNull SaveBooksListItemsCallback callback) {
+        checkNotNull(booksListItems);
+        checkNotNull(callback);
+        mBooksLocalDataSource.saveBooksListItems(booksListItems, callback);
+        mStatistics = null;
+        clearFirstPages();
+        invalidateSnapshot();
     }
 
     @Override
@@ -135,6 +819,7 @@ public class BooksRepository implements BooksDataSource {
 
         // Do in memory cache update to keep the app UI up to date
         saveToBookToCache(book);
+        invalidateSnapshot();
     }
 
     @Override
@@ -146,7 +831,8 @@ public class BooksRepository implements BooksDataSource {
         Book favoriteBook = new Book(book.getTitle(), book.getId(), book.getVolumeInfo().getDescription(), true);
 
         // Do in memory cache update to keep the app UI up to date
-        saveToBookToCache(favoriteBook);
+        updateBookInCache(favoriteBook);
+        invalidateSnapshot();
     }
 
     @Override
@@ -163,7 +849,8 @@ public class BooksRepository implements BooksDataSource {
 
         Book notFavoriteBook = new Book(book.getTitle(), book.getId(), book.getVolumeInfo().getDescription(), false);
 
-        saveToBookToCache(notFavoriteBook);
+        updateBookInCache(notFavoriteBook);
+        invalidateSnapshot();
     }
 
     @Override
@@ -172,16 +859,40 @@ public class BooksRepository implements BooksDataSource {
         unFavoriteBook(getBookWithId(bookId));
     }
 
+    /**
+     * Caches a book that was saved, which replaces its list item.
+     */
     private void saveToBookToCache(Book book) {
-        if (mCachedBooks == null) {
-            mCachedBooks = new LinkedHashMap<>();
-        }
         mCachedBooks.put(book.getId(), book);
+        BookListItem item = new BookListItem(book.getTitle(), book.getId());
+        item.setFavorite(book.isFavorite());
+        replaceInStatistics(mCachedListItems.get(book.getId()), item);
+        mCachedListItems.put(book.getId(), item);
+        clearFirstPages();
+    }
 
-        if (mCachedListItems == null) {
-            mCachedListItems = new LinkedHashMap<>();
+    /**
+     * Caches a book that was loaded or favorited, which keeps its list item but for the favorite
+     * status.
+     */
+    private void updateBookInCache(Book book) {
+        mCachedBooks.put(book.getId(), book);
+        BookListItem previous = mCachedListItems.get(book.getId());
+        if (previous == null) {
+            BookListItem item = new BookListItem(book.getTitle(), book.getId());
+            item.setFavorite(book.isFavorite());
+            mCachedListItems.put(book.getId(), item);
+            // Whether the book is counted is unknown.
+            mStatistics = null;
+            clearFirstPages();
+        } else if (previous.isFavorite() != book.isFavorite()) {
+            mCachedListItems.put(book.getId(), withFavorite(previous, book.isFavorite()));
+            BooksStatisticsCounter counter = mStatistics;
+            if (counter != null) {
+                counter.setFavorite(previous.isFavorite(), book.isFavorite());
+            }
+            clearFirstPages();
         }
-        mCachedListItems.put(book.getId(), new BookListItem(book.getTitle(), book.getId()));
     }
 
     /**
@@ -192,17 +903,25 @@ public class BooksRepository implements BooksDataSource {
      * get the data.
      */
     @Override
-    public void getBookDetails(@NonNull final String bookId, @NonNull final GetBookDetailsCallback callback) {
+    public void getBookDetails(@NonNull final String bookId, @NonNull GetBookDetailsCallback bookCallback) {
         checkNotNull(bookId);
-        checkNotNull(callback);
+        checkNotNull(bookCallback);
+        GetBookDetailsCallback timedCallback = timed(bookCallback, mGetBookDetailsTimer);
 
         Book cachedBook = getBookWithId(bookId);
 
         // Respond immediately with cache if available
         if (cachedBook != null) {
-            callback.onBookDetailsLoaded(cachedBook);
+            mBooksCacheRatio.hit();
+            timedCallback.onBookDetailsLoaded(cachedBook);
             return;
         }
+        mBooksCacheRatio.miss();
+
+        if (!mBookLoads.join(bookId, timedCallback)) {
+            return;
+        }
+        final GetBookDetailsCallback callback = sharedBookLoad(bookId);
 
         EspressoIdlingResource.increment(); // App is busy until further notice
 
@@ -212,8 +931,9 @@ public class BooksRepository implements BooksDataSource {
         mBooksLocalDataSource.getBookDetails(bookId, new GetBookDetailsCallback() {
             @Override
             public void onBookDetailsLoaded(Book book) {
+                mBooksLocalRatio.hit();
                 // Do in memory cache update to keep the app UI up to date
-                saveToBookToCache(book);
+                updateBookInCache(book);
 
                 EspressoIdlingResource.decrement(); // Set app as idle.
 
@@ -222,6 +942,7 @@ public class BooksRepository implements BooksDataSource {
 
             @Override
             public void onDataNotAvailable() {
+                mBooksLocalRatio.miss();
                 mBooksRemoteDataSource.getBookDetails(bookId, new GetBookDetailsCallback() {
                     @Override
                     public void onBookDetailsLoaded(Book book) {
@@ -230,7 +951,7 @@ public class BooksRepository implements BooksDataSource {
                             return;
                         }
                         // Do in memory cache update to keep the app UI up to date
-                        saveToBookToCache(book);
+                        updateBookInCache(book);
 
                         EspressoIdlingResource.decrement(); // Set app as idle.
 
@@ -248,9 +969,59 @@ public class BooksRepository implements BooksDataSource {
         });
     }
 
+    /**
+     * Gets the description from the cached book if it has one. Books read from the local data
+     * source don't, so it is read from there, or from the network if the book isn't stored.
+     */
+    @Override
+    public void getBookDescription(@NonNull final String bookId,
+                                   @NonNull GetBookDescriptionCallback descriptionCallback) {
+        checkNotNull(bookId);
+        checkNotNull(descriptionCallback);
+        final GetBookDescriptionCallback callback =
+                timed(descriptionCallback, mGetBookDescriptionTimer);
+
+        Book cachedBook = getBookWithId(bookId);
+        if (cachedBook != null && cachedBook.getVolumeInfo() != null
+                && cachedBook.getVolumeInfo().getDescription() != null) {
+            callback.onDescriptionLoaded(cachedBook.getVolumeInfo().getDescription());
+            return;
+        }
+
+        EspressoIdlingResource.increment(); // App is busy until further notice
+
+        mBooksLocalDataSource.getBookDescription(bookId, new GetBookDescriptionCallback() {
+            @Override
+            public void onDescriptionLoaded(@Nullable String description) {
+                EspressoIdlingResource.decrement(); // Set app as idle.
+
+                callback.onDescriptionLoaded(description);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                mBooksRemoteDataSource.getBookDescription(bookId, new GetBookDescriptionCallback() {
+                    @Override
+                    public void onDescriptionLoaded(@Nullable String description) {
+                        EspressoIdlingResource.decrement(); // Set app as idle.
+
+                        callback.onDescriptionLoaded(description);
+                    }
+
+                    @Override
+                    public void onDataNotAvailable() {
+                        EspressoIdlingResource.decrement(); // Set app as idle.
+
+                        callback.onDataNotAvailable();
+                    }
+                });
+            }
+        });
+    }
+
     @Override
     public void refreshBooks() {
-        mBooksCacheIsDirty = true;
+        mCacheIsDirty = true;
     }
 
     @Override
@@ -258,11 +1029,12 @@ public class BooksRepository implements BooksDataSource {
         mBooksRemoteDataSource.deleteAllBooks();
         mBooksLocalDataSource.deleteAllBooks();
 
-        if (mCachedListItems == null) {
-            mCachedListItems = new LinkedHashMap<>();
-        }
-        mCachedListItems.clear();
+        // Every book is gone, so the empty list cache is complete.
+        mCachedListItems.replaceAll(new LinkedHashMap<String, BookListItem>());
         mCachedBooks.clear();
+        mStatistics = new BooksStatisticsCounter();
+        clearFirstPages();
+        invalidateSnapshot();
     }
 
     @Override
@@ -270,8 +1042,61 @@ public class BooksRepository implements BooksDataSource {
         mBooksRemoteDataSource.deleteBook(checkNotNull(bookId));
         mBooksLocalDataSource.deleteBook(checkNotNull(bookId));
 
+        replaceInStatistics(mCachedListItems.get(bookId), null);
         mCachedListItems.remove(bookId);
         mCachedBooks.remove(bookId);
+        clearFirstPages();
+        invalidateSnapshot();
+    }
+
+    /**
+     * Observes the version of the books stored locally. Unlike
+     * {@link #getBooks(LoadBooksListCallback)}, this doesn't sync them: the version changes as the
+     * books are synced or edited.
+     */
+    @NonNull
+    @Override
+    public synchronized LiveData<Long> observeBooksVersion() {
+        if (mObservedBooksVersion == null) {
+            mObservedBooksVersion = mBooksLocalDataSource.observeBooksVersion();
+        }
+        return mObservedBooksVersion;
+    }
+
+    @NonNull
+    @Override
+    public synchronized LiveData<Book> observeBook(@NonNull String bookId) {
+        checkNotNull(bookId);
+        WeakReference<LiveData<Book>> reference = mObservedBook.get(bookId);
+        LiveData<Book> book = reference != null ? reference.get() : null;
+        if (book == null) {
+            removeCollectedBooks();
+            book = mBooksLocalDataSource.observeBook(bookId);
+            mObservedBook.put(bookId, new WeakReference<>(book));
+        }
+        return book;
+    }
+
+    /**
+     * Observes the statistics of the books stored locally, counted again whenever they change.
+     */
+    @NonNull
+    @Override
+    public synchronized LiveData<BooksStatistics> observeStatistics() {
+        if (mObservedStatistics == null) {
+            mObservedStatistics = mBooksLocalDataSource.observeStatistics();
+        }
+        return mObservedStatistics;
+    }
+
+    // Must hold the lock of this repository.
+    private void removeCollectedBooks() {
+        Iterator<WeakReference<LiveData<Book>>> references = mObservedBook.values().iterator();
+        while (references.hasNext()) {
+            if (references.next().get() == null) {
+                references.remove();
+            }
+        }
     }
 
     private void getBooksFromRemoteDataSource(@NonNull final LoadBooksListCallback callback) {
@@ -280,10 +1105,11 @@ public class BooksRepository implements BooksDataSource {
             public void onBooksListLoaded(List<BookListItem> bookItems) {
                 refreshListItemsCache(bookItems);
 
-                mBooksLocalDataSource.saveBooksListItems(bookItems);
+                storeRemoteBooks(bookItems);
+                saveSnapshot();
 
                 EspressoIdlingResource.decrement(); // Set app as idle.
-                callback.onBooksListLoaded(new ArrayList<>(mCachedListItems.values()));
+                callback.onBooksListLoaded(bookItems);
             }
 
             @Override
@@ -295,35 +1121,401 @@ public class BooksRepository implements BooksDataSource {
         });
     }
 
-    private void refreshBooksCache(List<Book> books) {
-        if (mCachedBooks == null) {
-            mCachedBooks = new LinkedHashMap<>();
+    private void getBooksPageFromRemoteDataSource(@NonNull final BooksSortType sortType,
+                                                  @NonNull final BooksFilterType filter,
+                                                  final int pageSize,
+                                                  @NonNull final LoadBooksPageCallback callback) {
+        mBooksRemoteDataSource.getBooks(new LoadBooksListCallback() {
+            @Override
+            public void onBooksListLoaded(List<BookListItem> bookItems) {
+                refreshListItemsCache(bookItems);
+
+                storeRemoteBooks(bookItems);
+                saveSnapshot();
+
+                mBooksRemoteDataSource.getSortedBooksPage(sortType, filter, null, pageSize,
+                        new LoadBooksPageCallback() {
+                            @Override
+                            public void onBooksPageLoaded(List<BookListItem> books,
+                                                          @Nullable BooksPageKey nextPageKey) {
+                                EspressoIdlingResource.decrement(); // Set app as idle.
+                                callback.onBooksPageLoaded(books, nextPageKey);
+                            }
+
+                            @Override
+                            public void onDataNotAvailable() {
+                                EspressoIdlingResource.decrement(); // Set app as idle.
+                                callback.onDataNotAvailable();
+                            }
+                        });
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                EspressoIdlingResource.decrement(); // Set app as idle.
+                callback.onDataNotAvailable();
+            }
+        });
+    }
+
+    /**
+     * Stores the books fetched from the remote data source in the local one. Until they are
+     * stored, lists of books are read from the remote data source, see {@link #listSource()}.
+     */
+    private void storeRemoteBooks(List<BookListItem> bookItems) {
+        mRemoteBooksStoring++;
+        mBooksLocalDataSource.saveBooksListItems(bookItems, new SaveBooksListItemsCallback() {
+            @Override
+            public void onBooksListItemsSaved() {
+                mRemoteBooksStoring--;
+            }
+
+            @Override
+            public void onSaveFailed() {
+                mRemoteBooksStoring--;
+            }
+        });
+    }
+
+    /**
+     * @return the data source lists of books are read from: the local one, unless it is still
+     * storing the books fetched from the remote one.
+     */
+    private BooksDataSource listSource() {
+        return mRemoteBooksStoring > 0 ? mBooksRemoteDataSource : mBooksLocalDataSource;
+    }
+
+    private void refreshListItemsCache(List<BookListItem> bookItems) {
+        Map<String, BookListItem> listItems = new LinkedHashMap<>();
+        for (BookListItem bookItem : bookItems) {
+            listItems.put(bookItem.getId(), bookItem);
         }
-        mCachedBooks.clear();
-        for (Book book : books) {
-            saveToBookToCache(book);
+        mCachedListItems.replaceAll(listItems);
+        mStatistics = BooksStatisticsCounter.of(bookItems);
+        clearFirstPages();
+        mCacheIsDirty = false;
+    }
+
+    /**
+     * Applies the changes that were synced to the cache, rather than reloading it. The cache stays
+     * complete if it was.
+     */
+    private void applyDeltaToCache(@NonNull BooksDelta applied) {
+        for (BookListItem item : applied.getUpserts()) {
+            Book book = applied.getBook(item.getId());
+            // The stored list item takes the favorite status of its book, if it came with one.
+            item.setFavorite(book != null && book.isFavorite());
+            replaceInStatistics(mCachedListItems.get(item.getId()), item);
+            mCachedListItems.put(item.getId(), item);
+            if (book != null) {
+                mCachedBooks.put(book.getId(), book);
+            } else {
+                mCachedBooks.remove(item.getId());
+            }
+        }
+        for (String id : applied.getDeletedIds()) {
+            replaceInStatistics(mCachedListItems.get(id), null);
+            mCachedListItems.remove(id);
+            mCachedBooks.remove(id);
+        }
+        if (!applied.isEmpty()) {
+            clearFirstPages();
+            invalidateSnapshot();
         }
-        mBooksCacheIsDirty = false;
+        mCacheIsDirty = false;
     }
 
-    private void refreshListItemsCache(List<BookListItem> bookItems) {
-        if (mCachedListItems == null) {
-            mCachedListItems = new LinkedHashMap<>();
+    /**
+     * @return the books of the complete cache, in {@link BooksPageKey#ORDER}. They are only sorted
+     * again once the cache changed.
+     */
+    private List<BookListItem> cachedListItems() {
+        return mCachedListItems.sortedValues(PAGE_ORDER);
+    }
+
+    /**
+     * Replaces the snapshot with the books just stored, which the cache was filled with. Nothing
+     * is saved if they don't all fit in the cache.
+     */
+    private void saveSnapshot() {
+        if (mSnapshot != null && mCachedListItems.isComplete()) {
+            mSnapshotSaved = true;
+            mSnapshot.save(cachedListItems());
         }
-        mCachedListItems.clear();
-        for (BookListItem bookItem : bookItems) {
-            mCachedListItems.put(bookItem.getId(), bookItem);
+    }
+
+    /**
+     * Saves a snapshot of the books stored, if there is none, once a first page was read and the
+     * cache holds them all. Otherwise the next full load saves it: reading every book only for
+     * the snapshot would cost more than the page did.
+     */
+    private void snapshotStoredBooks() {
+        if (!mSnapshotSaved) {
+            saveSnapshot();
+        }
+    }
+
+    /**
+     * Deletes the snapshot, since the books stored changed. The next full load saves it again.
+     */
+    private void invalidateSnapshot() {
+        if (mSnapshot != null) {
+            mSnapshotSaved = false;
+            mSnapshot.delete();
+        }
+    }
+
+    private void clearFirstPages() {
+        mBooksGeneration++;
+        mCachedFirstPages.clear();
+    }
+
+    /**
+     * Counts {@code item} instead of {@code previous} in the statistics. Either can be null for a
+     * book that is added or removed. If the cache doesn't hold the previous list item of a book
+     * that may be stored, the statistics have to be counted again.
+     */
+    private void replaceInStatistics(@Nullable BookListItem previous,
+                                     @Nullable BookListItem item) {
+        BooksStatisticsCounter statistics = mStatistics;
+        if (statistics == null) {
+            return;
+        }
+        if (previous == null && !mCachedListItems.isComplete()) {
+            mStatistics = null;
+            return;
+        }
+        if (previous != null) {
+            statistics.remove(previous);
         }
-        mListItemsCacheIsDirty = false;
+        if (item != null) {
+            statistics.add(item);
+        }
+    }
+
+    /*
+     * The callbacks below end a load in flight, handing its result to every callback that joined
+     * it. The load ends before they are called, so that they can start another one.
+     */
+
+    private LoadBooksListCallback sharedBooksLoad(final boolean sync) {
+        return new LoadBooksListCallback() {
+            @Override
+            public void onBooksListLoaded(List<BookListItem> books) {
+                for (LoadBooksListCallback callback : mBooksLoads.finish(sync)) {
+                    callback.onBooksListLoaded(books);
+                }
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                for (LoadBooksListCallback callback : mBooksLoads.finish(sync)) {
+                    callback.onDataNotAvailable();
+                }
+            }
+        };
+    }
+
+    private GetStatisticsCallback sharedStatisticsLoad(final boolean sync) {
+        return new GetStatisticsCallback() {
+            @Override
+            public void onStatisticsLoaded(BooksStatistics statistics) {
+                for (GetStatisticsCallback callback : mStatisticsLoads.finish(sync)) {
+                    callback.onStatisticsLoaded(statistics);
+                }
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                for (GetStatisticsCallback callback : mStatisticsLoads.finish(sync)) {
+                    callback.onDataNotAvailable();
+                }
+            }
+        };
+    }
+
+    private GetBookDetailsCallback sharedBookLoad(final String bookId) {
+        return new GetBookDetailsCallback() {
+            @Override
+            public void onBookDetailsLoaded(Book book) {
+                for (GetBookDetailsCallback callback : mBookLoads.finish(bookId)) {
+                    callback.onBookDetailsLoaded(book);
+                }
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                for (GetBookDetailsCallback callback : mBookLoads.finish(bookId)) {
+                    callback.onDataNotAvailable();
+                }
+            }
+        };
+    }
+
+    /*
+     * The callbacks below stop a timer started when they are created, so the latency recorded
+     * spans every data source the load went through.
+     */
+
+    private static LoadBooksListCallback timed(final LoadBooksListCallback callback,
+                                               final Metrics.Timer timer) {
+        final long start = timer.start();
+        return new LoadBooksListCallback() {
+            @Override
+            public void onBooksListLoaded(List<BookListItem> books) {
+                timer.stop(start);
+                callback.onBooksListLoaded(books);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                timer.stop(start);
+                callback.onDataNotAvailable();
+            }
+        };
+    }
+
+    private static LoadBooksPageCallback timed(final LoadBooksPageCallback callback,
+                                               final Metrics.Timer timer) {
+        final long start = timer.start();
+        return new LoadBooksPageCallback() {
+            @Override
+            public void onBooksPageLoaded(List<BookListItem> books,
+                                          @Nullable BooksPageKey nextPageKey) {
+                timer.stop(start);
+                callback.onBooksPageLoaded(books, nextPageKey);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                timer.stop(start);
+                callback.onDataNotAvailable();
+            }
+        };
+    }
+
+    private static LoadAuthorsCallback timed(final LoadAuthorsCallback callback,
+                                             final Metrics.Timer timer) {
+        final long start = timer.start();
+        return new LoadAuthorsCallback() {
+            @Override
+            public void onAuthorsLoaded(List<String> authors) {
+                timer.stop(start);
+                callback.onAuthorsLoaded(authors);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                timer.stop(start);
+                callback.onDataNotAvailable();
+            }
+        };
+    }
+
+    private static GetBookDetailsCallback timed(final GetBookDetailsCallback callback,
+                                                final Metrics.Timer timer) {
+        final long start = timer.start();
+        return new GetBookDetailsCallback() {
+            @Override
+            public void onBookDetailsLoaded(Book book) {
+                timer.stop(start);
+                callback.onBookDetailsLoaded(book);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                timer.stop(start);
+                callback.onDataNotAvailable();
+            }
+        };
+    }
+
+    private static GetBookDescriptionCallback timed(final GetBookDescriptionCallback callback,
+                                                    final Metrics.Timer timer) {
+        final long start = timer.start();
+        return new GetBookDescriptionCallback() {
+            @Override
+            public void onDescriptionLoaded(@Nullable String description) {
+                timer.stop(start);
+                callback.onDescriptionLoaded(description);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                timer.stop(start);
+                callback.onDataNotAvailable();
+            }
+        };
+    }
+
+    private static GetStatisticsCallback timed(final GetStatisticsCallback callback,
+                                               final Metrics.Timer timer) {
+        final long start = timer.start();
+        return new GetStatisticsCallback() {
+            @Override
+            public void onStatisticsLoaded(BooksStatistics statistics) {
+                timer.stop(start);
+                callback.onStatisticsLoaded(statistics);
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                timer.stop(start);
+                callback.onDataNotAvailable();
+            }
+        };
+    }
+
+    private static BookListItem withFavorite(BookListItem item, boolean favorite) {
+        BookListItem copy = new BookListItem(item.getTitle(), item.getId(), item.getLink());
+        copy.setEtag(item.getEtag());
+        copy.setVolumeInfo(item.getVolumeInfo());
+        copy.setFavorite(favorite);
+        return copy;
     }
 
     @Nullable
     private Book getBookWithId(@NonNull String id) {
         checkNotNull(id);
-        if (mCachedBooks == null || mCachedBooks.isEmpty()) {
-            return null;
-        } else {
-            return mCachedBooks.get(id);
+        return mCachedBooks.get(id);
+    }
+
+    private static int length(@Nullable String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private static class FirstPage {
+
+        private final List<BookListItem> mBooks;
+
+        @Nullable
+        private final BooksPageKey mNextPageKey;
+
+        private final int mPageSize;
+
+        FirstPage(List<BookListItem> books, @Nullable BooksPageKey nextPageKey, int pageSize) {
+            mBooks = books;
+            mNextPageKey = nextPageKey;
+            mPageSize = pageSize;
+        }
+
+        /**
+         * Cuts the first page of {@code filter} from {@code books}, which must be in
+         * {@link BooksPageKey#ORDER}.
+         */
+        static FirstPage of(List<BookListItem> books, BooksFilterType filter, int pageSize) {
+            List<BookListItem> page = new ArrayList<>(pageSize);
+            for (BookListItem book : books) {
+                if (filter.accepts(book.isFavorite())) {
+                    page.add(book);
+                    if (page.size() == pageSize) {
+                        break;
+                    }
+                }
+            }
+            BooksPageKey nextPageKey = page.size() < pageSize ? null
+                    : BooksPageKey.after(page.get(page.size() - 1));
+            return new FirstPage(page, nextPageKey, pageSize);
         }
     }
 }
@@ -0,0 +1,109 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A search typed by the user, split into lower case word prefixes. A book matches when every
+ * prefix starts one of the words of its title, authors or description.
+ */
+public final class BooksSearchQuery {
+
+    /**
+     * Words past this many are ignored, so a pasted paragraph can't make a search arbitrarily
+     * slow.
+     */
+    static final int MAX_TOKENS = 8;
+
+    @NonNull
+    private final List<String> mTokens;
+
+    private BooksSearchQuery(@NonNull List<String> tokens) {
+        mTokens = Collections.unmodifiableList(tokens);
+    }
+
+    /**
+     * Splits {@code query} on anything that isn't a letter or a digit. Everything else, including
+     * the FTS query operators, is dropped.
+     */
+    @NonNull
+    public static BooksSearchQuery parse(@Nullable String query) {
+        List<String> tokens = new ArrayList<>();
+        if (query != null) {
+            for (String word : splitWords(query)) {
+                if (!tokens.contains(word)) {
+                    tokens.add(word);
+                    if (tokens.size() == MAX_TOKENS) {
+                        break;
+                    }
+                }
+            }
+        }
+        return new BooksSearchQuery(tokens);
+    }
+
+    @NonNull
+    public List<String> getTokens() {
+        return mTokens;
+    }
+
+    public boolean isEmpty() {
+        return mTokens.isEmpty();
+    }
+
+    /**
+     * @return true if every token is a prefix of a word in one of {@code texts}.
+     */
+    public boolean matches(@NonNull Collection<String> texts) {
+        checkNotNull(texts);
+        List<String> words = new ArrayList<>();
+        for (String text : texts) {
+            if (text != null) {
+                words.addAll(splitWords(text));
+            }
+        }
+        for (String token : mTokens) {
+            if (!startsAnyWord(token, words)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "BooksSearchQuery " + mTokens;
+    }
+
+    private static boolean startsAnyWord(String token, List<String> words) {
+        for (String word : words) {
+            if (word.startsWith(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> splitWords(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
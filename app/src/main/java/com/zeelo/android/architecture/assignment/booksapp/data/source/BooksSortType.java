@@ -0,0 +1,29 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+/**
+ * Used with the sort menu in the books list. Books are always sorted in ascending order, with
+ * the books lacking the value sorted by first, and then by id, which the indices of the books list
+ * back.
+ */
+public enum BooksSortType {
+    /**
+     * Sorts by title, as the language of the device orders words, see {@link BooksCollation}.
+     */
+    TITLE,
+
+    /**
+     * Sorts by the name of the first author, ordered like the titles.
+     */
+    AUTHOR,
+
+    /**
+     * Sorts by published date, oldest first. Dates are ISO 8601 strings, some of them only a year
+     * or a month, which sort by their text.
+     */
+    PUBLISHED_DATE,
+
+    /**
+     * Sorts by page count, shortest first.
+     */
+    PAGE_COUNT
+}
@@ -0,0 +1,291 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link BooksDataSource} that is created in the background. Until it is, the calls are queued;
+ * once it is, they run on the main thread in the order they were made, and the following calls
+ * go straight to it, on the thread making them.
+ * <p>
+ * If the data source can't be created, the app can't work without it, so the main thread throws.
+ */
+public class DeferredBooksDataSource<T extends BooksDataSource> implements BooksDataSource {
+
+    /**
+     * A call to the data source, made once it is created.
+     */
+    protected interface Call<T> {
+
+        void on(@NonNull T dataSource);
+    }
+
+    private final Object mLock = new Object();
+
+    @Nullable
+    private T mDataSource;
+
+    private List<Call<T>> mPendingCalls = new ArrayList<>();
+
+    public DeferredBooksDataSource(@NonNull ListenableFuture<T> dataSource,
+                                   @NonNull Executor mainThread) {
+        Futures.addCallback(checkNotNull(dataSource), new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                runPendingCalls(checkNotNull(result));
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                throw new IllegalStateException("Couldn't create the data source", t);
+            }
+        }, checkNotNull(mainThread));
+    }
+
+    /**
+     * @return the data source, or null if it isn't created yet.
+     */
+    @Nullable
+    protected final T getIfReady() {
+        synchronized (mLock) {
+            return mDataSource;
+        }
+    }
+
+    protected final void whenReady(@NonNull Call<T> call) {
+        T dataSource;
+        synchronized (mLock) {
+            dataSource = mDataSource;
+            if (dataSource == null) {
+                mPendingCalls.add(call);
+                return;
+            }
+        }
+        call.on(dataSource);
+    }
+
+    /**
+     * Runs the calls queued so far, including the ones made while they run, before letting the
+     * following calls through.
+     */
+    private void runPendingCalls(T dataSource) {
+        while (true) {
+            List<Call<T>> calls;
+            synchronized (mLock) {
+                if (mPendingCalls.isEmpty()) {
+                    mDataSource = dataSource;
+                    mPendingCalls = null;
+                    return;
+                }
+                calls = mPendingCalls;
+                mPendingCalls = new ArrayList<>();
+            }
+            for (Call<T> call : calls) {
+                call.on(dataSource);
+            }
+        }
+    }
+
+    @Override
+    public void getBooks(@NonNull final LoadBooksListCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.getBooks(callback);
+            }
+        });
+    }
+
+    @Override
+    public void getBooksPage(@NonNull final BooksFilterType filter,
+                             @Nullable final BooksPageKey after, final int pageSize,
+                             @NonNull final LoadBooksPageCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.getBooksPage(filter, after, pageSize, callback);
+            }
+        });
+    }
+
+    @Override
+    public void getSortedBooksPage(@NonNull final BooksSortType sortType,
+                                   @NonNull final BooksFilterType filter,
+                                   @Nullable final BooksPageKey after, final int pageSize,
+                                   @NonNull final LoadBooksPageCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.getSortedBooksPage(sortType, filter, after, pageSize, callback);
+            }
+        });
+    }
+
+    @Override
+    public void searchBooks(@NonNull final String query, final int offset, final int limit,
+                            @NonNull final LoadBooksListCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.searchBooks(query, offset, limit, callback);
+            }
+        });
+    }
+
+    @Override
+    public void getBooksByAuthorPage(@NonNull final String author,
+                                     @Nullable final BooksPageKey after, final int pageSize,
+                                     @NonNull final LoadBooksPageCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.getBooksByAuthorPage(author, after, pageSize, callback);
+            }
+        });
+    }
+
+    @Override
+    public void findAuthors(@NonNull final String prefix, final int limit,
+                            @NonNull final LoadAuthorsCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.findAuthors(prefix, limit, callback);
+            }
+        });
+    }
+
+    @Override
+    public void getStatistics(@NonNull final GetStatisticsCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.getStatistics(callback);
+            }
+        });
+    }
+
+    @Override
+    public void saveBooksListItems(@NonNull final List<BookListItem> booksListItems) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.saveBooksListItems(booksListItems);
+            }
+        });
+    }
+
+    @Override
+    public void getBookDetails(@NonNull final String bookId,
+                               @NonNull final GetBookDetailsCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.getBookDetails(bookId, callback);
+            }
+        });
+    }
+
+    @Override
+    public void getBookDescription(@NonNull final String bookId,
+                                   @NonNull final GetBookDescriptionCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.getBookDescription(bookId, callback);
+            }
+        });
+    }
+
+    @Override
+    public void saveBook(@NonNull final Book book) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.saveBook(book);
+            }
+        });
+    }
+
+    @Override
+    public void favoriteBook(@NonNull final Book book) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.favoriteBook(book);
+            }
+        });
+    }
+
+    @Override
+    public void favoriteBook(@NonNull final String bookId) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.favoriteBook(bookId);
+            }
+        });
+    }
+
+    @Override
+    public void unFavoriteBook(@NonNull final Book book) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.unFavoriteBook(book);
+            }
+        });
+    }
+
+    @Override
+    public void unFavoriteBook(@NonNull final String bookId) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.unFavoriteBook(bookId);
+            }
+        });
+    }
+
+    @Override
+    public void refreshBooks() {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.refreshBooks();
+            }
+        });
+    }
+
+    @Override
+    public void deleteAllBooks() {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.deleteAllBooks();
+            }
+        });
+    }
+
+    @Override
+    public void deleteBook(@NonNull final String bookId) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.deleteBook(bookId);
+            }
+        });
+    }
+}
@@ -0,0 +1,116 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
+import android.arch.lifecycle.Observer;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksDelta;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksDeltaStore;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * A local data source that is created in the background, like {@link DeferredBooksDataSource}.
+ * <p>
+ * Books observed before it is created are observed through a {@link LiveData} of their own, which
+ * follows the one of the data source once there is one.
+ */
+public class DeferredLocalBooksDataSource<T extends ObservableBooksDataSource & BooksDeltaStore>
+        extends DeferredBooksDataSource<T> implements ObservableBooksDataSource, BooksDeltaStore {
+
+    /**
+     * Observes something the data source holds.
+     */
+    private interface Observation<T, V> {
+
+        LiveData<V> observe(@NonNull T dataSource);
+    }
+
+    public DeferredLocalBooksDataSource(@NonNull ListenableFuture<T> dataSource,
+                                        @NonNull Executor mainThread) {
+        super(dataSource, mainThread);
+    }
+
+    @NonNull
+    @Override
+    public LiveData<Long> observeBooksVersion() {
+        return observe(new Observation<T, Long>() {
+            @Override
+            public LiveData<Long> observe(@NonNull T dataSource) {
+                return dataSource.observeBooksVersion();
+            }
+        });
+    }
+
+    @NonNull
+    @Override
+    public LiveData<Book> observeBook(@NonNull final String bookId) {
+        return observe(new Observation<T, Book>() {
+            @Override
+            public LiveData<Book> observe(@NonNull T dataSource) {
+                return dataSource.observeBook(bookId);
+            }
+        });
+    }
+
+    @NonNull
+    @Override
+    public LiveData<BooksStatistics> observeStatistics() {
+        return observe(new Observation<T, BooksStatistics>() {
+            @Override
+            public LiveData<BooksStatistics> observe(@NonNull T dataSource) {
+                return dataSource.observeStatistics();
+            }
+        });
+    }
+
+    @Override
+    public void saveBooksListItems(@NonNull final List<BookListItem> booksListItems,
+                                   @NonNull final SaveBooksListItemsCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.saveBooksListItems(booksListItems, callback);
+            }
+        });
+    }
+
+    @Override
+    public void applyDelta(@NonNull final BooksDelta delta,
+                           @NonNull final ApplyDeltaCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.applyDelta(delta, callback);
+            }
+        });
+    }
+
+    private <V> LiveData<V> observe(final Observation<T, V> observation) {
+        T dataSource = getIfReady();
+        if (dataSource != null) {
+            return observation.observe(dataSource);
+        }
+        final MediatorLiveData<V> deferred = new MediatorLiveData<>();
+        // The queued calls run on the main thread, where sources can be added.
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                deferred.addSource(observation.observe(dataSource), new Observer<V>() {
+                    @Override
+                    public void onChanged(@Nullable V value) {
+                        deferred.setValue(value);
+                    }
+                });
+            }
+        });
+        return deferred;
+    }
+}
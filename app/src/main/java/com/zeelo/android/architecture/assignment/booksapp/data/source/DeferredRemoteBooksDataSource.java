@@ -0,0 +1,31 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksChangesSource;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A remote data source that is created in the background, like {@link DeferredBooksDataSource}.
+ */
+public class DeferredRemoteBooksDataSource<T extends BooksDataSource & BooksChangesSource>
+        extends DeferredBooksDataSource<T> implements BooksChangesSource {
+
+    public DeferredRemoteBooksDataSource(@NonNull ListenableFuture<T> dataSource,
+                                         @NonNull Executor mainThread) {
+        super(dataSource, mainThread);
+    }
+
+    @Override
+    public void getChangesSince(final long watermark,
+                                @NonNull final LoadChangesCallback callback) {
+        whenReady(new Call<T>() {
+            @Override
+            public void on(@NonNull T dataSource) {
+                dataSource.getChangesSince(watermark, callback);
+            }
+        });
+    }
+}
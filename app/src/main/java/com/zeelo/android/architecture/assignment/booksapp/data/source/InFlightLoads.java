@@ -0,0 +1,53 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The callbacks waiting for the loads in flight, by what is loaded. A load requested while an
+ * identical one is in flight joins it instead of starting again, and gets its result.
+ * <p>
+ * This class is thread safe.
+ */
+final class InFlightLoads<K, C> {
+
+    private final Map<K, List<C>> mWaiting = new HashMap<>();
+
+    /**
+     * Adds {@code callback} to the callbacks waiting for the load of {@code key}.
+     *
+     * @return true if no load of {@code key} was in flight, so the caller has to start it and
+     * then call {@link #finish(Object)}.
+     */
+    synchronized boolean join(@NonNull K key, @NonNull C callback) {
+        checkNotNull(key);
+        checkNotNull(callback);
+        List<C> waiting = mWaiting.get(key);
+        if (waiting != null) {
+            waiting.add(callback);
+            return false;
+        }
+        waiting = new ArrayList<>(1);
+        waiting.add(callback);
+        mWaiting.put(key, waiting);
+        return true;
+    }
+
+    /**
+     * Ends the load of {@code key}. Loads of {@code key} requested from now on start again.
+     *
+     * @return the callbacks that waited for it, in the order they joined.
+     */
+    @NonNull
+    synchronized List<C> finish(@NonNull K key) {
+        List<C> waiting = mWaiting.remove(checkNotNull(key));
+        return waiting != null ? waiting : Collections.<C>emptyList();
+    }
+}
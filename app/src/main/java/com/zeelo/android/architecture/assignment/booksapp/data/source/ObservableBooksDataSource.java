@@ -0,0 +1,53 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.arch.lifecycle.LiveData;
+import android.support.annotation.NonNull;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
+
+import java.util.List;
+
+/**
+ * A {@link BooksDataSource} whose books can also be observed: the values are pushed to the active
+ * observers again whenever the stored books change.
+ */
+public interface ObservableBooksDataSource extends BooksDataSource {
+
+    interface SaveBooksListItemsCallback {
+
+        /**
+         * Called once the list items are stored, so the reads made from now on see them.
+         */
+        void onBooksListItemsSaved();
+
+        void onSaveFailed();
+    }
+
+    /**
+     * Saves {@code booksListItems} like {@link #saveBooksListItems(List)}. Reads don't wait for
+     * them to be stored, so {@code callback} tells when they are.
+     */
+    void saveBooksListItems(@NonNull List<BookListItem> booksListItems,
+                            @NonNull SaveBooksListItemsCallback callback);
+
+    /**
+     * @return a version of the books stored, which changes whenever they do. The books themselves
+     * aren't read, so observing it is cheap however many there are.
+     */
+    @NonNull
+    LiveData<Long> observeBooksVersion();
+
+    /**
+     * @return the book with {@code bookId}, or null while it isn't stored.
+     */
+    @NonNull
+    LiveData<Book> observeBook(@NonNull String bookId);
+
+    /**
+     * @return the statistics of the books stored, empty if there are none.
+     */
+    @NonNull
+    LiveData<BooksStatistics> observeStatistics();
+}
@@ -0,0 +1,341 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Bounded, thread-safe in-memory cache of books data keyed by book id.
+ * <p>
+ * Entries are split over lock-striped segments, each evicting its least recently used entries
+ * once the cache grows past its maximum number of entries or total weight. Entries can also
+ * expire a fixed time after they were written. Reads and writes may come from any thread.
+ * <p>
+ * The cache also tracks whether it is <em>complete</em>, i.e. holds every entry of the data
+ * source it mirrors, so callers can answer "load everything" requests from memory. A cache becomes
+ * complete when it is filled with {@link #replaceAll(Map)} without evicting anything, and any
+ * later eviction or expiry makes it incomplete again. The values of a complete cache can be read in
+ * order with {@link #sortedValues(Sorter)}, which sorts them once until the cache changes.
+ *
+ * @param <V> the type of the cached values
+ */
+public class BooksCache<V> {
+
+    /**
+     * Computes the weight of a cache entry, in arbitrary units that must match
+     * {@link Builder#maximumWeight(long, EntryWeigher)}.
+     */
+    public interface EntryWeigher<V> {
+
+        int weigh(@NonNull String id, @NonNull V value);
+    }
+
+    /**
+     * Sorts the values of a cache, in place.
+     */
+    public interface Sorter<V> {
+
+        void sort(@NonNull List<V> values);
+    }
+
+    private final Cache<String, V> mCache;
+
+    private volatile boolean mComplete = false;
+
+    /**
+     * Incremented after every change of the entries, so the sorted values are sorted again.
+     */
+    private final AtomicLong mVersion = new AtomicLong();
+
+    @Nullable
+    private volatile SortedValues<V> mSortedValues;
+
+    private BooksCache(Builder<V> builder) {
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
+                .concurrencyLevel(builder.mConcurrencyLevel)
+                .recordStats()
+                .ticker(builder.mTicker);
+        if (builder.mWeigher != null) {
+            final EntryWeigher<V> weigher = builder.mWeigher;
+            cacheBuilder.maximumWeight(builder.mMaximumWeight)
+                    .weigher(new Weigher<String, V>() {
+                        @Override
+                        public int weigh(@NonNull String id, @NonNull V value) {
+                            return weigher.weigh(id, value);
+                        }
+                    });
+        } else {
+            cacheBuilder.maximumSize(builder.mMaximumSize);
+        }
+        if (builder.mExpireAfterWriteNanos > 0) {
+            cacheBuilder.expireAfterWrite(builder.mExpireAfterWriteNanos, TimeUnit.NANOSECONDS);
+        }
+        mCache = cacheBuilder.removalListener(new RemovalListener<String, V>() {
+            @Override
+            public void onRemoval(@NonNull RemovalNotification<String, V> notification) {
+                if (notification.wasEvicted()) {
+                    mComplete = false;
+                }
+                mVersion.incrementAndGet();
+            }
+        }).build();
+    }
+
+    public static <V> Builder<V> newBuilder() {
+        return new Builder<>();
+    }
+
+    @Nullable
+    public V get(@NonNull String id) {
+        return mCache.getIfPresent(checkNotNull(id));
+    }
+
+    public boolean containsKey(@NonNull String id) {
+        return mCache.asMap().containsKey(checkNotNull(id));
+    }
+
+    public void put(@NonNull String id, @NonNull V value) {
+        mCache.put(checkNotNull(id), checkNotNull(value));
+        mVersion.incrementAndGet();
+    }
+
+    public void putAll(@NonNull Map<String, ? extends V> values) {
+        mCache.putAll(checkNotNull(values));
+        mVersion.incrementAndGet();
+    }
+
+    public void remove(@NonNull String id) {
+        mCache.invalidate(checkNotNull(id));
+        mVersion.incrementAndGet();
+    }
+
+    /**
+     * Removes every entry. The cache is then incomplete until it is filled with
+     * {@link #replaceAll(Map)}.
+     */
+    public void clear() {
+        mComplete = false;
+        mCache.invalidateAll();
+        mVersion.incrementAndGet();
+    }
+
+    /**
+     * Replaces the content of the cache with every entry of the data source it mirrors. The cache
+     * is complete afterwards, unless it had to evict some of the entries to fit them.
+     */
+    public void replaceAll(@NonNull Map<String, ? extends V> values) {
+        checkNotNull(values);
+        clear();
+        long evictions = evictionCount();
+        mCache.putAll(values);
+        mCache.cleanUp();
+        mComplete = evictionCount() == evictions;
+        mVersion.incrementAndGet();
+    }
+
+    /**
+     * @return a snapshot of the cached values, in no particular order.
+     */
+    @NonNull
+    public List<V> values() {
+        return new ArrayList<>(mCache.asMap().values());
+    }
+
+    /**
+     * @return the cached values sorted by {@code sorter}, which can't be modified. They are only
+     * sorted again once the cache changed, or when sorted by another sorter. The values that were
+     * sorted already are then handed to {@code sorter} in their previous order, before the new
+     * ones, which a merge sort orders in close to linear time when only a few values changed.
+     */
+    @NonNull
+    public List<V> sortedValues(@NonNull Sorter<V> sorter) {
+        checkNotNull(sorter);
+        long version = mVersion.get();
+        SortedValues<V> sorted = mSortedValues;
+        if (sorted != null && sorted.mVersion == version && sorted.mSorter == sorter) {
+            return sorted.mValues;
+        }
+        List<V> values = sorted != null && sorted.mSorter == sorter
+                ? inPreviousOrder(sorted.mValues) : values();
+        sorter.sort(values);
+        // A change made while sorting leaves an older version, so the values are sorted again.
+        sorted = new SortedValues<>(Collections.unmodifiableList(values), sorter, version);
+        mSortedValues = sorted;
+        return sorted.mValues;
+    }
+
+    /**
+     * @return the cached values, the ones of {@code previous} first in the same order, then the
+     * ones added since. Values are matched by identity, since a replaced value may sort elsewhere.
+     */
+    @NonNull
+    private List<V> inPreviousOrder(@NonNull List<V> previous) {
+        Set<V> added = Collections.newSetFromMap(new IdentityHashMap<V, Boolean>());
+        added.addAll(mCache.asMap().values());
+        List<V> values = new ArrayList<>(added.size());
+        for (V value : previous) {
+            if (added.remove(value)) {
+                values.add(value);
+            }
+        }
+        values.addAll(added);
+        return values;
+    }
+
+    public int size() {
+        return (int) Math.min(mCache.size(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return true if no entry was evicted or expired since the last {@link #replaceAll(Map)}.
+     */
+    public boolean isComplete() {
+        if (mComplete) {
+            // Expired entries are only reported once maintenance runs.
+            mCache.cleanUp();
+        }
+        return mComplete;
+    }
+
+    /**
+     * Performs pending evictions and expirations.
+     */
+    public void cleanUp() {
+        mCache.cleanUp();
+    }
+
+    public long hitCount() {
+        return mCache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return mCache.stats().missCount();
+    }
+
+    public long evictionCount() {
+        return mCache.stats().evictionCount();
+    }
+
+    /**
+     * @return the ratio of lookups that found a value, or 1.0 if there was no lookup yet.
+     */
+    public double hitRate() {
+        return mCache.stats().hitRate();
+    }
+
+    @Override
+    public String toString() {
+        CacheStats stats = mCache.stats();
+        return "BooksCache with " + size() + " entries, " + stats.hitCount() + " hits, "
+                + stats.missCount() + " misses, " + stats.evictionCount() + " evictions";
+    }
+
+    private static final class SortedValues<V> {
+
+        private final List<V> mValues;
+
+        private final Sorter<V> mSorter;
+
+        private final long mVersion;
+
+        SortedValues(List<V> values, Sorter<V> sorter, long version) {
+            mValues = values;
+            mSorter = sorter;
+            mVersion = version;
+        }
+    }
+
+    /**
+     * Configures a {@link BooksCache}. By default the cache holds at most 1000 entries and
+     * entries never expire.
+     */
+    public static final class Builder<V> {
+
+        private long mMaximumSize = 1000;
+
+        private long mMaximumWeight;
+
+        @Nullable
+        private EntryWeigher<V> mWeigher;
+
+        private long mExpireAfterWriteNanos;
+
+        private int mConcurrencyLevel = 4;
+
+        private Ticker mTicker = Ticker.systemTicker();
+
+        private Builder() {
+        }
+
+        /**
+         * Limits the number of entries. Can't be combined with
+         * {@link #maximumWeight(long, EntryWeigher)}.
+         */
+        public Builder<V> maximumSize(long maximumSize) {
+            checkArgument(maximumSize >= 0, "maximumSize can't be negative");
+            checkState(mWeigher == null, "maximumWeight was already set");
+            mMaximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Limits the total weight of the entries, as computed by {@code weigher}.
+         */
+        public Builder<V> maximumWeight(long maximumWeight, @NonNull EntryWeigher<V> weigher) {
+            checkArgument(maximumWeight >= 0, "maximumWeight can't be negative");
+            mMaximumWeight = maximumWeight;
+            mWeigher = checkNotNull(weigher);
+            return this;
+        }
+
+        /**
+         * Expires entries {@code duration} after they were created or last replaced.
+         */
+        public Builder<V> expireAfterWrite(long duration, @NonNull TimeUnit unit) {
+            checkArgument(duration > 0, "duration must be positive");
+            mExpireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Sets the number of lock stripes, i.e. the number of threads expected to write
+         * concurrently.
+         */
+        public Builder<V> concurrencyLevel(int concurrencyLevel) {
+            checkArgument(concurrencyLevel > 0, "concurrencyLevel must be positive");
+            mConcurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        @VisibleForTesting
+        public Builder<V> ticker(@NonNull Ticker ticker) {
+            mTicker = checkNotNull(ticker);
+            return this;
+        }
+
+        public BooksCache<V> build() {
+            return new BooksCache<>(this);
+        }
+    }
+}
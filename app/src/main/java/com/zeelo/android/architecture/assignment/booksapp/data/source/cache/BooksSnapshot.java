@@ -0,0 +1,258 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksCollation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file format of the books list, read back at cold start without parsing JSON or querying
+ * the database.
+ * <p>
+ * A snapshot starts with a header of five big-endian ints: {@link #MAGIC}, {@link #VERSION}, the
+ * number of books, the length of the payload and its CRC-32. The payload follows: the
+ * {@link BooksCollation} locale the books were sorted in, then every book as its id, link, etag,
+ * title, authors, language, categories, thumbnail and published date, its page count as an int,
+ * and a byte for whether it is favorite. Strings are stored as their length in UTF-8 bytes
+ * followed by the bytes, and lists as their size followed by their strings; -1 stands for null,
+ * and {@link Integer#MIN_VALUE} for a null page count.
+ * <p>
+ * Snapshots are read through a memory mapping of the file, so the payload is decoded straight
+ * from the page cache. Files that aren't snapshots of this version, whose payload doesn't match
+ * its checksum, or whose books were sorted in another locale, read as no snapshot at all.
+ */
+public final class BooksSnapshot {
+
+    @VisibleForTesting
+    static final int MAGIC = 0x424B534E;
+
+    /**
+     * Incremented whenever the format changes. Snapshots of other versions are ignored, and
+     * replaced after the next load.
+     */
+    @VisibleForTesting
+    static final int VERSION = 2;
+
+    @VisibleForTesting
+    static final int HEADER_BYTES = 5 * 4;
+
+    private static final int NULL_LENGTH = -1;
+
+    private static final int NULL_PAGE_COUNT = Integer.MIN_VALUE;
+
+    private static final int CHECKSUM_CHUNK_BYTES = 8192;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private BooksSnapshot() {
+    }
+
+    /**
+     * Writes {@code books} to {@code file}, replacing it. The snapshot is written to a temporary
+     * file first and then renamed, so a snapshot being written is never read.
+     */
+    public static void write(@NonNull List<BookListItem> books, @NonNull File file)
+            throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(books.size() * 128);
+        DataOutputStream out = new DataOutputStream(payload);
+        writeString(out, BooksCollation.getLocale().toString());
+        for (BookListItem book : books) {
+            BookListItem.VolumeInfo volumeInfo = book.getVolumeInfo();
+            writeString(out, book.getId());
+            writeString(out, book.getLink());
+            writeString(out, book.getEtag());
+            writeString(out, volumeInfo != null ? volumeInfo.getTitle() : null);
+            writeStrings(out, volumeInfo != null ? volumeInfo.getAuthors() : null);
+            writeString(out, volumeInfo != null ? volumeInfo.getLanguage() : null);
+            writeStrings(out, volumeInfo != null ? volumeInfo.getCategories() : null);
+            writeString(out, volumeInfo != null && volumeInfo.getImageLinks() != null
+                    ? volumeInfo.getImageLinks().getThumbnail() : null);
+            writeString(out, volumeInfo != null ? volumeInfo.getPublishedDate() : null);
+            out.writeInt(volumeInfo != null && volumeInfo.getPageCount() != null
+                    ? volumeInfo.getPageCount() : NULL_PAGE_COUNT);
+            out.writeBoolean(book.isFavorite());
+        }
+        out.flush();
+        byte[] bytes = payload.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes);
+
+        File temporary = new File(file.getPath() + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(temporary);
+        try {
+            DataOutputStream header = new DataOutputStream(fileOut);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(books.size());
+            header.writeInt(bytes.length);
+            header.writeInt((int) checksum.getValue());
+            header.write(bytes);
+            header.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+        if (!temporary.renameTo(file)) {
+            temporary.delete();
+            throw new IOException("Couldn't rename " + temporary + " to " + file);
+        }
+    }
+
+    /**
+     * @return the books of the snapshot in {@code file}, in the order they were written, or null
+     * if there is no valid snapshot of this version there.
+     */
+    @Nullable
+    public static List<BookListItem> read(@NonNull File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            // The mapping outlives the channel until it is collected; Android can't unmap it.
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            int count = buffer.getInt();
+            int length = buffer.getInt();
+            int expectedChecksum = buffer.getInt();
+            if (count < 0 || length != size - HEADER_BYTES
+                    || checksum(buffer.duplicate()) != expectedChecksum) {
+                return null;
+            }
+            return readBooks(buffer, count);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    @Nullable
+    private static List<BookListItem> readBooks(ByteBuffer buffer, int count) {
+        List<BookListItem> books = new ArrayList<>(count);
+        byte[] scratch = new byte[256];
+        try {
+            if (!BooksCollation.getLocale().toString().equals(readString(buffer, scratch))) {
+                // Sorted in another order than the pages of the database.
+                return null;
+            }
+            for (int i = 0; i < count; i++) {
+                String id = readString(buffer, scratch);
+                if (id == null) {
+                    return null;
+                }
+                BookListItem book = new BookListItem(null, id, readString(buffer, scratch));
+                book.setEtag(readString(buffer, scratch));
+                BookListItem.VolumeInfo volumeInfo = new BookListItem.VolumeInfo(
+                        readString(buffer, scratch), readStrings(buffer, scratch));
+                volumeInfo.setLanguage(readString(buffer, scratch));
+                volumeInfo.setCategories(readStrings(buffer, scratch));
+                String thumbnail = readString(buffer, scratch);
+                if (thumbnail != null) {
+                    BookListItem.VolumeInfo.ImageLinks imageLinks =
+                            new BookListItem.VolumeInfo.ImageLinks();
+                    imageLinks.setThumbnail(thumbnail);
+                    volumeInfo.setImageLinks(imageLinks);
+                }
+                volumeInfo.setPublishedDate(readString(buffer, scratch));
+                int pageCount = buffer.getInt();
+                volumeInfo.setPageCount(pageCount != NULL_PAGE_COUNT ? pageCount : null);
+                book.setVolumeInfo(volumeInfo);
+                book.setFavorite(buffer.get() != 0);
+                books.add(book);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // The checksum matched, but the payload doesn't hold the books the header promised.
+            return null;
+        }
+        return buffer.hasRemaining() ? null : books;
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32 checksum = new CRC32();
+        byte[] chunk = new byte[CHECKSUM_CHUNK_BYTES];
+        while (payload.hasRemaining()) {
+            int length = Math.min(chunk.length, payload.remaining());
+            payload.get(chunk, 0, length);
+            checksum.update(chunk, 0, length);
+        }
+        return (int) checksum.getValue();
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream out, @Nullable List<String> values)
+            throws IOException {
+        if (values == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    /**
+     * @param scratch reused for the bytes of the strings that fit in it
+     */
+    @Nullable
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + length);
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, UTF_8);
+    }
+
+    @Nullable
+    private static ArrayList<String> readStrings(ByteBuffer buffer, byte[] scratch) {
+        int size = buffer.getInt();
+        if (size == NULL_LENGTH) {
+            return null;
+        }
+        if (size < 0 || size > buffer.remaining() / 4) {
+            throw new IllegalArgumentException("Invalid size " + size);
+        }
+        ArrayList<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(buffer, scratch));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,151 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.cache;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource.LoadBooksListCallback;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksPageKey;
+import com.zeelo.android.architecture.assignment.booksapp.util.AppExecutors;
+import com.zeelo.android.architecture.assignment.booksapp.util.TaskPriority;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.BooksMetrics;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps a {@link BooksSnapshot} of the books list in a file, so a cold start can fill the cache
+ * of the repository from it.
+ * <p>
+ * The snapshot is read on the disk read executor and written on the disk write executor, in the
+ * background. Books are saved in {@link BooksPageKey#ORDER}, so pages can be cut from them
+ * without sorting. Deleting the snapshot also drops the writes requested before, which would
+ * otherwise bring back books that changed since. Saves requested while a write is pending replace
+ * its books, so a burst of them writes the file once. The file is only looked up on these
+ * executors too, since finding it may touch the disk.
+ */
+public class BooksSnapshotStore {
+
+    private static final String TAG = "BooksSnapshotStore";
+
+    private final Supplier<File> mFile;
+
+    private final AppExecutors mAppExecutors;
+
+    /**
+     * Incremented by every delete, so the writes requested before it are dropped.
+     */
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    /**
+     * The books of the write that is pending, or null if there is none.
+     */
+    private final AtomicReference<PendingSave> mPendingSave = new AtomicReference<>();
+
+    private final Runnable mWriteRunnable = new Runnable() {
+        @Override
+        public void run() {
+            PendingSave save = mPendingSave.getAndSet(null);
+            if (save == null || save.mGeneration != mGeneration.get()) {
+                return;
+            }
+            long start = mWriteTimer.start();
+            try {
+                BooksSnapshot.write(save.mBooks, mFile.get());
+            } catch (IOException e) {
+                Log.w(TAG, "Couldn't write " + mFile.get(), e);
+            }
+            mWriteTimer.stop(start);
+        }
+    };
+
+    private final Metrics.Timer mReadTimer = BooksMetrics.get().timer("snapshot.read");
+
+    private final Metrics.Timer mWriteTimer = BooksMetrics.get().timer("snapshot.write");
+
+    public BooksSnapshotStore(@NonNull Supplier<File> file, @NonNull AppExecutors appExecutors) {
+        mFile = Suppliers.memoize(checkNotNull(file));
+        mAppExecutors = checkNotNull(appExecutors);
+    }
+
+    /**
+     * Note: {@link LoadBooksListCallback#onDataNotAvailable()} is fired if there is no snapshot,
+     * or it can't be read.
+     */
+    public void load(@NonNull final LoadBooksListCallback callback) {
+        checkNotNull(callback);
+        mAppExecutors.diskRead().execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = mReadTimer.start();
+                List<BookListItem> books;
+                try {
+                    books = BooksSnapshot.read(mFile.get());
+                } catch (IOException e) {
+                    Log.w(TAG, "Couldn't read " + mFile.get(), e);
+                    books = null;
+                }
+                mReadTimer.stop(start);
+
+                final List<BookListItem> loaded = books;
+                mAppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (loaded != null) {
+                            callback.onBooksListLoaded(loaded);
+                        } else {
+                            callback.onDataNotAvailable();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Replaces the snapshot with {@code books}, unless it is deleted before the write runs. If a
+     * write is already pending, it writes these books instead.
+     *
+     * @param books the books to save in {@link BooksPageKey#ORDER}, which must not be modified
+     *              afterwards.
+     */
+    public void save(@NonNull List<BookListItem> books) {
+        PendingSave save = new PendingSave(checkNotNull(books), mGeneration.get());
+        if (mPendingSave.getAndSet(save) == null) {
+            mAppExecutors.diskWrite(TaskPriority.BACKGROUND).execute(mWriteRunnable);
+        }
+    }
+
+    /**
+     * Deletes the snapshot, once the books it holds are no longer the ones stored.
+     */
+    public void delete() {
+        mGeneration.incrementAndGet();
+        mAppExecutors.diskWrite().execute(new Runnable() {
+            @Override
+            public void run() {
+                mFile.get().delete();
+            }
+        });
+    }
+
+    private static final class PendingSave {
+
+        private final List<BookListItem> mBooks;
+
+        private final int mGeneration;
+
+        PendingSave(@NonNull List<BookListItem> books, int generation) {
+            mBooks = books;
+            mGeneration = generation;
+        }
+    }
+}
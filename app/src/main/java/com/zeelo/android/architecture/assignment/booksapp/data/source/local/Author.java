@@ -0,0 +1,33 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Ignore;
+import android.arch.persistence.room.Index;
+import android.arch.persistence.room.PrimaryKey;
+import android.support.annotation.NonNull;
+
+/**
+ * An author of the books list, stored once however many books they wrote. Names are compared
+ * ignoring the case of ASCII letters, the way SQLite's {@code NOCASE} does, so the index on the
+ * name serves both the books of an author and the authors starting with a prefix.
+ */
+@Entity(tableName = "author",
+        indices = {@Index(value = "name", unique = true)})
+public class Author {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    @NonNull
+    @ColumnInfo(name = "name", collate = ColumnInfo.NOCASE)
+    public String name;
+
+    public Author() {
+    }
+
+    @Ignore
+    Author(@NonNull String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,51 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.ForeignKey;
+import android.arch.persistence.room.Ignore;
+import android.arch.persistence.room.Index;
+import android.support.annotation.NonNull;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+/**
+ * Links a book of the list to one of its authors, at the position the author is listed in. The
+ * index leads with the author, and holds the book, so the books of an author are read from it
+ * alone. Deleting or replacing the book deletes its links.
+ */
+@Entity(tableName = "book_author",
+        primaryKeys = {"book_id", "position"},
+        indices = {@Index({"author_id", "book_id"})},
+        foreignKeys = {
+                @ForeignKey(entity = BookListItem.class,
+                        parentColumns = "id",
+                        childColumns = "book_id",
+                        onDelete = ForeignKey.CASCADE),
+                @ForeignKey(entity = Author.class,
+                        parentColumns = "id",
+                        childColumns = "author_id",
+                        onDelete = ForeignKey.CASCADE)
+        })
+public class BookAuthor {
+
+    @NonNull
+    @ColumnInfo(name = "book_id")
+    public String bookId;
+
+    @ColumnInfo(name = "author_id")
+    public long authorId;
+
+    @ColumnInfo(name = "position")
+    public int position;
+
+    public BookAuthor() {
+    }
+
+    @Ignore
+    BookAuthor(@NonNull String bookId, long authorId, int position) {
+        this.bookId = bookId;
+        this.authorId = authorId;
+        this.position = position;
+    }
+}
@@ -0,0 +1,44 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.ForeignKey;
+import android.arch.persistence.room.Ignore;
+import android.arch.persistence.room.PrimaryKey;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.DescriptionCodec;
+
+/**
+ * The description of a book, encoded by {@link DescriptionCodec}. It is kept out of the
+ * {@code book} table, so loading a book doesn't load several kilobytes of text the screens only
+ * show one at a time. Deleting or replacing the book deletes it.
+ */
+@Entity(tableName = "book_description",
+        foreignKeys = {
+                @ForeignKey(entity = Book.class,
+                        parentColumns = "id",
+                        childColumns = "id",
+                        onDelete = ForeignKey.CASCADE)
+        })
+public class BookDescription {
+
+    @PrimaryKey
+    @NonNull
+    public String id;
+
+    @Nullable
+    @ColumnInfo(name = "description", typeAffinity = ColumnInfo.BLOB)
+    public byte[] description;
+
+    public BookDescription() {
+    }
+
+    @Ignore
+    BookDescription(@NonNull String id, @Nullable byte[] description) {
+        this.id = id;
+        this.description = description;
+    }
+}
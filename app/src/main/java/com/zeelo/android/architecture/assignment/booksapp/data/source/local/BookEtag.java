@@ -0,0 +1,16 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The etag stored for a book of the books list.
+ */
+public class BookEtag {
+
+    @NonNull
+    public String id;
+
+    @Nullable
+    public String etag;
+}
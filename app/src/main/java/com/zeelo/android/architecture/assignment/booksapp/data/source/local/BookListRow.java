@@ -0,0 +1,63 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.common.collect.Lists;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.StringListCodec;
+
+/**
+ * The columns of a books list row that the list screen shows, and the ones it is sorted by. The
+ * authors are kept as stored, and only the first one is ever decoded.
+ */
+public class BookListRow {
+
+    @NonNull
+    public String id;
+
+    @Nullable
+    public String title;
+
+    @Nullable
+    public String authors;
+
+    @Nullable
+    public String thumbnail;
+
+    @Nullable
+    @ColumnInfo(name = "published_date")
+    public String publishedDate;
+
+    @Nullable
+    @ColumnInfo(name = "page_count")
+    public Integer pageCount;
+
+    @Nullable
+    public String getFirstAuthor() {
+        return StringListCodec.decodeFirst(authors);
+    }
+
+    /**
+     * @return a books list item with the title, the first author, the thumbnail, the published
+     * date and the page count of this row. Its link and etag aren't loaded.
+     */
+    @NonNull
+    public BookListItem toBookListItem() {
+        BookListItem item = new BookListItem(title, id, null);
+        String firstAuthor = getFirstAuthor();
+        if (firstAuthor != null) {
+            item.getVolumeInfo().setAuthors(Lists.newArrayList(firstAuthor));
+        }
+        item.getVolumeInfo().setPublishedDate(publishedDate);
+        item.getVolumeInfo().setPageCount(pageCount);
+        if (thumbnail != null) {
+            BookListItem.VolumeInfo.ImageLinks imageLinks =
+                    new BookListItem.VolumeInfo.ImageLinks();
+            imageLinks.setThumbnail(thumbnail);
+            item.getVolumeInfo().setImageLinks(imageLinks);
+        }
+        return item;
+    }
+}
@@ -0,0 +1,145 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteStatement;
+import android.arch.persistence.room.migration.Migration;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.StringListCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link Author authors} of the books list and the {@link BookAuthor links} to their books,
+ * which the {@code authors} column of {@code bookslist} also holds, encoded by
+ * {@link StringListCodec}. SQLite can't split that column, so {@link Indexer} fills the tables as
+ * the books are saved.
+ * <p>
+ * An author without books is deleted by {@link BooksDao} at the end of the transaction that
+ * removed their last book, so the names looked up by prefix all have books.
+ */
+final class BooksAuthors {
+
+    private static final String DELETE_LINKS = "DELETE FROM book_author WHERE book_id = ?";
+
+    private static final String INSERT_AUTHOR = "INSERT OR IGNORE INTO author (name) VALUES (?)";
+
+    private static final String SELECT_AUTHOR_ID = "SELECT id FROM author WHERE name = ?";
+
+    private static final String INSERT_LINK = "INSERT INTO book_author (book_id, author_id, "
+            + "position) VALUES (?, ?, ?)";
+
+    /**
+     * Adds the tables of the authors, with the SQL Room generates for them, and indexes the
+     * authors of the books already stored.
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS author (id INTEGER PRIMARY KEY "
+                    + "AUTOINCREMENT NOT NULL, name TEXT NOT NULL COLLATE NOCASE)");
+            database.execSQL("CREATE UNIQUE INDEX index_author_name ON author (name)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS book_author (book_id TEXT NOT NULL, "
+                    + "author_id INTEGER NOT NULL, position INTEGER NOT NULL, "
+                    + "PRIMARY KEY(book_id, position), "
+                    + "FOREIGN KEY(book_id) REFERENCES bookslist(id) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE , "
+                    + "FOREIGN KEY(author_id) REFERENCES author(id) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE INDEX index_book_author_author_id_book_id "
+                    + "ON book_author (author_id, book_id)");
+            indexStoredBooks(database);
+        }
+    };
+
+    private BooksAuthors() {
+    }
+
+    private static void indexStoredBooks(SupportSQLiteDatabase database) {
+        // Read everything first rather than writing under an open cursor.
+        List<String> ids = new ArrayList<>();
+        List<String> authors = new ArrayList<>();
+        Cursor cursor = database.query("SELECT id, authors FROM bookslist "
+                + "WHERE authors IS NOT NULL");
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getString(0));
+                authors.add(cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Indexer indexer = new Indexer(database);
+        for (int i = 0; i < ids.size(); i++) {
+            indexer.index(ids.get(i), StringListCodec.decode(authors.get(i)));
+        }
+    }
+
+    /**
+     * Links books to their authors, adding the authors not stored yet. The statements are
+     * compiled once, so an indexer is only used within a transaction, which Room runs one at a
+     * time.
+     */
+    static final class Indexer {
+
+        private final SupportSQLiteStatement mDeleteLinks;
+
+        private final SupportSQLiteStatement mInsertAuthor;
+
+        private final SupportSQLiteStatement mSelectAuthorId;
+
+        private final SupportSQLiteStatement mInsertLink;
+
+        Indexer(@NonNull SupportSQLiteDatabase database) {
+            mDeleteLinks = database.compileStatement(DELETE_LINKS);
+            mInsertAuthor = database.compileStatement(INSERT_AUTHOR);
+            mSelectAuthorId = database.compileStatement(SELECT_AUTHOR_ID);
+            mInsertLink = database.compileStatement(INSERT_LINK);
+        }
+
+        /**
+         * Replaces the authors of a book. Empty names are skipped, and so is an author listed
+         * twice.
+         *
+         * @param bookId  the id of the books list row.
+         * @param authors the authors of the book, in order, or null if it has none.
+         */
+        void index(@NonNull String bookId, @Nullable List<String> authors) {
+            mDeleteLinks.bindString(1, bookId);
+            mDeleteLinks.executeUpdateDelete();
+            if (authors == null) {
+                return;
+            }
+            List<Long> linked = new ArrayList<>(authors.size());
+            for (String name : authors) {
+                if (name == null || name.isEmpty()) {
+                    continue;
+                }
+                long authorId = authorId(name);
+                if (linked.contains(authorId)) {
+                    continue;
+                }
+                mInsertLink.bindString(1, bookId);
+                mInsertLink.bindLong(2, authorId);
+                mInsertLink.bindLong(3, linked.size());
+                mInsertLink.executeInsert();
+                linked.add(authorId);
+            }
+        }
+
+        private long authorId(String name) {
+            mInsertAuthor.bindString(1, name);
+            long id = mInsertAuthor.executeInsert();
+            if (id == -1) {
+                // Stored already, maybe with another case.
+                mSelectAuthorId.bindString(1, name);
+                id = mSelectAuthorId.simpleQueryForLong();
+            }
+            return id;
+        }
+    }
+}
@@ -1,22 +1,101 @@
 
 package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
 
+import android.arch.persistence.db.SupportSQLiteQuery;
+import android.arch.persistence.db.SupportSQLiteStatement;
 import android.arch.persistence.room.Dao;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.OnConflictStrategy;
 import android.arch.persistence.room.Query;
+import android.arch.persistence.room.RawQuery;
+import android.arch.persistence.room.RoomDatabase;
+import android.arch.persistence.room.Transaction;
 import android.arch.persistence.room.Update;
+import android.support.annotation.Nullable;
 
+import com.google.common.collect.Lists;
 import com.zeelo.android.architecture.assignment.booksapp.data.Book;
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksFilterType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksPageKey;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSortType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.DescriptionCodec;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.StringListCodec;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for the books table.
+ * <p>
+ * The descriptions of the books are saved with them, in the {@code book_description} table, but
+ * read on their own by {@link #getDescription(String)}. The books list items are linked to their
+ * authors as they are saved, see {@link BooksAuthors}, and get the keys they are sorted by, see
+ * {@link BooksSortKeys}.
  */
 @Dao
-public interface BooksDao {
+public abstract class BooksDao {
+
+    /**
+     * The most ids to bind in a single {@code IN} clause, below SQLite's default limit of 999
+     * parameters.
+     */
+    public static final int MAX_QUERY_PARAMETERS = 500;
+
+    /*
+     * The queries of the list screen, which BooksQueryPlanTest checks are backed by indices. The
+     * pages of the list are built by BooksSortKeys, as the column they are sorted by varies.
+     */
+
+    static final String LIST_ROW_COLUMNS = "SELECT id, title, authors, thumbnail, "
+            + "published_date, page_count FROM bookslist ";
+
+    /*
+     * The books of an author are read from the index of book_author, then sorted by title: an
+     * author has few books, so that beats walking the title index for them. CROSS JOIN keeps
+     * SQLite from choosing the other way round.
+     */
+
+    static final String AUTHOR_LIST_ROW_COLUMNS = "SELECT id, title, authors, thumbnail, "
+            + "published_date, page_count FROM book_author CROSS JOIN bookslist ON id = book_id "
+            + "WHERE author_id = (SELECT id FROM author WHERE name = :author) ";
+
+    static final String AUTHOR_FIRST_LIST_ROWS_PAGE = AUTHOR_LIST_ROW_COLUMNS
+            + "ORDER BY title_key, id LIMIT :limit";
+
+    static final String AUTHOR_LIST_ROWS_PAGE_AFTER = AUTHOR_LIST_ROW_COLUMNS
+            + "AND title_key >= :afterTitleKey AND (title_key > :afterTitleKey OR id > :afterId) "
+            + "ORDER BY title_key, id LIMIT :limit";
+
+    static final String AUTHOR_LIST_ROWS_PAGE_AFTER_UNTITLED = AUTHOR_LIST_ROW_COLUMNS
+            + "AND (title_key IS NOT NULL OR id > :afterId) ORDER BY title_key, id LIMIT :limit";
+
+    /**
+     * The names starting with {@code prefix}, ignoring case: the range stops before the first
+     * name that doesn't, so it seeks and walks the index of the names.
+     */
+    static final String AUTHOR_NAMES_BY_PREFIX = "SELECT name FROM author "
+            + "WHERE name >= :prefix AND name < :prefix || '\uFFFF' ORDER BY name LIMIT :limit";
+
+    private final RoomDatabase mDatabase;
+
+    /**
+     * Compiled on first use, and then only used within a transaction, which Room runs one at a
+     * time.
+     */
+    private SupportSQLiteStatement mIndexDescription;
+
+    /**
+     * Created on first use, like {@link #mIndexDescription}.
+     */
+    private BooksAuthors.Indexer mAuthorIndexer;
+
+    BooksDao(RoomDatabase database) {
+        mDatabase = database;
+    }
 
     /**
      * Select all books from the books table.
@@ -24,7 +103,7 @@ public interface BooksDao {
      * @return all books.
      */
     @Query("SELECT * FROM Book")
-    List<Book> getBooks();
+    public abstract List<Book> getBooks();
 
     /**
      * Select all books from the books list table.
@@ -32,7 +111,181 @@ public interface BooksDao {
      * @return all books.
      */
     @Query("SELECT * FROM bookslist")
-    List<BookListItem> getBookListItems();
+    public abstract List<BookListItem> getBookListItems();
+
+    /**
+     * Select a page of the books list built by
+     * {@link BooksSortKeys#pageQuery(BooksSortType, BooksFilterType, BooksPageKey, int)}. The
+     * sort column is part of the query, so it can't be checked at compile time.
+     *
+     * @param query the page query.
+     * @return the rows of the page.
+     */
+    @RawQuery
+    abstract List<BookListRow> getBookListRowsPage(SupportSQLiteQuery query);
+
+    /**
+     * Select the page of the books list passing {@code filter} that follows {@code after},
+     * sorted by {@code sortType} and id. Only the columns shown by the list screen are read, and
+     * the index of the sort type is sought to the page instead of walked from the start.
+     *
+     * @param sortType the column the books are sorted by.
+     * @param filter   the books to select.
+     * @param after    the key of the last book of the previous page, sorted by
+     *                 {@code sortType}, or null for the first page.
+     * @param limit    the page size.
+     * @return at most {@code limit} rows.
+     */
+    public List<BookListRow> getBookListRowsPage(BooksSortType sortType, BooksFilterType filter,
+                                                 @Nullable BooksPageKey after, int limit) {
+        return getBookListRowsPage(BooksSortKeys.pageQuery(sortType, filter, after, limit));
+    }
+
+    /**
+     * Select the first page of the books of an author, sorted by title and id.
+     *
+     * @param author the name of the author, in any case.
+     * @param limit  the page size.
+     * @return at most {@code limit} rows.
+     */
+    @Query(AUTHOR_FIRST_LIST_ROWS_PAGE)
+    public abstract List<BookListRow> getFirstBookListRowsPageByAuthor(String author, int limit);
+
+    /**
+     * Select the page of the books of an author that follows the book with
+     * {@code afterTitleKey} and {@code afterId}, sorted by title and id.
+     *
+     * @param author        the name of the author, in any case.
+     * @param afterTitleKey the title key of the last book of the previous page.
+     * @param afterId       the id of the last book of the previous page.
+     * @param limit         the page size.
+     * @return at most {@code limit} rows.
+     */
+    @Query(AUTHOR_LIST_ROWS_PAGE_AFTER)
+    public abstract List<BookListRow> getBookListRowsPageByAuthorAfter(String author,
+                                                                      byte[] afterTitleKey,
+                                                                      String afterId, int limit);
+
+    /**
+     * Select the page of the books of an author that follows the untitled book with
+     * {@code afterId}.
+     *
+     * @param author  the name of the author, in any case.
+     * @param afterId the id of the last book of the previous page.
+     * @param limit   the page size.
+     * @return at most {@code limit} rows.
+     */
+    @Query(AUTHOR_LIST_ROWS_PAGE_AFTER_UNTITLED)
+    public abstract List<BookListRow> getBookListRowsPageByAuthorAfterUntitled(String author,
+                                                                              String afterId,
+                                                                              int limit);
+
+    /**
+     * Select the names of the authors starting with {@code prefix}, ignoring the case of ASCII
+     * letters, in order.
+     *
+     * @param prefix the start of the names.
+     * @param limit  the maximum number of names.
+     * @return at most {@code limit} names.
+     */
+    @Query(AUTHOR_NAMES_BY_PREFIX)
+    public abstract List<String> getAuthorNamesByPrefix(String prefix, int limit);
+
+    /**
+     * Count the favorite, or not favorite, books of the list. The count is read from the index on
+     * the favorite column alone.
+     *
+     * @param favorite whether the books are favorite.
+     * @return the number of books.
+     */
+    @Query("SELECT COUNT(*) FROM bookslist WHERE favorite = :favorite")
+    public abstract int countBookListItems(boolean favorite);
+
+    /**
+     * Count the books of the list by their authors, as stored: books by the same authors in the
+     * same order are counted together.
+     *
+     * @return the number of books of every list of authors.
+     */
+    @Query("SELECT authors AS value, COUNT(*) AS count FROM bookslist "
+            + "WHERE authors IS NOT NULL GROUP BY authors")
+    public abstract List<ValueCount> countBookListItemsByAuthors();
+
+    /**
+     * Count the books of the list by language.
+     *
+     * @return the number of books of every language.
+     */
+    @Query("SELECT language AS value, COUNT(*) AS count FROM bookslist "
+            + "WHERE language IS NOT NULL GROUP BY language")
+    public abstract List<ValueCount> countBookListItemsByLanguage();
+
+    /**
+     * Count the books of the list by their categories, as stored.
+     *
+     * @return the number of books of every list of categories.
+     */
+    @Query("SELECT categories AS value, COUNT(*) AS count FROM bookslist "
+            + "WHERE categories IS NOT NULL GROUP BY categories")
+    public abstract List<ValueCount> countBookListItemsByCategories();
+
+    /**
+     * Count the books of the list in a single transaction, so the counts agree with each other.
+     * SQLite groups the books by their stored lists of authors and of categories, which are then
+     * split here: there are far fewer distinct lists than books.
+     *
+     * @return the statistics of the books list.
+     */
+    @Transaction
+    public BooksStatistics getStatistics() {
+        BooksStatistics.Builder statistics = BooksStatistics.newBuilder()
+                .addBooks(true, countBookListItems(true))
+                .addBooks(false, countBookListItems(false));
+        for (ValueCount authors : countBookListItemsByAuthors()) {
+            statistics.addAuthors(StringListCodec.decode(authors.value), authors.count);
+        }
+        for (ValueCount language : countBookListItemsByLanguage()) {
+            statistics.addLanguage(language.value, language.count);
+        }
+        for (ValueCount categories : countBookListItemsByCategories()) {
+            statistics.addCategories(StringListCodec.decode(categories.value), categories.count);
+        }
+        return statistics.build();
+    }
+
+    /**
+     * Select the books matching a search built by {@link BooksFts#searchQuery(List, int, int)}.
+     * The FTS table isn't known to Room, so the query can't be checked at compile time.
+     *
+     * @param query the search query.
+     * @return the matching books, best matches first.
+     */
+    @RawQuery
+    abstract List<BookListItem> searchBookListItems(SupportSQLiteQuery query);
+
+    /**
+     * Select the page of books matching every one of {@code tokens} as a word prefix, best matches
+     * first.
+     *
+     * @param tokens the lower case words of the search, letters and digits only.
+     * @param offset the number of matches to skip.
+     * @param limit  the page size.
+     * @return at most {@code limit} books.
+     */
+    public List<BookListItem> searchBookListItems(List<String> tokens, int offset, int limit) {
+        return searchBookListItems(BooksFts.searchQuery(tokens, offset, limit));
+    }
+
+    /**
+     * Select the etags of the books list items with the given ids. SQLite limits the number of
+     * parameters of a statement, so callers should pass at most
+     * {@link #MAX_QUERY_PARAMETERS} ids.
+     *
+     * @param ids the ids of the books.
+     * @return the etags of the books that are stored.
+     */
+    @Query("SELECT id, etag FROM bookslist WHERE id IN (:ids)")
+    public abstract List<BookEtag> getEtags(List<String> ids);
 
     /**
      * Select a book by id.
@@ -41,40 +294,99 @@ public interface BooksDao {
      * @return the book with bookId.
      */
     @Query("SELECT * FROM Book WHERE id = :bookId")
-    Book getBookById(String bookId);
+    public abstract Book getBookById(String bookId);
 
     /**
-     * Insert a book in the database. If the book already exists, replace it.
+     * Select the description of a book by id.
+     *
+     * @param bookId the book id.
+     * @return the encoded description of the book, null if it has none, or null if the book isn't
+     * stored.
+     */
+    @Query("SELECT book.id AS id, book_description.description AS description FROM book "
+            + "LEFT JOIN book_description ON book_description.id = book.id "
+            + "WHERE book.id = :bookId")
+    public abstract BookDescription getDescription(String bookId);
+
+    /**
+     * Insert a book and its description in the database. If the book already exists, replace
+     * both.
      *
      * @param book the book to be inserted.
      */
+    @Transaction
+    public void insertBook(Book book) {
+        insertBooks(Collections.singletonList(book));
+    }
+
+    /**
+     * Insert a list of books and their descriptions in the database. If a book already exists,
+     * replace both.
+     *
+     * @param books the books to be inserted.
+     */
+    @Transaction
+    public void insertBooks(List<Book> books) {
+        insertBookRows(books);
+        saveDescriptions(books);
+    }
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertBookRows(List<Book> books);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertBook(Book book);
+    abstract void insertDescriptions(List<BookDescription> descriptions);
+
+    @Query("DELETE FROM book_description WHERE id IN (:ids)")
+    abstract void deleteDescriptions(List<String> ids);
 
     /**
-     * Insert a BookListItem in the database. If the BookListItem already exists, replace it.
+     * Insert a BookListItem, and link it to its authors, in the database. If the BookListItem
+     * already exists, replace it.
      *
      * @param bookListItem the book list item to be inserted.
      */
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertBookListItem(BookListItem bookListItem);
+    @Transaction
+    public void insertBookListItem(BookListItem bookListItem) {
+        insertBookListItems(Collections.singletonList(bookListItem));
+    }
 
     /**
-     * Insert a list of BookListItems in the database. If a BookListItem already exists, replace it.
+     * Insert a list of BookListItems, and link them to their authors, in the database. If a
+     * BookListItem already exists, replace it.
      *
      * @param booksListItems the book list items to be inserted.
      */
+    @Transaction
+    public void insertBookListItems(List<BookListItem> booksListItems) {
+        storeBookListItems(booksListItems);
+        deleteAuthorsWithoutBooks();
+    }
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertBookListItems(List<BookListItem> booksListItems);
+    abstract void insertBookListItemRows(List<BookListItem> booksListItems);
+
+    @Query("DELETE FROM author WHERE NOT EXISTS "
+            + "(SELECT 1 FROM book_author WHERE author_id = author.id)")
+    abstract void deleteAuthorsWithoutBooks();
 
     /**
-     * Update a book.
+     * Update a book and its description.
      *
      * @param book book to be updated
      * @return the number of books updated. This should always be 1.
      */
+    @Transaction
+    public int updateBook(Book book) {
+        int updated = updateBookRow(book);
+        if (updated > 0) {
+            saveDescriptions(Collections.singletonList(book));
+        }
+        return updated;
+    }
+
     @Update
-    int updateBook(Book book);
+    abstract int updateBookRow(Book book);
 
     /**
      * Update the complete status of a task
@@ -83,7 +395,7 @@ public interface BooksDao {
      * @param favorite status to be updated
      */
     @Query("UPDATE book SET favorite = :favorite WHERE id = :bookId")
-    void updateCompleted(String bookId, boolean favorite);
+    public abstract void updateCompleted(String bookId, boolean favorite);
 
     /**
      * Delete a book by id.
@@ -91,11 +403,141 @@ public interface BooksDao {
      * @return the number of books deleted. This should always be 1.
      */
     @Query("DELETE FROM Book WHERE id = :bookId")
-    int deleteBookById(String bookId);
+    public abstract int deleteBookById(String bookId);
+
+    /**
+     * Delete books list items, and their books, by id. SQLite limits the number of parameters of
+     * a statement, so callers should pass at most {@link #MAX_QUERY_PARAMETERS} ids. Their
+     * authors are left behind until the transaction deletes the authors without books.
+     *
+     * @return the number of books list items deleted.
+     */
+    @Query("DELETE FROM bookslist WHERE id IN (:ids)")
+    public abstract int deleteBookListItemsByIds(List<String> ids);
 
     /**
      * Delete all books.
      */
     @Query("DELETE FROM Book")
-    void deleteBooks();
+    public abstract void deleteBooks();
+
+    /**
+     * Delete all books list items, and with them all books.
+     */
+    @Query("DELETE FROM bookslist")
+    public abstract void deleteBookListItems();
+
+    /**
+     * Apply a batch of coalesced writes in a single transaction. Deleting all books happens
+     * first, then the deletes, the inserts and finally the favorite updates.
+     *
+     * @param batch the writes to be applied.
+     */
+    @Transaction
+    public void applyWrites(BooksWriteQueue.Batch batch) {
+        // Deleting the books list items deletes their books too.
+        if (batch.isDeleteAll()) {
+            deleteBookListItems();
+        }
+        for (List<String> ids : Lists.partition(new ArrayList<>(batch.getDeletedBookIds()),
+                MAX_QUERY_PARAMETERS)) {
+            deleteBookListItemsByIds(ids);
+        }
+        if (!batch.getBookListItems().isEmpty()) {
+            storeBookListItems(batch.getBookListItems());
+        }
+        if (batch.isDeleteAll() || !batch.getDeletedBookIds().isEmpty()
+                || !batch.getBookListItems().isEmpty()) {
+            deleteAuthorsWithoutBooks();
+        }
+        if (!batch.getBooks().isEmpty()) {
+            insertBooks(batch.getBooks());
+        }
+        for (Map.Entry<String, Boolean> favorite : batch.getFavorites().entrySet()) {
+            updateCompleted(favorite.getKey(), favorite.getValue());
+        }
+    }
+
+    /**
+     * Insert or replace books list items, with the keys they are sorted by, and link them to
+     * their authors.
+     */
+    private void storeBookListItems(List<BookListItem> bookListItems) {
+        BooksSortKeys.setKeys(bookListItems);
+        insertBookListItemRows(bookListItems);
+        indexAuthors(bookListItems);
+    }
+
+    /**
+     * Link books list items just stored to their authors, replacing the authors linked before.
+     */
+    private void indexAuthors(List<BookListItem> bookListItems) {
+        if (mAuthorIndexer == null) {
+            mAuthorIndexer = new BooksAuthors.Indexer(
+                    mDatabase.getOpenHelper().getWritableDatabase());
+        }
+        BooksAuthors.Indexer indexer = mAuthorIndexer;
+        for (BookListItem item : bookListItems) {
+            indexer.index(item.getId(), item.getVolumeInfo() != null
+                    ? item.getVolumeInfo().getAuthors() : null);
+        }
+    }
+
+    /**
+     * Store the descriptions of books just stored, encoded, and index them for the search. Books
+     * without one lose the one stored before.
+     */
+    private void saveDescriptions(List<Book> books) {
+        List<BookDescription> descriptions = new ArrayList<>(books.size());
+        List<String> withoutDescription = new ArrayList<>();
+        if (mIndexDescription == null) {
+            mIndexDescription = mDatabase.compileStatement(BooksFts.INDEX_DESCRIPTION);
+        }
+        SupportSQLiteStatement index = mIndexDescription;
+        for (Book book : books) {
+            String description = book.getVolumeInfo() != null
+                    ? book.getVolumeInfo().getDescription() : null;
+            if (description != null) {
+                descriptions.add(new BookDescription(book.getId(),
+                        DescriptionCodec.encode(description)));
+                index.bindString(1, description);
+            } else {
+                withoutDescription.add(book.getId());
+                index.bindNull(1);
+            }
+            index.bindString(2, book.getId());
+            index.executeUpdateDelete();
+        }
+        if (!descriptions.isEmpty()) {
+            insertDescriptions(descriptions);
+        }
+        for (List<String> ids : Lists.partition(withoutDescription, MAX_QUERY_PARAMETERS)) {
+            deleteDescriptions(ids);
+        }
+    }
+
+    /**
+     * Apply a delta from the server in a single transaction: upsert the books list items and the
+     * books that came with them, then delete the removed books list items along with their books.
+     *
+     * @param bookListItems the books list items to be upserted.
+     * @param books         the books to be upserted.
+     * @param deletedIds    the ids of the books to be deleted.
+     */
+    @Transaction
+    public void applyDelta(List<BookListItem> bookListItems, List<Book> books,
+                           List<String> deletedIds) {
+        if (!bookListItems.isEmpty()) {
+            storeBookListItems(bookListItems);
+        }
+        if (!books.isEmpty()) {
+            insertBooks(books);
+        }
+        for (List<String> ids : Lists.partition(deletedIds, MAX_QUERY_PARAMETERS)) {
+            deleteBookListItemsByIds(ids);
+        }
+        if (!bookListItems.isEmpty() || !deletedIds.isEmpty()) {
+            deleteAuthorsWithoutBooks();
+        }
+    }
 }
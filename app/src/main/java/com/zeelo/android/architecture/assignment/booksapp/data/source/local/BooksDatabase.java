@@ -1,20 +1,37 @@
 
 package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
 
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteStatement;
 import android.arch.persistence.room.Database;
 import android.arch.persistence.room.Room;
 import android.arch.persistence.room.RoomDatabase;
 import android.arch.persistence.room.TypeConverters;
+import android.arch.persistence.room.migration.Migration;
 import android.content.Context;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
 
 import com.zeelo.android.architecture.assignment.booksapp.data.Book;
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.DescriptionCodec;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.StringListCodec;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.StringListConverter;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.StartupTrace;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * The Room Database that contains the BookListItem table.
+ * The Room Database that contains the BookListItem table, and the authors of its books.
+ * <p>
+ * From API 16, the database is journaled with write-ahead logging, so the reads on the disk read
+ * executor run alongside each other and alongside the write in progress, rather than waiting for
+ * it to commit.
  */
-@Database(entities = {BookListItem.class, Book.class}, version = 1)
+@Database(entities = {BookListItem.class, Book.class, BookDescription.class, Author.class,
+        BookAuthor.class}, version = 10)
 @TypeConverters({StringListConverter.class})
 public abstract class BooksDatabase extends RoomDatabase {
 
@@ -24,15 +41,214 @@ public abstract class BooksDatabase extends RoomDatabase {
 
     private static final Object sLock = new Object();
 
+    private static final String NAME = "books.db";
+
+    /**
+     * How many pages the log grows by before a commit copies it back into the database. This is
+     * the SQLite default, where Android lowers it to 100: the write queue commits often, and
+     * copying the log back less often keeps those commits short.
+     */
+    @VisibleForTesting
+    static final int WAL_AUTOCHECKPOINT_PAGES = 1000;
+
+    /**
+     * What the log is truncated back to after it has been copied into the database, so a large
+     * sync doesn't leave a large log file behind.
+     */
+    @VisibleForTesting
+    static final long JOURNAL_SIZE_LIMIT_BYTES = 1024 * 1024;
+
+    /**
+     * Sets the size of the log whenever the database is opened; SQLite doesn't store it.
+     */
+    static final Callback TUNE_JOURNAL = new Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            // These pragmas return the new value, so they have to be queried rather than executed.
+            pragma(db, "wal_autocheckpoint = " + WAL_AUTOCHECKPOINT_PAGES);
+            pragma(db, "journal_size_limit = " + JOURNAL_SIZE_LIMIT_BYTES);
+        }
+    };
+
+    /**
+     * Creates the search table and the triggers of a new database, which Room doesn't know about.
+     * Existing ones get them from their migrations, and in-memory databases built by tests have to
+     * add this callback themselves.
+     */
+    static final Callback CREATE_TRIGGERS = new Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            BooksFts.create(db);
+            BooksFavorites.create(db);
+        }
+    };
+
+    /**
+     * Adds the etag column of the books list. Books stored before have no etag, so the first sync
+     * rewrites them once.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE bookslist ADD COLUMN etag TEXT");
+        }
+    };
+
+    /**
+     * Rewrites the authors stored as JSON arrays with {@link StringListCodec}, which reads both.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            reencodeAuthors(database, "bookslist");
+            reencodeAuthors(database, "book");
+        }
+    };
+
+    /**
+     * Adds the indices of the list order and of the favorite filter, with the names Room gives
+     * them.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_bookslist_title_id "
+                    + "ON bookslist (title, id)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_book_favorite ON book (favorite)");
+        }
+    };
+
+    /**
+     * Adds the language and the categories of the books list, counted by the statistics. Books
+     * stored before have neither until they change on the server.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE bookslist ADD COLUMN language TEXT");
+            database.execSQL("ALTER TABLE bookslist ADD COLUMN categories TEXT");
+        }
+    };
+
+    /**
+     * Moves the descriptions of the books, encoded, to their own table. SQLite can't drop the
+     * description column, so the book table is rebuilt without it, which drops its triggers too.
+     * Foreign keys aren't enforced until Room opens the database, so dropping the old table
+     * doesn't cascade.
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            BooksFts.dropDescriptionTriggers(database);
+            database.execSQL("CREATE TABLE IF NOT EXISTS book_description (id TEXT NOT NULL, "
+                    + "description BLOB, PRIMARY KEY(id), FOREIGN KEY(id) REFERENCES book(id) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE)");
+            moveDescriptions(database);
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS book_new (id TEXT NOT NULL, "
+                    + "title TEXT, authors TEXT, thumbnail TEXT, favorite INTEGER NOT NULL, "
+                    + "PRIMARY KEY(id), FOREIGN KEY(id) REFERENCES bookslist(id) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE)");
+            database.execSQL("INSERT INTO book_new (id, title, authors, thumbnail, favorite) "
+                    + "SELECT id, title, authors, thumbnail, favorite FROM book");
+            database.execSQL("DROP TABLE book");
+            database.execSQL("ALTER TABLE book_new RENAME TO book");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_book_favorite ON book (favorite)");
+            BooksFts.create(database);
+            BooksFavorites.create(database);
+        }
+    };
+
+    /**
+     * Returns the database of the app, which starts as a copy of the catalogue shipped with it,
+     * if any. Copying it touches the disk, so this is called on the disk read executor.
+     */
     public static BooksDatabase getInstance(Context context) {
         synchronized (sLock) {
             if (INSTANCE == null) {
-                INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
-                        BooksDatabase.class, "books.db")
-                        .build();
+                StartupTrace trace = StartupTrace.get();
+                long start = trace.begin();
+                if (BooksPrepackagedDatabase.install(context, NAME)) {
+                    trace.end("prepackagedDatabase", start);
+                }
+                INSTANCE = newBuilder(context, NAME).build();
             }
             return INSTANCE;
         }
     }
 
+    /**
+     * @return a builder of the database stored in the file {@code name}, configured like the one
+     * of the app.
+     */
+    @VisibleForTesting
+    static Builder<BooksDatabase> newBuilder(Context context, String name) {
+        return Room.databaseBuilder(context.getApplicationContext(), BooksDatabase.class, name)
+                .addMigrations(BooksFts.MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4,
+                        MIGRATION_4_5, BooksFavorites.MIGRATION_5_6, MIGRATION_6_7,
+                        MIGRATION_7_8, BooksAuthors.MIGRATION_8_9, BooksSortKeys.MIGRATION_9_10)
+                .addCallback(CREATE_TRIGGERS)
+                .addCallback(BooksPrepackagedDatabase.INDEX)
+                .addCallback(BooksSortKeys.REKEY)
+                .addCallback(TUNE_JOURNAL)
+                .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING);
+    }
+
+    private static void pragma(SupportSQLiteDatabase db, String pragma) {
+        Cursor cursor = db.query("PRAGMA " + pragma);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void moveDescriptions(SupportSQLiteDatabase database) {
+        SupportSQLiteStatement insert = database.compileStatement(
+                "INSERT INTO book_description (id, description) VALUES (?, ?)");
+        Cursor cursor = database.query("SELECT id, description FROM book "
+                + "WHERE description IS NOT NULL");
+        try {
+            while (cursor.moveToNext()) {
+                insert.bindString(1, cursor.getString(0));
+                insert.bindBlob(2, DescriptionCodec.encode(cursor.getString(1)));
+                insert.executeInsert();
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void reencodeAuthors(SupportSQLiteDatabase database, String table) {
+        // Read everything first rather than updating the table under an open cursor.
+        List<Long> rowIds = new ArrayList<>();
+        List<String> authors = new ArrayList<>();
+        Cursor cursor = database.query("SELECT rowid, authors FROM " + table
+                + " WHERE authors IS NOT NULL");
+        try {
+            while (cursor.moveToNext()) {
+                String value = cursor.getString(1);
+                if (StringListCodec.isLegacy(value)) {
+                    rowIds.add(cursor.getLong(0));
+                    authors.add(StringListCodec.encode(StringListCodec.decode(value)));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        SupportSQLiteStatement update = database.compileStatement("UPDATE " + table
+                + " SET authors = ? WHERE rowid = ?");
+        for (int i = 0; i < rowIds.size(); i++) {
+            String encoded = authors.get(i);
+            if (encoded != null) {
+                update.bindString(1, encoded);
+            } else {
+                // Gson stored a null list as "null".
+                update.bindNull(1);
+            }
+            update.bindLong(2, rowIds.get(i));
+            update.executeUpdateDelete();
+        }
+    }
 }
@@ -0,0 +1,52 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.room.migration.Migration;
+import android.support.annotation.NonNull;
+
+/**
+ * The triggers that copy the favorite column of {@code book} onto the {@code bookslist} row of the
+ * same book, so the list can be filtered with its own index rather than a join.
+ * <p>
+ * {@code book} stays the only table the app writes the favorite to. A books list row without a
+ * book isn't favorite.
+ */
+final class BooksFavorites {
+
+    private static final String[] CREATE_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS books_favorite_book_ai AFTER INSERT ON book BEGIN "
+                    + "UPDATE bookslist SET favorite = new.favorite WHERE id = new.id; END",
+            "CREATE TRIGGER IF NOT EXISTS books_favorite_book_au AFTER UPDATE OF favorite ON book "
+                    + "BEGIN UPDATE bookslist SET favorite = new.favorite WHERE id = new.id; END",
+            "CREATE TRIGGER IF NOT EXISTS books_favorite_book_ad AFTER DELETE ON book BEGIN "
+                    + "UPDATE bookslist SET favorite = 0 WHERE id = old.id; END"
+    };
+
+    /**
+     * Adds the favorite column of the books list, with its index, and copies the favorites
+     * already stored.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE bookslist ADD COLUMN favorite INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("UPDATE bookslist SET favorite = 1 "
+                    + "WHERE id IN (SELECT id FROM book WHERE favorite = 1)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_bookslist_favorite_title_id "
+                    + "ON bookslist (favorite, title, id)");
+            create(database);
+        }
+    };
+
+    private BooksFavorites() {
+    }
+
+    /**
+     * Creates the triggers if they don't exist yet.
+     */
+    static void create(@NonNull SupportSQLiteDatabase database) {
+        for (String trigger : CREATE_TRIGGERS) {
+            database.execSQL(trigger);
+        }
+    }
+}
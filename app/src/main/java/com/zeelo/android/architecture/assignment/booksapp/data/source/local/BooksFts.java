@@ -0,0 +1,151 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.db.SimpleSQLiteQuery;
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteQuery;
+import android.arch.persistence.room.migration.Migration;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The FTS4 table used to search the books, which Room doesn't know about.
+ * <p>
+ * {@code books_fts} holds the title and authors of every row of {@code bookslist} and the
+ * description of the matching book, if any. Its docid is the rowid of the {@code bookslist} row,
+ * and triggers keep it in sync with that table. Descriptions are stored encoded by
+ * {@link com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.DescriptionCodec},
+ * which SQLite can't read, so {@link BooksDao} indexes them as it saves them, with
+ * {@link #INDEX_DESCRIPTION}.
+ */
+final class BooksFts {
+
+    private static final String CREATE_TABLE = "CREATE VIRTUAL TABLE IF NOT EXISTS books_fts "
+            + "USING fts4(title, authors, description)";
+
+    private static final String[] CREATE_TRIGGERS = {
+            // REPLACE doesn't fire delete triggers, so drop the row of a replaced book up front.
+            "CREATE TRIGGER IF NOT EXISTS books_fts_bookslist_bi BEFORE INSERT ON bookslist BEGIN "
+                    + "DELETE FROM books_fts WHERE docid = " + rowid("new") + "; END",
+            "CREATE TRIGGER IF NOT EXISTS books_fts_bookslist_ai AFTER INSERT ON bookslist BEGIN "
+                    + "INSERT INTO books_fts(docid, title, authors, description) VALUES ("
+                    + "new.rowid, new.title, new.authors, NULL); END",
+            "CREATE TRIGGER IF NOT EXISTS books_fts_bookslist_au AFTER UPDATE OF title, authors "
+                    + "ON bookslist BEGIN "
+                    + "UPDATE books_fts SET title = new.title, authors = new.authors "
+                    + "WHERE docid = old.rowid; END",
+            "CREATE TRIGGER IF NOT EXISTS books_fts_bookslist_ad AFTER DELETE ON bookslist BEGIN "
+                    + "DELETE FROM books_fts WHERE docid = old.rowid; END",
+            "CREATE TRIGGER IF NOT EXISTS books_fts_book_ad AFTER DELETE ON book BEGIN "
+                    + "UPDATE books_fts SET description = NULL "
+                    + "WHERE docid = " + rowid("old") + "; END"
+    };
+
+    /**
+     * The triggers of version 7 and before, which copied the description of {@code book}.
+     */
+    private static final String[] DESCRIPTION_TRIGGERS = {
+            "books_fts_bookslist_ai", "books_fts_book_ai", "books_fts_book_au"
+    };
+
+    /**
+     * Sets the description of the book with the id bound second to the text bound first.
+     */
+    static final String INDEX_DESCRIPTION = "UPDATE books_fts SET description = ? "
+            + "WHERE docid = (SELECT rowid FROM bookslist WHERE id = ?)";
+
+    private static final String POPULATE = "INSERT INTO books_fts(docid, title, authors, "
+            + "description) SELECT bookslist.rowid, bookslist.title, bookslist.authors, "
+            + "book.description FROM bookslist LEFT JOIN book ON book.id = bookslist.id";
+
+    /**
+     * Matches first, then orders them by whether the title matches, by the number of matching
+     * words (offsets() has four numbers per matching word) and finally by title and id.
+     */
+    private static final String SEARCH = "SELECT bookslist.* FROM ("
+            + "SELECT docid, offsets(books_fts) AS match_offsets FROM books_fts "
+            + "WHERE books_fts MATCH ?) AS matches "
+            + "JOIN bookslist ON bookslist.rowid = matches.docid "
+            + "ORDER BY bookslist.rowid IN "
+            + "(SELECT docid FROM books_fts WHERE books_fts MATCH ?) DESC, "
+            + "length(match_offsets) - length(replace(match_offsets, ' ', '')) DESC, "
+            + "bookslist.title, bookslist.id "
+            + "LIMIT ? OFFSET ?";
+
+    private static final String TITLE_COLUMN = "title";
+
+    /**
+     * Adds the FTS table to a version 1 database and indexes the books already stored.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            create(database);
+            database.execSQL(POPULATE);
+        }
+    };
+
+    private BooksFts() {
+    }
+
+    /**
+     * Creates the FTS table and its triggers if they don't exist yet.
+     */
+    static void create(@NonNull SupportSQLiteDatabase database) {
+        database.execSQL(CREATE_TABLE);
+        for (String trigger : CREATE_TRIGGERS) {
+            database.execSQL(trigger);
+        }
+    }
+
+    /**
+     * Drops the triggers that read the description from {@code book}, before it moves to its own
+     * table. {@link #create(SupportSQLiteDatabase)} adds back the ones still used.
+     */
+    static void dropDescriptionTriggers(@NonNull SupportSQLiteDatabase database) {
+        for (String trigger : DESCRIPTION_TRIGGERS) {
+            database.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+        }
+    }
+
+    /**
+     * Builds the ranked search for books matching every one of {@code tokens} as a word prefix.
+     */
+    @NonNull
+    static SupportSQLiteQuery searchQuery(@NonNull List<String> tokens, int offset, int limit) {
+        checkArgument(!tokens.isEmpty(), "tokens can't be empty");
+        return new SimpleSQLiteQuery(SEARCH, new Object[]{
+                matchExpression(tokens, null),
+                matchExpression(tokens, TITLE_COLUMN),
+                limit,
+                offset
+        });
+    }
+
+    /**
+     * @return the tokens as prefix queries, all of which must match, optionally restricted to
+     * {@code column}. The tokens must only contain letters and digits.
+     */
+    @VisibleForTesting
+    static String matchExpression(@NonNull List<String> tokens, @Nullable String column) {
+        StringBuilder match = new StringBuilder();
+        for (String token : tokens) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            if (column != null) {
+                match.append(column).append(':');
+            }
+            match.append(token).append('*');
+        }
+        return match.toString();
+    }
+
+    private static String rowid(String row) {
+        return "(SELECT rowid FROM bookslist WHERE id = " + row + ".id)";
+    }
+}
@@ -1,15 +1,44 @@
 
 package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
 
+import android.arch.lifecycle.LiveData;
+import android.arch.persistence.room.InvalidationTracker;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
 
+import com.google.common.collect.Lists;
 import com.zeelo.android.architecture.assignment.booksapp.data.Book;
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksFilterType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksPageKey;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSearchQuery;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSortType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.ObservableBooksDataSource;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.BooksWriteQueue.PendingWrites;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.DescriptionCodec;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksDelta;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksDeltaStore;
 import com.zeelo.android.architecture.assignment.booksapp.util.AppExecutors;
-
+import com.zeelo.android.architecture.assignment.booksapp.util.TaskPriority;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.BooksMetrics;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.zeelo.android.architecture.assignment.booksapp.data.source.remote.BooksRemoteDataSource.BOOK_DETAILS_API_PATH;
@@ -17,8 +46,30 @@ import static com.zeelo.android.architecture.assignment.booksapp.data.source.rem
 
 /**
  * Concrete implementation of a data source as a db.
+ * <p>
+ * Reads run on the disk read executor, alongside each other. Writes run one at a time on the disk
+ * write executor, the ones the user makes through a {@link BooksWriteQueue} and the ones coming
+ * from the server in the background. Reads don't wait for either: they apply the pending writes
+ * of the queue to what they read, so the books the user saved, favorited or deleted read as such
+ * right away, while the books stored in the background are read once they are.
+ * <p>
+ * Observed books are read again on the disk read executor when Room reports a change to their
+ * table, and only while they are observed.
  */
-public class BooksLocalDataSource implements BooksDataSource {
+public class BooksLocalDataSource implements ObservableBooksDataSource, BooksDeltaStore {
+
+    private static final String TAG = "BooksLocalDataSource";
+
+    private static final SaveBooksListItemsCallback NO_SAVE_CALLBACK =
+            new SaveBooksListItemsCallback() {
+                @Override
+                public void onBooksListItemsSaved() {
+                }
+
+                @Override
+                public void onSaveFailed() {
+                }
+            };
 
     private static volatile BooksLocalDataSource INSTANCE;
 
@@ -26,19 +77,70 @@ public class BooksLocalDataSource implements BooksDataSource {
 
     private AppExecutors mAppExecutors;
 
+    private BooksWriteQueue mWriteQueue;
+
+    private InvalidationTracker mInvalidationTracker;
+
+    private final AtomicLong mBooksVersion = new AtomicLong();
+
+    private final Object mSavesLock = new Object();
+
+    /**
+     * The save of list items queued on the disk write executor and not started yet, which the
+     * next saves join. Guarded by mSavesLock.
+     */
+    @Nullable
+    private SaveBatch mQueuedSave;
+
+    /**
+     * Runs the loads of the observed books as any other read.
+     */
+    private final Executor mObservedReads = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            executeRead(command);
+        }
+    };
+
+    private final Metrics.Timer mGetBookListItemsTimer =
+            BooksMetrics.get().timer("dao.getBookListItems");
+
+    private final Metrics.Timer mGetBookListRowsPageTimer =
+            BooksMetrics.get().timer("dao.getBookListRowsPage");
+
+    private final Metrics.Timer mSearchBookListItemsTimer =
+            BooksMetrics.get().timer("dao.searchBookListItems");
+
+    private final Metrics.Timer mGetBookListRowsPageByAuthorTimer =
+            BooksMetrics.get().timer("dao.getBookListRowsPageByAuthor");
+
+    private final Metrics.Timer mGetAuthorNamesByPrefixTimer =
+            BooksMetrics.get().timer("dao.getAuthorNamesByPrefix");
+
+    private final Metrics.Timer mGetStatisticsTimer = BooksMetrics.get().timer("dao.getStatistics");
+
+    private final Metrics.Timer mGetBookByIdTimer = BooksMetrics.get().timer("dao.getBookById");
+
+    private final Metrics.Timer mGetDescriptionTimer =
+            BooksMetrics.get().timer("dao.getDescription");
+
+    private final Metrics.Timer mApplyDeltaTimer = BooksMetrics.get().timer("dao.applyDelta");
+
     // Prevent direct instantiation.
     private BooksLocalDataSource(@NonNull AppExecutors appExecutors,
-                                 @NonNull BooksDao booksDao) {
+                                 @NonNull BooksDatabase database) {
         mAppExecutors = appExecutors;
-        mBooksDao = booksDao;
+        mBooksDao = database.bookDao();
+        mInvalidationTracker = database.getInvalidationTracker();
+        mWriteQueue = new BooksWriteQueue(mBooksDao, appExecutors.diskWrite());
     }
 
     public static BooksLocalDataSource getInstance(@NonNull AppExecutors appExecutors,
-                                                   @NonNull BooksDao booksDao) {
+                                                   @NonNull BooksDatabase database) {
         if (INSTANCE == null) {
             synchronized (BooksLocalDataSource.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = new BooksLocalDataSource(appExecutors, booksDao);
+                    INSTANCE = new BooksLocalDataSource(appExecutors, database);
                 }
             }
         }
@@ -54,7 +156,11 @@ public class BooksLocalDataSource implements BooksDataSource {
         Runnable runnable = new Runnable() {
             @Override
             public void run() {
-                final List<BookListItem> booksListItems = mBooksDao.getBookListItems();
+                PendingWrites pending = mWriteQueue.pendingWrites();
+                long start = mGetBookListItemsTimer.start();
+                List<BookListItem> stored = mBooksDao.getBookListItems();
+                mGetBookListItemsTimer.stop(start);
+                final List<BookListItem> booksListItems = pending.apply(stored);
                 mAppExecutors.mainThread().execute(new Runnable() {
                     @Override
                     public void run() {
@@ -69,19 +175,221 @@ public class BooksLocalDataSource implements BooksDataSource {
             }
         };
 
-        mAppExecutors.diskIO().execute(runnable);
+        executeRead(runnable);
     }
 
+    /**
+     * Pages only hold what the list screen shows: the title, the first author and the thumbnail
+     * of each book. Filtered pages are read through the indices of the list that start with the
+     * favorite column.
+     * <p>
+     * Note: {@link LoadBooksPageCallback#onDataNotAvailable()} is fired if the first page is
+     * requested and the table is new or empty. An empty first page of a filter is loaded as such.
+     */
     @Override
-    public void saveBooksListItems(@NonNull final List<BookListItem> booksListItems) {
+    public void getBooksPage(@NonNull BooksFilterType filter, @Nullable BooksPageKey after,
+                             int pageSize, @NonNull LoadBooksPageCallback callback) {
+        getSortedBooksPage(BooksSortType.TITLE, filter, after, pageSize, callback);
+    }
+
+    /**
+     * Every sort type has its own indices, see {@link BooksSortKeys}, so no page is ever sorted
+     * here or by SQLite.
+     */
+    @Override
+    public void getSortedBooksPage(@NonNull final BooksSortType sortType,
+                                   @NonNull final BooksFilterType filter,
+                                   @Nullable final BooksPageKey after, final int pageSize,
+                                   @NonNull final LoadBooksPageCallback callback) {
+        checkNotNull(sortType);
+        checkNotNull(filter);
         Runnable runnable = new Runnable() {
             @Override
             public void run() {
-                mBooksDao.insertBookListItems(booksListItems);
+                PendingWrites pending = mWriteQueue.pendingWrites();
+                long start = mGetBookListRowsPageTimer.start();
+                List<BookListRow> rows = mBooksDao.getBookListRowsPage(sortType, filter, after,
+                        pageSize);
+                mGetBookListRowsPageTimer.stop(start);
+                List<BookListItem> stored = toBookListItems(rows);
+                final BooksPageKey nextPageKey = stored.size() < pageSize ? null
+                        : BooksPageKey.after(sortType, stored.get(stored.size() - 1));
+                final List<BookListItem> booksListItems = applyPending(pending, stored, filter);
+                final boolean noBooks = after == null && booksListItems.isEmpty()
+                        && (filter == BooksFilterType.ALL_BOOKS
+                        || pending.apply(toBookListItems(mBooksDao.getBookListRowsPage(
+                        BooksSortType.TITLE, BooksFilterType.ALL_BOOKS, null, 1))).isEmpty());
+
+                mAppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (noBooks) {
+                            // This will be called if the table is new or just empty.
+                            callback.onDataNotAvailable();
+                        } else {
+                            callback.onBooksPageLoaded(booksListItems, nextPageKey);
+                        }
+                    }
+                });
             }
         };
 
-        mAppExecutors.diskIO().execute(runnable);
+        executeRead(runnable);
+    }
+
+    /**
+     * The books are read through the index of the authors, see {@link BooksDao}.
+     */
+    @Override
+    public void getBooksByAuthorPage(@NonNull final String author,
+                                     @Nullable final BooksPageKey after, final int pageSize,
+                                     @NonNull final LoadBooksPageCallback callback) {
+        checkNotNull(author);
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                PendingWrites pending = mWriteQueue.pendingWrites();
+                long start = mGetBookListRowsPageByAuthorTimer.start();
+                List<BookListRow> rows;
+                if (after == null) {
+                    rows = mBooksDao.getFirstBookListRowsPageByAuthor(author, pageSize);
+                } else if (after.getValue() == null) {
+                    rows = mBooksDao.getBookListRowsPageByAuthorAfterUntitled(author,
+                            after.getId(), pageSize);
+                } else {
+                    rows = mBooksDao.getBookListRowsPageByAuthorAfter(author,
+                            BooksSortKeys.titleKey(after), after.getId(), pageSize);
+                }
+                mGetBookListRowsPageByAuthorTimer.stop(start);
+                List<BookListItem> stored = toBookListItems(rows);
+                final BooksPageKey nextPageKey = stored.size() < pageSize ? null
+                        : BooksPageKey.after(stored.get(stored.size() - 1));
+                final List<BookListItem> booksListItems = pending.apply(stored);
+
+                mAppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onBooksPageLoaded(booksListItems, nextPageKey);
+                    }
+                });
+            }
+        };
+
+        executeRead(runnable);
+    }
+
+    @Override
+    public void findAuthors(@NonNull final String prefix, final int limit,
+                            @NonNull final LoadAuthorsCallback callback) {
+        checkNotNull(prefix);
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                long start = mGetAuthorNamesByPrefixTimer.start();
+                final List<String> authors = mBooksDao.getAuthorNamesByPrefix(prefix, limit);
+                mGetAuthorNamesByPrefixTimer.stop(start);
+
+                mAppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onAuthorsLoaded(authors);
+                    }
+                });
+            }
+        };
+
+        executeRead(runnable);
+    }
+
+    @Override
+    public void searchBooks(@NonNull String query, final int offset, final int limit,
+                            @NonNull final LoadBooksListCallback callback) {
+        final BooksSearchQuery searchQuery = BooksSearchQuery.parse(query);
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                PendingWrites pending = mWriteQueue.pendingWrites();
+                long start = mSearchBookListItemsTimer.start();
+                List<BookListItem> found = searchQuery.isEmpty()
+                        ? Collections.<BookListItem>emptyList()
+                        : mBooksDao.searchBookListItems(searchQuery.getTokens(), offset, limit);
+                mSearchBookListItemsTimer.stop(start);
+                final List<BookListItem> booksListItems = pending.apply(found);
+
+                mAppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onBooksListLoaded(booksListItems);
+                    }
+                });
+            }
+        };
+
+        executeRead(runnable);
+    }
+
+    /**
+     * The books are counted by SQLite, without loading them.
+     * <p>
+     * Note: {@link GetStatisticsCallback#onDataNotAvailable()} is fired if the database doesn't
+     * exist or the table is empty.
+     */
+    @Override
+    public void getStatistics(@NonNull final GetStatisticsCallback callback) {
+        checkNotNull(callback);
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                long start = mGetStatisticsTimer.start();
+                final BooksStatistics statistics = mBooksDao.getStatistics();
+                mGetStatisticsTimer.stop(start);
+
+                mAppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (statistics.isEmpty()) {
+                            // This will be called if the table is new or just empty.
+                            callback.onDataNotAvailable();
+                        } else {
+                            callback.onStatisticsLoaded(statistics);
+                        }
+                    }
+                });
+            }
+        };
+
+        executeRead(runnable);
+    }
+
+    @Override
+    public void saveBooksListItems(@NonNull List<BookListItem> booksListItems) {
+        saveBooksListItems(booksListItems, NO_SAVE_CALLBACK);
+    }
+
+    /**
+     * The list items saved while an earlier save is still queued join it, so however many lists
+     * are saved in a burst, a single write waits on the disk write executor. If the database
+     * fails, nothing is stored and {@link SaveBooksListItemsCallback#onSaveFailed()} is called.
+     */
+    @Override
+    public void saveBooksListItems(@NonNull List<BookListItem> booksListItems,
+                                   @NonNull SaveBooksListItemsCallback callback) {
+        checkNotNull(booksListItems);
+        checkNotNull(callback);
+        SaveBatch post = null;
+        synchronized (mSavesLock) {
+            if (mQueuedSave == null) {
+                mQueuedSave = new SaveBatch();
+                post = mQueuedSave;
+            }
+            for (BookListItem item : booksListItems) {
+                mQueuedSave.mBookListItems.put(item.getId(), item);
+            }
+            mQueuedSave.mCallbacks.add(callback);
+        }
+        if (post != null) {
+            executeWrite(post);
+        }
     }
 
     /**
@@ -93,7 +401,11 @@ public class BooksLocalDataSource implements BooksDataSource {
         Runnable runnable = new Runnable() {
             @Override
             public void run() {
-                final Book book = mBooksDao.getBookById(bookId);
+                PendingWrites pending = mWriteQueue.pendingWrites();
+                long start = mGetBookByIdTimer.start();
+                Book stored = mBooksDao.getBookById(bookId);
+                mGetBookByIdTimer.stop(start);
+                final Book book = pending.apply(bookId, stored);
 
                 mAppExecutors.mainThread().execute(new Runnable() {
                     @Override
@@ -108,50 +420,122 @@ public class BooksLocalDataSource implements BooksDataSource {
             }
         };
 
-        mAppExecutors.diskIO().execute(runnable);
+        executeRead(runnable);
     }
 
+    /**
+     * Note: {@link GetBookDescriptionCallback#onDataNotAvailable()} is fired if the {@link Book}
+     * isn't found.
+     */
     @Override
-    public void saveBook(@NonNull final Book book) {
-        checkNotNull(book);
-        Runnable saveRunnable = new Runnable() {
+    public void getBookDescription(@NonNull final String bookId,
+                                   @NonNull final GetBookDescriptionCallback callback) {
+        checkNotNull(bookId);
+        checkNotNull(callback);
+        Runnable runnable = new Runnable() {
             @Override
             public void run() {
-                mBooksDao.insertBookListItem(new BookListItem(book.getTitle(), book.getId(), BOOK_DETAILS_API_PATH + book.getId()));
-                mBooksDao.insertBook(book);
+                PendingWrites pending = mWriteQueue.pendingWrites();
+                Book saved = pending.getSavedBook(bookId);
+                final boolean found;
+                final String description;
+                if (saved != null) {
+                    found = true;
+                    description = saved.getVolumeInfo() != null
+                            ? saved.getVolumeInfo().getDescription() : null;
+                } else if (pending.isDeleted(bookId)) {
+                    found = false;
+                    description = null;
+                } else {
+                    long start = mGetDescriptionTimer.start();
+                    BookDescription stored = mBooksDao.getDescription(bookId);
+                    found = stored != null;
+                    description = found ? DescriptionCodec.decode(stored.description) : null;
+                    mGetDescriptionTimer.stop(start);
+                }
+
+                mAppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (found) {
+                            callback.onDescriptionLoaded(description);
+                        } else {
+                            callback.onDataNotAvailable();
+                        }
+                    }
+                });
             }
         };
-        mAppExecutors.diskIO().execute(saveRunnable);
+
+        executeRead(runnable);
     }
 
+    @NonNull
     @Override
-    public void favoriteBook(@NonNull final Book book) {
-        Runnable favoriteRunnable = new Runnable() {
+    public LiveData<Long> observeBooksVersion() {
+        return new TrackedLiveData<Long>(mInvalidationTracker, mObservedReads,
+                mAppExecutors.mainThread(), "bookslist") {
             @Override
-            public void run() {
-                mBooksDao.updateCompleted(book.getId(), true);
+            protected Long load() {
+                // Counts the changes of the table rather than reading it.
+                return mBooksVersion.incrementAndGet();
             }
         };
-
-        mAppExecutors.diskIO().execute(favoriteRunnable);
     }
 
+    @NonNull
     @Override
-    public void favoriteBook(@NonNull String bookId) {
-        // Not required for the local data source because the {@link BooksRepository} handles
-        // converting from a {@code bookId} to a {@link book} using its cached data.
+    public LiveData<Book> observeBook(@NonNull final String bookId) {
+        checkNotNull(bookId);
+        return new TrackedLiveData<Book>(mInvalidationTracker, mObservedReads,
+                mAppExecutors.mainThread(), "book") {
+            @Override
+            protected Book load() {
+                PendingWrites pending = mWriteQueue.pendingWrites();
+                long start = mGetBookByIdTimer.start();
+                Book book = mBooksDao.getBookById(bookId);
+                mGetBookByIdTimer.stop(start);
+                return pending.apply(bookId, book);
+            }
+        };
     }
 
+    @NonNull
     @Override
-    public void unFavoriteBook(@NonNull final Book book) {
-        Runnable favoriteRunnable = new Runnable() {
+    public LiveData<BooksStatistics> observeStatistics() {
+        return new TrackedLiveData<BooksStatistics>(mInvalidationTracker, mObservedReads,
+                mAppExecutors.mainThread(), "bookslist") {
             @Override
-            public void run() {
-                mBooksDao.updateCompleted(book.getId(), false);
+            protected BooksStatistics load() {
+                long start = mGetStatisticsTimer.start();
+                BooksStatistics statistics = mBooksDao.getStatistics();
+                mGetStatisticsTimer.stop(start);
+                return statistics;
             }
         };
+    }
+
+    @Override
+    public void saveBook(@NonNull final Book book) {
+        checkNotNull(book);
+        mWriteQueue.save(new BookListItem(book.getTitle(), book.getId(),
+                BOOK_DETAILS_API_PATH + book.getId()), book);
+    }
 
-        mAppExecutors.diskIO().execute(favoriteRunnable);
+    @Override
+    public void favoriteBook(@NonNull Book book) {
+        mWriteQueue.setFavorite(book.getId(), true);
+    }
+
+    @Override
+    public void favoriteBook(@NonNull String bookId) {
+        // Not required for the local data source because the {@link BooksRepository} handles
+        // converting from a {@code bookId} to a {@link book} using its cached data.
+    }
+
+    @Override
+    public void unFavoriteBook(@NonNull Book book) {
+        mWriteQueue.setFavorite(book.getId(), false);
     }
 
     @Override
@@ -168,26 +552,207 @@ public class BooksLocalDataSource implements BooksDataSource {
 
     @Override
     public void deleteAllBooks() {
-        Runnable deleteRunnable = new Runnable() {
+        mWriteQueue.deleteAll();
+    }
+
+    @Override
+    public void deleteBook(@NonNull String bookId) {
+        mWriteQueue.delete(bookId);
+    }
+
+    /**
+     * Pending writes are applied first, so the delta from the server is applied on top of them.
+     * Books whose stored etag matches the one of their upsert are left untouched. If the database
+     * fails, nothing is applied and {@link ApplyDeltaCallback#onDeltaFailed()} is called.
+     */
+    @Override
+    public void applyDelta(@NonNull final BooksDelta delta,
+                           @NonNull final ApplyDeltaCallback callback) {
+        checkNotNull(delta);
+        checkNotNull(callback);
+        synchronized (mSavesLock) {
+            // The saves made from now on are applied after the delta, as they were made after it.
+            mQueuedSave = null;
+        }
+        Runnable runnable = new Runnable() {
             @Override
             public void run() {
-                mBooksDao.deleteBooks();
+                final BooksDelta appliedDelta;
+                try {
+                    appliedDelta = apply(delta);
+                } catch (RuntimeException e) {
+                    // The sync engine waits for one of the callbacks before syncing again, so a
+                    // failed transaction is reported rather than lost with the thread.
+                    mAppExecutors.mainThread().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onDeltaFailed();
+                        }
+                    });
+                    return;
+                }
+                mAppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onDeltaApplied(appliedDelta);
+                    }
+                });
             }
         };
 
-        mAppExecutors.diskIO().execute(deleteRunnable);
+        executeWrite(runnable);
     }
 
-    @Override
-    public void deleteBook(@NonNull final String bookId) {
-        Runnable deleteRunnable = new Runnable() {
+    @WorkerThread
+    private BooksDelta apply(BooksDelta delta) {
+        mWriteQueue.drain();
+        Map<String, String> storedEtags = getStoredEtags(delta.getUpserts());
+
+        BooksDelta.Builder applied = BooksDelta.newBuilder(delta.getWatermark());
+        List<BookListItem> bookListItems = new ArrayList<>();
+        List<Book> books = new ArrayList<>();
+        for (BookListItem item : delta.getUpserts()) {
+            if (item.getEtag() != null && item.getEtag().equals(storedEtags.get(item.getId()))) {
+                continue;
+            }
+            Book book = delta.getBook(item.getId());
+            applied.upsert(item, book);
+            bookListItems.add(item);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        for (String id : delta.getDeletedIds()) {
+            applied.delete(id);
+        }
+        long start = mApplyDeltaTimer.start();
+        mBooksDao.applyDelta(bookListItems, books, delta.getDeletedIds());
+        mApplyDeltaTimer.stop(start);
+        return applied.build();
+    }
+
+    private static List<BookListItem> toBookListItems(List<BookListRow> rows) {
+        List<BookListItem> items = new ArrayList<>(rows.size());
+        for (BookListRow row : rows) {
+            items.add(row.toBookListItem());
+        }
+        return items;
+    }
+
+    /**
+     * Applies the pending writes to a page of {@code filter}, dropping the books whose favorite
+     * flag the filter no longer accepts.
+     */
+    private static List<BookListItem> applyPending(PendingWrites pending,
+                                                   List<BookListItem> stored,
+                                                   BooksFilterType filter) {
+        if (pending.isEmpty()) {
+            return stored;
+        }
+        List<BookListItem> items = pending.apply(stored);
+        if (filter != BooksFilterType.ALL_BOOKS) {
+            for (Iterator<BookListItem> it = items.iterator(); it.hasNext(); ) {
+                if (!filter.accepts(it.next().isFavorite())) {
+                    it.remove();
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Runs {@code read} right away, without waiting for the writes in the background: the ones
+     * the user made are applied by the read from the write queue.
+     */
+    private void executeRead(Runnable read) {
+        mAppExecutors.diskRead().execute(read);
+    }
+
+    /**
+     * Runs {@code write}, which doesn't go through the write queue, in the background.
+     */
+    private void executeWrite(Runnable write) {
+        mAppExecutors.diskWrite(TaskPriority.BACKGROUND).execute(write);
+    }
+
+    /**
+     * List items saved together, the later ones replacing the earlier ones with the same id.
+     */
+    private final class SaveBatch implements Runnable {
+
+        final Map<String, BookListItem> mBookListItems = new LinkedHashMap<>();
+
+        final List<SaveBooksListItemsCallback> mCallbacks = new ArrayList<>();
+
+        @Override
+        public void run() {
+            synchronized (mSavesLock) {
+                if (mQueuedSave == this) {
+                    mQueuedSave = null;
+                }
+            }
+            boolean saved;
+            try {
+                mWriteQueue.drain();
+                mBooksDao.insertBookListItems(new ArrayList<>(mBookListItems.values()));
+                saved = true;
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Couldn't save " + mBookListItems.size() + " list items", e);
+                saved = false;
+            }
+            final boolean success = saved;
+            mAppExecutors.mainThread().execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (SaveBooksListItemsCallback callback : mCallbacks) {
+                        if (success) {
+                            callback.onBooksListItemsSaved();
+                        } else {
+                            callback.onSaveFailed();
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    @WorkerThread
+    private Map<String, String> getStoredEtags(List<BookListItem> items) {
+        List<String> ids = new ArrayList<>(items.size());
+        for (BookListItem item : items) {
+            ids.add(item.getId());
+        }
+        Map<String, String> etags = new HashMap<>();
+        for (List<String> chunk : Lists.partition(ids, BooksDao.MAX_QUERY_PARAMETERS)) {
+            for (BookEtag bookEtag : mBooksDao.getEtags(chunk)) {
+                etags.put(bookEtag.id, bookEtag.etag);
+            }
+        }
+        return etags;
+    }
+
+    /**
+     * Flushes the write queue and waits until it, and the writes posted in the background before,
+     * have been applied.
+     *
+     * @return false if the timeout elapsed first.
+     */
+    @VisibleForTesting
+    public boolean awaitWritesFlushed(long timeout, @NonNull TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!mWriteQueue.awaitFlushed(timeout, unit)) {
+            return false;
+        }
+        final CountDownLatch written = new CountDownLatch(1);
+        // The writes in the background run in order, so this runs after the ones posted before.
+        executeWrite(new Runnable() {
             @Override
             public void run() {
-                mBooksDao.deleteBookById(bookId);
+                written.countDown();
             }
-        };
-
-        mAppExecutors.diskIO().execute(deleteRunnable);
+        });
+        return written.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
     }
 
     @VisibleForTesting
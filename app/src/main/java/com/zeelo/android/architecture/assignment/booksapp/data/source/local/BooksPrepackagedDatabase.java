@@ -0,0 +1,137 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.room.RoomDatabase;
+import android.content.Context;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The catalogue database the build generates from books.json, with the schema Room exports, and
+ * ships as the {@value #ASSET} asset of the prod flavor. On first launch it is copied in place of
+ * the database before Room opens it, so the books are there without parsing the JSON or inserting
+ * them one by one.
+ * <p>
+ * Room doesn't know about the search table and the triggers, so the asset doesn't have them:
+ * {@link #INDEX} adds them, and indexes the books, the first time the database is opened.
+ */
+final class BooksPrepackagedDatabase {
+
+    private static final String TAG = "BooksPrepackagedDb";
+
+    @VisibleForTesting
+    static final String ASSET = "books.db";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final String POPULATE_FTS = "INSERT INTO books_fts(docid, title, authors, "
+            + "description) SELECT rowid, title, authors, NULL FROM bookslist";
+
+    /**
+     * Adds the search table and the triggers to a database copied from the asset. Every other
+     * database got them when it was created or migrated, so this only checks they are there.
+     */
+    static final RoomDatabase.Callback INDEX = new RoomDatabase.Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            if (hasSearchTable(db)) {
+                return;
+            }
+            db.beginTransaction();
+            try {
+                BooksFts.create(db);
+                db.execSQL(POPULATE_FTS);
+                BooksFavorites.create(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+    };
+
+    private BooksPrepackagedDatabase() {
+    }
+
+    /**
+     * Copies the asset to the database {@code name}, unless it exists already. The copy is
+     * renamed into place once complete, so a launch killed halfway through starts over.
+     *
+     * @return whether the asset was copied. If it wasn't shipped, or can't be copied, Room creates
+     * an empty database and the books are fetched from the remote data source, as before.
+     */
+    static boolean install(@NonNull Context context, @NonNull String name) {
+        File database = context.getDatabasePath(name);
+        if (database.exists()) {
+            return false;
+        }
+        InputStream asset;
+        try {
+            asset = context.getAssets().open(ASSET);
+        } catch (FileNotFoundException e) {
+            // Only the prod flavor ships it: the mock one starts from the books its tests store.
+            return false;
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't open " + ASSET, e);
+            return false;
+        }
+
+        File copy = new File(database.getPath() + ".prepackaged");
+        try {
+            File directory = database.getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Couldn't create " + directory);
+            }
+            copy(asset, copy);
+            if (!copy.renameTo(database)) {
+                throw new IOException("Couldn't rename " + copy + " to " + database);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't copy " + ASSET, e);
+            copy.delete();
+            return false;
+        } finally {
+            closeQuietly(asset);
+        }
+    }
+
+    private static void copy(InputStream in, File file) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+    }
+
+    private static boolean hasSearchTable(SupportSQLiteDatabase db) {
+        Cursor cursor = db.query("SELECT 1 FROM sqlite_master WHERE type = 'table' "
+                + "AND name = 'books_fts'");
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // Nothing was written to it.
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.db.SimpleSQLiteQuery;
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteQuery;
+import android.arch.persistence.db.SupportSQLiteStatement;
+import android.arch.persistence.room.RoomDatabase;
+import android.arch.persistence.room.migration.Migration;
+import android.database.Cursor;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.google.common.base.Strings;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksCollation;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksFilterType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksPageKey;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSortType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.StringListCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The columns the books list is sorted by, one for every {@link BooksSortType}, and the keyset
+ * queries that page through them.
+ * <p>
+ * The title and the first author are sorted by their {@link BooksCollation} keys, which
+ * {@link BooksDao} sets as the books are saved. Keys only compare with the keys of the same
+ * locale, and of the same collator, so the {@code sort_key_collation} table, which Room doesn't
+ * know about, records which ones made them. {@link #REKEY} computes them all again when the
+ * database is opened by another one, and fills them in a database copied from the asset, whose
+ * generator leaves them empty.
+ */
+final class BooksSortKeys {
+
+    private static final String CREATE_COLLATION_TABLE = "CREATE TABLE IF NOT EXISTS "
+            + "sort_key_collation (collation TEXT NOT NULL)";
+
+    private static final String SELECT_COLLATION = "SELECT collation FROM sort_key_collation";
+
+    private static final String UPDATE_KEYS = "UPDATE bookslist SET title_key = ?, "
+            + "author_key = ? WHERE rowid = ?";
+
+    /**
+     * Adds the columns the books list is sorted by, with the indices Room creates for them, in
+     * place of the ones by title. Books stored before have no published date nor page count until
+     * they change on the server.
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE bookslist ADD COLUMN title_key BLOB");
+            database.execSQL("ALTER TABLE bookslist ADD COLUMN author_key BLOB");
+            database.execSQL("ALTER TABLE bookslist ADD COLUMN published_date TEXT");
+            database.execSQL("ALTER TABLE bookslist ADD COLUMN page_count INTEGER");
+            database.execSQL("DROP INDEX IF EXISTS index_bookslist_title_id");
+            database.execSQL("DROP INDEX IF EXISTS index_bookslist_favorite_title_id");
+            for (BooksSortType sortType : BooksSortType.values()) {
+                String column = columnOf(sortType);
+                database.execSQL("CREATE INDEX IF NOT EXISTS index_bookslist_" + column
+                        + "_id ON bookslist (" + column + ", id)");
+                database.execSQL("CREATE INDEX IF NOT EXISTS index_bookslist_favorite_" + column
+                        + "_id ON bookslist (favorite, " + column + ", id)");
+            }
+            rekey(database);
+        }
+    };
+
+    /**
+     * Computes the keys of the books list again, unless they were computed for the collation of
+     * this process.
+     */
+    static final RoomDatabase.Callback REKEY = new RoomDatabase.Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            if (collation().equals(storedCollation(db))) {
+                return;
+            }
+            db.beginTransaction();
+            try {
+                rekey(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+    };
+
+    private BooksSortKeys() {
+    }
+
+    /**
+     * Sets the keys of books about to be saved.
+     */
+    static void setKeys(@NonNull List<BookListItem> bookListItems) {
+        for (BookListItem item : bookListItems) {
+            item.setTitleKey(BooksCollation.key(
+                    item.getVolumeInfo() != null ? item.getTitle() : null));
+            item.setAuthorKey(authorKey(item.getFirstAuthor()));
+        }
+    }
+
+    /**
+     * @return the query of the page of the books list passing {@code filter}, sorted by
+     * {@code sortType}, that follows {@code after}. Seeking the index of the sort type to the key
+     * reads only the rows of the page, however deep it is.
+     */
+    @NonNull
+    static SupportSQLiteQuery pageQuery(@NonNull BooksSortType sortType,
+                                        @NonNull BooksFilterType filter,
+                                        @Nullable BooksPageKey after, int limit) {
+        String column = columnOf(sortType);
+        List<Object> args = new ArrayList<>(5);
+        StringBuilder sql = new StringBuilder(BooksDao.LIST_ROW_COLUMNS);
+        String where = "WHERE ";
+        if (filter != BooksFilterType.ALL_BOOKS) {
+            sql.append(where).append("favorite = ? ");
+            args.add(filter == BooksFilterType.FAVORITED_BOOKS ? 1 : 0);
+            where = "AND ";
+        }
+        if (after != null) {
+            Object value = bindableValue(sortType, after.getValue());
+            if (value == null) {
+                // The books lacking the value come first: the rest of them, then all the others.
+                sql.append(where).append('(').append(column).append(" IS NOT NULL OR id > ?) ");
+            } else {
+                sql.append(where).append(column).append(" >= ? AND (").append(column)
+                        .append(" > ? OR id > ?) ");
+                args.add(value);
+                args.add(value);
+            }
+            args.add(after.getId());
+        }
+        sql.append("ORDER BY ").append(column).append(", id LIMIT ?");
+        args.add(limit);
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    /**
+     * @return the value bound for the title of a page key, to page through the books of an
+     * author by title.
+     */
+    @Nullable
+    static byte[] titleKey(@NonNull BooksPageKey after) {
+        return (byte[]) bindableValue(BooksSortType.TITLE, after.getValue());
+    }
+
+    @VisibleForTesting
+    static String columnOf(@NonNull BooksSortType sortType) {
+        switch (sortType) {
+            case AUTHOR:
+                return "author_key";
+            case PUBLISHED_DATE:
+                return "published_date";
+            case PAGE_COUNT:
+                return "page_count";
+            default:
+                return "title_key";
+        }
+    }
+
+    @Nullable
+    private static Object bindableValue(BooksSortType sortType, @Nullable Object value) {
+        switch (sortType) {
+            case TITLE:
+                return BooksCollation.key((String) value);
+            case AUTHOR:
+                return authorKey((String) value);
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * A book listing an empty name first is sorted as if it had no author.
+     */
+    @Nullable
+    private static byte[] authorKey(@Nullable String firstAuthor) {
+        return BooksCollation.key(Strings.emptyToNull(firstAuthor));
+    }
+
+    /**
+     * Identifies the collator: its locale, and the build of the system, which comes with the
+     * collation rules.
+     */
+    private static String collation() {
+        return BooksCollation.getLocale() + " " + Build.FINGERPRINT;
+    }
+
+    @Nullable
+    private static String storedCollation(SupportSQLiteDatabase db) {
+        Cursor cursor = db.query("SELECT 1 FROM sqlite_master WHERE type = 'table' "
+                + "AND name = 'sort_key_collation'");
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+        } finally {
+            cursor.close();
+        }
+        cursor = db.query(SELECT_COLLATION);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void rekey(SupportSQLiteDatabase database) {
+        // Read everything first rather than updating the table under an open cursor.
+        List<Long> rowIds = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        List<String> firstAuthors = new ArrayList<>();
+        Cursor cursor = database.query("SELECT rowid, title, authors FROM bookslist");
+        try {
+            while (cursor.moveToNext()) {
+                rowIds.add(cursor.getLong(0));
+                titles.add(cursor.getString(1));
+                firstAuthors.add(StringListCodec.decodeFirst(cursor.getString(2)));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        SupportSQLiteStatement update = database.compileStatement(UPDATE_KEYS);
+        for (int i = 0; i < rowIds.size(); i++) {
+            bindKey(update, 1, BooksCollation.key(titles.get(i)));
+            bindKey(update, 2, authorKey(firstAuthors.get(i)));
+            update.bindLong(3, rowIds.get(i));
+            update.executeUpdateDelete();
+        }
+
+        database.execSQL(CREATE_COLLATION_TABLE);
+        database.execSQL("DELETE FROM sort_key_collation");
+        database.execSQL("INSERT INTO sort_key_collation (collation) VALUES (?)",
+                new Object[]{collation()});
+    }
+
+    private static void bindKey(SupportSQLiteStatement statement, int index,
+                                @Nullable byte[] key) {
+        if (key != null) {
+            statement.bindBlob(index, key);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+}
@@ -0,0 +1,583 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.BooksMetrics;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Write-behind queue for the books database.
+ * <p>
+ * Writes are kept in memory and coalesced per book id, so that for example favoriting, then
+ * unfavoriting and favoriting a book again ends up as a single update. The pending writes are
+ * applied in one transaction on the disk write executor once {@code maxBatchSize} books are pending or
+ * {@code maxDelayMillis} after the first pending write, whichever happens first.
+ * <p>
+ * Only writes drain the queue: anything else writing the database must call {@link #drain()} on
+ * the disk write executor first, so it is applied on top of the writes queued before it. Drains
+ * are applied one at a time, so a drain finding nothing left to apply still waits for another one
+ * in progress. Reads don't flush anything: they take the {@link #pendingWrites()} before reading
+ * the database and apply them to what they read.
+ * <p>
+ * If the transaction fails, its writes are queued again under the ones queued since, and retried
+ * by the next drain.
+ */
+public class BooksWriteQueue {
+
+    private static final String TAG = "BooksWriteQueue";
+
+    static final int DEFAULT_MAX_BATCH_SIZE = 200;
+
+    static final long DEFAULT_MAX_DELAY_MILLIS = 250;
+
+    private final BooksDao mBooksDao;
+
+    private final Executor mDiskWrite;
+
+    private final ScheduledExecutorService mScheduler;
+
+    private final int mMaxBatchSize;
+
+    private final long mMaxDelayMillis;
+
+    private final Object mLock = new Object();
+
+    /**
+     * Held while taking and applying the pending writes. Taken before {@link #mLock}.
+     */
+    private final Object mApplyLock = new Object();
+
+    private final Metrics.Timer mApplyWritesTimer = BooksMetrics.get().timer("dao.applyWrites");
+
+    // Guarded by mLock.
+    private Map<String, PendingWrite> mPendingWrites = new LinkedHashMap<>();
+
+    // Guarded by mLock.
+    private boolean mDeleteAllPending;
+
+    // Guarded by mLock. The writes taken by the drain in progress, until they are committed.
+    private Map<String, PendingWrite> mApplyingWrites = Collections.emptyMap();
+
+    // Guarded by mLock.
+    private boolean mApplyingDeleteAll;
+
+    // Guarded by mLock.
+    private boolean mFlushPosted;
+
+    // Guarded by mLock.
+    private ScheduledFuture<?> mScheduledFlush;
+
+    private final Runnable mDrainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                drain();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Couldn't apply the pending writes, they will be retried", e);
+            }
+        }
+    };
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    BooksWriteQueue(@NonNull BooksDao booksDao, @NonNull Executor diskWrite) {
+        this(booksDao, diskWrite, newScheduler(), DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    @VisibleForTesting
+    BooksWriteQueue(@NonNull BooksDao booksDao, @NonNull Executor diskWrite,
+                    @NonNull ScheduledExecutorService scheduler, int maxBatchSize,
+                    long maxDelayMillis) {
+        checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+        checkArgument(maxDelayMillis >= 0, "maxDelayMillis can't be negative");
+        mBooksDao = checkNotNull(booksDao);
+        mDiskWrite = checkNotNull(diskWrite);
+        mScheduler = checkNotNull(scheduler);
+        mMaxBatchSize = maxBatchSize;
+        mMaxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Queues inserting or replacing a book and its list item. Replaces any pending write for the
+     * same book.
+     */
+    public void save(@NonNull BookListItem bookListItem, @NonNull Book book) {
+        checkNotNull(bookListItem);
+        checkNotNull(book);
+        boolean post;
+        synchronized (mLock) {
+            PendingWrite write = pendingWrite(book.getId());
+            write.mBookListItem = bookListItem;
+            write.mBook = book;
+            write.mFavorite = null;
+            write.mDelete = false;
+            post = scheduleFlush();
+        }
+        postDrain(post);
+    }
+
+    /**
+     * Queues updating the favorite flag of a book. Only the last flag queued for a book is written.
+     */
+    public void setFavorite(@NonNull String bookId, boolean favorite) {
+        checkNotNull(bookId);
+        boolean post;
+        synchronized (mLock) {
+            pendingWrite(bookId).mFavorite = favorite;
+            post = scheduleFlush();
+        }
+        postDrain(post);
+    }
+
+    /**
+     * Queues deleting a book. Any pending save or favorite update of the book is dropped.
+     */
+    public void delete(@NonNull String bookId) {
+        checkNotNull(bookId);
+        boolean post;
+        synchronized (mLock) {
+            PendingWrite write = pendingWrite(bookId);
+            write.mBookListItem = null;
+            write.mBook = null;
+            write.mFavorite = null;
+            write.mDelete = true;
+            post = scheduleFlush();
+        }
+        postDrain(post);
+    }
+
+    /**
+     * Queues deleting all books. Every write queued before this one is dropped.
+     */
+    public void deleteAll() {
+        boolean post;
+        synchronized (mLock) {
+            mPendingWrites.clear();
+            mDeleteAllPending = true;
+            post = scheduleFlush();
+        }
+        postDrain(post);
+    }
+
+    /**
+     * Posts the pending writes to the disk write executor without waiting for the thresholds.
+     */
+    public void flush() {
+        synchronized (mLock) {
+            if (mFlushPosted || !hasPendingWrites()) {
+                return;
+            }
+            mFlushPosted = true;
+        }
+        mDiskWrite.execute(mDrainRunnable);
+    }
+
+    /**
+     * Takes the writes queued so far that the database may not hold yet, whether they are pending
+     * or being applied. Taken before reading the database, they can be applied to whatever the
+     * read returns, as the writes committed in between are part of them.
+     */
+    @NonNull
+    public PendingWrites pendingWrites() {
+        synchronized (mLock) {
+            if (!mApplyingDeleteAll && mApplyingWrites.isEmpty() && !hasPendingWrites()) {
+                return PendingWrites.NONE;
+            }
+            Map<String, PendingWrite> writes = new LinkedHashMap<>();
+            boolean deleteAll = false;
+            if (!mDeleteAllPending) {
+                deleteAll = mApplyingDeleteAll;
+                for (Map.Entry<String, PendingWrite> entry : mApplyingWrites.entrySet()) {
+                    writes.put(entry.getKey(), entry.getValue().copy());
+                }
+            }
+            coalesce(writes, mPendingWrites, true);
+            return new PendingWrites(deleteAll || mDeleteAllPending, writes);
+        }
+    }
+
+    /**
+     * Flushes the pending writes and waits until they, and anything queued on the disk write
+     * executor ahead of them, have been applied.
+     *
+     * @return false if the timeout elapsed first.
+     */
+    @VisibleForTesting
+    public boolean awaitFlushed(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        final CountDownLatch flushed = new CountDownLatch(1);
+        mDiskWrite.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    drain();
+                } finally {
+                    flushed.countDown();
+                }
+            }
+        });
+        return flushed.await(timeout, unit);
+    }
+
+    /**
+     * Applies the pending writes on the calling thread, in a single transaction.
+     *
+     * @throws RuntimeException if the transaction failed. Its writes are pending again.
+     */
+    @WorkerThread
+    public void drain() {
+        synchronized (mApplyLock) {
+            Map<String, PendingWrite> writes;
+            boolean deleteAll;
+            synchronized (mLock) {
+                writes = mPendingWrites;
+                deleteAll = mDeleteAllPending;
+                mPendingWrites = new LinkedHashMap<>();
+                mDeleteAllPending = false;
+                mFlushPosted = false;
+                if (mScheduledFlush != null) {
+                    mScheduledFlush.cancel(false);
+                    mScheduledFlush = null;
+                }
+                if (!deleteAll && writes.isEmpty()) {
+                    return;
+                }
+                mApplyingWrites = writes;
+                mApplyingDeleteAll = deleteAll;
+            }
+            long start = mApplyWritesTimer.start();
+            try {
+                mBooksDao.applyWrites(new Batch(deleteAll, writes));
+            } catch (RuntimeException e) {
+                synchronized (mLock) {
+                    mApplyingWrites = Collections.emptyMap();
+                    mApplyingDeleteAll = false;
+                    requeue(deleteAll, writes);
+                }
+                throw e;
+            }
+            mApplyWritesTimer.stop(start);
+            synchronized (mLock) {
+                mApplyingWrites = Collections.emptyMap();
+                mApplyingDeleteAll = false;
+            }
+        }
+    }
+
+    /**
+     * Called with {@code mLock} held. Queues again the writes of a batch that failed, under the
+     * writes queued since: the result is the one of queueing them all in order. The retry is
+     * scheduled like a new write.
+     */
+    private void requeue(boolean deleteAll, Map<String, PendingWrite> writes) {
+        if (mDeleteAllPending) {
+            // Deleting all books was queued since, which drops the failed writes anyway.
+            return;
+        }
+        coalesce(writes, mPendingWrites, false);
+        mPendingWrites = writes;
+        mDeleteAllPending = deleteAll;
+        if (!mFlushPosted && mScheduledFlush == null) {
+            mScheduledFlush = mScheduler.schedule(mFlushRunnable, mMaxDelayMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Coalesces the {@code later} writes into the {@code earlier} ones: the result is the one of
+     * queueing them all in order. The later writes are copied first if {@code copy} is true.
+     */
+    private static void coalesce(Map<String, PendingWrite> earlier,
+                                 Map<String, PendingWrite> later, boolean copy) {
+        for (Map.Entry<String, PendingWrite> entry : later.entrySet()) {
+            PendingWrite before = earlier.get(entry.getKey());
+            PendingWrite after = entry.getValue();
+            if (before != null && !after.mDelete && after.mBook == null) {
+                // Only the favorite flag was queued since, on top of the earlier write.
+                before.mFavorite = after.mFavorite;
+            } else {
+                earlier.put(entry.getKey(), copy ? after.copy() : after);
+            }
+        }
+    }
+
+    private PendingWrite pendingWrite(String bookId) {
+        PendingWrite write = mPendingWrites.get(bookId);
+        if (write == null) {
+            write = new PendingWrite();
+            mPendingWrites.put(bookId, write);
+        }
+        return write;
+    }
+
+    private boolean hasPendingWrites() {
+        return mDeleteAllPending || !mPendingWrites.isEmpty();
+    }
+
+    /**
+     * Called with {@code mLock} held. Decides whether the writes are posted now, which the caller
+     * does with {@link #postDrain(boolean)} once it released the lock: an executor may drain on
+     * another thread and wait for it, and draining takes {@code mApplyLock} before {@code mLock}.
+     *
+     * @return true if the drain has to be posted.
+     */
+    private boolean scheduleFlush() {
+        if (mFlushPosted) {
+            return false;
+        }
+        if (mPendingWrites.size() >= mMaxBatchSize) {
+            mFlushPosted = true;
+            return true;
+        }
+        if (mScheduledFlush == null) {
+            mScheduledFlush = mScheduler.schedule(mFlushRunnable, mMaxDelayMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        return false;
+    }
+
+    private void postDrain(boolean post) {
+        if (post) {
+            mDiskWrite.execute(mDrainRunnable);
+        }
+    }
+
+    private static ScheduledExecutorService newScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "BooksWriteQueue");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static class PendingWrite {
+
+        BookListItem mBookListItem;
+
+        Book mBook;
+
+        Boolean mFavorite;
+
+        boolean mDelete;
+
+        PendingWrite copy() {
+            PendingWrite copy = new PendingWrite();
+            copy.mBookListItem = mBookListItem;
+            copy.mBook = mBook;
+            copy.mFavorite = mFavorite;
+            copy.mDelete = mDelete;
+            return copy;
+        }
+
+        /**
+         * @return the favorite flag the book ends up with, if the write saves it.
+         */
+        boolean isFavorite() {
+            return mFavorite != null ? mFavorite : mBook.isFavorite();
+        }
+    }
+
+    /**
+     * The writes queued at some point that the database may not hold yet, as read by
+     * {@link #pendingWrites()}. Applying them to books read from the database afterwards gives the
+     * books as they are once the writes are applied.
+     * <p>
+     * Books only saved by the pending writes aren't added to what was read, nor are the favorite
+     * flags they change counted: the reads observing the database see them once they are applied.
+     */
+    public static final class PendingWrites {
+
+        static final PendingWrites NONE =
+                new PendingWrites(false, Collections.<String, PendingWrite>emptyMap());
+
+        private final boolean mDeleteAll;
+
+        private final Map<String, PendingWrite> mWrites;
+
+        private PendingWrites(boolean deleteAll, Map<String, PendingWrite> writes) {
+            mDeleteAll = deleteAll;
+            mWrites = writes;
+        }
+
+        public boolean isEmpty() {
+            return !mDeleteAll && mWrites.isEmpty();
+        }
+
+        /**
+         * @param stored a book read from the database, or null if it wasn't found. Its favorite
+         *               flag is updated in place.
+         * @return the book once the pending writes are applied, or null if they delete it.
+         */
+        @Nullable
+        public Book apply(@NonNull String bookId, @Nullable Book stored) {
+            PendingWrite write = mWrites.get(bookId);
+            if (write == null) {
+                return mDeleteAll ? null : stored;
+            }
+            if (write.mBook != null) {
+                Book book = new Book();
+                book.setId(write.mBook.getId());
+                book.setVolumeInfo(write.mBook.getVolumeInfo());
+                book.setFavorite(write.isFavorite());
+                return book;
+            }
+            if (write.mDelete || mDeleteAll) {
+                return null;
+            }
+            if (stored != null && write.mFavorite != null) {
+                stored.setFavorite(write.mFavorite);
+            }
+            return stored;
+        }
+
+        /**
+         * @return the book the pending writes save, or null if they don't.
+         */
+        @Nullable
+        public Book getSavedBook(@NonNull String bookId) {
+            PendingWrite write = mWrites.get(bookId);
+            return write != null ? write.mBook : null;
+        }
+
+        /**
+         * @return whether the pending writes delete the book, without saving it again.
+         */
+        public boolean isDeleted(@NonNull String bookId) {
+            PendingWrite write = mWrites.get(bookId);
+            if (write == null) {
+                return mDeleteAll;
+            }
+            return write.mBook == null && (write.mDelete || mDeleteAll);
+        }
+
+        /**
+         * @param stored list items read from the database, in order. Their favorite flags are
+         *               updated in place.
+         * @return the list items once the pending writes are applied, in the same order: the
+         * deleted ones are dropped and the saved ones replaced.
+         */
+        @NonNull
+        public List<BookListItem> apply(@NonNull List<BookListItem> stored) {
+            if (isEmpty()) {
+                return stored;
+            }
+            List<BookListItem> items = new ArrayList<>(stored.size());
+            for (BookListItem item : stored) {
+                PendingWrite write = mWrites.get(item.getId());
+                if (write == null) {
+                    if (!mDeleteAll) {
+                        items.add(item);
+                    }
+                } else if (write.mBook != null) {
+                    items.add(savedListItem(write));
+                } else if (!write.mDelete && !mDeleteAll) {
+                    if (write.mFavorite != null) {
+                        item.setFavorite(write.mFavorite);
+                    }
+                    items.add(item);
+                }
+            }
+            return items;
+        }
+
+        /**
+         * The list item of a pending save is written by the disk write executor, which sets its
+         * sort keys, so a copy is returned.
+         */
+        private static BookListItem savedListItem(PendingWrite write) {
+            BookListItem item = new BookListItem();
+            item.setId(write.mBookListItem.getId());
+            item.setLink(write.mBookListItem.getLink());
+            item.setEtag(write.mBookListItem.getEtag());
+            item.setVolumeInfo(write.mBookListItem.getVolumeInfo());
+            item.setFavorite(write.isFavorite());
+            return item;
+        }
+    }
+
+    /**
+     * The coalesced writes applied by {@link BooksDao#applyWrites(Batch)}.
+     */
+    public static final class Batch {
+
+        private final boolean mDeleteAll;
+
+        private final List<String> mDeletedBookIds = new ArrayList<>();
+
+        private final List<BookListItem> mBookListItems = new ArrayList<>();
+
+        private final List<Book> mBooks = new ArrayList<>();
+
+        private final Map<String, Boolean> mFavorites = new LinkedHashMap<>();
+
+        private Batch(boolean deleteAll, Map<String, PendingWrite> writes) {
+            mDeleteAll = deleteAll;
+            for (Map.Entry<String, PendingWrite> entry : writes.entrySet()) {
+                PendingWrite write = entry.getValue();
+                if (write.mDelete) {
+                    mDeletedBookIds.add(entry.getKey());
+                }
+                if (write.mBook != null) {
+                    mBookListItems.add(write.mBookListItem);
+                    mBooks.add(write.mBook);
+                }
+                if (write.mFavorite != null) {
+                    mFavorites.put(entry.getKey(), write.mFavorite);
+                }
+            }
+        }
+
+        public boolean isDeleteAll() {
+            return mDeleteAll;
+        }
+
+        @NonNull
+        public List<String> getDeletedBookIds() {
+            return Collections.unmodifiableList(mDeletedBookIds);
+        }
+
+        @NonNull
+        public List<BookListItem> getBookListItems() {
+            return Collections.unmodifiableList(mBookListItems);
+        }
+
+        @NonNull
+        public List<Book> getBooks() {
+            return Collections.unmodifiableList(mBooks);
+        }
+
+        @NonNull
+        public Map<String, Boolean> getFavorites() {
+            return Collections.unmodifiableMap(mFavorites);
+        }
+    }
+}
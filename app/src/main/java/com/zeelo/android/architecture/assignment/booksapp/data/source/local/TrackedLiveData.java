@@ -0,0 +1,139 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.persistence.room.InvalidationTracker;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The result of a read of the database, loaded again whenever the {@link InvalidationTracker}
+ * reports a change to one of the tables it reads, but only while it has active observers. While
+ * it has none, a change just marks it out of date, and it is loaded once it is observed again.
+ * Observers coming and going while nothing changed never load it again.
+ * <p>
+ * The tracker only holds it weakly, so it can be collected without being removed first.
+ */
+abstract class TrackedLiveData<T> extends LiveData<T> {
+
+    private final InvalidationTracker mInvalidationTracker;
+
+    private final Executor mLoadExecutor;
+
+    private final Executor mMainThread;
+
+    private final InvalidationTracker.Observer mTablesObserver;
+
+    private final AtomicBoolean mTablesObserved = new AtomicBoolean(false);
+
+    /**
+     * Whether the tables changed since the value was loaded. Nothing is loaded yet, at first.
+     */
+    private final AtomicBoolean mInvalid = new AtomicBoolean(true);
+
+    private final AtomicBoolean mLoading = new AtomicBoolean(false);
+
+    private final Runnable mRefresh = new Runnable() {
+        @WorkerThread
+        @Override
+        public void run() {
+            if (mTablesObserved.compareAndSet(false, true)) {
+                // Observed before the first load, so no change made after it is missed.
+                mInvalidationTracker.addObserver(mTablesObserver);
+            }
+            boolean loaded;
+            do {
+                loaded = false;
+                // Only one thread loads at a time; a change made meanwhile is loaded by it too.
+                if (mLoading.compareAndSet(false, true)) {
+                    try {
+                        T value = null;
+                        while (mInvalid.compareAndSet(true, false)) {
+                            loaded = true;
+                            value = load();
+                        }
+                        if (loaded) {
+                            postValue(value);
+                        }
+                    } finally {
+                        mLoading.set(false);
+                    }
+                }
+                // A change made after the loop checked mInvalid but before mLoading was released
+                // found the load still running, so it has to be picked up here.
+            } while (loaded && mInvalid.get());
+        }
+    };
+
+    private final Runnable mInvalidate = new Runnable() {
+        @MainThread
+        @Override
+        public void run() {
+            boolean active = hasActiveObservers();
+            if (mInvalid.compareAndSet(false, true) && active) {
+                mLoadExecutor.execute(mRefresh);
+            }
+        }
+    };
+
+    /**
+     * @param loadExecutor the executor to {@link #load()} on.
+     * @param tables       the tables {@link #load()} reads.
+     */
+    TrackedLiveData(@NonNull InvalidationTracker invalidationTracker,
+                    @NonNull Executor loadExecutor, @NonNull Executor mainThread,
+                    @NonNull String... tables) {
+        mInvalidationTracker = checkNotNull(invalidationTracker);
+        mLoadExecutor = checkNotNull(loadExecutor);
+        mMainThread = checkNotNull(mainThread);
+        mTablesObserver = new WeakTablesObserver(invalidationTracker, tables, this);
+    }
+
+    /**
+     * Reads the value from the database.
+     */
+    @WorkerThread
+    protected abstract T load();
+
+    @Override
+    protected void onActive() {
+        if (mInvalid.get()) {
+            mLoadExecutor.execute(mRefresh);
+        }
+    }
+
+    private void invalidate() {
+        mMainThread.execute(mInvalidate);
+    }
+
+    private static final class WeakTablesObserver extends InvalidationTracker.Observer {
+
+        private final InvalidationTracker mInvalidationTracker;
+
+        private final WeakReference<TrackedLiveData<?>> mLiveData;
+
+        WeakTablesObserver(InvalidationTracker invalidationTracker, String[] tables,
+                           TrackedLiveData<?> liveData) {
+            super(tables);
+            mInvalidationTracker = invalidationTracker;
+            mLiveData = new WeakReference<TrackedLiveData<?>>(liveData);
+        }
+
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            TrackedLiveData<?> liveData = mLiveData.get();
+            if (liveData == null) {
+                mInvalidationTracker.removeObserver(this);
+            } else {
+                liveData.invalidate();
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.support.annotation.NonNull;
+
+/**
+ * The number of books of the list that have the same value in a column.
+ */
+public class ValueCount {
+
+    @NonNull
+    public String value;
+
+    public int count;
+}
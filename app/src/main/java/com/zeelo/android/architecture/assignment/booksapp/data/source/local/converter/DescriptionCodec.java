@@ -0,0 +1,139 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encoding of the descriptions of the books, which run to several kilobytes of text each.
+ * <p>
+ * A description is stored as a format byte followed by its UTF-8 bytes, either as they are
+ * ({@link #RAW}) or, when that makes them smaller, deflated ({@link #DEFLATED}). Deflated bytes
+ * follow their length before deflating, as a big-endian int. Descriptions shorter than
+ * {@link #MIN_DEFLATE_BYTES} are never deflated: they wouldn't get much smaller.
+ */
+public final class DescriptionCodec {
+
+    @VisibleForTesting
+    static final byte RAW = 0;
+
+    @VisibleForTesting
+    static final byte DEFLATED = 1;
+
+    @VisibleForTesting
+    static final int MIN_DEFLATE_BYTES = 256;
+
+    private static final int LENGTH_BYTES = 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private DescriptionCodec() {
+    }
+
+    @Nullable
+    public static byte[] encode(@Nullable String description) {
+        if (description == null) {
+            return null;
+        }
+        byte[] text = description.getBytes(UTF_8);
+        if (text.length >= MIN_DEFLATE_BYTES) {
+            byte[] deflated = deflate(text);
+            if (deflated != null) {
+                return deflated;
+            }
+        }
+        byte[] raw = new byte[1 + text.length];
+        raw[0] = RAW;
+        System.arraycopy(text, 0, raw, 1, text.length);
+        return raw;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code encoded} wasn't returned by
+     *                                  {@link #encode(String)}.
+     */
+    @Nullable
+    public static String decode(@Nullable byte[] encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        if (encoded.length == 0) {
+            throw new IllegalArgumentException("Missing format");
+        }
+        switch (encoded[0]) {
+            case RAW:
+                return new String(encoded, 1, encoded.length - 1, UTF_8);
+            case DEFLATED:
+                return new String(inflate(encoded), UTF_8);
+            default:
+                throw new IllegalArgumentException("Unknown format " + encoded[0]);
+        }
+    }
+
+    /**
+     * @return the deflated encoding of {@code text}, or null if it isn't smaller than the raw one.
+     */
+    @Nullable
+    private static byte[] deflate(@NonNull byte[] text) {
+        // Raw deflate, without the zlib header and checksum: SQLite already checks its pages.
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(text);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(text.length / 2);
+            out.write(DEFLATED);
+            out.write(text.length >>> 24);
+            out.write(text.length >>> 16);
+            out.write(text.length >>> 8);
+            out.write(text.length);
+            byte[] buffer = new byte[Math.min(text.length, 4096)];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+                if (out.size() >= 1 + text.length) {
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(@NonNull byte[] encoded) {
+        if (encoded.length < 1 + LENGTH_BYTES) {
+            throw new IllegalArgumentException("Missing length");
+        }
+        int length = (encoded[1] & 0xFF) << 24 | (encoded[2] & 0xFF) << 16
+                | (encoded[3] & 0xFF) << 8 | (encoded[4] & 0xFF);
+        // The raw inflater needs an extra byte of input to tell the stream has ended.
+        byte[] input = Arrays.copyOfRange(encoded, 1 + LENGTH_BYTES, encoded.length + 1);
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+            byte[] text = new byte[length];
+            int inflated = 0;
+            while (inflated < length) {
+                int count = inflater.inflate(text, inflated, length - inflated);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != length) {
+                throw new IllegalArgumentException("Truncated description");
+            }
+            return text;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt description", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.source.remote.BooksGson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact text encoding of string lists, used to store the authors of the books.
+ * <p>
+ * An empty list is stored as an empty string. Any other list is stored as {@link #MARKER}
+ * followed by its elements, separated by {@link #SEPARATOR}. Within an element, a separator or an
+ * {@link #ESCAPE} character is preceded by {@link #ESCAPE}. Null elements are stored as empty
+ * strings.
+ * <p>
+ * These are control characters, so they never show up in names, and the full-text index treats
+ * them as word breaks. Values that don't start with the marker are read as the JSON arrays that
+ * earlier versions of the app stored.
+ */
+public final class StringListCodec {
+
+    static final char MARKER = '\u001E';
+
+    static final char SEPARATOR = '\u001F';
+
+    static final char ESCAPE = '\u001B';
+
+    private StringListCodec() {
+    }
+
+    @Nullable
+    public static String encode(@Nullable List<String> list) {
+        if (list == null) {
+            return null;
+        }
+        int size = list.size();
+        if (size == 0) {
+            return "";
+        }
+
+        int length = size;
+        for (int i = 0; i < size; i++) {
+            String element = list.get(i);
+            length += element != null ? element.length() : 0;
+        }
+        StringBuilder encoded = new StringBuilder(length);
+        encoded.append(MARKER);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                encoded.append(SEPARATOR);
+            }
+            String element = list.get(i);
+            if (element != null) {
+                appendEscaped(encoded, element);
+            }
+        }
+        return encoded.toString();
+    }
+
+    @Nullable
+    public static ArrayList<String> decode(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.isEmpty()) {
+            return new ArrayList<>(0);
+        }
+        if (isLegacy(value)) {
+            return decodeLegacy(value);
+        }
+        if (value.indexOf(ESCAPE) < 0) {
+            return split(value);
+        }
+        return unescape(value);
+    }
+
+    /**
+     * Decodes only the first element of {@code value}, without building the list.
+     *
+     * @return the first element, or null if the list is null or empty
+     */
+    @Nullable
+    public static String decodeFirst(@Nullable String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        if (isLegacy(value)) {
+            // Gson stored a null list as "null".
+            ArrayList<String> list = decodeLegacy(value);
+            return list == null || list.isEmpty() ? null : list.get(0);
+        }
+        int end = value.indexOf(SEPARATOR, 1);
+        String first = value.substring(1, end >= 0 ? end : value.length());
+        if (first.indexOf(ESCAPE) < 0) {
+            return first;
+        }
+        // The first separator may be escaped, so unescape up to the real one.
+        return unescape(value).get(0);
+    }
+
+    /**
+     * @return true if {@code value} is a JSON array written by an earlier version of the app.
+     */
+    public static boolean isLegacy(@NonNull String value) {
+        return !value.isEmpty() && value.charAt(0) != MARKER;
+    }
+
+    private static ArrayList<String> decodeLegacy(String value) {
+        return BooksGson.get().fromJson(value, BooksGson.STRING_LIST_TYPE);
+    }
+
+    private static void appendEscaped(StringBuilder encoded, String element) {
+        for (int i = 0, length = element.length(); i < length; i++) {
+            char c = element.charAt(i);
+            if (c == SEPARATOR || c == ESCAPE) {
+                encoded.append(ESCAPE);
+            }
+            encoded.append(c);
+        }
+    }
+
+    private static ArrayList<String> split(String value) {
+        ArrayList<String> list = new ArrayList<>(countSeparators(value) + 1);
+        int start = 1;
+        int end;
+        while ((end = value.indexOf(SEPARATOR, start)) >= 0) {
+            list.add(value.substring(start, end));
+            start = end + 1;
+        }
+        list.add(value.substring(start));
+        return list;
+    }
+
+    private static ArrayList<String> unescape(String value) {
+        ArrayList<String> list = new ArrayList<>();
+        StringBuilder element = new StringBuilder(value.length());
+        for (int i = 1, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c == ESCAPE && i + 1 < length) {
+                element.append(value.charAt(++i));
+            } else if (c == SEPARATOR) {
+                list.add(element.toString());
+                element.setLength(0);
+            } else {
+                element.append(c);
+            }
+        }
+        list.add(element.toString());
+        return list;
+    }
+
+    private static int countSeparators(String value) {
+        int count = 0;
+        for (int i = value.indexOf(SEPARATOR); i >= 0; i = value.indexOf(SEPARATOR, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
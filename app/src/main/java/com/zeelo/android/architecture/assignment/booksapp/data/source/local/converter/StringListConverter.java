@@ -18,23 +18,20 @@ package com.zeelo.android.architecture.assignment.booksapp.data.source.local.con
 
 import android.arch.persistence.room.TypeConverter;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 
+/**
+ * Stores string lists with {@link StringListCodec}. Room calls it for every row it reads or
+ * writes, so it doesn't create any parser.
+ */
 public class StringListConverter {
     @TypeConverter
     public static ArrayList<String> fromString(String value) {
-        Type listType = new TypeToken<ArrayList<String>>() {}.getType();
-        return new Gson().fromJson(value, listType);
+        return StringListCodec.decode(value);
     }
 
     @TypeConverter
     public static String fromArrayList(ArrayList<String> list) {
-        Gson gson = new Gson();
-        String json = gson.toJson(list);
-        return json;
+        return StringListCodec.encode(list);
     }
 }
@@ -0,0 +1,34 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.remote;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+
+/**
+ * The {@link Gson} instance shared by the app. The books.json volumes and the lists of strings it
+ * reads are streamed by the adapters of {@link VolumeTypeAdapter}, rather than by reflection.
+ */
+public final class BooksGson {
+
+    public static final Type STRING_LIST_TYPE = new TypeToken<ArrayList<String>>() {
+    }.getType();
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Volume.class, VolumeTypeAdapter.get())
+            .registerTypeAdapter(BookListItem.class, VolumeTypeAdapter.BOOK_LIST_ITEM)
+            .registerTypeAdapter(Book.class, VolumeTypeAdapter.BOOK)
+            .registerTypeAdapter(STRING_LIST_TYPE, VolumeTypeAdapter.STRING_LIST)
+            .create();
+
+    private BooksGson() {
+    }
+
+    public static Gson get() {
+        return GSON;
+    }
+}
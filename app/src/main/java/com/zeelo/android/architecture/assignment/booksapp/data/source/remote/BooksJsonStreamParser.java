@@ -0,0 +1,124 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.remote;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads a books.json volumes feed in a single streaming pass.
+ * <p>
+ * Only one volume object is held in memory at a time. Each volume is read into both a
+ * {@link BookListItem} and a {@link Book} by the {@link Volume} adapter of {@link BooksGson},
+ * which skips the fields the app doesn't keep, and the results are handed to a {@link Consumer}
+ * in batches of at most {@code batchSize} volumes. The feed can either be a plain array of volumes or
+ * a Books API response object with an {@code items} array.
+ */
+public class BooksJsonStreamParser {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private static final String ITEMS_FIELD = "items";
+
+    /**
+     * Receives the parsed volumes, one batch at a time. Batches are never reused by the parser, so
+     * consumers are free to keep them.
+     */
+    public interface Consumer {
+
+        void onBatch(@NonNull List<BookListItem> bookListItems, @NonNull List<Book> books);
+    }
+
+    private final TypeAdapter<Volume> mVolumeAdapter = BooksGson.get().getAdapter(Volume.class);
+
+    private final int mBatchSize;
+
+    public BooksJsonStreamParser() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    public BooksJsonStreamParser(int batchSize) {
+        checkArgument(batchSize > 0, "batchSize must be positive");
+        mBatchSize = batchSize;
+    }
+
+    /**
+     * Parses the whole feed, closing {@code inputStream} when done.
+     *
+     * @param inputStream the UTF-8 encoded feed
+     * @param consumer    receives the parsed volumes in batches
+     * @return the number of volumes read
+     * @throws IOException if the stream can't be read or is not a valid feed
+     */
+    public int parse(@NonNull InputStream inputStream, @NonNull Consumer consumer)
+            throws IOException {
+        checkNotNull(inputStream);
+        checkNotNull(consumer);
+        JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(inputStream, "UTF-8")));
+        try {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                return parseResponseObject(reader, consumer);
+            }
+            return parseVolumes(reader, consumer);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private int parseResponseObject(JsonReader reader, Consumer consumer) throws IOException {
+        int count = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (ITEMS_FIELD.equals(reader.nextName())) {
+                count += parseVolumes(reader, consumer);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return count;
+    }
+
+    private int parseVolumes(JsonReader reader, Consumer consumer) throws IOException {
+        int count = 0;
+        List<BookListItem> bookListItems = new ArrayList<>(mBatchSize);
+        List<Book> books = new ArrayList<>(mBatchSize);
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Volume volume = mVolumeAdapter.read(reader);
+            if (volume == null) {
+                continue;
+            }
+            bookListItems.add(volume.getBookListItem());
+            books.add(volume.getBook());
+            count++;
+
+            if (bookListItems.size() == mBatchSize) {
+                consumer.onBatch(bookListItems, books);
+                bookListItems = new ArrayList<>(mBatchSize);
+                books = new ArrayList<>(mBatchSize);
+            }
+        }
+        reader.endArray();
+
+        if (!bookListItems.isEmpty()) {
+            consumer.onBatch(bookListItems, books);
+        }
+        return count;
+    }
+}
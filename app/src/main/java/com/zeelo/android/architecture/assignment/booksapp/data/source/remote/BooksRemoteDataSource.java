@@ -3,54 +3,52 @@ package com.zeelo.android.architecture.assignment.booksapp.data.source.remote;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
 import com.google.common.collect.Lists;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import com.zeelo.android.architecture.assignment.booksapp.data.Book;
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksFilterType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksPageKey;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSearchQuery;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSortType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksChangeLog;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksChangesSource;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 
 /**
  * Implementation of a remote data source with static access to the data for easy testing.
  */
-public class BooksRemoteDataSource implements BooksDataSource {
+public class BooksRemoteDataSource implements BooksDataSource, BooksChangesSource {
 
     private static BooksRemoteDataSource INSTANCE;
 
     private static final Map<String, BookListItem> BOOKS_LIST_SERVICE_DATA = new LinkedHashMap<>();
     private static final Map<String, Book> BOOK_SERVICE_DATA = new LinkedHashMap<>();
+    private static final BooksChangeLog CHANGE_LOG = new BooksChangeLog();
 
     public static final String BOOK_DETAILS_API_PATH = "/api/v1/items/";
 
+    private static final String BOOKS_ASSET = "books.json";
+
     // Prevent direct instantiation.
     private BooksRemoteDataSource(Context context) {
-        String booksJson = getJSONString(context, "books.json");
-        Type itemListType = new TypeToken<ArrayList<BookListItem>>(){}.getType();
-        List<BookListItem> bookListItems = new Gson().fromJson(booksJson, itemListType);
-
-        Type bookListType = new TypeToken<ArrayList<Book>>(){}.getType();
-        List<Book> books = new Gson().fromJson(booksJson, bookListType);
-
-        for (BookListItem item : bookListItems) {
-            BOOKS_LIST_SERVICE_DATA.put(item.getId(), item);
-        }
-        for (Book book : books) {
-            BOOK_SERVICE_DATA.put(book.getId(), book);
-        }
+        loadBooks(context, BOOKS_ASSET);
     }
 
-    public static BooksRemoteDataSource getInstance(Context context) {
+    public static synchronized BooksRemoteDataSource getInstance(Context context) {
         if (INSTANCE == null) {
             INSTANCE = new BooksRemoteDataSource(context);
         }
@@ -62,29 +60,152 @@ public class BooksRemoteDataSource implements BooksDataSource {
         callback.onBooksListLoaded(Lists.newArrayList(BOOKS_LIST_SERVICE_DATA.values()));
     }
 
+    @Override
+    public void getChangesSince(long watermark, @NonNull LoadChangesCallback callback) {
+        callback.onChangesLoaded(CHANGE_LOG.changesSince(watermark, BOOKS_LIST_SERVICE_DATA,
+                BOOK_SERVICE_DATA));
+    }
+
+    @Override
+    public void getBooksPage(@NonNull BooksFilterType filter, @Nullable BooksPageKey after,
+                             int pageSize, @NonNull LoadBooksPageCallback callback) {
+        getSortedBooksPage(BooksSortType.TITLE, filter, after, pageSize, callback);
+    }
+
+    @Override
+    public void getSortedBooksPage(@NonNull BooksSortType sortType,
+                                   @NonNull BooksFilterType filter, @Nullable BooksPageKey after,
+                                   int pageSize, @NonNull LoadBooksPageCallback callback) {
+        List<BookListItem> sorted = Lists.newArrayList(BOOKS_LIST_SERVICE_DATA.values());
+        Collections.sort(sorted, BooksPageKey.order(sortType));
+
+        List<BookListItem> page = new ArrayList<>(pageSize);
+        for (BookListItem item : sorted) {
+            if ((after == null || after.isBefore(item)) && filter.accepts(isFavorite(item))) {
+                page.add(item);
+                if (page.size() == pageSize) {
+                    break;
+                }
+            }
+        }
+        callback.onBooksPageLoaded(page,
+                page.size() < pageSize ? null
+                        : BooksPageKey.after(sortType, page.get(page.size() - 1)));
+    }
+
+    @Override
+    public void getBooksByAuthorPage(@NonNull String author, @Nullable BooksPageKey after,
+                                     int pageSize, @NonNull LoadBooksPageCallback callback) {
+        List<BookListItem> sorted = Lists.newArrayList(BOOKS_LIST_SERVICE_DATA.values());
+        Collections.sort(sorted, BooksPageKey.ORDER);
+
+        List<BookListItem> page = new ArrayList<>(pageSize);
+        for (BookListItem item : sorted) {
+            if ((after == null || after.isBefore(item)) && isBy(item, author)) {
+                page.add(item);
+                if (page.size() == pageSize) {
+                    break;
+                }
+            }
+        }
+        callback.onBooksPageLoaded(page,
+                page.size() < pageSize ? null : BooksPageKey.after(page.get(page.size() - 1)));
+    }
+
+    @Override
+    public void findAuthors(@NonNull String prefix, int limit,
+                            @NonNull LoadAuthorsCallback callback) {
+        Set<String> authors = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (BookListItem item : BOOKS_LIST_SERVICE_DATA.values()) {
+            if (item.getVolumeInfo() == null || item.getVolumeInfo().getAuthors() == null) {
+                continue;
+            }
+            for (String author : item.getVolumeInfo().getAuthors()) {
+                if (author != null && !author.isEmpty()
+                        && author.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                    authors.add(author);
+                }
+            }
+        }
+        callback.onAuthorsLoaded(new ArrayList<>(authors).subList(0,
+                Math.min(limit, authors.size())));
+    }
+
+    /**
+     * Scans the service data in memory. Books whose title matches come first; unlike the
+     * database, the remaining matches are not ranked by the number of matching words.
+     */
+    @Override
+    public void searchBooks(@NonNull String query, int offset, int limit,
+                            @NonNull LoadBooksListCallback callback) {
+        BooksSearchQuery searchQuery = BooksSearchQuery.parse(query);
+        List<BookListItem> titleMatches = new ArrayList<>();
+        List<BookListItem> otherMatches = new ArrayList<>();
+        if (!searchQuery.isEmpty()) {
+            for (BookListItem item : BOOKS_LIST_SERVICE_DATA.values()) {
+                if (searchQuery.matches(Collections.singletonList(item.getTitle()))) {
+                    titleMatches.add(item);
+                } else if (searchQuery.matches(searchableText(item))) {
+                    otherMatches.add(item);
+                }
+            }
+        }
+        Collections.sort(titleMatches, BooksPageKey.ORDER);
+        Collections.sort(otherMatches, BooksPageKey.ORDER);
+        titleMatches.addAll(otherMatches);
+
+        int from = Math.min(offset, titleMatches.size());
+        int to = Math.min(from + limit, titleMatches.size());
+        callback.onBooksListLoaded(new ArrayList<>(titleMatches.subList(from, to)));
+    }
+
+    @Override
+    public void getStatistics(@NonNull GetStatisticsCallback callback) {
+        BooksStatistics.Builder statistics = BooksStatistics.newBuilder();
+        for (BookListItem item : BOOKS_LIST_SERVICE_DATA.values()) {
+            statistics.addBook(item, isFavorite(item), 1);
+        }
+        callback.onStatisticsLoaded(statistics.build());
+    }
+
     @Override
     public void getBookDetails(@NonNull String bookId, @NonNull GetBookDetailsCallback callback) {
         Book book = BOOK_SERVICE_DATA.get(bookId);
         callback.onBookDetailsLoaded(book);
     }
 
+    @Override
+    public void getBookDescription(@NonNull String bookId,
+                                   @NonNull GetBookDescriptionCallback callback) {
+        Book book = BOOK_SERVICE_DATA.get(bookId);
+        if (book != null) {
+            callback.onDescriptionLoaded(book.getVolumeInfo() != null
+                    ? book.getVolumeInfo().getDescription() : null);
+        } else {
+            callback.onDataNotAvailable();
+        }
+    }
+
     @Override
     public void saveBook(@NonNull Book book) {
         BOOK_SERVICE_DATA.put(book.getId(), book);
-        BOOKS_LIST_SERVICE_DATA.put(book.getId(), new BookListItem(book.getTitle(), book.getId()));
+        BookListItem item = new BookListItem(book.getTitle(), book.getId());
+        item.setEtag(CHANGE_LOG.recordChange(book.getId()));
+        BOOKS_LIST_SERVICE_DATA.put(book.getId(), item);
     }
 
     @Override
     public void saveBooksListItems(@NonNull List<BookListItem> booksListItems) {
         for (BookListItem bookListItem : booksListItems) {
+            bookListItem.setEtag(CHANGE_LOG.recordChange(bookListItem.getId()));
             BOOKS_LIST_SERVICE_DATA.put(bookListItem.getId(), bookListItem);
         }
     }
 
     @Override
     public void favoriteBook(@NonNull Book book) {
-        Book favoriteBook = new Book(book.getTitle(), book.getVolumeInfo().getDescription(), book.getId(), true);
-        BOOK_SERVICE_DATA.put(book.getId(), favoriteBook);
+        BOOK_SERVICE_DATA.put(book.getId(), withFavorite(book, true));
+        recordChange(book.getId());
     }
 
     @Override
@@ -95,8 +216,8 @@ public class BooksRemoteDataSource implements BooksDataSource {
 
     @Override
     public void unFavoriteBook(@NonNull Book book) {
-        Book notFavoriteBook = new Book(book.getTitle(), book.getId(), book.getVolumeInfo().getDescription(), false);
-        BOOK_SERVICE_DATA.put(book.getId(), notFavoriteBook);
+        BOOK_SERVICE_DATA.put(book.getId(), withFavorite(book, false));
+        recordChange(book.getId());
     }
 
     @Override
@@ -114,10 +235,14 @@ public class BooksRemoteDataSource implements BooksDataSource {
     public void deleteBook(@NonNull String bookId) {
         BOOK_SERVICE_DATA.remove(bookId);
         BOOKS_LIST_SERVICE_DATA.remove(bookId);
+        CHANGE_LOG.recordChange(bookId);
     }
 
     @Override
     public void deleteAllBooks() {
+        for (String bookId : BOOKS_LIST_SERVICE_DATA.keySet()) {
+            CHANGE_LOG.recordChange(bookId);
+        }
         BOOK_SERVICE_DATA.clear();
         BOOKS_LIST_SERVICE_DATA.clear();
     }
@@ -127,25 +252,91 @@ public class BooksRemoteDataSource implements BooksDataSource {
         if (books != null) {
             for (Book book : books) {
                 BOOK_SERVICE_DATA.put(book.getId(), book);
-                BOOKS_LIST_SERVICE_DATA.put(book.getId(), new BookListItem(book.getTitle(), book.getId(), BOOK_DETAILS_API_PATH + book.getId()));
+                BookListItem item = new BookListItem(book.getTitle(), book.getId(), BOOK_DETAILS_API_PATH + book.getId());
+                item.setEtag(CHANGE_LOG.recordChange(book.getId()));
+                BOOKS_LIST_SERVICE_DATA.put(book.getId(), item);
             }
         }
     }
 
-    public String getJSONString(Context context, String fileName) {
-        String json = null;
-        try {
-            InputStream inputStream = context.getAssets().open(fileName);
-            int size = inputStream.available();
-            byte[] buffer = new byte[size];
-            inputStream.read(buffer);
-            inputStream.close();
-            json = new String(buffer, "UTF-8");
+    /**
+     * Gives the list item of a book a new etag, so the change shows up in the next delta.
+     */
+    private static void recordChange(String bookId) {
+        String etag = CHANGE_LOG.recordChange(bookId);
+        BookListItem item = BOOKS_LIST_SERVICE_DATA.get(bookId);
+        if (item != null) {
+            item.setEtag(etag);
+        }
+    }
 
+    /**
+     * Books loaded from the database come without their description, so the one stored here is
+     * kept.
+     */
+    private static Book withFavorite(Book book, boolean favorite) {
+        Book stored = BOOK_SERVICE_DATA.get(book.getId());
+        Book described = stored != null && stored.getVolumeInfo() != null ? stored : book;
+        return new Book(book.getTitle(), book.getId(),
+                described.getVolumeInfo().getDescription(), favorite);
+    }
+
+    private static boolean isFavorite(BookListItem item) {
+        Book book = BOOK_SERVICE_DATA.get(item.getId());
+        return book != null && book.isFavorite();
+    }
+
+    private static boolean isBy(BookListItem item, String author) {
+        if (item.getVolumeInfo() == null || item.getVolumeInfo().getAuthors() == null) {
+            return false;
+        }
+        for (String name : item.getVolumeInfo().getAuthors()) {
+            if (author.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> searchableText(BookListItem item) {
+        List<String> text = new ArrayList<>();
+        text.add(item.getTitle());
+        if (item.getVolumeInfo() != null && item.getVolumeInfo().getAuthors() != null) {
+            text.addAll(item.getVolumeInfo().getAuthors());
+        }
+        Book book = BOOK_SERVICE_DATA.get(item.getId());
+        if (book != null && book.getVolumeInfo() != null) {
+            text.add(book.getVolumeInfo().getDescription());
+        }
+        return text;
+    }
+
+    /**
+     * Streams the volumes of {@code fileName} into the service data, one batch at a time, so the
+     * asset is never held in memory as a whole.
+     */
+    private void loadBooks(Context context, String fileName) {
+        try {
+            new BooksJsonStreamParser().parse(context.getAssets().open(fileName),
+                    new BooksJsonStreamParser.Consumer() {
+                        @Override
+                        public void onBatch(@NonNull List<BookListItem> bookListItems,
+                                            @NonNull List<Book> books) {
+                            for (BookListItem item : bookListItems) {
+                                // Keep the etags of the feed, they only change from here on.
+                                String etag = CHANGE_LOG.recordChange(item.getId());
+                                if (item.getEtag() == null) {
+                                    item.setEtag(etag);
+                                }
+                                BOOKS_LIST_SERVICE_DATA.put(item.getId(), item);
+                            }
+                            for (Book book : books) {
+                                BOOK_SERVICE_DATA.put(book.getId(), book);
+                            }
+                        }
+                    });
         } catch (IOException e) {
             e.printStackTrace();
         }
-
-        return json;
     }
 }
@@ -0,0 +1,35 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.remote;
+
+import android.support.annotation.NonNull;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A volume of the books.json feed, read once into both the models the app keeps of it.
+ */
+public final class Volume {
+
+    @NonNull
+    private final BookListItem mBookListItem;
+
+    @NonNull
+    private final Book mBook;
+
+    public Volume(@NonNull BookListItem bookListItem, @NonNull Book book) {
+        mBookListItem = checkNotNull(bookListItem);
+        mBook = checkNotNull(book);
+    }
+
+    @NonNull
+    public BookListItem getBookListItem() {
+        return mBookListItem;
+    }
+
+    @NonNull
+    public Book getBook() {
+        return mBook;
+    }
+}
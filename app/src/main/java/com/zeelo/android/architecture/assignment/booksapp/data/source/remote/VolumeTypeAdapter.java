@@ -0,0 +1,349 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.remote;
+
+import android.support.annotation.Nullable;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a books.json volume into a {@link Volume}, without reflection.
+ * <p>
+ * The fields of both models are read in a single pass, and every other field of the volume is
+ * skipped without being parsed. Fields are read as Gson reads them by reflection: missing fields
+ * are left null, or false, and numbers or booleans found where a string is expected are read as
+ * strings.
+ */
+final class VolumeTypeAdapter extends TypeAdapter<Volume> {
+
+    /**
+     * Reads the {@link BookListItem} of a volume.
+     */
+    static final TypeAdapter<BookListItem> BOOK_LIST_ITEM = new TypeAdapter<BookListItem>() {
+        @Override
+        public void write(JsonWriter out, BookListItem item) throws IOException {
+            writeVolume(out, item, null);
+        }
+
+        @Override
+        public BookListItem read(JsonReader in) throws IOException {
+            Volume volume = VOLUME.read(in);
+            return volume != null ? volume.getBookListItem() : null;
+        }
+    };
+
+    /**
+     * Reads the {@link Book} of a volume.
+     */
+    static final TypeAdapter<Book> BOOK = new TypeAdapter<Book>() {
+        @Override
+        public void write(JsonWriter out, Book book) throws IOException {
+            writeVolume(out, null, book);
+        }
+
+        @Override
+        public Book read(JsonReader in) throws IOException {
+            Volume volume = VOLUME.read(in);
+            return volume != null ? volume.getBook() : null;
+        }
+    };
+
+    /**
+     * Reads lists of strings, like the authors of a book.
+     */
+    static final TypeAdapter<ArrayList<String>> STRING_LIST = new TypeAdapter<ArrayList<String>>() {
+        @Override
+        public void write(JsonWriter out, ArrayList<String> list) throws IOException {
+            writeStrings(out, list);
+        }
+
+        @Override
+        public ArrayList<String> read(JsonReader in) throws IOException {
+            return readStrings(in);
+        }
+    };
+
+    private static final VolumeTypeAdapter VOLUME = new VolumeTypeAdapter();
+
+    static VolumeTypeAdapter get() {
+        return VOLUME;
+    }
+
+    private VolumeTypeAdapter() {
+    }
+
+    @Override
+    public void write(JsonWriter out, Volume volume) throws IOException {
+        if (volume == null) {
+            out.nullValue();
+            return;
+        }
+        writeVolume(out, volume.getBookListItem(), volume.getBook());
+    }
+
+    @Override
+    public Volume read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        BookListItem item = new BookListItem();
+        Book book = new Book();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    String id = readString(in);
+                    item.setId(id);
+                    book.setId(id);
+                    break;
+                case "etag":
+                    item.setEtag(readString(in));
+                    break;
+                case "link":
+                    item.setLink(readString(in));
+                    break;
+                case "favorite":
+                    item.setFavorite(readBoolean(in, item.isFavorite()));
+                    break;
+                case "mFavorite":
+                    book.setFavorite(readBoolean(in, book.isFavorite()));
+                    break;
+                case "volumeInfo":
+                    readVolumeInfo(in, item, book);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return new Volume(item, book);
+    }
+
+    private static void readVolumeInfo(JsonReader in, BookListItem item, Book book)
+            throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            item.setVolumeInfo(null);
+            book.setVolumeInfo(null);
+            return;
+        }
+        String title = null;
+        ArrayList<String> authors = null;
+        String description = null;
+        String language = null;
+        ArrayList<String> categories = null;
+        String publishedDate = null;
+        Integer pageCount = null;
+        boolean hasImageLinks = false;
+        String thumbnail = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "title":
+                    title = readString(in);
+                    break;
+                case "authors":
+                    authors = readStrings(in);
+                    break;
+                case "description":
+                    description = readString(in);
+                    break;
+                case "language":
+                    language = readString(in);
+                    break;
+                case "categories":
+                    categories = readStrings(in);
+                    break;
+                case "publishedDate":
+                    publishedDate = readString(in);
+                    break;
+                case "pageCount":
+                    pageCount = readInteger(in);
+                    break;
+                case "imageLinks":
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        hasImageLinks = false;
+                    } else {
+                        hasImageLinks = true;
+                        thumbnail = readThumbnail(in);
+                    }
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        BookListItem.VolumeInfo itemInfo = new BookListItem.VolumeInfo(title, authors);
+        itemInfo.setLanguage(language);
+        itemInfo.setCategories(categories);
+        itemInfo.setPublishedDate(publishedDate);
+        itemInfo.setPageCount(pageCount);
+        // Each model gets its own authors, as they would reading the volume twice.
+        Book.VolumeInfo bookInfo = new Book.VolumeInfo(title,
+                authors != null ? new ArrayList<>(authors) : null);
+        bookInfo.setDescription(description);
+        if (hasImageLinks) {
+            BookListItem.VolumeInfo.ImageLinks itemImageLinks =
+                    new BookListItem.VolumeInfo.ImageLinks();
+            itemImageLinks.setThumbnail(thumbnail);
+            itemInfo.setImageLinks(itemImageLinks);
+            Book.VolumeInfo.ImageLinks bookImageLinks = new Book.VolumeInfo.ImageLinks();
+            bookImageLinks.setThumbnail(thumbnail);
+            bookInfo.setImageLinks(bookImageLinks);
+        }
+        item.setVolumeInfo(itemInfo);
+        book.setVolumeInfo(bookInfo);
+    }
+
+    @Nullable
+    private static String readThumbnail(JsonReader in) throws IOException {
+        String thumbnail = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("thumbnail".equals(in.nextName())) {
+                thumbnail = readString(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return thumbnail;
+    }
+
+    @Nullable
+    private static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    @Nullable
+    private static ArrayList<String> readStrings(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ArrayList<String> strings = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            strings.add(readString(in));
+        }
+        in.endArray();
+        return strings;
+    }
+
+    @Nullable
+    private static Integer readInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        // Numbers found as strings are read too.
+        return in.nextInt();
+    }
+
+    /**
+     * @param current the value kept if the field is null
+     */
+    private static boolean readBoolean(JsonReader in, boolean current) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * Writes the fields read back by {@link #read(JsonReader)}, taken from whichever models are
+     * given.
+     */
+    private static void writeVolume(JsonWriter out, @Nullable BookListItem item,
+                                    @Nullable Book book) throws IOException {
+        if (item == null && book == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(item != null ? item.getId() : book.getId());
+        if (item != null) {
+            out.name("etag").value(item.getEtag());
+            out.name("link").value(item.getLink());
+            out.name("favorite").value(item.isFavorite());
+        }
+        if (book != null) {
+            out.name("mFavorite").value(book.isFavorite());
+        }
+        BookListItem.VolumeInfo itemInfo = item != null ? item.getVolumeInfo() : null;
+        Book.VolumeInfo bookInfo = book != null ? book.getVolumeInfo() : null;
+        if (itemInfo != null || bookInfo != null) {
+            out.name("volumeInfo");
+            out.beginObject();
+            out.name("title").value(itemInfo != null ? itemInfo.getTitle() : bookInfo.getTitle());
+            out.name("authors");
+            writeStrings(out, itemInfo != null ? itemInfo.getAuthors() : bookInfo.getAuthors());
+            if (bookInfo != null) {
+                out.name("description").value(bookInfo.getDescription());
+            }
+            if (itemInfo != null) {
+                out.name("language").value(itemInfo.getLanguage());
+                out.name("categories");
+                writeStrings(out, itemInfo.getCategories());
+                out.name("publishedDate").value(itemInfo.getPublishedDate());
+                out.name("pageCount").value(itemInfo.getPageCount());
+            }
+            String thumbnail = null;
+            boolean hasImageLinks = false;
+            if (itemInfo != null && itemInfo.getImageLinks() != null) {
+                hasImageLinks = true;
+                thumbnail = itemInfo.getImageLinks().getThumbnail();
+            } else if (bookInfo != null && bookInfo.getImageLinks() != null) {
+                hasImageLinks = true;
+                thumbnail = bookInfo.getImageLinks().getThumbnail();
+            }
+            if (hasImageLinks) {
+                out.name("imageLinks");
+                out.beginObject();
+                out.name("thumbnail").value(thumbnail);
+                out.endObject();
+            }
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    private static void writeStrings(JsonWriter out, @Nullable List<String> strings)
+            throws IOException {
+        if (strings == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (String string : strings) {
+            out.value(string);
+        }
+        out.endArray();
+    }
+}
@@ -0,0 +1,222 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.statistics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable counts of the books of the list: how many are favorite, and how many there are by
+ * author, by language and by category. A book with several authors or categories counts once
+ * for each of them.
+ */
+public final class BooksStatistics {
+
+    private static final BooksStatistics EMPTY = newBuilder().build();
+
+    private static final Comparator<Map.Entry<String, Integer>> MOST_COMMON_FIRST =
+            new Comparator<Map.Entry<String, Integer>>() {
+                @Override
+                public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+                    int byCount = b.getValue().compareTo(a.getValue());
+                    return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+                }
+            };
+
+    private final int mFavoriteBooks;
+
+    private final int mNotFavoriteBooks;
+
+    private final Map<String, Integer> mBooksByAuthor;
+
+    private final Map<String, Integer> mBooksByLanguage;
+
+    private final Map<String, Integer> mBooksByCategory;
+
+    private BooksStatistics(int favoriteBooks, int notFavoriteBooks,
+                            Map<String, Integer> booksByAuthor,
+                            Map<String, Integer> booksByLanguage,
+                            Map<String, Integer> booksByCategory) {
+        mFavoriteBooks = favoriteBooks;
+        mNotFavoriteBooks = notFavoriteBooks;
+        mBooksByAuthor = Collections.unmodifiableMap(booksByAuthor);
+        mBooksByLanguage = Collections.unmodifiableMap(booksByLanguage);
+        mBooksByCategory = Collections.unmodifiableMap(booksByCategory);
+    }
+
+    @NonNull
+    public static BooksStatistics empty() {
+        return EMPTY;
+    }
+
+    @NonNull
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public int getFavoriteBooks() {
+        return mFavoriteBooks;
+    }
+
+    public int getNotFavoriteBooks() {
+        return mNotFavoriteBooks;
+    }
+
+    public int getTotalBooks() {
+        return mFavoriteBooks + mNotFavoriteBooks;
+    }
+
+    public boolean isEmpty() {
+        return getTotalBooks() == 0;
+    }
+
+    @NonNull
+    public Map<String, Integer> getBooksByAuthor() {
+        return mBooksByAuthor;
+    }
+
+    @NonNull
+    public Map<String, Integer> getBooksByLanguage() {
+        return mBooksByLanguage;
+    }
+
+    @NonNull
+    public Map<String, Integer> getBooksByCategory() {
+        return mBooksByCategory;
+    }
+
+    /**
+     * @return the {@code limit} entries of {@code counts} with the most books, most books first
+     * and ties in alphabetical order.
+     */
+    @NonNull
+    public static List<Map.Entry<String, Integer>> mostCommon(
+            @NonNull Map<String, Integer> counts, int limit) {
+        checkNotNull(counts);
+        checkArgument(limit >= 0, "limit can't be negative");
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        Collections.sort(entries, MOST_COMMON_FIRST);
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    /**
+     * Sums counts into statistics. Counts can be negative, to take books away again; a value
+     * whose count drops to zero is left out.
+     */
+    public static final class Builder {
+
+        private int mFavoriteBooks;
+
+        private int mNotFavoriteBooks;
+
+        private final Map<String, Integer> mBooksByAuthor = new HashMap<>();
+
+        private final Map<String, Integer> mBooksByLanguage = new HashMap<>();
+
+        private final Map<String, Integer> mBooksByCategory = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Counts {@code count} books with the authors, language and categories of {@code item}.
+         */
+        @NonNull
+        public Builder addBook(@NonNull BookListItem item, boolean favorite, int count) {
+            BookListItem.VolumeInfo volumeInfo = item.getVolumeInfo();
+            addBooks(favorite, count);
+            if (volumeInfo != null) {
+                addAuthors(volumeInfo.getAuthors(), count);
+                addLanguage(volumeInfo.getLanguage(), count);
+                addCategories(volumeInfo.getCategories(), count);
+            }
+            return this;
+        }
+
+        @NonNull
+        public Builder addBooks(boolean favorite, int count) {
+            if (favorite) {
+                mFavoriteBooks += count;
+            } else {
+                mNotFavoriteBooks += count;
+            }
+            return this;
+        }
+
+        /**
+         * Counts {@code count} books written by each of {@code authors}.
+         */
+        @NonNull
+        public Builder addAuthors(@Nullable List<String> authors, int count) {
+            addAll(mBooksByAuthor, authors, count);
+            return this;
+        }
+
+        @NonNull
+        public Builder addLanguage(@Nullable String language, int count) {
+            add(mBooksByLanguage, language, count);
+            return this;
+        }
+
+        /**
+         * Counts {@code count} books in each of {@code categories}.
+         */
+        @NonNull
+        public Builder addCategories(@Nullable List<String> categories, int count) {
+            addAll(mBooksByCategory, categories, count);
+            return this;
+        }
+
+        /**
+         * Counts books that used to be favorite as not favorite, or the other way around.
+         */
+        @NonNull
+        public Builder moveBooks(boolean fromFavorite, int count) {
+            addBooks(fromFavorite, -count);
+            addBooks(!fromFavorite, count);
+            return this;
+        }
+
+        @NonNull
+        public BooksStatistics build() {
+            return new BooksStatistics(mFavoriteBooks, mNotFavoriteBooks,
+                    new HashMap<>(mBooksByAuthor), new HashMap<>(mBooksByLanguage),
+                    new HashMap<>(mBooksByCategory));
+        }
+
+        private static void addAll(Map<String, Integer> counts, @Nullable List<String> values,
+                                   int count) {
+            if (values == null) {
+                return;
+            }
+            // A book counts once for a value it lists twice.
+            for (String value : new LinkedHashSet<>(values)) {
+                add(counts, value, count);
+            }
+        }
+
+        private static void add(Map<String, Integer> counts, @Nullable String value, int count) {
+            if (value == null || value.isEmpty() || count == 0) {
+                return;
+            }
+            Integer current = counts.get(value);
+            int sum = (current != null ? current : 0) + count;
+            if (sum == 0) {
+                counts.remove(value);
+            } else {
+                counts.put(value, sum);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.statistics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Running {@link BooksStatistics} of the books list, updated one book at a time as the books
+ * change so they never have to be counted again.
+ * <p>
+ * Taking a snapshot copies the counts, so the snapshot is kept until the counts change again.
+ * This class is thread safe.
+ */
+public class BooksStatisticsCounter {
+
+    private final BooksStatistics.Builder mCounts = BooksStatistics.newBuilder();
+
+    @Nullable
+    private BooksStatistics mSnapshot;
+
+    /**
+     * Creates a counter without any books.
+     */
+    public BooksStatisticsCounter() {
+    }
+
+    /**
+     * Creates a counter starting from {@code statistics}.
+     */
+    public BooksStatisticsCounter(@NonNull BooksStatistics statistics) {
+        checkNotNull(statistics);
+        mCounts.addBooks(true, statistics.getFavoriteBooks());
+        mCounts.addBooks(false, statistics.getNotFavoriteBooks());
+        for (Map.Entry<String, Integer> author : statistics.getBooksByAuthor().entrySet()) {
+            mCounts.addAuthors(Collections.singletonList(author.getKey()),
+                    author.getValue());
+        }
+        for (Map.Entry<String, Integer> language : statistics.getBooksByLanguage().entrySet()) {
+            mCounts.addLanguage(language.getKey(), language.getValue());
+        }
+        for (Map.Entry<String, Integer> category : statistics.getBooksByCategory().entrySet()) {
+            mCounts.addCategories(Collections.singletonList(category.getKey()),
+                    category.getValue());
+        }
+        mSnapshot = statistics;
+    }
+
+    /**
+     * Creates a counter of {@code items}.
+     */
+    @NonNull
+    public static BooksStatisticsCounter of(@NonNull Iterable<BookListItem> items) {
+        checkNotNull(items);
+        BooksStatisticsCounter counter = new BooksStatisticsCounter();
+        for (BookListItem item : items) {
+            counter.mCounts.addBook(item, item.isFavorite(), 1);
+        }
+        return counter;
+    }
+
+    public synchronized void add(@NonNull BookListItem item) {
+        mCounts.addBook(checkNotNull(item), item.isFavorite(), 1);
+        mSnapshot = null;
+    }
+
+    public synchronized void remove(@NonNull BookListItem item) {
+        mCounts.addBook(checkNotNull(item), item.isFavorite(), -1);
+        mSnapshot = null;
+    }
+
+    /**
+     * Counts a book that was {@code wasFavorite} as {@code favorite}. Nothing changes if they are
+     * the same.
+     */
+    public synchronized void setFavorite(boolean wasFavorite, boolean favorite) {
+        if (wasFavorite != favorite) {
+            mCounts.moveBooks(wasFavorite, 1);
+            mSnapshot = null;
+        }
+    }
+
+    @NonNull
+    public synchronized BooksStatistics snapshot() {
+        if (mSnapshot == null) {
+            mSnapshot = mCounts.build();
+        }
+        return mSnapshot;
+    }
+}
@@ -0,0 +1,66 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.sync;
+
+import android.support.annotation.NonNull;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Server side record of which book changed last at which version, used by the in-memory data
+ * sources to answer {@link BooksChangesSource#getChangesSince(long, BooksChangesSource.LoadChangesCallback)}.
+ * <p>
+ * Every change gets the next version. Only the latest change of each book is kept, so a delta
+ * costs the number of books changed since its watermark, not the number of changes.
+ */
+public class BooksChangeLog {
+
+    private final NavigableMap<Long, String> mIdsByVersion = new TreeMap<>();
+
+    private final Map<String, Long> mVersionsById = new HashMap<>();
+
+    private long mVersion;
+
+    /**
+     * Records that the book with {@code id} was added, changed or deleted.
+     *
+     * @return a new etag for the book
+     */
+    @NonNull
+    public synchronized String recordChange(@NonNull String id) {
+        checkNotNull(id);
+        Long previous = mVersionsById.put(id, ++mVersion);
+        if (previous != null) {
+            mIdsByVersion.remove(previous);
+        }
+        mIdsByVersion.put(mVersion, id);
+        return Long.toHexString(mVersion);
+    }
+
+    /**
+     * @param items the books currently on the server; changed books missing from it were deleted
+     * @param books the details of the books currently on the server
+     * @return the latest change of every book changed after {@code watermark}
+     */
+    @NonNull
+    public synchronized BooksDelta changesSince(long watermark,
+                                                @NonNull Map<String, BookListItem> items,
+                                                @NonNull Map<String, Book> books) {
+        BooksDelta.Builder delta = BooksDelta.newBuilder(mVersion);
+        for (String id : mIdsByVersion.tailMap(watermark, false).values()) {
+            BookListItem item = items.get(id);
+            if (item != null) {
+                delta.upsert(item, books.get(id));
+            } else {
+                delta.delete(id);
+            }
+        }
+        return delta.build();
+    }
+}
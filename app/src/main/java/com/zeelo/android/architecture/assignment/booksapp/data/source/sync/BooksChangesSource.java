@@ -0,0 +1,24 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.sync;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A server that can tell which books changed since a previous sync.
+ */
+public interface BooksChangesSource {
+
+    interface LoadChangesCallback {
+
+        void onChangesLoaded(@NonNull BooksDelta delta);
+
+        void onDataNotAvailable();
+    }
+
+    /**
+     * Loads the books added, changed or deleted after {@code watermark}. A book that changed
+     * several times is only sent once, in its latest version.
+     *
+     * @param watermark the watermark of the previous delta, or 0 to get every book
+     */
+    void getChangesSince(long watermark, @NonNull LoadChangesCallback callback);
+}
@@ -0,0 +1,132 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.sync;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable set of changes to the books, up to a watermark: the books that were added or changed
+ * and the ids of the books that were deleted.
+ */
+public final class BooksDelta {
+
+    private final Map<String, BookListItem> mUpserts;
+
+    private final Map<String, Book> mBooks;
+
+    private final List<String> mDeletedIds;
+
+    private final long mWatermark;
+
+    private BooksDelta(Builder builder) {
+        mUpserts = Collections.unmodifiableMap(new LinkedHashMap<>(builder.mUpserts));
+        mBooks = Collections.unmodifiableMap(new LinkedHashMap<>(builder.mBooks));
+        mDeletedIds = Collections.unmodifiableList(new ArrayList<>(builder.mDeletedIds.keySet()));
+        mWatermark = builder.mWatermark;
+    }
+
+    @NonNull
+    public static Builder newBuilder(long watermark) {
+        return new Builder(watermark);
+    }
+
+    /**
+     * @return the books that were added or changed, each with its etag.
+     */
+    @NonNull
+    public List<BookListItem> getUpserts() {
+        return new ArrayList<>(mUpserts.values());
+    }
+
+    /**
+     * @return the details of an upserted book, or null if they weren't sent with it.
+     */
+    @Nullable
+    public Book getBook(@NonNull String id) {
+        return mBooks.get(checkNotNull(id));
+    }
+
+    @NonNull
+    public List<String> getDeletedIds() {
+        return mDeletedIds;
+    }
+
+    /**
+     * @return the watermark to ask for the following changes with.
+     */
+    public long getWatermark() {
+        return mWatermark;
+    }
+
+    public boolean isEmpty() {
+        return mUpserts.isEmpty() && mDeletedIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BooksDelta with " + mUpserts.size() + " upserts and " + mDeletedIds.size()
+                + " deletes up to " + mWatermark;
+    }
+
+    public static final class Builder {
+
+        private final Map<String, BookListItem> mUpserts = new LinkedHashMap<>();
+
+        private final Map<String, Book> mBooks = new LinkedHashMap<>();
+
+        // Used as an ordered set.
+        private final Map<String, Boolean> mDeletedIds = new LinkedHashMap<>();
+
+        private final long mWatermark;
+
+        private Builder(long watermark) {
+            checkArgument(watermark >= 0, "watermark can't be negative");
+            mWatermark = watermark;
+        }
+
+        /**
+         * Adds or replaces a book. A later delete of the same id wins, and vice versa.
+         *
+         * @param book the details of the book, if they are sent along
+         */
+        @NonNull
+        public Builder upsert(@NonNull BookListItem item, @Nullable Book book) {
+            checkNotNull(item);
+            checkArgument(book == null || book.getId().equals(item.getId()),
+                    "book and item must have the same id");
+            mDeletedIds.remove(item.getId());
+            mUpserts.put(item.getId(), item);
+            if (book != null) {
+                mBooks.put(book.getId(), book);
+            } else {
+                mBooks.remove(item.getId());
+            }
+            return this;
+        }
+
+        @NonNull
+        public Builder delete(@NonNull String id) {
+            checkNotNull(id);
+            mUpserts.remove(id);
+            mBooks.remove(id);
+            mDeletedIds.put(id, Boolean.TRUE);
+            return this;
+        }
+
+        @NonNull
+        public BooksDelta build() {
+            return new BooksDelta(this);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.sync;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A copy of the books that can be brought up to date with a {@link BooksDelta}.
+ */
+public interface BooksDeltaStore {
+
+    interface ApplyDeltaCallback {
+
+        /**
+         * @param applied the part of the delta that changed the store: the upserts of books whose
+         *                stored etag differed, and the deletes
+         */
+        void onDeltaApplied(@NonNull BooksDelta applied);
+
+        void onDeltaFailed();
+    }
+
+    /**
+     * Applies every change of {@code delta} at once, skipping the books which already have the
+     * etag of their upsert.
+     */
+    void applyDelta(@NonNull BooksDelta delta, @NonNull ApplyDeltaCallback callback);
+}
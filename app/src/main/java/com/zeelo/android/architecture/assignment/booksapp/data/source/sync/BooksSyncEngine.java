@@ -0,0 +1,137 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.sync;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Brings the local books up to date with the server by applying only what changed since the last
+ * sync.
+ * <p>
+ * The watermark only moves forward once a delta has been applied, so a sync that fails half way
+ * is simply retried from the same point. Applying a delta twice is harmless: upserts whose etag is
+ * already stored are skipped and deleting a missing book does nothing.
+ * <p>
+ * The watermark is read on the sync executor, since reading it may load the file it is kept in,
+ * and the changes are requested from there. The callbacks are called on the main thread.
+ */
+public class BooksSyncEngine {
+
+    public interface SyncCallback {
+
+        /**
+         * @param applied the changes that were actually applied to the local books, which may be
+         *                empty
+         */
+        void onSynced(@NonNull BooksDelta applied);
+
+        void onSyncFailed();
+    }
+
+    private final BooksChangesSource mChangesSource;
+
+    private final BooksDeltaStore mDeltaStore;
+
+    private final SyncStateStore mSyncStateStore;
+
+    private final Executor mSyncExecutor;
+
+    private final Executor mMainThread;
+
+    /**
+     * The callbacks of the sync in progress, or null if there isn't one. Guarded by {@code this}.
+     */
+    private List<SyncCallback> mPendingCallbacks;
+
+    public BooksSyncEngine(@NonNull BooksChangesSource changesSource,
+                           @NonNull BooksDeltaStore deltaStore,
+                           @NonNull SyncStateStore syncStateStore,
+                           @NonNull Executor syncExecutor,
+                           @NonNull Executor mainThread) {
+        mChangesSource = checkNotNull(changesSource);
+        mDeltaStore = checkNotNull(deltaStore);
+        mSyncStateStore = checkNotNull(syncStateStore);
+        mSyncExecutor = checkNotNull(syncExecutor);
+        mMainThread = checkNotNull(mainThread);
+    }
+
+    /**
+     * Fetches the changes since the last sync and applies them. Calling this while a sync is in
+     * progress doesn't start another one; {@code callback} is told about the running one instead.
+     */
+    public void sync(@NonNull SyncCallback callback) {
+        checkNotNull(callback);
+        synchronized (this) {
+            if (mPendingCallbacks != null) {
+                mPendingCallbacks.add(callback);
+                return;
+            }
+            mPendingCallbacks = new ArrayList<>();
+            mPendingCallbacks.add(callback);
+        }
+
+        mSyncExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                getChangesSince(mSyncStateStore.getWatermark());
+            }
+        });
+    }
+
+    private void getChangesSince(long watermark) {
+        mChangesSource.getChangesSince(watermark, new BooksChangesSource.LoadChangesCallback() {
+            @Override
+            public void onChangesLoaded(@NonNull final BooksDelta delta) {
+                mMainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        applyDelta(delta);
+                    }
+                });
+            }
+
+            @Override
+            public void onDataNotAvailable() {
+                mMainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        notifySyncFailed();
+                    }
+                });
+            }
+        });
+    }
+
+    private void applyDelta(@NonNull final BooksDelta delta) {
+        mDeltaStore.applyDelta(delta, new BooksDeltaStore.ApplyDeltaCallback() {
+            @Override
+            public void onDeltaApplied(@NonNull BooksDelta applied) {
+                mSyncStateStore.setWatermark(delta.getWatermark());
+                for (SyncCallback pending : takePendingCallbacks()) {
+                    pending.onSynced(applied);
+                }
+            }
+
+            @Override
+            public void onDeltaFailed() {
+                notifySyncFailed();
+            }
+        });
+    }
+
+    private void notifySyncFailed() {
+        for (SyncCallback pending : takePendingCallbacks()) {
+            pending.onSyncFailed();
+        }
+    }
+
+    private synchronized List<SyncCallback> takePendingCallbacks() {
+        List<SyncCallback> callbacks = mPendingCallbacks;
+        mPendingCallbacks = null;
+        return callbacks;
+    }
+}
@@ -0,0 +1,44 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps the sync state in its own shared preferences file, which is only opened once the state is
+ * first read or written.
+ */
+public class SharedPreferencesSyncStateStore implements SyncStateStore {
+
+    private static final String PREFERENCES_NAME = "books_sync";
+
+    private static final String KEY_WATERMARK = "watermark";
+
+    private final Context mContext;
+
+    private SharedPreferences mPreferences;
+
+    public SharedPreferencesSyncStateStore(@NonNull Context context) {
+        mContext = checkNotNull(context);
+    }
+
+    @Override
+    public long getWatermark() {
+        return preferences().getLong(KEY_WATERMARK, 0);
+    }
+
+    @Override
+    public void setWatermark(long watermark) {
+        preferences().edit().putLong(KEY_WATERMARK, watermark).apply();
+    }
+
+    private synchronized SharedPreferences preferences() {
+        if (mPreferences == null) {
+            mPreferences = mContext.getApplicationContext()
+                    .getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        }
+        return mPreferences;
+    }
+}
@@ -0,0 +1,14 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.sync;
+
+/**
+ * Remembers how far the books have been synced.
+ */
+public interface SyncStateStore {
+
+    /**
+     * @return the watermark of the last delta applied, or 0 if nothing was synced yet.
+     */
+    long getWatermark();
+
+    void setWatermark(long watermark);
+}
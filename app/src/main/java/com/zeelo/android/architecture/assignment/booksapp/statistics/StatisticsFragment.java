@@ -1,6 +1,7 @@
 
 package com.zeelo.android.architecture.assignment.booksapp.statistics;
 
+import android.arch.lifecycle.Observer;
 import android.databinding.DataBindingUtil;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
@@ -10,6 +11,7 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.zeelo.android.architecture.assignment.booksapp.R;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
 import com.zeelo.android.architecture.assignment.booksapp.databinding.StatisticsFragBinding;
 
 /**
@@ -39,6 +41,12 @@ public class StatisticsFragment extends Fragment {
         super.onActivityCreated(savedInstanceState);
         mStatisticsViewModel = StatisticsActivity.obtainViewModel(getActivity());
         mViewDataBinding.setStats(mStatisticsViewModel);
+        mStatisticsViewModel.getStoredStatistics().observe(this, new Observer<BooksStatistics>() {
+            @Override
+            public void onChanged(@Nullable BooksStatistics statistics) {
+                mStatisticsViewModel.onStoredStatisticsChanged(statistics);
+            }
+        });
     }
 
     @Override
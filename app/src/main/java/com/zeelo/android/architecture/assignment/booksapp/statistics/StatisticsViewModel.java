@@ -3,17 +3,19 @@ package com.zeelo.android.architecture.assignment.booksapp.statistics;
 
 import android.app.Application;
 import android.arch.lifecycle.AndroidViewModel;
+import android.arch.lifecycle.LiveData;
 import android.content.Context;
 import android.databinding.Bindable;
 import android.databinding.ObservableBoolean;
 import android.databinding.ObservableField;
 
 import com.zeelo.android.architecture.assignment.booksapp.R;
-import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksRepository;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Exposes the data to be used in the statistics screen.
@@ -33,76 +35,106 @@ public class StatisticsViewModel extends AndroidViewModel {
 
     public final ObservableField<String> numberOfFavoriteBooks = new ObservableField<>();
 
+    public final ObservableField<String> topAuthors = new ObservableField<>();
+
+    public final ObservableField<String> languages = new ObservableField<>();
+
+    public final ObservableField<String> topCategories = new ObservableField<>();
+
     /**
      * Controls whether the stats are shown or a "No data" message.
      */
     public final ObservableBoolean empty = new ObservableBoolean();
 
-    private int mNumberOfNotFavoriteBooks = 0;
+    /**
+     * The number of authors, languages and categories listed, the most common first.
+     */
+    private static final int MOST_COMMON_LIMIT = 3;
 
-    private int mNumberOfFavoriteBooks = 0;
+    private BooksStatistics mStatistics = BooksStatistics.empty();
 
     private final Context mContext;
 
     private final BooksRepository mBooksRepository;
 
+    private boolean mStarted;
+
     public StatisticsViewModel(Application context, BooksRepository booksRepository) {
         super(context);
         mContext = context;
         mBooksRepository = booksRepository;
     }
 
+    /**
+     * Loads the statistics the first time only. After that, they are updated as the stored books
+     * change, through {@link #onStoredStatisticsChanged(BooksStatistics)}.
+     */
     public void start() {
-        loadStatistics();
+        if (!mStarted) {
+            mStarted = true;
+            loadStatistics();
+        }
+    }
+
+    LiveData<BooksStatistics> getStoredStatistics() {
+        return mBooksRepository.observeStatistics();
+    }
+
+    void onStoredStatisticsChanged(BooksStatistics statistics) {
+        error.set(false);
+        mStatistics = statistics;
+        updateDataBindingObservables();
     }
 
     public void loadStatistics() {
         dataLoading.set(true);
 
-        mBooksRepository.getBooks(new BooksDataSource.LoadBooksListCallback() {
+        mBooksRepository.getStatistics(new BooksDataSource.GetStatisticsCallback() {
             @Override
-            public void onBooksListLoaded(List<BookListItem> books) {
+            public void onStatisticsLoaded(BooksStatistics statistics) {
                 error.set(false);
-                computeStats(books);
+                mStatistics = statistics;
+                updateDataBindingObservables();
             }
 
             @Override
             public void onDataNotAvailable() {
                 error.set(true);
-                mNumberOfNotFavoriteBooks = 0;
-                mNumberOfFavoriteBooks = 0;
+                mStatistics = BooksStatistics.empty();
                 updateDataBindingObservables();
             }
         });
     }
 
-    /**
-     * Called when new data is ready.
-     */
-    private void computeStats(List<BookListItem> books) {
-//        int favorite = 0;
-//        int notFavorite = 0;
-//
-//        for (BookListItem bookItem : books) {
-//            if (bookItem.isFavorite()) {
-//                favorite += 1;
-//            } else {
-//                notFavorite += 1;
-//            }
-//        }
-//        mNumberOfFavoriteBooks = favorite;
-//        mNumberOfNotFavoriteBooks = notFavorite;
-//
-        updateDataBindingObservables();
-    }
-
     private void updateDataBindingObservables() {
-        numberOfFavoriteBooks.set(
-                mContext.getString(R.string.statistics_favorite_books, mNumberOfFavoriteBooks));
-        numberOfNotFavoriteBooks.set(
-                mContext.getString(R.string.statistics_not_fav_books, mNumberOfNotFavoriteBooks));
-        empty.set(mNumberOfNotFavoriteBooks + mNumberOfFavoriteBooks == 0);
+        numberOfFavoriteBooks.set(mContext.getString(R.string.statistics_favorite_books,
+                mStatistics.getFavoriteBooks()));
+        numberOfNotFavoriteBooks.set(mContext.getString(R.string.statistics_not_fav_books,
+                mStatistics.getNotFavoriteBooks()));
+        topAuthors.set(mContext.getString(R.string.statistics_authors,
+                mostCommon(mStatistics.getBooksByAuthor())));
+        languages.set(mContext.getString(R.string.statistics_languages,
+                mostCommon(mStatistics.getBooksByLanguage())));
+        topCategories.set(mContext.getString(R.string.statistics_categories,
+                mostCommon(mStatistics.getBooksByCategory())));
+        empty.set(mStatistics.isEmpty());
         dataLoading.set(false);
+    }
 
+    private String mostCommon(Map<String, Integer> counts) {
+        List<Map.Entry<String, Integer>> entries =
+                BooksStatistics.mostCommon(counts, MOST_COMMON_LIMIT);
+        if (entries.isEmpty()) {
+            return mContext.getString(R.string.statistics_none);
+        }
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : entries) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(mContext.getString(R.string.statistics_count, entry.getKey(),
+                    entry.getValue()));
+        }
+        return text.toString();
     }
 }
@@ -21,49 +21,139 @@ import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.BooksMetrics;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.Metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Global executor pools for the whole application.
  * <p>
  * Grouping books like this avoids the effects of book starvation (e.g. disk reads don't wait behind
- * webservice requests).
+ * webservice requests). Disk reads and disk writes get pools of their own: the database lets
+ * readers run alongside each other and alongside the single writer, so a read never queues behind
+ * a burst of writes. Within a pool, {@link TaskPriority#USER_VISIBLE} tasks run before the
+ * {@link TaskPriority#BACKGROUND} ones queued earlier.
+ * <p>
+ * Every queue is bounded, and rejects the task once full rather than growing without limit. A
+ * task never runs on the calling thread instead, which is mostly the main thread, where Room
+ * refuses to query and where a second writer would run next to the disk write thread. The
+ * writes made in the background are coalesced by the local data source, so bursts of them don't
+ * fill the disk write queue. How deep the queues get, how long tasks wait in them and how long
+ * they run are recorded in {@link BooksMetrics}.
  */
 public class AppExecutors {
 
-    private static final int THREAD_COUNT = 3;
+    private static final int DISK_READ_THREADS = 2;
+
+    private static final int NETWORK_THREADS = 3;
+
+    private static final int DISK_READ_QUEUE_CAPACITY = 256;
+
+    private static final int DISK_WRITE_QUEUE_CAPACITY = 64;
 
-    private final Executor diskIO;
+    private static final int NETWORK_QUEUE_CAPACITY = 128;
 
-    private final Executor networkIO;
+    private final Map<TaskPriority, Executor> diskRead;
+
+    private final Map<TaskPriority, Executor> diskWrite;
+
+    private final Map<TaskPriority, Executor> networkIO;
 
     private final Executor mainThread;
 
+    /**
+     * Runs the tasks of every priority on the given executors.
+     */
     @VisibleForTesting
-    AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread) {
-        this.diskIO = diskIO;
-        this.networkIO = networkIO;
+    AppExecutors(Executor diskRead, Executor diskWrite, Executor networkIO, Executor mainThread) {
+        this.diskRead = samePriorities(diskRead);
+        this.diskWrite = samePriorities(diskWrite);
+        this.networkIO = samePriorities(networkIO);
         this.mainThread = mainThread;
     }
 
     public AppExecutors() {
-        this(new DiskIOThreadExecutor(), Executors.newFixedThreadPool(THREAD_COUNT),
-                new MainThreadExecutor());
+        this.diskRead = lanes(newPool("diskRead", DISK_READ_THREADS, DISK_READ_QUEUE_CAPACITY));
+        this.diskWrite = lanes(newPool("diskWrite", 1, DISK_WRITE_QUEUE_CAPACITY));
+        this.networkIO = lanes(newPool("networkIO", NETWORK_THREADS, NETWORK_QUEUE_CAPACITY));
+        this.mainThread = new MainThreadExecutor();
+    }
+
+    /**
+     * @return the executor of the reads the user is waiting for.
+     */
+    public Executor diskRead() {
+        return diskRead(TaskPriority.USER_VISIBLE);
+    }
+
+    public Executor diskRead(@NonNull TaskPriority priority) {
+        return diskRead.get(checkNotNull(priority));
     }
 
-    public Executor diskIO() {
-        return diskIO;
+    /**
+     * @return the executor of the writes the user is waiting for. Writes run one at a time.
+     */
+    public Executor diskWrite() {
+        return diskWrite(TaskPriority.USER_VISIBLE);
+    }
+
+    public Executor diskWrite(@NonNull TaskPriority priority) {
+        return diskWrite.get(checkNotNull(priority));
     }
 
     public Executor networkIO() {
-        return networkIO;
+        return networkIO(TaskPriority.USER_VISIBLE);
+    }
+
+    public Executor networkIO(@NonNull TaskPriority priority) {
+        return networkIO.get(checkNotNull(priority));
     }
 
     public Executor mainThread() {
         return mainThread;
     }
 
+    private static PriorityThreadPool newPool(String name, int threads, int queueCapacity) {
+        final Metrics.Timer runTimer = BooksMetrics.get().timer(name + ".run");
+        return PriorityThreadPool.newBuilder(name)
+                .threads(threads)
+                .queueCapacity(queueCapacity)
+                .rejectionHandler(new ThreadPoolExecutor.AbortPolicy())
+                .taskListener(new PriorityThreadPool.TaskListener() {
+                    @Override
+                    public void onTaskFinished(@NonNull TaskPriority priority, long waitNanos,
+                                               long runNanos) {
+                        runTimer.record(runNanos);
+                    }
+                })
+                .build();
+    }
+
+    private static Map<TaskPriority, Executor> lanes(PriorityThreadPool pool) {
+        Map<TaskPriority, Executor> lanes = new EnumMap<>(TaskPriority.class);
+        for (TaskPriority priority : TaskPriority.values()) {
+            lanes.put(priority, BooksMetrics.get().meter(
+                    pool.getName() + "." + priority.name().toLowerCase(Locale.US),
+                    pool.executor(priority)));
+        }
+        return lanes;
+    }
+
+    private static Map<TaskPriority, Executor> samePriorities(Executor executor) {
+        Map<TaskPriority, Executor> lanes = new EnumMap<>(TaskPriority.class);
+        for (TaskPriority priority : TaskPriority.values()) {
+            lanes.put(priority, executor);
+        }
+        return lanes;
+    }
+
     private static class MainThreadExecutor implements Executor {
         private Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
@@ -0,0 +1,53 @@
+package com.zeelo.android.architecture.assignment.booksapp.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs only the last of a burst of actions, once no other action has been posted for
+ * {@code delayMillis}. Actions run on the main thread.
+ */
+public class Debouncer {
+
+    private final Handler mHandler;
+
+    private final long mDelayMillis;
+
+    @Nullable
+    private Runnable mPending;
+
+    public Debouncer(long delayMillis) {
+        this(new Handler(Looper.getMainLooper()), delayMillis);
+    }
+
+    public Debouncer(@NonNull Handler handler, long delayMillis) {
+        checkArgument(delayMillis >= 0, "delayMillis can't be negative");
+        mHandler = checkNotNull(handler);
+        mDelayMillis = delayMillis;
+    }
+
+    /**
+     * Replaces the pending action, if any, with {@code action}.
+     */
+    public void post(@NonNull Runnable action) {
+        checkNotNull(action);
+        cancel();
+        mPending = action;
+        mHandler.postDelayed(action, mDelayMillis);
+    }
+
+    /**
+     * Drops the pending action, if any.
+     */
+    public void cancel() {
+        if (mPending != null) {
+            mHandler.removeCallbacks(mPending);
+            mPending = null;
+        }
+    }
+}
@@ -1,23 +0,0 @@
-package com.zeelo.android.architecture.assignment.booksapp.util;
-
-import android.support.annotation.NonNull;
-
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-
-/**
- * Executor that runs a book on a new background thread.
- */
-public class DiskIOThreadExecutor implements Executor {
-
-    private final Executor mDiskIO;
-
-    public DiskIOThreadExecutor() {
-        mDiskIO = Executors.newSingleThreadExecutor();
-    }
-
-    @Override
-    public void execute(@NonNull Runnable command) {
-        mDiskIO.execute(command);
-    }
-}
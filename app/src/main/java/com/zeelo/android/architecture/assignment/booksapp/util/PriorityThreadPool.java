@@ -0,0 +1,248 @@
+package com.zeelo.android.architecture.assignment.booksapp.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Fixed pool of named threads running the most urgent queued task first, and tasks of the same
+ * {@link TaskPriority} in the order they were queued.
+ * <p>
+ * At most {@code queueCapacity} tasks wait for a thread. Once the queue is full, new tasks are
+ * handed to the {@link RejectedExecutionHandler} of the pool, which throws by default.
+ */
+public final class PriorityThreadPool implements Executor {
+
+    /**
+     * Hook called on the pool thread after every task, including those that threw.
+     */
+    public interface TaskListener {
+
+        /**
+         * @param waitNanos how long the task was queued.
+         * @param runNanos  how long the task ran.
+         */
+        void onTaskFinished(@NonNull TaskPriority priority, long waitNanos, long runNanos);
+    }
+
+    private final String mName;
+
+    private final TaskPriority mDefaultPriority;
+
+    @Nullable
+    private final TaskListener mTaskListener;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    private final AtomicLong mSequence = new AtomicLong();
+
+    private PriorityThreadPool(Builder builder) {
+        mName = builder.mName;
+        mDefaultPriority = builder.mDefaultPriority;
+        mTaskListener = builder.mTaskListener;
+        mExecutor = new ThreadPoolExecutor(builder.mThreads, builder.mThreads, 0L,
+                TimeUnit.MILLISECONDS, new BoundedPriorityQueue(builder.mQueueCapacity),
+                new NamedThreadFactory(builder.mName), builder.mRejectionHandler);
+    }
+
+    @NonNull
+    public static Builder newBuilder(@NonNull String name) {
+        return new Builder(name);
+    }
+
+    @NonNull
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Runs {@code command} with the default priority of the pool.
+     */
+    @Override
+    public void execute(@NonNull Runnable command) {
+        execute(command, mDefaultPriority);
+    }
+
+    public void execute(@NonNull Runnable command, @NonNull TaskPriority priority) {
+        checkNotNull(command);
+        checkNotNull(priority);
+        mExecutor.execute(new Task(command, priority, mSequence.getAndIncrement()));
+    }
+
+    /**
+     * @return an executor running its commands on this pool with {@code priority}.
+     */
+    @NonNull
+    public Executor executor(@NonNull final TaskPriority priority) {
+        checkNotNull(priority);
+        return new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                PriorityThreadPool.this.execute(command, priority);
+            }
+        };
+    }
+
+    /**
+     * Runs the tasks already queued, then lets the threads stop. New tasks are rejected.
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, @NonNull TimeUnit unit)
+            throws InterruptedException {
+        return mExecutor.awaitTermination(timeout, unit);
+    }
+
+    private final class Task implements Runnable, Comparable<Task> {
+
+        private final Runnable mCommand;
+
+        private final TaskPriority mPriority;
+
+        private final long mSequence;
+
+        private final long mQueuedAt = System.nanoTime();
+
+        Task(Runnable command, TaskPriority priority, long sequence) {
+            mCommand = command;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            try {
+                mCommand.run();
+            } finally {
+                if (mTaskListener != null) {
+                    mTaskListener.onTaskFinished(mPriority, startedAt - mQueuedAt,
+                            System.nanoTime() - startedAt);
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(@NonNull Task other) {
+            int byPriority = mPriority.compareTo(other.mPriority);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * A priority queue refusing new elements once it holds {@code capacity} of them, which makes
+     * the pool reject the task.
+     */
+    private static final class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+
+        private final int mCapacity;
+
+        private final Object mOfferLock = new Object();
+
+        BoundedPriorityQueue(int capacity) {
+            mCapacity = capacity;
+        }
+
+        // add(), put() and the timed offer() all call this one.
+        @Override
+        public boolean offer(Runnable runnable) {
+            synchronized (mOfferLock) {
+                return size() < mCapacity && super.offer(runnable);
+            }
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return Math.max(0, mCapacity - size());
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String mName;
+
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(runnable, mName + "-" + mThreadCount.incrementAndGet());
+        }
+    }
+
+    public static final class Builder {
+
+        private final String mName;
+
+        private int mThreads = 1;
+
+        private int mQueueCapacity = Integer.MAX_VALUE;
+
+        private TaskPriority mDefaultPriority = TaskPriority.USER_VISIBLE;
+
+        private RejectedExecutionHandler mRejectionHandler = new ThreadPoolExecutor.AbortPolicy();
+
+        @Nullable
+        private TaskListener mTaskListener;
+
+        private Builder(@NonNull String name) {
+            mName = checkNotNull(name);
+        }
+
+        @NonNull
+        public Builder threads(int threads) {
+            checkArgument(threads > 0, "threads must be positive");
+            mThreads = threads;
+            return this;
+        }
+
+        @NonNull
+        public Builder queueCapacity(int queueCapacity) {
+            checkArgument(queueCapacity > 0, "queueCapacity must be positive");
+            mQueueCapacity = queueCapacity;
+            return this;
+        }
+
+        @NonNull
+        public Builder defaultPriority(@NonNull TaskPriority defaultPriority) {
+            mDefaultPriority = checkNotNull(defaultPriority);
+            return this;
+        }
+
+        @NonNull
+        public Builder rejectionHandler(@NonNull RejectedExecutionHandler rejectionHandler) {
+            mRejectionHandler = checkNotNull(rejectionHandler);
+            return this;
+        }
+
+        @NonNull
+        public Builder taskListener(@Nullable TaskListener taskListener) {
+            mTaskListener = taskListener;
+            return this;
+        }
+
+        @NonNull
+        public PriorityThreadPool build() {
+            return new PriorityThreadPool(this);
+        }
+    }
+}
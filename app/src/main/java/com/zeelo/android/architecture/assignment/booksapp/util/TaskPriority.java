@@ -0,0 +1,19 @@
+package com.zeelo.android.architecture.assignment.booksapp.util;
+
+/**
+ * How soon a background task should run, relative to the other tasks queued on the same
+ * {@link PriorityThreadPool}. Declared from the most to the least urgent.
+ */
+public enum TaskPriority {
+
+    /**
+     * The user is waiting for the task, e.g. loading what a screen shows or saving what they just
+     * changed.
+     */
+    USER_VISIBLE,
+
+    /**
+     * Nobody is waiting for the task, e.g. storing what a sync downloaded.
+     */
+    BACKGROUND
+}
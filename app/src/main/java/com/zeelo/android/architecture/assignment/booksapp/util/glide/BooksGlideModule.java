@@ -1,11 +1,44 @@
 package com.zeelo.android.architecture.assignment.booksapp.util.glide;
 
+import android.app.ActivityManager;
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.v4.app.ActivityManagerCompat;
+
+import com.bumptech.glide.GlideBuilder;
 import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
 import com.bumptech.glide.module.AppGlideModule;
 
 /**
- * Glide module configurations
+ * Glide module configurations. The caches are sized from the heap the device gives the app
+ * rather than from the screen, see {@link ThumbnailCacheSizes}.
  */
 @GlideModule
 public class BooksGlideModule extends AppGlideModule {
+
+    private static final String DISK_CACHE_NAME = "thumbnails";
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        ThumbnailCacheSizes sizes = ThumbnailCacheSizes.forMemoryClass(
+                activityManager.getMemoryClass(),
+                ActivityManagerCompat.isLowRamDevice(activityManager));
+
+        builder.setMemoryCache(new LruResourceCache(sizes.getMemoryCacheBytes()));
+        builder.setBitmapPool(new ReuseCountingBitmapPool(sizes.getBitmapPoolBytes()));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_NAME,
+                sizes.getDiskCacheBytes()));
+    }
+
+    /**
+     * No library declares a Glide module in its manifest, so it isn't parsed on startup.
+     */
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
 }
@@ -0,0 +1,75 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.glide;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * A {@link LruBitmapPool} that counts how many of the bitmaps it hands out were reused from the
+ * pool rather than allocated. Thumbnails are decoded at a single size and config, so scrolling
+ * the list should reuse the bitmaps of the rows that scrolled out for almost every new row.
+ */
+public class ReuseCountingBitmapPool extends LruBitmapPool {
+
+    /**
+     * The bitmaps put in the pool, weakly, since the pool may evict and recycle them.
+     */
+    private final Set<Bitmap> mPooled =
+            Collections.newSetFromMap(new WeakHashMap<Bitmap, Boolean>());
+
+    private long mReuseCount;
+
+    private long mAllocationCount;
+
+    public ReuseCountingBitmapPool(long maxSize) {
+        super(maxSize);
+    }
+
+    @Override
+    public synchronized void put(Bitmap bitmap) {
+        mPooled.add(bitmap);
+        super.put(bitmap);
+    }
+
+    @NonNull
+    @Override
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        return count(super.get(width, height, config));
+    }
+
+    @NonNull
+    @Override
+    public synchronized Bitmap getDirty(int width, int height, Bitmap.Config config) {
+        return count(super.getDirty(width, height, config));
+    }
+
+    public synchronized long getReuseCount() {
+        return mReuseCount;
+    }
+
+    public synchronized long getAllocationCount() {
+        return mAllocationCount;
+    }
+
+    /**
+     * @return the share of the bitmaps handed out that were reused, or 0 if none were.
+     */
+    public synchronized double getReuseRate() {
+        long requests = mReuseCount + mAllocationCount;
+        return requests == 0 ? 0 : (double) mReuseCount / requests;
+    }
+
+    private Bitmap count(Bitmap bitmap) {
+        if (mPooled.remove(bitmap)) {
+            mReuseCount++;
+        } else {
+            mAllocationCount++;
+        }
+        return bitmap;
+    }
+}
@@ -0,0 +1,67 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.glide;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The sizes of the image caches, scaled to the heap the device gives the app. The list only shows
+ * small thumbnails, so a fraction of the heap holds many screens of them; low RAM devices get
+ * half of it.
+ */
+final class ThumbnailCacheSizes {
+
+    private static final long MB = 1024 * 1024;
+
+    /**
+     * The share of the heap given to the decoded images that are shown or were recently.
+     */
+    private static final int MEMORY_CACHE_HEAP_DIVISOR = 8;
+
+    /**
+     * The share of the heap given to bitmaps kept for decoding the next images into.
+     */
+    private static final int BITMAP_POOL_HEAP_DIVISOR = 16;
+
+    private static final long DISK_CACHE_BYTES = 64 * MB;
+
+    private static final long LOW_RAM_DISK_CACHE_BYTES = 16 * MB;
+
+    private final long mMemoryCacheBytes;
+
+    private final long mBitmapPoolBytes;
+
+    private final long mDiskCacheBytes;
+
+    private ThumbnailCacheSizes(long memoryCacheBytes, long bitmapPoolBytes, long diskCacheBytes) {
+        mMemoryCacheBytes = memoryCacheBytes;
+        mBitmapPoolBytes = bitmapPoolBytes;
+        mDiskCacheBytes = diskCacheBytes;
+    }
+
+    /**
+     * @param memoryClassMb the heap limit of the app, as given by
+     *                      {@link android.app.ActivityManager#getMemoryClass()}
+     * @param lowRamDevice  whether the device is a low RAM device
+     */
+    static ThumbnailCacheSizes forMemoryClass(int memoryClassMb, boolean lowRamDevice) {
+        checkArgument(memoryClassMb > 0, "memoryClassMb must be positive");
+        long heapBytes = memoryClassMb * MB;
+        if (lowRamDevice) {
+            heapBytes /= 2;
+        }
+        return new ThumbnailCacheSizes(heapBytes / MEMORY_CACHE_HEAP_DIVISOR,
+                heapBytes / BITMAP_POOL_HEAP_DIVISOR,
+                lowRamDevice ? LOW_RAM_DISK_CACHE_BYTES : DISK_CACHE_BYTES);
+    }
+
+    long getMemoryCacheBytes() {
+        return mMemoryCacheBytes;
+    }
+
+    long getBitmapPoolBytes() {
+        return mBitmapPoolBytes;
+    }
+
+    long getDiskCacheBytes() {
+        return mDiskCacheBytes;
+    }
+}
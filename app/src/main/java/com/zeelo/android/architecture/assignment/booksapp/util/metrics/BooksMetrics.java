@@ -0,0 +1,30 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.metrics;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Holds the {@link Metrics} of the app. They record nothing until {@link #enable()} is called,
+ * which debug builds do before creating the data layer: the data layer looks its recorders up
+ * once, when it is created.
+ */
+public final class BooksMetrics {
+
+    private static volatile Metrics sMetrics = NoOpMetrics.INSTANCE;
+
+    private BooksMetrics() {
+    }
+
+    @NonNull
+    public static Metrics get() {
+        return sMetrics;
+    }
+
+    /**
+     * Starts recording, unless it already has.
+     */
+    public static synchronized void enable() {
+        if (!sMetrics.isEnabled()) {
+            sMetrics = new MetricsRegistry();
+        }
+    }
+}
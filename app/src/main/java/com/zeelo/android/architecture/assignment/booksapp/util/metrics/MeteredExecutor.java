@@ -0,0 +1,50 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.metrics;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs commands on another executor, recording how many commands are queued when one more is
+ * and how long each waits before it runs. A command the executor rejects isn't counted as queued.
+ */
+final class MeteredExecutor implements Executor {
+
+    private final Executor mExecutor;
+
+    private final AtomicInteger mQueued = new AtomicInteger();
+
+    final Histogram mQueueDepth = new Histogram();
+
+    final Histogram mWaitMicros = new Histogram();
+
+    MeteredExecutor(@NonNull Executor executor) {
+        mExecutor = checkNotNull(executor);
+    }
+
+    @Override
+    public void execute(@NonNull final Runnable command) {
+        checkNotNull(command);
+        final long queuedAt = System.nanoTime();
+        mQueueDepth.record(mQueued.incrementAndGet());
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mQueued.decrementAndGet();
+                    mWaitMicros.record(
+                            TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedAt));
+                    command.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mQueued.decrementAndGet();
+            throw e;
+        }
+    }
+}
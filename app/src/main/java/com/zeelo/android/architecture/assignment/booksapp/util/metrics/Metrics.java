@@ -0,0 +1,75 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.metrics;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Records how the data layer performs: the latency of its operations, how often its caches serve
+ * them, and how the background executors keep up.
+ * <p>
+ * Recorders are looked up once by name and kept, so recording is only a few atomic updates. The
+ * release build uses {@link NoOpMetrics}, whose recorders do nothing.
+ */
+public interface Metrics {
+
+    /**
+     * Records the latency of an operation:
+     * <pre>
+     * long start = timer.start();
+     * ...
+     * timer.stop(start);
+     * </pre>
+     * or, when something else measured it, {@code timer.record(durationNanos)}.
+     */
+    interface Timer {
+
+        long start();
+
+        void stop(long start);
+
+        void record(long durationNanos);
+    }
+
+    /**
+     * Records whether a cache served a request or it had to be served from further away.
+     */
+    interface HitRatio {
+
+        void hit();
+
+        void miss();
+    }
+
+    boolean isEnabled();
+
+    /**
+     * @return the timer with {@code name}, created on first use.
+     */
+    @NonNull
+    Timer timer(@NonNull String name);
+
+    /**
+     * @return the hit ratio with {@code name}, created on first use.
+     */
+    @NonNull
+    HitRatio hitRatio(@NonNull String name);
+
+    /**
+     * @return an executor running the commands on {@code executor} that records how many commands
+     * are queued and how long they wait before they run.
+     */
+    @NonNull
+    Executor meter(@NonNull String name, @NonNull Executor executor);
+
+    /**
+     * @return everything recorded so far, as a JSON object.
+     */
+    @NonNull
+    String toJson();
+
+    /**
+     * Logs everything recorded so far, one metric per line.
+     */
+    void log();
+}
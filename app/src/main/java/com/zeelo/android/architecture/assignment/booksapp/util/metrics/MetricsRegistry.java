@@ -0,0 +1,216 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.metrics;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Metrics kept in memory for as long as the process lives. Latencies are recorded in
+ * microseconds.
+ */
+public final class MetricsRegistry implements Metrics {
+
+    private static final String TAG = "BooksMetrics";
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final ConcurrentMap<String, HistogramTimer> mTimers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CountingHitRatio> mHitRatios = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, MeteredExecutor> mExecutors = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @NonNull
+    @Override
+    public Timer timer(@NonNull String name) {
+        checkNotNull(name);
+        HistogramTimer timer = mTimers.get(name);
+        if (timer == null) {
+            mTimers.putIfAbsent(name, new HistogramTimer());
+            timer = mTimers.get(name);
+        }
+        return timer;
+    }
+
+    @NonNull
+    @Override
+    public HitRatio hitRatio(@NonNull String name) {
+        checkNotNull(name);
+        CountingHitRatio hitRatio = mHitRatios.get(name);
+        if (hitRatio == null) {
+            mHitRatios.putIfAbsent(name, new CountingHitRatio());
+            hitRatio = mHitRatios.get(name);
+        }
+        return hitRatio;
+    }
+
+    /**
+     * Every executor is metered on its own, even if {@code name} was used before.
+     */
+    @NonNull
+    @Override
+    public Executor meter(@NonNull String name, @NonNull Executor executor) {
+        checkNotNull(name);
+        MeteredExecutor metered = new MeteredExecutor(executor);
+        mExecutors.put(name, metered);
+        return metered;
+    }
+
+    @NonNull
+    @Override
+    public String toJson() {
+        StringWriter json = new StringWriter();
+        try {
+            JsonWriter writer = new JsonWriter(json);
+            writer.beginObject();
+
+            writer.name("timers").beginObject();
+            for (Map.Entry<String, HistogramTimer> timer : sorted(mTimers).entrySet()) {
+                writeHistogram(writer.name(timer.getKey()), timer.getValue().mMicros);
+            }
+            writer.endObject();
+
+            writer.name("hitRatios").beginObject();
+            for (Map.Entry<String, CountingHitRatio> hitRatio : sorted(mHitRatios).entrySet()) {
+                writeHitRatio(writer.name(hitRatio.getKey()), hitRatio.getValue());
+            }
+            writer.endObject();
+
+            writer.name("executors").beginObject();
+            for (Map.Entry<String, MeteredExecutor> executor : sorted(mExecutors).entrySet()) {
+                writer.name(executor.getKey()).beginObject();
+                writeHistogram(writer.name("queueDepth"), executor.getValue().mQueueDepth);
+                writeHistogram(writer.name("waitMicros"), executor.getValue().mWaitMicros);
+                writer.endObject();
+            }
+            writer.endObject();
+
+            writer.endObject();
+            writer.close();
+        } catch (IOException e) {
+            // A StringWriter doesn't throw.
+            throw new AssertionError(e);
+        }
+        return json.toString();
+    }
+
+    @Override
+    public void log() {
+        // Logcat truncates long lines, so every metric is logged on its own.
+        for (Map.Entry<String, HistogramTimer> timer : sorted(mTimers).entrySet()) {
+            Log.i(TAG, timer.getKey() + " " + histogramToJson(timer.getValue().mMicros));
+        }
+        for (Map.Entry<String, CountingHitRatio> hitRatio : sorted(mHitRatios).entrySet()) {
+            Log.i(TAG, hitRatio.getKey() + " " + hitRatioToJson(hitRatio.getValue()));
+        }
+        for (Map.Entry<String, MeteredExecutor> executor : sorted(mExecutors).entrySet()) {
+            Log.i(TAG, executor.getKey() + " queueDepth "
+                    + histogramToJson(executor.getValue().mQueueDepth));
+            Log.i(TAG, executor.getKey() + " waitMicros "
+                    + histogramToJson(executor.getValue().mWaitMicros));
+        }
+    }
+
+    private static <V> Map<String, V> sorted(Map<String, V> metrics) {
+        return new TreeMap<>(metrics);
+    }
+
+    private static String histogramToJson(Histogram histogram) {
+        StringWriter json = new StringWriter();
+        try {
+            writeHistogram(new JsonWriter(json), histogram);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return json.toString();
+    }
+
+    private static String hitRatioToJson(CountingHitRatio hitRatio) {
+        StringWriter json = new StringWriter();
+        try {
+            writeHitRatio(new JsonWriter(json), hitRatio);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return json.toString();
+    }
+
+    private static void writeHistogram(JsonWriter writer, Histogram histogram)
+            throws IOException {
+        writer.beginObject();
+        writer.name("count").value(histogram.getCount());
+        writer.name("mean").value(Math.round(histogram.getMean()));
+        for (double percentile : PERCENTILES) {
+            writer.name("p" + (int) percentile)
+                    .value(histogram.getValueAtPercentile(percentile));
+        }
+        writer.name("max").value(histogram.getMax());
+        writer.endObject();
+    }
+
+    private static void writeHitRatio(JsonWriter writer, CountingHitRatio hitRatio)
+            throws IOException {
+        long hits = hitRatio.mHits.get();
+        long misses = hitRatio.mMisses.get();
+        writer.beginObject();
+        writer.name("hits").value(hits);
+        writer.name("misses").value(misses);
+        writer.name("ratio").value(hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        writer.endObject();
+    }
+
+    private static final class HistogramTimer implements Timer {
+
+        final Histogram mMicros = new Histogram();
+
+        @Override
+        public long start() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void stop(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        @Override
+        public void record(long durationNanos) {
+            mMicros.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+        }
+    }
+
+    private static final class CountingHitRatio implements HitRatio {
+
+        final AtomicLong mHits = new AtomicLong();
+
+        final AtomicLong mMisses = new AtomicLong();
+
+        @Override
+        public void hit() {
+            mHits.incrementAndGet();
+        }
+
+        @Override
+        public void miss() {
+            mMisses.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.metrics;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Metrics that record nothing, for the release build.
+ */
+public final class NoOpMetrics implements Metrics {
+
+    public static final NoOpMetrics INSTANCE = new NoOpMetrics();
+
+    private static final Timer TIMER = new Timer() {
+        @Override
+        public long start() {
+            return 0;
+        }
+
+        @Override
+        public void stop(long start) {
+        }
+
+        @Override
+        public void record(long durationNanos) {
+        }
+    };
+
+    private static final HitRatio HIT_RATIO = new HitRatio() {
+        @Override
+        public void hit() {
+        }
+
+        @Override
+        public void miss() {
+        }
+    };
+
+    private NoOpMetrics() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @NonNull
+    @Override
+    public Timer timer(@NonNull String name) {
+        return TIMER;
+    }
+
+    @NonNull
+    @Override
+    public HitRatio hitRatio(@NonNull String name) {
+        return HIT_RATIO;
+    }
+
+    @NonNull
+    @Override
+    public Executor meter(@NonNull String name, @NonNull Executor executor) {
+        return executor;
+    }
+
+    @NonNull
+    @Override
+    public String toJson() {
+        return "{}";
+    }
+
+    @Override
+    public void log() {
+    }
+}
@@ -0,0 +1,196 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.metrics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Records how long every phase of the start of the app takes, on which thread, and when it starts
+ * relative to the first phase. Unlike {@link Metrics}, the trace is always kept: it only ever holds
+ * a few phases.
+ * <p>
+ * The report is printed by {@code adb shell dumpsys activity <package>/.books.BooksActivity}, and
+ * logged under the {@value #TAG} tag once the data layer is ready.
+ */
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+
+    private static final StartupTrace INSTANCE = new StartupTrace();
+
+    /**
+     * A phase that ended.
+     */
+    public static final class Phase {
+
+        private final String mName;
+
+        private final String mThread;
+
+        private final long mStartNanos;
+
+        private final long mDurationNanos;
+
+        Phase(String name, String thread, long startNanos, long durationNanos) {
+            mName = name;
+            mThread = thread;
+            mStartNanos = startNanos;
+            mDurationNanos = durationNanos;
+        }
+
+        @NonNull
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * @return the name of the thread the phase ran on.
+         */
+        @NonNull
+        public String getThread() {
+            return mThread;
+        }
+
+        /**
+         * @return when the phase started, since the first phase did.
+         */
+        public long getStartNanos() {
+            return mStartNanos;
+        }
+
+        public long getDurationNanos() {
+            return mDurationNanos;
+        }
+    }
+
+    private final List<Phase> mPhases = new ArrayList<>();
+
+    private long mOrigin = -1;
+
+    @NonNull
+    public static StartupTrace get() {
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    public StartupTrace() {
+    }
+
+    /**
+     * Starts a phase, ended with {@link #end(String, long)}:
+     * <pre>
+     * long start = trace.begin();
+     * ...
+     * trace.end("phase", start);
+     * </pre>
+     */
+    public long begin() {
+        long start = System.nanoTime();
+        synchronized (mPhases) {
+            if (mOrigin < 0) {
+                mOrigin = start;
+            }
+        }
+        return start;
+    }
+
+    public void end(@NonNull String name, long start) {
+        checkNotNull(name);
+        long duration = System.nanoTime() - start;
+        synchronized (mPhases) {
+            mPhases.add(new Phase(name, Thread.currentThread().getName(), start - mOrigin,
+                    duration));
+        }
+    }
+
+    /**
+     * Runs {@code init} on {@code executor} as the phase {@code name}.
+     *
+     * @return the result of {@code init}, once it ran.
+     */
+    @NonNull
+    public <T> ListenableFuture<T> submit(@NonNull final String name,
+                                          @NonNull Executor executor,
+                                          @NonNull final Callable<T> init) {
+        checkNotNull(name);
+        checkNotNull(init);
+        ListenableFutureTask<T> task = ListenableFutureTask.create(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                long start = begin();
+                try {
+                    return init.call();
+                } finally {
+                    end(name, start);
+                }
+            }
+        });
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * @return the phases that ended, in the order they ended.
+     */
+    @NonNull
+    public List<Phase> getPhases() {
+        synchronized (mPhases) {
+            return new ArrayList<>(mPhases);
+        }
+    }
+
+    /**
+     * @return the phases that ended as a JSON array, in milliseconds.
+     */
+    @NonNull
+    public String toJson() {
+        StringWriter json = new StringWriter();
+        try {
+            JsonWriter writer = new JsonWriter(json);
+            writer.beginArray();
+            for (Phase phase : getPhases()) {
+                writer.beginObject();
+                writer.name("phase").value(phase.getName());
+                writer.name("thread").value(phase.getThread());
+                writer.name("startMillis").value(toMillis(phase.getStartNanos()));
+                writer.name("durationMillis").value(toMillis(phase.getDurationNanos()));
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.close();
+        } catch (IOException e) {
+            // A StringWriter doesn't throw.
+            throw new AssertionError(e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Logs the phases that ended, one per line.
+     */
+    public void log() {
+        for (Phase phase : getPhases()) {
+            Log.i(TAG, phase.getName() + " on " + phase.getThread() + ": started at "
+                    + toMillis(phase.getStartNanos()) + " ms, took "
+                    + toMillis(phase.getDurationNanos()) + " ms");
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -6,10 +6,12 @@ import android.support.annotation.NonNull;
 
 import com.zeelo.android.architecture.assignment.booksapp.data.FakeBooksRemoteDataSource;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksGraph;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksRepository;
-import com.zeelo.android.architecture.assignment.booksapp.data.source.local.BooksDatabase;
-import com.zeelo.android.architecture.assignment.booksapp.data.source.local.BooksLocalDataSource;
 import com.zeelo.android.architecture.assignment.booksapp.util.AppExecutors;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.BooksMetrics;
+
+import java.util.concurrent.Callable;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -20,11 +22,18 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class Injection {
 
-    public static BooksRepository provideBooksRepository(@NonNull Context context) {
+    public static BooksRepository provideBooksRepository(@NonNull final Context context) {
         checkNotNull(context);
-        BooksDatabase database = BooksDatabase.getInstance(context);
-        return BooksRepository.getInstance(FakeBooksRemoteDataSource.getInstance(context),
-                BooksLocalDataSource.getInstance(new AppExecutors(),
-                        database.bookDao()));
+        if (BuildConfig.DEBUG) {
+            BooksMetrics.enable();
+        }
+        // No snapshot, so every test starts from the books it stores.
+        return BooksGraph.newRepository(context, new AppExecutors(),
+                new Callable<FakeBooksRemoteDataSource>() {
+                    @Override
+                    public FakeBooksRemoteDataSource call() {
+                        return FakeBooksRemoteDataSource.getInstance(context);
+                    }
+                }, false);
     }
 }
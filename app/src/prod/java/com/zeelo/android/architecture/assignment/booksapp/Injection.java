@@ -1,15 +1,16 @@
-
 package com.zeelo.android.architecture.assignment.booksapp;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
 
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksGraph;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksRepository;
-import com.zeelo.android.architecture.assignment.booksapp.data.source.local.BooksDatabase;
-import com.zeelo.android.architecture.assignment.booksapp.data.source.local.BooksLocalDataSource;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.remote.BooksRemoteDataSource;
 import com.zeelo.android.architecture.assignment.booksapp.util.AppExecutors;
+import com.zeelo.android.architecture.assignment.booksapp.util.metrics.BooksMetrics;
+
+import java.util.concurrent.Callable;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -19,11 +20,17 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class Injection {
 
-    public static BooksRepository provideBooksRepository(@NonNull Context context) {
+    public static BooksRepository provideBooksRepository(@NonNull final Context context) {
         checkNotNull(context);
-        BooksDatabase database = BooksDatabase.getInstance(context);
-        return BooksRepository.getInstance(BooksRemoteDataSource.getInstance(context),
-                BooksLocalDataSource.getInstance(new AppExecutors(),
-                        database.bookDao()));
+        if (BuildConfig.DEBUG) {
+            BooksMetrics.enable();
+        }
+        return BooksGraph.newRepository(context, new AppExecutors(),
+                new Callable<BooksRemoteDataSource>() {
+                    @Override
+                    public BooksRemoteDataSource call() {
+                        return BooksRemoteDataSource.getInstance(context);
+                    }
+                }, true);
     }
 }
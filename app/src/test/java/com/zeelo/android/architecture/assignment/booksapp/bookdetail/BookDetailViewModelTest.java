@@ -12,6 +12,8 @@ import com.zeelo.android.architecture.assignment.booksapp.data.Book;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksRepository;
 
+import com.google.common.collect.Lists;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -20,6 +22,8 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.List;
+
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -62,6 +66,10 @@ public class BookDetailViewModelTest {
     @Captor
     private ArgumentCaptor<BooksDataSource.GetBookDetailsCallback> mGetBookCallbackCaptor;
 
+    @Captor
+    private ArgumentCaptor<BooksDataSource.GetBookDescriptionCallback>
+            mGetDescriptionCallbackCaptor;
+
     private BookDetailViewModel mBookDetailViewModel;
 
     private Book mBook;
@@ -164,6 +172,43 @@ public class BookDetailViewModelTest {
         assertThat(mBookDetailViewModel.book.get(), is(nullValue()));
     }
 
+    @Test
+    public void bookWithoutDescription_loadsItFromRepository() {
+        // Given a book read from the database, without its description
+        Book storedBook = new Book(TITLE_TEST, mBook.getId(), null);
+        mBookDetailViewModel.start(storedBook.getId());
+        verify(mBooksRepository).getBookDetails(eq(storedBook.getId()),
+                mGetBookCallbackCaptor.capture());
+
+        // When it is loaded
+        mGetBookCallbackCaptor.getValue().onBookDetailsLoaded(storedBook);
+
+        // Then its description is loaded on its own and shown
+        verify(mBooksRepository).getBookDescription(eq(storedBook.getId()),
+                mGetDescriptionCallbackCaptor.capture());
+        mGetDescriptionCallbackCaptor.getValue().onDescriptionLoaded(DESCRIPTION_TEST);
+        assertThat(mBookDetailViewModel.description.get(), is(DESCRIPTION_TEST));
+    }
+
+    @Test
+    public void getAuthors_listsEveryAuthor() {
+        mBook.getVolumeInfo().setAuthors(Lists.newArrayList("Larry Page", "", "Sergey Brin"));
+        setupViewModelRepositoryCallback();
+
+        // The empty name isn't shown
+        assertThat(mBookDetailViewModel.getAuthors(),
+                is((List<String>) Lists.newArrayList("Larry Page", "Sergey Brin")));
+    }
+
+    @Test
+    public void openAuthor_opensTheBooksOfTheAuthor() {
+        setupViewModelRepositoryCallback();
+
+        mBookDetailViewModel.openAuthor("Larry Page");
+
+        assertThat(mBookDetailViewModel.getOpenAuthorCommand().getValue(), is("Larry Page"));
+    }
+
     private void setupViewModelRepositoryCallback() {
         // Given an initialized ViewModel with an active book
         mViewModelCallback = mock(BooksDataSource.GetBookDetailsCallback.class);
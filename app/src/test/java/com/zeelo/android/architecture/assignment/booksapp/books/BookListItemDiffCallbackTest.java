@@ -0,0 +1,136 @@
+package com.zeelo.android.architecture.assignment.booksapp.books;
+
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Unit tests for {@link BookListItemDiffCallback}, counting the rows the books list would rebind.
+ */
+public class BookListItemDiffCallbackTest {
+
+    private static final int BOOKS_COUNT = 10000;
+
+    private static final int CHANGE_EVERY = 100;
+
+    @Test
+    public void refreshWithOnePercentChanged_rebindsOnlyChangedRows() {
+        // Given 10k books, of which 1% got a new title in the refreshed list
+        List<BookListItem> oldBooks = books(BOOKS_COUNT);
+        List<BookListItem> newBooks = new ArrayList<>(BOOKS_COUNT);
+        for (int i = 0; i < BOOKS_COUNT; i++) {
+            newBooks.add(i % CHANGE_EVERY == 0
+                    ? new BookListItem("New title " + i, "id" + i, "link" + i)
+                    : new BookListItem("Title " + i, "id" + i, "link" + i));
+        }
+
+        // When the two lists are diffed
+        CountingUpdateCallback updates = diff(oldBooks, newBooks);
+
+        // Then only the changed rows are rebound, and none is inserted, removed or moved
+        assertThat(updates.mChanged, is(BOOKS_COUNT / CHANGE_EVERY));
+        assertThat(updates.mInserted, is(0));
+        assertThat(updates.mRemoved, is(0));
+        assertThat(updates.mMoved, is(0));
+    }
+
+    @Test
+    public void refreshWithSameBooks_rebindsNothing() {
+        CountingUpdateCallback updates = diff(books(BOOKS_COUNT), books(BOOKS_COUNT));
+
+        assertThat(updates.mChanged + updates.mInserted + updates.mRemoved + updates.mMoved, is(0));
+    }
+
+    @Test
+    public void nextPageAppended_onlyInsertsNewRows() {
+        List<BookListItem> firstPage = books(50);
+        List<BookListItem> bothPages = books(100);
+
+        CountingUpdateCallback updates = diff(firstPage, bothPages);
+
+        assertThat(updates.mInserted, is(50));
+        assertThat(updates.mChanged, is(0));
+    }
+
+    private static List<BookListItem> books(int count) {
+        List<BookListItem> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(new BookListItem("Title " + i, "id" + i, "link" + i));
+        }
+        return books;
+    }
+
+    private static CountingUpdateCallback diff(final List<BookListItem> oldBooks,
+                                               final List<BookListItem> newBooks) {
+        final BookListItemDiffCallback itemCallback = new BookListItemDiffCallback();
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldBooks.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newBooks.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return itemCallback.areItemsTheSame(oldBooks.get(oldItemPosition),
+                        newBooks.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return itemCallback.areContentsTheSame(oldBooks.get(oldItemPosition),
+                        newBooks.get(newItemPosition));
+            }
+        });
+        CountingUpdateCallback updates = new CountingUpdateCallback();
+        result.dispatchUpdatesTo(updates);
+        return updates;
+    }
+
+    /**
+     * Counts the rows an adapter would rebind, insert, remove or move.
+     */
+    private static class CountingUpdateCallback implements ListUpdateCallback {
+
+        int mChanged;
+
+        int mInserted;
+
+        int mRemoved;
+
+        int mMoved;
+
+        @Override
+        public void onInserted(int position, int count) {
+            mInserted += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mRemoved += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mMoved++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            mChanged += count;
+        }
+    }
+}
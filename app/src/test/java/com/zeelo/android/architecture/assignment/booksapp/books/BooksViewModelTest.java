@@ -13,7 +13,12 @@ import com.zeelo.android.architecture.assignment.booksapp.addeditbook.AddEditBoo
 import com.zeelo.android.architecture.assignment.booksapp.bookdetail.BookDetailActivity;
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource.LoadBooksListCallback;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource.LoadBooksPageCallback;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksFilterType;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksPageKey;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksRepository;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksSortType;
+import com.zeelo.android.architecture.assignment.booksapp.util.Debouncer;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -23,6 +28,7 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static com.zeelo.android.architecture.assignment.booksapp.R.string.successfully_deleted_book_message;
@@ -30,7 +36,14 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -51,8 +64,17 @@ public class BooksViewModelTest {
     @Mock
     private Application mContext;
 
+    @Mock
+    private Debouncer mSearchDebouncer;
+
+    @Captor
+    private ArgumentCaptor<LoadBooksPageCallback> mLoadBooksCallbackCaptor;
+
+    @Captor
+    private ArgumentCaptor<LoadBooksListCallback> mSearchCallbackCaptor;
+
     @Captor
-    private ArgumentCaptor<LoadBooksListCallback> mLoadBooksCallbackCaptor;
+    private ArgumentCaptor<Runnable> mSearchRunnableCaptor;
 
     private BooksViewModel mBooksViewModel;
 
@@ -65,7 +87,7 @@ public class BooksViewModelTest {
         setupContext();
 
         // Get a reference to the class under test
-        mBooksViewModel = new BooksViewModel(mContext, mBooksRepository);
+        mBooksViewModel = new BooksViewModel(mContext, mBooksRepository, mSearchDebouncer);
 
         BOOKS = Lists.newArrayList(new BookListItem("Title1", "Description1"),
                 new BookListItem("Title2", "id2", "link2"), new BookListItem("Title3", "Description3", "link3"));
@@ -93,19 +115,213 @@ public class BooksViewModelTest {
         mBooksViewModel.loadBooks(true);
 
         // Callback is captured and invoked with stubbed books
-        verify(mBooksRepository).getBooks(mLoadBooksCallbackCaptor.capture());
+        verify(mBooksRepository).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                (BooksPageKey) isNull(), eq(BooksViewModel.PAGE_SIZE),
+                mLoadBooksCallbackCaptor.capture());
 
 
         // Then progress indicator is shown
         assertTrue(mBooksViewModel.dataLoading.get());
-        mLoadBooksCallbackCaptor.getValue().onBooksListLoaded(BOOKS);
+        mLoadBooksCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, null);
 
         // Then progress indicator is hidden
         assertFalse(mBooksViewModel.dataLoading.get());
 
         // And data loaded
-        assertFalse(mBooksViewModel.items.isEmpty());
-        assertTrue(mBooksViewModel.items.size() == 3);
+        assertFalse(mBooksViewModel.items.get().isEmpty());
+        assertTrue(mBooksViewModel.items.get().size() == 3);
+    }
+
+    @Test
+    public void loadFavoritedBooks_requestsFilteredPages() {
+        // Given the favorited books are being listed
+        mBooksViewModel.setFiltering(BooksFilterType.FAVORITED_BOOKS);
+        mBooksViewModel.loadBooks(false);
+
+        // When the first page is followed by more books
+        verify(mBooksRepository).getBooksPage(eq(BooksFilterType.FAVORITED_BOOKS),
+                (BooksPageKey) isNull(), eq(BooksViewModel.PAGE_SIZE),
+                mLoadBooksCallbackCaptor.capture());
+        BooksPageKey nextPageKey = BooksPageKey.after(BOOKS.get(2));
+        mLoadBooksCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, nextPageKey);
+        mBooksViewModel.loadNextPage();
+
+        // Then the following page is requested with the same filter
+        verify(mBooksRepository).getBooksPage(eq(BooksFilterType.FAVORITED_BOOKS),
+                eq(nextPageKey), eq(BooksViewModel.PAGE_SIZE),
+                any(LoadBooksPageCallback.class));
+    }
+
+    @Test
+    public void loadBooksSortedByPageCount_requestsSortedPages() {
+        // Given the favorited books are being listed by page count
+        mBooksViewModel.setFiltering(BooksFilterType.FAVORITED_BOOKS);
+        mBooksViewModel.setSorting(BooksSortType.PAGE_COUNT);
+        mBooksViewModel.loadBooks(false);
+
+        // When the first page is followed by more books
+        verify(mBooksRepository).getSortedBooksPage(eq(BooksSortType.PAGE_COUNT),
+                eq(BooksFilterType.FAVORITED_BOOKS), (BooksPageKey) isNull(),
+                eq(BooksViewModel.PAGE_SIZE), mLoadBooksCallbackCaptor.capture());
+        BooksPageKey nextPageKey = BooksPageKey.after(BooksSortType.PAGE_COUNT, BOOKS.get(2));
+        mLoadBooksCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, nextPageKey);
+        mBooksViewModel.loadNextPage();
+
+        // Then the following page is requested in the same order, not by title
+        verify(mBooksRepository).getSortedBooksPage(eq(BooksSortType.PAGE_COUNT),
+                eq(BooksFilterType.FAVORITED_BOOKS), eq(nextPageKey),
+                eq(BooksViewModel.PAGE_SIZE), any(LoadBooksPageCallback.class));
+        verify(mBooksRepository, never()).getBooksPage(any(BooksFilterType.class),
+                any(BooksPageKey.class), anyInt(), any(LoadBooksPageCallback.class));
+    }
+
+    @Test
+    public void loadBooksOfAuthor_requestsPagesOfAuthor() {
+        // Given the books of an author are being listed
+        mBooksViewModel.setAuthor("Larry Page");
+        mBooksViewModel.loadBooks(false);
+
+        // When the first page is followed by more books
+        verify(mBooksRepository).getBooksByAuthorPage(eq("Larry Page"), (BooksPageKey) isNull(),
+                eq(BooksViewModel.PAGE_SIZE), mLoadBooksCallbackCaptor.capture());
+        BooksPageKey nextPageKey = BooksPageKey.after(BOOKS.get(2));
+        mLoadBooksCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, nextPageKey);
+        mBooksViewModel.loadNextPage();
+
+        // Then the following page is requested for the same author, and the filter isn't used
+        verify(mBooksRepository).getBooksByAuthorPage(eq("Larry Page"), eq(nextPageKey),
+                eq(BooksViewModel.PAGE_SIZE), any(LoadBooksPageCallback.class));
+        verify(mBooksRepository, never()).getBooksPage(any(BooksFilterType.class),
+                any(BooksPageKey.class), anyInt(), any(LoadBooksPageCallback.class));
+        assertThat(mBooksViewModel.items.get().size(), is(3));
+    }
+
+    @Test
+    public void loadNextPage_appendsPageAfterLastKey() {
+        // Given a first page that is followed by more books
+        mBooksViewModel.loadBooks(false);
+        verify(mBooksRepository).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                (BooksPageKey) isNull(), eq(BooksViewModel.PAGE_SIZE),
+                mLoadBooksCallbackCaptor.capture());
+        BooksPageKey nextPageKey = BooksPageKey.after(BOOKS.get(2));
+        mLoadBooksCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, nextPageKey);
+
+        // When the next page is requested
+        mBooksViewModel.loadNextPage();
+
+        // Then it is loaded after the key of the first page and appended to the list
+        verify(mBooksRepository).getBooksPage(eq(BooksFilterType.ALL_BOOKS), eq(nextPageKey),
+                eq(BooksViewModel.PAGE_SIZE), mLoadBooksCallbackCaptor.capture());
+        mLoadBooksCallbackCaptor.getValue().onBooksPageLoaded(
+                Lists.newArrayList(new BookListItem("Title4", "id4", "link4")), null);
+        assertThat(mBooksViewModel.items.get().size(), is(4));
+    }
+
+    @Test
+    public void loadNextPage_afterLastPage_doesNothing() {
+        // Given a first page that is also the last one
+        mBooksViewModel.loadBooks(false);
+        verify(mBooksRepository).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                (BooksPageKey) isNull(), eq(BooksViewModel.PAGE_SIZE),
+                mLoadBooksCallbackCaptor.capture());
+        mLoadBooksCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, null);
+
+        // When the next page is requested
+        mBooksViewModel.loadNextPage();
+
+        // Then nothing else is loaded
+        verify(mBooksRepository, never()).getBooksPage(any(BooksFilterType.class),
+                any(BooksPageKey.class), anyInt(), any(LoadBooksPageCallback.class));
+    }
+
+    @Test
+    public void search_isDebouncedThenShowsMatches() {
+        // When a query is typed
+        mBooksViewModel.search("title");
+
+        // Then nothing is searched until the debouncer runs the search
+        verify(mBooksRepository, never()).searchBooks(anyString(), anyInt(), anyInt(),
+                any(LoadBooksListCallback.class));
+        verify(mSearchDebouncer).post(mSearchRunnableCaptor.capture());
+        mSearchRunnableCaptor.getValue().run();
+
+        // And then the first page of matches is shown
+        verify(mBooksRepository).searchBooks(eq("title"), eq(0), eq(BooksViewModel.PAGE_SIZE),
+                mSearchCallbackCaptor.capture());
+        mSearchCallbackCaptor.getValue().onBooksListLoaded(BOOKS);
+        assertThat(mBooksViewModel.items.get().size(), is(3));
+    }
+
+    @Test
+    public void search_emptyQuery_listsAllBooksAgain() {
+        // Given a search that was run
+        searchAndRespond("title", BOOKS);
+
+        // When the query is cleared
+        mBooksViewModel.search("  ");
+
+        // Then the pending search is dropped and all books are listed again
+        verify(mSearchDebouncer).cancel();
+        verify(mBooksRepository).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                (BooksPageKey) isNull(), eq(BooksViewModel.PAGE_SIZE),
+                mLoadBooksCallbackCaptor.capture());
+        mLoadBooksCallbackCaptor.getValue().onBooksPageLoaded(BOOKS.subList(0, 1), null);
+        assertThat(mBooksViewModel.items.get().size(), is(1));
+    }
+
+    @Test
+    public void loadNextPage_whileSearching_loadsNextMatches() {
+        // Given a search whose first page is full
+        List<BookListItem> fullPage = new ArrayList<>();
+        for (int i = 0; i < BooksViewModel.PAGE_SIZE; i++) {
+            fullPage.add(new BookListItem("Title" + i, "id" + i, "link" + i));
+        }
+        searchAndRespond("title", fullPage);
+
+        // When the next page is requested
+        mBooksViewModel.loadNextPage();
+
+        // Then the following matches are appended
+        verify(mBooksRepository).searchBooks(eq("title"), eq(BooksViewModel.PAGE_SIZE),
+                eq(BooksViewModel.PAGE_SIZE), mSearchCallbackCaptor.capture());
+        mSearchCallbackCaptor.getValue().onBooksListLoaded(BOOKS);
+        assertThat(mBooksViewModel.items.get().size(), is(BooksViewModel.PAGE_SIZE + 3));
+        verify(mBooksRepository, never()).getBooksPage(any(BooksFilterType.class),
+                any(BooksPageKey.class), anyInt(), any(LoadBooksPageCallback.class));
+    }
+
+    @Test
+    public void start_afterFirstLoad_doesNotLoadAgain() {
+        // When the screen is shown twice
+        mBooksViewModel.start();
+        mBooksViewModel.start();
+
+        // Then the books are loaded once
+        verify(mBooksRepository).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                (BooksPageKey) isNull(), eq(BooksViewModel.PAGE_SIZE),
+                any(LoadBooksPageCallback.class));
+    }
+
+    @Test
+    public void storedBooksChanged_reloadsOnlyWhenTheyChange() {
+        mBooksViewModel.start();
+
+        // When the stored books are observed, then observed again after a configuration change
+        mBooksViewModel.onStoredBooksChanged(1L);
+        mBooksViewModel.onStoredBooksChanged(1L);
+
+        // Then only the first load was made
+        verify(mBooksRepository).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                (BooksPageKey) isNull(), eq(BooksViewModel.PAGE_SIZE),
+                any(LoadBooksPageCallback.class));
+
+        // When a book is added
+        mBooksViewModel.onStoredBooksChanged(2L);
+
+        // Then the list is loaded again
+        verify(mBooksRepository, times(2)).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                (BooksPageKey) isNull(), eq(BooksViewModel.PAGE_SIZE),
+                any(LoadBooksPageCallback.class));
     }
 
     @Test
@@ -174,4 +390,13 @@ public class BooksViewModelTest {
         // Then the "Add book" action is visible
         assertThat(mBooksViewModel.booksAddViewVisible.get(), is(true));
     }
+
+    private void searchAndRespond(String query, List<BookListItem> matches) {
+        mBooksViewModel.search(query);
+        verify(mSearchDebouncer).post(mSearchRunnableCaptor.capture());
+        mSearchRunnableCaptor.getValue().run();
+        verify(mBooksRepository).searchBooks(eq(query), eq(0), eq(BooksViewModel.PAGE_SIZE),
+                mSearchCallbackCaptor.capture());
+        mSearchCallbackCaptor.getValue().onBooksListLoaded(matches);
+    }
 }
@@ -0,0 +1,51 @@
+package com.zeelo.android.architecture.assignment.booksapp.books;
+
+import com.google.common.collect.Lists;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link GrowingBooksList}, which the books list appends its pages to.
+ */
+public class GrowingBooksListTest {
+
+    private static final List<BookListItem> PAGE_1 = Lists.newArrayList(
+            new BookListItem("Title1", "id1"), new BookListItem("Title2", "id2"));
+
+    private static final List<BookListItem> PAGE_2 = Lists.newArrayList(
+            new BookListItem("Title3", "id3"), new BookListItem("Title4", "id4"),
+            new BookListItem("Title5", "id5"));
+
+    @Test
+    public void append_keepsTheListAppendedTo() {
+        GrowingBooksList first = GrowingBooksList.of(PAGE_1);
+
+        GrowingBooksList both = first.append(PAGE_2);
+
+        assertThat(first, is((List<BookListItem>) PAGE_1));
+        List<BookListItem> expected = Lists.newArrayList(PAGE_1);
+        expected.addAll(PAGE_2);
+        assertThat(both, is(expected));
+        assertThat(both.get(0), sameInstance(first.get(0)));
+    }
+
+    @Test
+    public void append_toAListAlreadyAppendedTo_doesNotChangeTheOtherAppend() {
+        GrowingBooksList first = GrowingBooksList.of(PAGE_1);
+        GrowingBooksList second = first.append(PAGE_2);
+
+        GrowingBooksList other = first.append(PAGE_2.subList(0, 1));
+
+        assertThat(second.get(2), is(PAGE_2.get(0)));
+        assertThat(second.size(), is(5));
+        assertThat(other.size(), is(3));
+        assertThat(other.get(2), is(PAGE_2.get(0)));
+    }
+}
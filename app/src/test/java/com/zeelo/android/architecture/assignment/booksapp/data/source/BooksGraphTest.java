@@ -0,0 +1,129 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksChangesSource;
+import com.zeelo.android.architecture.assignment.booksapp.util.AppExecutors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link BooksGraph}, checking that building the data layer leaves the disk, the
+ * assets and the database to the executors.
+ */
+public class BooksGraphTest {
+
+    private interface RemoteDataSource extends BooksDataSource, BooksChangesSource {
+    }
+
+    /**
+     * Holds the tasks it is given, so the test decides when they run.
+     */
+    private static class RecordingExecutor implements Executor {
+
+        final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            for (Runnable task : new ArrayList<>(mTasks)) {
+                task.run();
+            }
+            mTasks.clear();
+        }
+    }
+
+    @Mock
+    private Context mContext;
+
+    @Mock
+    private AppExecutors mAppExecutors;
+
+    @Mock
+    private RemoteDataSource mRemoteDataSource;
+
+    private RecordingExecutor mNetworkIO = new RecordingExecutor();
+
+    private RecordingExecutor mDiskRead = new RecordingExecutor();
+
+    private RecordingExecutor mMainThread = new RecordingExecutor();
+
+    private Thread mRemoteDataSourceThread;
+
+    private final Callable<RemoteDataSource> mCreateRemoteDataSource =
+            new Callable<RemoteDataSource>() {
+                @Override
+                public RemoteDataSource call() {
+                    mRemoteDataSourceThread = Thread.currentThread();
+                    return mRemoteDataSource;
+                }
+            };
+
+    @Before
+    public void setupAppExecutors() {
+        MockitoAnnotations.initMocks(this);
+        when(mAppExecutors.networkIO()).thenReturn(mNetworkIO);
+        when(mAppExecutors.diskRead()).thenReturn(mDiskRead);
+        when(mAppExecutors.mainThread()).thenReturn(mMainThread);
+        BooksRepository.destroyInstance();
+    }
+
+    @After
+    public void destroyRepositoryInstance() {
+        BooksRepository.destroyInstance();
+    }
+
+    @Test
+    public void newRepository_touchesNothingOnTheCallingThread() {
+        // When the repository is built, with its snapshot
+        BooksRepository repository = BooksGraph.newRepository(mContext, mAppExecutors,
+                mCreateRemoteDataSource, true);
+
+        // Then it is returned at once
+        assertThat(repository, is(notNullValue()));
+        // without reading the assets, the preferences, the cache dir or the database
+        verifyZeroInteractions(mContext);
+        assertThat(mRemoteDataSourceThread, is((Thread) null));
+        // which are left to the executors
+        assertThat(mNetworkIO.mTasks.size(), is(1));
+        assertThat(mDiskRead.mTasks.size(), is(1));
+    }
+
+    @Test
+    public void remoteDataSource_isCreatedOnTheNetworkExecutor() throws InterruptedException {
+        BooksGraph.newRepository(mContext, mAppExecutors, mCreateRemoteDataSource, false);
+
+        // When the network executor runs its task on another thread
+        Thread networkIO = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mNetworkIO.runAll();
+            }
+        });
+        networkIO.start();
+        networkIO.join();
+
+        // Then the remote data source is created there
+        assertThat(mRemoteDataSourceThread, is(networkIO));
+        verifyZeroInteractions(mContext);
+    }
+}
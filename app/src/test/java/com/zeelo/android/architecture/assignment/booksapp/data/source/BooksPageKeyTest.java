@@ -0,0 +1,85 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import com.google.common.collect.Lists;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Unit tests for the order of {@link BooksPageKey}, which must match the queries of the books
+ * list.
+ */
+public class BooksPageKeyTest {
+
+    @Test
+    public void orderByPageCount_sortsMissingCountsFirstThenNumerically() {
+        List<BookListItem> books = Lists.newArrayList(book("id1", 1200), book("id2", 96),
+                book("id3", null), book("id0", 96));
+
+        Collections.sort(books, BooksPageKey.order(BooksSortType.PAGE_COUNT));
+
+        assertThat(ids(books), is(Lists.newArrayList("id3", "id0", "id2", "id1")));
+    }
+
+    @Test
+    public void orderByAuthor_sortsBooksWithoutAuthorFirst() {
+        BookListItem tolstoy = new BookListItem("War and Peace", "id1");
+        tolstoy.getVolumeInfo().setAuthors(Lists.newArrayList("Leo Tolstoy"));
+        BookListItem anonymous = new BookListItem("Beowulf", "id2");
+        anonymous.getVolumeInfo().setAuthors(Lists.newArrayList(""));
+        BookListItem austen = new BookListItem("Emma", "id3");
+        austen.getVolumeInfo().setAuthors(Lists.newArrayList("jane Austen", "Someone Else"));
+        List<BookListItem> books = Lists.newArrayList(tolstoy, anonymous, austen);
+
+        Collections.sort(books, BooksPageKey.order(BooksSortType.AUTHOR));
+
+        assertThat(ids(books), is(Lists.newArrayList("id2", "id3", "id1")));
+    }
+
+    @Test
+    public void sortByTitle_sortsLikeTheOrderOfTitles() {
+        // Given titles differing by case and accents only, a missing one and a duplicate
+        List<BookListItem> books = Lists.newArrayList(new BookListItem("emma", "id1"),
+                new BookListItem("\u00C9mile", "id2"), new BookListItem(null, "id3"),
+                new BookListItem("Emma", "id0"), new BookListItem("Zadig", "id4"),
+                new BookListItem("\u00C9mile", "id5"), new BookListItem("ab", "id6"));
+        List<BookListItem> expected = Lists.newArrayList(books);
+        Collections.sort(expected, BooksPageKey.ORDER);
+
+        // When the books are sorted by their collation keys
+        BooksPageKey.sortByTitle(books);
+
+        // Then they are in the order the collator compares them in
+        assertThat(ids(books), is(ids(expected)));
+    }
+
+    @Test
+    public void isBefore_followsTheOrderOfItsSortType() {
+        BooksPageKey key = BooksPageKey.after(BooksSortType.PAGE_COUNT, book("id2", 300));
+
+        assertThat(key.isBefore(book("id1", 301)), is(true));
+        assertThat(key.isBefore(book("id3", 300)), is(true));
+        assertThat(key.isBefore(book("id1", 300)), is(false));
+        assertThat(key.isBefore(book("id9", null)), is(false));
+    }
+
+    private static BookListItem book(String id, Integer pageCount) {
+        BookListItem book = new BookListItem("Title", id);
+        book.getVolumeInfo().setPageCount(pageCount);
+        return book;
+    }
+
+    private static List<String> ids(List<BookListItem> books) {
+        List<String> ids = Lists.newArrayList();
+        for (BookListItem book : books) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+}
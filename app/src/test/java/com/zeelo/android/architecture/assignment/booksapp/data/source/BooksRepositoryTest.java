@@ -1,9 +1,16 @@
 
 package com.zeelo.android.architecture.assignment.booksapp.data.source;
 
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MutableLiveData;
+
 import com.google.common.collect.Lists;
 import com.zeelo.android.architecture.assignment.booksapp.data.Book;
 import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.cache.BooksSnapshotStore;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksDelta;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksSyncEngine;
 
 import org.junit.After;
 import org.junit.Before;
@@ -16,12 +23,18 @@ import org.mockito.MockitoAnnotations;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Unit tests for the implementation of the in-memory repository with cache.
@@ -45,20 +58,57 @@ public class BooksRepositoryTest {
     private BooksDataSource mBooksRemoteDataSource;
 
     @Mock
-    private BooksDataSource mBooksLocalDataSource;
+    private ObservableBooksDataSource mBooksLocalDataSource;
+
+    @Mock
+    private BooksSyncEngine mSyncEngine;
+
+    @Mock
+    private BooksSnapshotStore mSnapshot;
+
+    @Captor
+    private ArgumentCaptor<BooksSyncEngine.SyncCallback> mSyncCallbackCaptor;
 
     @Mock
     private BooksDataSource.GetBookDetailsCallback mGetBookDetailsCallback;
 
+    @Mock
+    private BooksDataSource.GetBookDescriptionCallback mGetBookDescriptionCallback;
+
+    @Captor
+    private ArgumentCaptor<BooksDataSource.GetBookDescriptionCallback> mDescriptionCallbackCaptor;
+
     @Mock
     private BooksDataSource.LoadBooksListCallback mLoadBooksListCallback;
 
     @Captor
     private ArgumentCaptor<BooksDataSource.LoadBooksListCallback> mBooksCallbackCaptor;
 
+    @Captor
+    private ArgumentCaptor<List<BookListItem>> mBooksListCaptor;
+
     @Captor
     private ArgumentCaptor<BooksDataSource.GetBookDetailsCallback> mBookCallbackCaptor;
 
+    @Mock
+    private BooksDataSource.LoadBooksPageCallback mLoadBooksPageCallback;
+
+    @Captor
+    private ArgumentCaptor<BooksDataSource.LoadBooksPageCallback> mBooksPageCallbackCaptor;
+
+    @Mock
+    private BooksDataSource.GetStatisticsCallback mGetStatisticsCallback;
+
+    @Captor
+    private ArgumentCaptor<BooksDataSource.GetStatisticsCallback> mStatisticsCallbackCaptor;
+
+    @Captor
+    private ArgumentCaptor<BooksStatistics> mStatisticsCaptor;
+
+    @Captor
+    private ArgumentCaptor<ObservableBooksDataSource.SaveBooksListItemsCallback>
+            mSaveCallbackCaptor;
+
     @Before
     public void setupBooksRepository() {
         // Mockito has a very convenient way to inject mocks by using the @Mock annotation. To
@@ -67,7 +117,7 @@ public class BooksRepositoryTest {
 
         // Get a reference to the class under test
         mBooksRepository = BooksRepository.getInstance(
-                mBooksRemoteDataSource, mBooksLocalDataSource);
+                mBooksRemoteDataSource, mBooksLocalDataSource, mSyncEngine, null);
     }
 
     @After
@@ -94,6 +144,322 @@ public class BooksRepositoryTest {
         verify(mBooksLocalDataSource).getBooks(any(BooksDataSource.LoadBooksListCallback.class));
     }
 
+    @Test
+    public void getBooks_concurrentCallsShareOneLoad() {
+        BooksDataSource.LoadBooksListCallback otherCallback =
+                mock(BooksDataSource.LoadBooksListCallback.class);
+
+        // When books are requested twice before the local data source responds
+        mBooksRepository.getBooks(mLoadBooksListCallback);
+        mBooksRepository.getBooks(otherCallback);
+
+        // Then the local and remote data sources are each read once, for both calls
+        setBooksNotAvailable(mBooksLocalDataSource);
+        setBooksAvailable(mBooksRemoteDataSource, BOOKS);
+        verify(mLoadBooksListCallback).onBooksListLoaded(BOOKS);
+        verify(otherCallback).onBooksListLoaded(BOOKS);
+    }
+
+    @Test
+    public void getBooks_fromCache_areInPageOrder() {
+        // Given books loaded from the local data source in no particular order
+        BookListItem first = new BookListItem("A title", "Id3");
+        BookListItem second = new BookListItem("Title1", "Id1");
+        BookListItem third = new BookListItem("Title2", "Id2");
+        mBooksRepository.getBooks(mLoadBooksListCallback);
+        setBooksAvailable(mBooksLocalDataSource, Lists.newArrayList(third, first, second));
+
+        // When they are requested again
+        BooksDataSource.LoadBooksListCallback otherCallback =
+                mock(BooksDataSource.LoadBooksListCallback.class);
+        mBooksRepository.getBooks(otherCallback);
+
+        // Then the cache serves them in the order of the pages
+        verify(otherCallback).onBooksListLoaded(Lists.newArrayList(first, second, third));
+    }
+
+    @Test
+    public void getBooks_afterSharedLoad_startsAgain() {
+        // Given a load that failed
+        mBooksRepository.getBooks(mLoadBooksListCallback);
+        setBooksNotAvailable(mBooksLocalDataSource);
+        setBooksNotAvailable(mBooksRemoteDataSource);
+
+        // When books are requested again
+        mBooksRepository.getBooks(mLoadBooksListCallback);
+
+        // Then they are read from the local data source again
+        verify(mBooksLocalDataSource, times(2)).getBooks(
+                any(BooksDataSource.LoadBooksListCallback.class));
+    }
+
+    @Test
+    public void getBooksPage_requestsPageFromLocalDataSource() {
+        // Given the key of a previous page
+        BooksPageKey after = BooksPageKey.after(BOOKS.get(0));
+
+        // When the following page is requested from the books repository
+        mBooksRepository.getBooksPage(BooksFilterType.ALL_BOOKS, after, 20, mLoadBooksPageCallback);
+
+        // Then it is loaded from the local data source
+        verify(mBooksLocalDataSource).getBooksPage(eq(BooksFilterType.ALL_BOOKS), eq(after), eq(20),
+                mBooksPageCallbackCaptor.capture());
+        mBooksPageCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, null);
+        verify(mLoadBooksPageCallback).onBooksPageLoaded(BOOKS, null);
+        verify(mBooksRemoteDataSource, never()).getBooks(any(BooksDataSource.LoadBooksListCallback.class));
+    }
+
+    @Test
+    public void getFirstBooksPage_isCachedPerFilter() {
+        // Given the first pages of two filters were loaded
+        loadFirstPage(BooksFilterType.FAVORITED_BOOKS, BOOKS.subList(0, 1));
+        loadFirstPage(BooksFilterType.NOT_FAVORITED_BOOKS, BOOKS.subList(1, 2));
+
+        // When switching back to the first filter
+        mBooksRepository.getBooksPage(BooksFilterType.FAVORITED_BOOKS, null, 20,
+                mLoadBooksPageCallback);
+
+        // Then its first page is served from the cache
+        verify(mBooksLocalDataSource, times(1)).getBooksPage(eq(BooksFilterType.FAVORITED_BOOKS),
+                eq((BooksPageKey) null), eq(20), any(BooksDataSource.LoadBooksPageCallback.class));
+        verify(mLoadBooksPageCallback, times(2)).onBooksPageLoaded(BOOKS.subList(0, 1), null);
+    }
+
+    @Test
+    public void favoriteBook_clearsCachedFirstPages() {
+        // Given the first page of a filter was loaded
+        loadFirstPage(BooksFilterType.FAVORITED_BOOKS, BOOKS.subList(0, 1));
+
+        // When a book is favorited
+        Book book = new Book(BOOK_TITLE, "Some Book Description");
+        mBooksRepository.favoriteBook(book);
+        mBooksRepository.getBooksPage(BooksFilterType.FAVORITED_BOOKS, null, 20,
+                mLoadBooksPageCallback);
+
+        // Then the page is loaded again
+        verify(mBooksLocalDataSource, times(2)).getBooksPage(eq(BooksFilterType.FAVORITED_BOOKS),
+                eq((BooksPageKey) null), eq(20), any(BooksDataSource.LoadBooksPageCallback.class));
+    }
+
+    @Test
+    public void getFirstBooksPage_loadedBeforeAChangeIsNotCached() {
+        // Given a first page being loaded when a book is deleted
+        mBooksRepository.getBooksPage(BooksFilterType.ALL_BOOKS, null, 20, mLoadBooksPageCallback);
+        verify(mBooksLocalDataSource).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                eq((BooksPageKey) null), eq(20), mBooksPageCallbackCaptor.capture());
+        mBooksRepository.deleteBook("Id1");
+        mBooksPageCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, null);
+
+        // When the first page is requested again
+        mBooksRepository.getBooksPage(BooksFilterType.ALL_BOOKS, null, 20, mLoadBooksPageCallback);
+
+        // Then it is loaded again rather than served with the deleted book
+        verify(mBooksLocalDataSource, times(2)).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                eq((BooksPageKey) null), eq(20), any(BooksDataSource.LoadBooksPageCallback.class));
+    }
+
+    @Test
+    public void getSortedBooksPage_readsLocalDataSourceWithoutCaching() {
+        // Given the first page sorted by published date was loaded
+        mBooksRepository.getSortedBooksPage(BooksSortType.PUBLISHED_DATE,
+                BooksFilterType.ALL_BOOKS, null, 20, mLoadBooksPageCallback);
+        verify(mBooksLocalDataSource).getSortedBooksPage(eq(BooksSortType.PUBLISHED_DATE),
+                eq(BooksFilterType.ALL_BOOKS), eq((BooksPageKey) null), eq(20),
+                mBooksPageCallbackCaptor.capture());
+        mBooksPageCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, null);
+        verify(mLoadBooksPageCallback).onBooksPageLoaded(BOOKS, null);
+
+        // When it is requested again
+        mBooksRepository.getSortedBooksPage(BooksSortType.PUBLISHED_DATE,
+                BooksFilterType.ALL_BOOKS, null, 20, mLoadBooksPageCallback);
+
+        // Then it is read from the local data source again, and never by title
+        verify(mBooksLocalDataSource, times(2)).getSortedBooksPage(
+                eq(BooksSortType.PUBLISHED_DATE), eq(BooksFilterType.ALL_BOOKS),
+                eq((BooksPageKey) null), eq(20),
+                any(BooksDataSource.LoadBooksPageCallback.class));
+        verify(mBooksLocalDataSource, never()).getBooksPage(any(BooksFilterType.class),
+                any(BooksPageKey.class), anyInt(),
+                any(BooksDataSource.LoadBooksPageCallback.class));
+    }
+
+    @Test
+    public void searchBooks_searchesLocalDataSource() {
+        // When books are searched in the books repository
+        mBooksRepository.searchBooks(BOOK_TITLE, 0, 20, mLoadBooksListCallback);
+
+        // Then the local data source is searched and its matches are returned
+        verify(mBooksLocalDataSource).searchBooks(eq(BOOK_TITLE), eq(0), eq(20),
+                mBooksCallbackCaptor.capture());
+        mBooksCallbackCaptor.getValue().onBooksListLoaded(BOOKS);
+        verify(mLoadBooksListCallback).onBooksListLoaded(BOOKS);
+        verify(mBooksRemoteDataSource, never()).searchBooks(anyString(), anyInt(), anyInt(),
+                any(BooksDataSource.LoadBooksListCallback.class));
+    }
+
+    @Test
+    public void getBooksByAuthorPage_readsLocalDataSource() {
+        // When the books of an author are requested from the books repository
+        mBooksRepository.getBooksByAuthorPage("Larry Page", null, 20, mLoadBooksPageCallback);
+
+        // Then they are read from the local data source, which indexes the authors
+        verify(mBooksLocalDataSource).getBooksByAuthorPage(eq("Larry Page"),
+                eq((BooksPageKey) null), eq(20), mBooksPageCallbackCaptor.capture());
+        mBooksPageCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, null);
+        verify(mLoadBooksPageCallback).onBooksPageLoaded(BOOKS, null);
+        verify(mBooksRemoteDataSource, never()).getBooksByAuthorPage(anyString(),
+                any(BooksPageKey.class), anyInt(),
+                any(BooksDataSource.LoadBooksPageCallback.class));
+    }
+
+    @Test
+    public void getFirstBooksPageWithLocalDataSourceUnavailable_fetchesAndPersistsRemoteBooks() {
+        // When the first page is requested and the local data source is empty
+        mBooksRepository.getBooksPage(BooksFilterType.ALL_BOOKS, null, 20, mLoadBooksPageCallback);
+        verify(mBooksLocalDataSource).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                eq((BooksPageKey) null), eq(20),
+                mBooksPageCallbackCaptor.capture());
+        mBooksPageCallbackCaptor.getValue().onDataNotAvailable();
+
+        // And the remote data source has data available
+        setBooksAvailable(mBooksRemoteDataSource, BOOKS);
+
+        // Then the remote books are persisted and the page is served from the remote data source
+        verify(mBooksLocalDataSource).saveBooksListItems(eq(BOOKS),
+                any(ObservableBooksDataSource.SaveBooksListItemsCallback.class));
+        verify(mBooksRemoteDataSource).getSortedBooksPage(eq(BooksSortType.TITLE),
+                eq(BooksFilterType.ALL_BOOKS), eq((BooksPageKey) null), eq(20),
+                mBooksPageCallbackCaptor.capture());
+        mBooksPageCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, null);
+        verify(mLoadBooksPageCallback).onBooksPageLoaded(BOOKS, null);
+    }
+
+    @Test
+    public void getNextBooksPage_whileRemoteBooksAreStored_readsTheRemoteDataSource() {
+        // Given remote books fetched for the first page, which the local data source is storing
+        mBooksRepository.getBooksPage(BooksFilterType.ALL_BOOKS, null, 20, mLoadBooksPageCallback);
+        verify(mBooksLocalDataSource).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                eq((BooksPageKey) null), eq(20), mBooksPageCallbackCaptor.capture());
+        mBooksPageCallbackCaptor.getValue().onDataNotAvailable();
+        setBooksAvailable(mBooksRemoteDataSource, BOOKS);
+        verify(mBooksLocalDataSource).saveBooksListItems(eq(BOOKS), mSaveCallbackCaptor.capture());
+        BooksPageKey after = BooksPageKey.after(BOOKS.get(0));
+
+        // When the next page is requested before they are stored
+        mBooksRepository.getBooksPage(BooksFilterType.ALL_BOOKS, after, 20,
+                mLoadBooksPageCallback);
+
+        // Then it is read from the remote data source, rather than from the local one
+        verify(mBooksRemoteDataSource).getBooksPage(eq(BooksFilterType.ALL_BOOKS), eq(after),
+                eq(20), any(BooksDataSource.LoadBooksPageCallback.class));
+        verify(mBooksLocalDataSource, never()).getBooksPage(any(BooksFilterType.class), eq(after),
+                anyInt(), any(BooksDataSource.LoadBooksPageCallback.class));
+
+        // And once they are stored, pages are read from the local data source again
+        mSaveCallbackCaptor.getValue().onBooksListItemsSaved();
+        mBooksRepository.getBooksPage(BooksFilterType.ALL_BOOKS, after, 20,
+                mLoadBooksPageCallback);
+        verify(mBooksLocalDataSource).getBooksPage(eq(BooksFilterType.ALL_BOOKS), eq(after),
+                eq(20), any(BooksDataSource.LoadBooksPageCallback.class));
+    }
+
+    @Test
+    public void getStatistics_areCountedOnceByLocalDataSource() {
+        // Given statistics counted by the local data source
+        BooksStatistics statistics = BooksStatistics.newBuilder().addBooks(true, 2).build();
+        mBooksRepository.getStatistics(mGetStatisticsCallback);
+        verify(mBooksLocalDataSource).getStatistics(mStatisticsCallbackCaptor.capture());
+        mStatisticsCallbackCaptor.getValue().onStatisticsLoaded(statistics);
+
+        // When they are requested again
+        mBooksRepository.getStatistics(mGetStatisticsCallback);
+
+        // Then they are served without counting the books again
+        verify(mBooksLocalDataSource, times(1)).getStatistics(
+                any(BooksDataSource.GetStatisticsCallback.class));
+        verify(mGetStatisticsCallback, times(2)).onStatisticsLoaded(statistics);
+    }
+
+    @Test
+    public void getStatisticsWithLocalDataSourceUnavailable_areCountedByRemote() {
+        // When statistics are requested and nothing is stored
+        mBooksRepository.getStatistics(mGetStatisticsCallback);
+        verify(mBooksLocalDataSource).getStatistics(mStatisticsCallbackCaptor.capture());
+        mStatisticsCallbackCaptor.getValue().onDataNotAvailable();
+
+        // Then the remote data source counts the books
+        verify(mBooksRemoteDataSource).getStatistics(mStatisticsCallbackCaptor.capture());
+        mStatisticsCallbackCaptor.getValue().onStatisticsLoaded(BooksStatistics.empty());
+        verify(mGetStatisticsCallback).onStatisticsLoaded(BooksStatistics.empty());
+    }
+
+    @Test
+    public void favoriteBook_updatesStatisticsIncrementally() {
+        // Given a complete cache of two not favorite books
+        twoBooksLoadCallsToRepository(mLoadBooksListCallback);
+
+        // When one of them is favorited
+        mBooksRepository.favoriteBook(new Book("Title1", "Id1", "Some Book Description"));
+
+        // Then the statistics count it as favorite without reading any book
+        BooksStatistics statistics = getStatistics();
+        assertThat(statistics.getFavoriteBooks(), is(1));
+        assertThat(statistics.getNotFavoriteBooks(), is(1));
+        verify(mBooksLocalDataSource, never()).getStatistics(
+                any(BooksDataSource.GetStatisticsCallback.class));
+    }
+
+    @Test
+    public void saveAndDeleteBook_updateStatisticsIncrementally() {
+        // Given a complete cache of two not favorite books
+        twoBooksLoadCallsToRepository(mLoadBooksListCallback);
+
+        // When a favorite book is added and one of the others deleted
+        mBooksRepository.saveBook(new Book(BOOK_TITLE, "Id3", "Some Book Description", true));
+        mBooksRepository.deleteBook("Id1");
+
+        // Then the statistics count both changes
+        BooksStatistics statistics = getStatistics();
+        assertThat(statistics.getFavoriteBooks(), is(1));
+        assertThat(statistics.getNotFavoriteBooks(), is(1));
+        verify(mBooksLocalDataSource, never()).getStatistics(
+                any(BooksDataSource.GetStatisticsCallback.class));
+    }
+
+    @Test
+    public void getStatistics_concurrentCallsShareOneCount() {
+        BooksStatistics statistics = BooksStatistics.newBuilder().addBooks(false, 3).build();
+        BooksDataSource.GetStatisticsCallback otherCallback =
+                mock(BooksDataSource.GetStatisticsCallback.class);
+
+        // When statistics are requested twice before the local data source responds
+        mBooksRepository.getStatistics(mGetStatisticsCallback);
+        mBooksRepository.getStatistics(otherCallback);
+
+        // Then the books are counted once, for both calls
+        verify(mBooksLocalDataSource).getStatistics(mStatisticsCallbackCaptor.capture());
+        mStatisticsCallbackCaptor.getValue().onStatisticsLoaded(statistics);
+        verify(mGetStatisticsCallback).onStatisticsLoaded(statistics);
+        verify(otherCallback).onStatisticsLoaded(statistics);
+    }
+
+    @Test
+    public void getStatistics_countedBeforeAChangeAreNotKept() {
+        // Given statistics being counted when a book is deleted
+        mBooksRepository.getStatistics(mGetStatisticsCallback);
+        verify(mBooksLocalDataSource).getStatistics(mStatisticsCallbackCaptor.capture());
+        mBooksRepository.deleteBook("Id1");
+        mStatisticsCallbackCaptor.getValue().onStatisticsLoaded(
+                BooksStatistics.newBuilder().addBooks(false, 2).build());
+
+        // When they are requested again
+        mBooksRepository.getStatistics(mGetStatisticsCallback);
+
+        // Then the books are counted again
+        verify(mBooksLocalDataSource, times(2)).getStatistics(
+                any(BooksDataSource.GetStatisticsCallback.class));
+    }
+
     @Test
     public void saveBook_savesBookToServiceAPI() {
         // Given a stub book with title and link
@@ -168,6 +534,76 @@ public class BooksRepositoryTest {
                 BooksDataSource.GetBookDetailsCallback.class));
     }
 
+    @Test
+    public void getBook_concurrentCallsForTheSameBookShareOneLoad() {
+        Book book = new Book(BOOK_TITLE, BOOK_ID, "Some Book Description");
+        BooksDataSource.GetBookDetailsCallback otherCallback =
+                mock(BooksDataSource.GetBookDetailsCallback.class);
+
+        // When a book is requested twice before the local data source responds
+        mBooksRepository.getBookDetails(BOOK_ID, mGetBookDetailsCallback);
+        mBooksRepository.getBookDetails(BOOK_ID, otherCallback);
+
+        // Then it is read once from the local data source, for both calls
+        setBookAvailable(mBooksLocalDataSource, book);
+        verify(mGetBookDetailsCallback).onBookDetailsLoaded(book);
+        verify(otherCallback).onBookDetailsLoaded(book);
+    }
+
+    @Test
+    public void getBook_concurrentCallsForDifferentBooks_loadEach() {
+        // When two books are requested before the local data source responds
+        mBooksRepository.getBookDetails(BOOK_ID, mGetBookDetailsCallback);
+        mBooksRepository.getBookDetails("id2", mGetBookDetailsCallback);
+
+        // Then each is read from the local data source
+        verify(mBooksLocalDataSource).getBookDetails(eq(BOOK_ID),
+                any(BooksDataSource.GetBookDetailsCallback.class));
+        verify(mBooksLocalDataSource).getBookDetails(eq("id2"),
+                any(BooksDataSource.GetBookDetailsCallback.class));
+    }
+
+    @Test
+    public void getBookDescription_ofCachedBookWithDescription_isServedFromCache() {
+        mBooksRepository.saveBook(new Book(BOOK_TITLE, BOOK_ID, "Some Book Description"));
+
+        mBooksRepository.getBookDescription(BOOK_ID, mGetBookDescriptionCallback);
+
+        verify(mGetBookDescriptionCallback).onDescriptionLoaded("Some Book Description");
+        verify(mBooksLocalDataSource, never()).getBookDescription(anyString(),
+                any(BooksDataSource.GetBookDescriptionCallback.class));
+    }
+
+    @Test
+    public void getBookDescription_ofStoredBook_isReadFromLocalDataSource() {
+        // Given a cached book read from the database, without its description
+        mBooksRepository.saveBook(new Book(BOOK_TITLE, BOOK_ID, null));
+
+        // When its description is requested
+        mBooksRepository.getBookDescription(BOOK_ID, mGetBookDescriptionCallback);
+
+        // Then it is read from the local data source
+        verify(mBooksLocalDataSource).getBookDescription(eq(BOOK_ID),
+                mDescriptionCallbackCaptor.capture());
+        mDescriptionCallbackCaptor.getValue().onDescriptionLoaded("Stored Description");
+        verify(mGetBookDescriptionCallback).onDescriptionLoaded("Stored Description");
+        verify(mBooksRemoteDataSource, never()).getBookDescription(anyString(),
+                any(BooksDataSource.GetBookDescriptionCallback.class));
+    }
+
+    @Test
+    public void getBookDescription_ofBookNotStored_isReadFromRemoteDataSource() {
+        mBooksRepository.getBookDescription(BOOK_ID, mGetBookDescriptionCallback);
+
+        verify(mBooksLocalDataSource).getBookDescription(eq(BOOK_ID),
+                mDescriptionCallbackCaptor.capture());
+        mDescriptionCallbackCaptor.getValue().onDataNotAvailable();
+        verify(mBooksRemoteDataSource).getBookDescription(eq(BOOK_ID),
+                mDescriptionCallbackCaptor.capture());
+        mDescriptionCallbackCaptor.getValue().onDescriptionLoaded("Remote Description");
+        verify(mGetBookDescriptionCallback).onDescriptionLoaded("Remote Description");
+    }
+
     @Test
     public void deleteAllBooks_deleteBooksToServiceAPIUpdatesCache() {
         // Given 2 stub favorite books and 1 stub not favorite books in the repository
@@ -207,19 +643,80 @@ public class BooksRepositoryTest {
     }
 
     @Test
-    public void getBooksWithDirtyCache_booksAreRetrievedFromRemote() {
+    public void getBooksWithDirtyCache_changesAreSyncedBeforeLoading() {
         // When calling getBooks in the repository with dirty cache
         mBooksRepository.refreshBooks();
         mBooksRepository.getBooks(mLoadBooksListCallback);
 
-        // And the remote data source has data available
-        setBooksAvailable(mBooksRemoteDataSource, BOOKS);
+        // Then the changes are synced instead of refetching every book
+        verify(mBooksLocalDataSource, never()).getBooks(any(BooksDataSource.LoadBooksListCallback.class));
+        setSyncSucceeded(BooksDelta.newBuilder(1).build());
+        verify(mBooksRemoteDataSource, never()).getBooks(any(BooksDataSource.LoadBooksListCallback.class));
 
-        // Verify the books from the remote data source are returned, not the local
-        verify(mBooksLocalDataSource, never()).getBooks(mLoadBooksListCallback);
+        // And the synced books are loaded from the local data source
+        setBooksAvailable(mBooksLocalDataSource, BOOKS);
         verify(mLoadBooksListCallback).onBooksListLoaded(BOOKS);
     }
 
+    @Test
+    public void getBooksWithDirtyCacheAndSyncFailing_storedBooksAreReturned() {
+        // When calling getBooks in the repository with dirty cache
+        mBooksRepository.refreshBooks();
+        mBooksRepository.getBooks(mLoadBooksListCallback);
+
+        // And the changes can't be synced
+        setSyncFailed();
+
+        // Verify the books already stored are returned
+        setBooksAvailable(mBooksLocalDataSource, BOOKS);
+        verify(mLoadBooksListCallback).onBooksListLoaded(BOOKS);
+    }
+
+    @Test
+    public void getBooksWithDirtyCompleteCache_syncedDeltaIsAppliedToCache() {
+        // Given a cache holding every book
+        twoBooksLoadCallsToRepository(mLoadBooksListCallback);
+        BookListItem changed = new BookListItem("Title1 (2nd edition)", "Id1");
+        BookListItem added = new BookListItem("Title3", "Id3");
+        Book addedBook = new Book("Title3", "Id3", "Description3", false);
+
+        // When the books are refreshed and the server changed, added and deleted books
+        mBooksRepository.refreshBooks();
+        mBooksRepository.getBooks(mLoadBooksListCallback);
+        setSyncSucceeded(BooksDelta.newBuilder(2)
+                .upsert(changed, null)
+                .upsert(added, addedBook)
+                .delete("Id2")
+                .build());
+
+        // Then the cache is updated in place and served without reloading the books
+        verify(mBooksLocalDataSource).getBooks(any(BooksDataSource.LoadBooksListCallback.class));
+        assertThat(mBooksRepository.mCachedListItems.isComplete(), is(true));
+        assertThat(mBooksRepository.mCachedListItems.get("Id1").getTitle(),
+                is("Title1 (2nd edition)"));
+        assertThat(mBooksRepository.mCachedListItems.containsKey("Id2"), is(false));
+        assertThat(mBooksRepository.mCachedBooks.get("Id3"), is(addedBook));
+        verify(mLoadBooksListCallback, times(3)).onBooksListLoaded(any(List.class));
+    }
+
+    @Test
+    public void getFirstBooksPageWithDirtyCache_changesAreSyncedBeforeLoading() {
+        // When the first page is requested with dirty cache
+        mBooksRepository.refreshBooks();
+        mBooksRepository.getBooksPage(BooksFilterType.ALL_BOOKS, null, 20, mLoadBooksPageCallback);
+
+        // Then the changes are synced before the page is loaded locally
+        verify(mBooksLocalDataSource, never()).getBooksPage(any(BooksFilterType.class),
+                any(BooksPageKey.class), anyInt(),
+                any(BooksDataSource.LoadBooksPageCallback.class));
+        setSyncSucceeded(BooksDelta.newBuilder(1).build());
+        verify(mBooksLocalDataSource).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                eq((BooksPageKey) null), eq(20),
+                mBooksPageCallbackCaptor.capture());
+        mBooksPageCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, null);
+        verify(mLoadBooksPageCallback).onBooksPageLoaded(BOOKS, null);
+    }
+
     @Test
     public void getBooksWithLocalDataSourceUnavailable_booksAreRetrievedFromRemote() {
         // When calling getBooks in the repository
@@ -270,17 +767,126 @@ public class BooksRepositoryTest {
 
     @Test
     public void getBooks_refreshesLocalDataSource() {
-        // Mark cache as dirty to force a reload of data from remote data source.
-        mBooksRepository.refreshBooks();
-
-        // When calling getBooks in the repository
+        // When calling getBooks in the repository and the local data source is empty
         mBooksRepository.getBooks(mLoadBooksListCallback);
+        setBooksNotAvailable(mBooksLocalDataSource);
 
         // Make the remote data source return data
         setBooksAvailable(mBooksRemoteDataSource, BOOKS);
 
         // Verify that the data fetched from the remote data source was saved in local.
-        verify(mBooksLocalDataSource, times(BOOKS.size())).saveBook(any(Book.class));
+        verify(mBooksLocalDataSource).saveBooksListItems(eq(BOOKS),
+                any(ObservableBooksDataSource.SaveBooksListItemsCallback.class));
+    }
+
+    @Test
+    public void observeBooksVersion_observersShareOneLiveData() {
+        when(mBooksLocalDataSource.observeBooksVersion()).thenReturn(new MutableLiveData<Long>());
+
+        // When the books are observed twice
+        LiveData<Long> first = mBooksRepository.observeBooksVersion();
+        LiveData<Long> second = mBooksRepository.observeBooksVersion();
+
+        // Then both observe the same version, tracked by the local data source
+        assertThat(second, is(sameInstance(first)));
+        verify(mBooksLocalDataSource).observeBooksVersion();
+    }
+
+    @Test
+    public void observeBook_observersOfTheSameBookShareOneLiveData() {
+        when(mBooksLocalDataSource.observeBook(BOOK_ID)).thenReturn(new MutableLiveData<Book>());
+        when(mBooksLocalDataSource.observeBook("id2")).thenReturn(new MutableLiveData<Book>());
+
+        // When a book is observed twice and another one once
+        LiveData<Book> first = mBooksRepository.observeBook(BOOK_ID);
+        LiveData<Book> second = mBooksRepository.observeBook(BOOK_ID);
+        LiveData<Book> other = mBooksRepository.observeBook("id2");
+
+        // Then the observers of the same book share it only
+        assertThat(second, is(sameInstance(first)));
+        assertThat(other, is(not(sameInstance(first))));
+        verify(mBooksLocalDataSource).observeBook(BOOK_ID);
+    }
+
+    @Test
+    public void observeStatistics_observersShareOneLiveData() {
+        when(mBooksLocalDataSource.observeStatistics())
+                .thenReturn(new MutableLiveData<BooksStatistics>());
+
+        LiveData<BooksStatistics> first = mBooksRepository.observeStatistics();
+
+        assertThat(mBooksRepository.observeStatistics(), is(sameInstance(first)));
+        verify(mBooksLocalDataSource).observeStatistics();
+    }
+
+    @Test
+    public void getFirstBooksPage_atColdStart_isCutFromSnapshot() {
+        useSnapshot();
+        BookListItem favorite = new BookListItem("Title2", "Id2");
+        favorite.setFavorite(true);
+        List<BookListItem> snapshot = Lists.newArrayList(new BookListItem("Title1", "Id1"),
+                favorite, new BookListItem("Title3", "Id3"));
+
+        // When the first page is requested at cold start and the snapshot is read
+        mBooksRepository.getBooksPage(BooksFilterType.NOT_FAVORITED_BOOKS, null, 1,
+                mLoadBooksPageCallback);
+        verify(mSnapshot).load(mBooksCallbackCaptor.capture());
+        mBooksCallbackCaptor.getValue().onBooksListLoaded(snapshot);
+
+        // Then the page is cut from it, and every book is cached without querying the database
+        verify(mLoadBooksPageCallback).onBooksPageLoaded(snapshot.subList(0, 1),
+                BooksPageKey.after(snapshot.get(0)));
+        mBooksRepository.getBooks(mLoadBooksListCallback);
+        verify(mLoadBooksListCallback).onBooksListLoaded(mBooksListCaptor.capture());
+        assertThat(mBooksListCaptor.getValue(), is(snapshot));
+        verify(mBooksLocalDataSource, never()).getBooksPage(any(BooksFilterType.class),
+                any(BooksPageKey.class), anyInt(), any(BooksDataSource.LoadBooksPageCallback.class));
+        verify(mBooksLocalDataSource, never()).getBooks(
+                any(BooksDataSource.LoadBooksListCallback.class));
+        verify(mSnapshot, never()).save(any(List.class));
+    }
+
+    @Test
+    public void getBooks_withoutSnapshot_readsLocalDataSourceAndSavesSnapshot() {
+        useSnapshot();
+
+        // When the books are requested at cold start and there is no snapshot
+        mBooksRepository.getBooks(mLoadBooksListCallback);
+        verify(mSnapshot).load(mBooksCallbackCaptor.capture());
+        mBooksCallbackCaptor.getValue().onDataNotAvailable();
+
+        // Then they are read from the local data source and saved as the snapshot
+        setBooksAvailable(mBooksLocalDataSource, BOOKS);
+        verify(mLoadBooksListCallback).onBooksListLoaded(BOOKS);
+        verify(mSnapshot).save(BOOKS);
+    }
+
+    @Test
+    public void getFirstBooksPage_withoutSnapshot_doesNotLoadEveryBookToSaveOne() {
+        useSnapshot();
+
+        // When the first page is requested at cold start and there is no snapshot
+        mBooksRepository.getBooksPage(BooksFilterType.ALL_BOOKS, null, 20, mLoadBooksPageCallback);
+        verify(mSnapshot).load(mBooksCallbackCaptor.capture());
+        mBooksCallbackCaptor.getValue().onDataNotAvailable();
+        verify(mBooksLocalDataSource).getBooksPage(eq(BooksFilterType.ALL_BOOKS),
+                eq((BooksPageKey) null), eq(20), mBooksPageCallbackCaptor.capture());
+        mBooksPageCallbackCaptor.getValue().onBooksPageLoaded(BOOKS, null);
+
+        // Then the page is served, and the snapshot waits for a full load
+        verify(mLoadBooksPageCallback).onBooksPageLoaded(BOOKS, null);
+        verify(mBooksLocalDataSource, never()).getBooks(
+                any(BooksDataSource.LoadBooksListCallback.class));
+        verify(mSnapshot, never()).save(any(List.class));
+    }
+
+    @Test
+    public void favoriteBook_deletesSnapshot() {
+        useSnapshot();
+
+        mBooksRepository.favoriteBook(new Book(BOOK_TITLE, "Some Book Description"));
+
+        verify(mSnapshot).delete();
     }
 
     /**
@@ -306,6 +912,38 @@ public class BooksRepositoryTest {
         mBooksRepository.getBooks(callback); // Second call to API
     }
 
+    /**
+     * Replaces the repository with one reading {@link #mSnapshot} at cold start.
+     */
+    private void useSnapshot() {
+        BooksRepository.destroyInstance();
+        mBooksRepository = BooksRepository.getInstance(
+                mBooksRemoteDataSource, mBooksLocalDataSource, mSyncEngine, mSnapshot);
+    }
+
+    private void loadFirstPage(BooksFilterType filter, List<BookListItem> books) {
+        mBooksRepository.getBooksPage(filter, null, 20, mLoadBooksPageCallback);
+        verify(mBooksLocalDataSource).getBooksPage(eq(filter), eq((BooksPageKey) null), eq(20),
+                mBooksPageCallbackCaptor.capture());
+        mBooksPageCallbackCaptor.getValue().onBooksPageLoaded(books, null);
+    }
+
+    private BooksStatistics getStatistics() {
+        mBooksRepository.getStatistics(mGetStatisticsCallback);
+        verify(mGetStatisticsCallback).onStatisticsLoaded(mStatisticsCaptor.capture());
+        return mStatisticsCaptor.getValue();
+    }
+
+    private void setSyncSucceeded(BooksDelta applied) {
+        verify(mSyncEngine).sync(mSyncCallbackCaptor.capture());
+        mSyncCallbackCaptor.getValue().onSynced(applied);
+    }
+
+    private void setSyncFailed() {
+        verify(mSyncEngine).sync(mSyncCallbackCaptor.capture());
+        mSyncCallbackCaptor.getValue().onSyncFailed();
+    }
+
     private void setBooksNotAvailable(BooksDataSource dataSource) {
         verify(dataSource).getBooks(mBooksCallbackCaptor.capture());
         mBooksCallbackCaptor.getValue().onDataNotAvailable();
@@ -0,0 +1,53 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link BooksSearchQuery}.
+ */
+public class BooksSearchQueryTest {
+
+    @Test
+    public void parse_splitsOnPunctuationAndLowerCases() {
+        BooksSearchQuery query = BooksSearchQuery.parse("  The Lord-of the RINGS!");
+
+        assertThat(query.getTokens(), is(Arrays.asList("the", "lord", "of", "rings")));
+    }
+
+    @Test
+    public void parse_dropsFtsOperators() {
+        BooksSearchQuery query = BooksSearchQuery.parse("\"tolkien\" OR title:hobbit* -NEAR");
+
+        assertThat(query.getTokens(), is(Arrays.asList("tolkien", "or", "title", "hobbit", "near")));
+    }
+
+    @Test
+    public void parse_keepsAtMostMaxTokens() {
+        BooksSearchQuery query = BooksSearchQuery.parse("a b c d e f g h i j k");
+
+        assertThat(query.getTokens().size(), is(BooksSearchQuery.MAX_TOKENS));
+    }
+
+    @Test
+    public void parse_blankQuery_isEmpty() {
+        assertTrue(BooksSearchQuery.parse(" ,. ").isEmpty());
+        assertTrue(BooksSearchQuery.parse(null).isEmpty());
+    }
+
+    @Test
+    public void matches_requiresEveryTokenAsAWordPrefix() {
+        BooksSearchQuery query = BooksSearchQuery.parse("hob tolk");
+
+        assertTrue(query.matches(Arrays.asList("The Hobbit", "J. R. R. Tolkien")));
+        assertFalse(query.matches(Collections.singletonList("The Hobbit")));
+        assertFalse(query.matches(Arrays.asList("Shobbit", "Tolkien")));
+    }
+}
@@ -0,0 +1,107 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * Unit tests for {@link DeferredBooksDataSource}.
+ */
+public class DeferredBooksDataSourceTest {
+
+    @Mock
+    private BooksDataSource mDataSource;
+
+    @Mock
+    private BooksDataSource.LoadBooksListCallback mLoadBooksCallback;
+
+    @Mock
+    private BooksDataSource.GetStatisticsCallback mStatisticsCallback;
+
+    private final List<Runnable> mMainThreadTasks = new ArrayList<>();
+
+    private SettableFuture<BooksDataSource> mFuture;
+
+    private DeferredBooksDataSource<BooksDataSource> mDeferredDataSource;
+
+    @Before
+    public void setupDeferredDataSource() {
+        MockitoAnnotations.initMocks(this);
+        mFuture = SettableFuture.create();
+        mDeferredDataSource = new DeferredBooksDataSource<>(mFuture, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                mMainThreadTasks.add(command);
+            }
+        });
+    }
+
+    @Test
+    public void callsBeforeTheDataSourceIsCreated_areQueued() {
+        // When calls are made before the data source is created
+        mDeferredDataSource.getBooks(mLoadBooksCallback);
+        mDeferredDataSource.favoriteBook("Id1");
+
+        // Then none reaches it
+        verifyZeroInteractions(mDataSource);
+    }
+
+    @Test
+    public void queuedCalls_runInOrderOnTheMainThread_onceTheDataSourceIsCreated() {
+        mDeferredDataSource.getBooks(mLoadBooksCallback);
+        mDeferredDataSource.favoriteBook("Id1");
+        mDeferredDataSource.getStatistics(mStatisticsCallback);
+
+        // When the data source is created
+        mFuture.set(mDataSource);
+
+        // Then the calls wait for the main thread
+        verifyZeroInteractions(mDataSource);
+        runMainThreadTasks();
+        // where they run in the order they were made
+        InOrder inOrder = inOrder(mDataSource);
+        inOrder.verify(mDataSource).getBooks(mLoadBooksCallback);
+        inOrder.verify(mDataSource).favoriteBook("Id1");
+        inOrder.verify(mDataSource).getStatistics(mStatisticsCallback);
+    }
+
+    @Test
+    public void callsAfterTheDataSourceIsCreated_goStraightToIt() {
+        mFuture.set(mDataSource);
+        runMainThreadTasks();
+
+        // When a call is made once the data source is created
+        mDeferredDataSource.deleteBook("Id1");
+
+        // Then it reaches it at once
+        verify(mDataSource).deleteBook("Id1");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void dataSourceThatCantBeCreated_throwsOnTheMainThread() {
+        mFuture.setException(new RuntimeException());
+
+        runMainThreadTasks();
+    }
+
+    private void runMainThreadTasks() {
+        for (Runnable task : mMainThreadTasks) {
+            task.run();
+        }
+        mMainThreadTasks.clear();
+    }
+}
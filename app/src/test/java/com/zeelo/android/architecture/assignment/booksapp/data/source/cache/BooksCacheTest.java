@@ -0,0 +1,304 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.cache;
+
+import android.support.annotation.NonNull;
+
+import com.google.common.base.Ticker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link BooksCache}.
+ */
+public class BooksCacheTest {
+
+    private static final int THREADS = 16;
+
+    private static final int OPERATIONS_PER_THREAD = 20000;
+
+    @Test
+    public void get_countsHitsAndMisses() {
+        BooksCache<String> cache = BooksCache.<String>newBuilder().build();
+        cache.put("id1", "title1");
+
+        assertThat(cache.get("id1"), is("title1"));
+        assertThat(cache.get("id2"), is(nullValue()));
+
+        assertThat(cache.hitCount(), is(1L));
+        assertThat(cache.missCount(), is(1L));
+    }
+
+    @Test
+    public void put_beyondMaximumSize_evictsLeastRecentlyUsed() {
+        // Given a cache of 2 entries where id1 was used after id2
+        BooksCache<String> cache = BooksCache.<String>newBuilder()
+                .maximumSize(2)
+                .concurrencyLevel(1)
+                .build();
+        cache.put("id1", "title1");
+        cache.put("id2", "title2");
+        cache.get("id1");
+
+        // When a third entry is added
+        cache.put("id3", "title3");
+
+        // Then id2 is evicted
+        assertTrue(cache.containsKey("id1"));
+        assertFalse(cache.containsKey("id2"));
+        assertTrue(cache.containsKey("id3"));
+        assertThat(cache.evictionCount(), is(1L));
+    }
+
+    @Test
+    public void put_beyondMaximumWeight_evictsUntilWeightFits() {
+        // Given a cache holding at most 10 characters
+        BooksCache<String> cache = BooksCache.<String>newBuilder()
+                .maximumWeight(10, new BooksCache.EntryWeigher<String>() {
+                    @Override
+                    public int weigh(@NonNull String id, @NonNull String value) {
+                        return value.length();
+                    }
+                })
+                .concurrencyLevel(1)
+                .build();
+
+        // When entries of 4, 4 and 6 characters are added
+        cache.put("id1", "aaaa");
+        cache.put("id2", "bbbb");
+        cache.put("id3", "cccccc");
+
+        // Then the oldest entry is evicted to stay within 10 characters
+        assertFalse(cache.containsKey("id1"));
+        assertTrue(cache.containsKey("id2"));
+        assertTrue(cache.containsKey("id3"));
+    }
+
+    @Test
+    public void get_afterExpiry_missesAndMakesCacheIncomplete() {
+        // Given a complete cache whose entries expire after one minute
+        FakeTicker ticker = new FakeTicker();
+        BooksCache<String> cache = BooksCache.<String>newBuilder()
+                .expireAfterWrite(1, TimeUnit.MINUTES)
+                .ticker(ticker)
+                .build();
+        cache.replaceAll(entries(3));
+        assertTrue(cache.isComplete());
+
+        // When more than a minute passes
+        ticker.advance(61, TimeUnit.SECONDS);
+
+        // Then the entries are gone and the cache no longer holds every book
+        assertThat(cache.get("id0"), is(nullValue()));
+        assertFalse(cache.isComplete());
+    }
+
+    @Test
+    public void replaceAll_thatFits_isComplete() {
+        BooksCache<String> cache = BooksCache.<String>newBuilder().maximumSize(10).build();
+
+        cache.replaceAll(entries(10));
+
+        assertTrue(cache.isComplete());
+        assertThat(cache.size(), is(10));
+    }
+
+    @Test
+    public void replaceAll_thatOverflows_isIncomplete() {
+        BooksCache<String> cache = BooksCache.<String>newBuilder().maximumSize(10).build();
+
+        cache.replaceAll(entries(11));
+
+        assertFalse(cache.isComplete());
+    }
+
+    @Test
+    public void evictionAfterReplaceAll_makesCacheIncomplete() {
+        // Given a complete cache that is full
+        BooksCache<String> cache = BooksCache.<String>newBuilder()
+                .maximumSize(3)
+                .concurrencyLevel(1)
+                .build();
+        cache.replaceAll(entries(3));
+
+        // When one more entry is added
+        cache.put("other", "value");
+
+        // Then an entry was evicted, so the cache is incomplete
+        assertFalse(cache.isComplete());
+    }
+
+    @Test
+    public void sortedValues_areSortedOnceUntilTheCacheChanges() {
+        // Given the values of a cache read in order
+        BooksCache<String> cache = BooksCache.<String>newBuilder().build();
+        cache.put("id2", "title2");
+        cache.put("id3", "title3");
+        cache.put("id1", "title1");
+        CountingSorter sorter = new CountingSorter(String.CASE_INSENSITIVE_ORDER);
+        List<String> sorted = cache.sortedValues(sorter);
+
+        // When they are read again, then after a change
+        List<String> again = cache.sortedValues(sorter);
+        cache.remove("id3");
+        cache.put("id0", "title0");
+        List<String> changed = cache.sortedValues(sorter);
+
+        // Then they are only sorted again once changed
+        assertThat(sorted, is(Arrays.asList("title1", "title2", "title3")));
+        assertThat(again, is(sameInstance(sorted)));
+        assertThat(changed, is(Arrays.asList("title0", "title1", "title2")));
+        assertThat(sorter.mSorts, is(2));
+    }
+
+    @Test
+    public void sortedValues_afterAChange_areHandedToTheSorterInTheirPreviousOrder() {
+        // Given the values of a cache read in order
+        BooksCache<String> cache = BooksCache.<String>newBuilder().build();
+        cache.replaceAll(entries(3));
+        CountingSorter sorter = new CountingSorter(String.CASE_INSENSITIVE_ORDER);
+        cache.sortedValues(sorter);
+
+        // When one is removed, one replaced and one added
+        cache.remove("id1");
+        cache.put("id0", "title3");
+        cache.put("id4", "title4");
+        List<String> changed = cache.sortedValues(sorter);
+
+        // Then the value left comes first, then the new ones
+        assertThat(sorter.mSorted.get(0), is("title2"));
+        assertThat(sorter.mSorted.size(), is(3));
+        assertThat(changed, is(Arrays.asList("title2", "title3", "title4")));
+    }
+
+    @Test
+    public void sortedValues_byAnotherSorter_areSortedAgain() {
+        BooksCache<String> cache = BooksCache.<String>newBuilder().build();
+        cache.replaceAll(entries(3));
+        cache.sortedValues(new CountingSorter(String.CASE_INSENSITIVE_ORDER));
+
+        List<String> reversed = cache.sortedValues(
+                new CountingSorter(Collections.<String>reverseOrder()));
+
+        assertThat(reversed, is(Arrays.asList("title2", "title1", "title0")));
+    }
+
+    @Test
+    public void concurrentAccess_staysBoundedAndConsistent() throws Exception {
+        // Given a small cache shared by many threads
+        final BooksCache<String> cache = BooksCache.<String>newBuilder()
+                .maximumSize(100)
+                .concurrencyLevel(THREADS)
+                .build();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // When they all read, write and remove overlapping keys at the same time
+        for (int t = 0; t < THREADS; t++) {
+            final int seed = t;
+            results.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    Random random = new Random(seed);
+                    int reads = 0;
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        String id = "id" + random.nextInt(500);
+                        int operation = random.nextInt(10);
+                        if (operation < 6) {
+                            String value = cache.get(id);
+                            if (value != null && !value.equals("value of " + id)) {
+                                throw new AssertionError("Wrong value for " + id + ": " + value);
+                            }
+                            reads++;
+                        } else if (operation < 9) {
+                            cache.put(id, "value of " + id);
+                        } else {
+                            cache.remove(id);
+                        }
+                    }
+                    return reads;
+                }
+            }));
+        }
+        start.countDown();
+
+        long reads = 0;
+        for (Future<Integer> result : results) {
+            reads += result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        cache.cleanUp();
+
+        // Then no read saw a wrong value, the bound held and every read was counted
+        assertTrue(cache.size() <= 100);
+        assertThat(cache.hitCount() + cache.missCount(), is(reads));
+        assertTrue(cache.evictionCount() > 0);
+    }
+
+    private static Map<String, String> entries(int count) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            entries.put("id" + i, "title" + i);
+        }
+        return entries;
+    }
+
+    private static class CountingSorter implements BooksCache.Sorter<String> {
+
+        private final Comparator<String> mComparator;
+
+        int mSorts;
+
+        /**
+         * The values last handed to {@link #sort(List)}, in the order they were handed.
+         */
+        List<String> mSorted;
+
+        CountingSorter(Comparator<String> comparator) {
+            mComparator = comparator;
+        }
+
+        @Override
+        public void sort(@NonNull List<String> values) {
+            mSorts++;
+            mSorted = new ArrayList<>(values);
+            Collections.sort(values, mComparator);
+        }
+    }
+
+    private static class FakeTicker extends Ticker {
+
+        private long mNanos;
+
+        @Override
+        public long read() {
+            return mNanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            mNanos += unit.toNanos(duration);
+        }
+    }
+}
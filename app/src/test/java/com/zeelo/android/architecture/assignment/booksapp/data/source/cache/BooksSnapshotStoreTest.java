@@ -0,0 +1,99 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.cache;
+
+import android.support.annotation.NonNull;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Lists;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.util.AppExecutors;
+import com.zeelo.android.architecture.assignment.booksapp.util.TaskPriority;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the writes of {@link BooksSnapshotStore}.
+ */
+public class BooksSnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Mock
+    private AppExecutors mAppExecutors;
+
+    /**
+     * The tasks posted to the disk, run by {@link #runDiskTasks()}.
+     */
+    private final List<Runnable> mDiskTasks = new ArrayList<>();
+
+    private File mFile;
+
+    private BooksSnapshotStore mStore;
+
+    @Before
+    public void setup() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        Executor disk = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                mDiskTasks.add(command);
+            }
+        };
+        when(mAppExecutors.diskWrite()).thenReturn(disk);
+        when(mAppExecutors.diskWrite(any(TaskPriority.class))).thenReturn(disk);
+        mFile = mFolder.newFile();
+        mStore = new BooksSnapshotStore(Suppliers.ofInstance(mFile), mAppExecutors);
+    }
+
+    @Test
+    public void save_whileAWriteIsPending_writesOnlyTheLatestBooks() throws IOException {
+        // Given a save whose write hasn't run yet
+        mStore.save(Lists.newArrayList(new BookListItem("Title1", "id1")));
+
+        // When the books are saved again
+        List<BookListItem> latest = Lists.newArrayList(new BookListItem("Title1", "id1"),
+                new BookListItem("Title2", "id2"));
+        mStore.save(latest);
+
+        // Then a single write stores the latest books
+        assertThat(mDiskTasks.size(), is(1));
+        runDiskTasks();
+        assertThat(BooksSnapshot.read(mFile), is(latest));
+    }
+
+    @Test
+    public void save_afterThePendingWriteRan_writesAgain() throws IOException {
+        mStore.save(Lists.newArrayList(new BookListItem("Title1", "id1")));
+        runDiskTasks();
+
+        List<BookListItem> latest = Lists.newArrayList(new BookListItem("Title2", "id2"));
+        mStore.save(latest);
+        runDiskTasks();
+
+        assertThat(BooksSnapshot.read(mFile), is(latest));
+    }
+
+    private void runDiskTasks() {
+        List<Runnable> tasks = new ArrayList<>(mDiskTasks);
+        mDiskTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+}
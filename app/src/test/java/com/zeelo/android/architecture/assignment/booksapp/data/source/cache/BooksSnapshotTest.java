@@ -0,0 +1,138 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.cache;
+
+import com.google.common.collect.Lists;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link BooksSnapshot}.
+ */
+public class BooksSnapshotTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip_keepsEveryField() throws IOException {
+        BookListItem book = new BookListItem("Cien a\u00F1os de soledad", "id1", "link1");
+        book.setEtag("etag1");
+        BookListItem.VolumeInfo volumeInfo = new BookListItem.VolumeInfo("Cien a\u00F1os de soledad",
+                Lists.newArrayList("Gabriel Garc\u00EDa M\u00E1rquez"));
+        volumeInfo.setLanguage("es");
+        volumeInfo.setCategories(Lists.newArrayList("Fiction", "Classics"));
+        BookListItem.VolumeInfo.ImageLinks imageLinks = new BookListItem.VolumeInfo.ImageLinks();
+        imageLinks.setThumbnail("http://books.google.com/thumbnail");
+        volumeInfo.setImageLinks(imageLinks);
+        volumeInfo.setPublishedDate("1967-05-30");
+        volumeInfo.setPageCount(471);
+        book.setVolumeInfo(volumeInfo);
+        book.setFavorite(true);
+        File file = mFolder.newFile();
+
+        BooksSnapshot.write(Lists.newArrayList(book, new BookListItem(null, "id2")), file);
+        List<BookListItem> books = BooksSnapshot.read(file);
+
+        assertThat(books.size(), is(2));
+        BookListItem read = books.get(0);
+        assertThat(read, is(book));
+        assertThat(read.getLink(), is("link1"));
+        assertThat(read.getEtag(), is("etag1"));
+        assertThat(read.isFavorite(), is(true));
+        assertThat(read.getVolumeInfo().getTitle(), is(volumeInfo.getTitle()));
+        assertThat(read.getVolumeInfo().getAuthors(), is(volumeInfo.getAuthors()));
+        assertThat(read.getVolumeInfo().getLanguage(), is("es"));
+        assertThat(read.getVolumeInfo().getCategories(), is(volumeInfo.getCategories()));
+        assertThat(read.getVolumeInfo().getImageLinks().getThumbnail(),
+                is(imageLinks.getThumbnail()));
+        assertThat(read.getVolumeInfo().getPublishedDate(), is("1967-05-30"));
+        assertThat(read.getVolumeInfo().getPageCount(), is(471));
+        assertThat(books.get(1).getId(), is("id2"));
+        assertThat(books.get(1).getVolumeInfo().getTitle(), is(nullValue()));
+        assertThat(books.get(1).getVolumeInfo().getPageCount(), is(nullValue()));
+        assertThat(books.get(1).isFavorite(), is(false));
+    }
+
+    @Test
+    public void read_emptySnapshot_returnsNoBooks() throws IOException {
+        File file = mFolder.newFile();
+
+        BooksSnapshot.write(Collections.<BookListItem>emptyList(), file);
+
+        assertThat(BooksSnapshot.read(file).isEmpty(), is(true));
+    }
+
+    @Test
+    public void read_missingFile_returnsNull() throws IOException {
+        assertThat(BooksSnapshot.read(new File(mFolder.getRoot(), "missing")), is(nullValue()));
+    }
+
+    @Test
+    public void read_corruptPayload_returnsNull() throws IOException {
+        File file = snapshotOfTwoBooks();
+
+        overwriteByte(file, file.length() - 2);
+
+        assertThat(BooksSnapshot.read(file), is(nullValue()));
+    }
+
+    @Test
+    public void read_otherVersion_returnsNull() throws IOException {
+        File file = snapshotOfTwoBooks();
+
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.seek(4);
+            out.writeInt(BooksSnapshot.VERSION + 1);
+        } finally {
+            out.close();
+        }
+
+        assertThat(BooksSnapshot.read(file), is(nullValue()));
+    }
+
+    @Test
+    public void read_truncatedFile_returnsNull() throws IOException {
+        File file = snapshotOfTwoBooks();
+
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(BooksSnapshot.HEADER_BYTES + 3);
+        } finally {
+            out.close();
+        }
+
+        assertThat(BooksSnapshot.read(file), is(nullValue()));
+    }
+
+    private File snapshotOfTwoBooks() throws IOException {
+        File file = mFolder.newFile();
+        BooksSnapshot.write(Lists.newArrayList(new BookListItem("Title1", "Id1"),
+                new BookListItem("Title2", "Id2")), file);
+        return file;
+    }
+
+    private static void overwriteByte(File file, long position) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.seek(position);
+            int value = out.read();
+            out.seek(position);
+            out.write(value ^ 0xFF);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteStatement;
+import android.database.Cursor;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksCollation;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.DescriptionCodec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the migrations of {@link BooksDatabase} that are written in Java.
+ */
+public class BooksDatabaseMigrationTest {
+
+    @Mock
+    private SupportSQLiteDatabase mDatabase;
+
+    @Mock
+    private Cursor mBooksListCursor;
+
+    @Mock
+    private Cursor mBooksCursor;
+
+    @Mock
+    private Cursor mDescriptionsCursor;
+
+    @Mock
+    private Cursor mBooksAuthorsCursor;
+
+    @Mock
+    private Cursor mSortKeysCursor;
+
+    @Mock
+    private SupportSQLiteStatement mUpdate;
+
+    @Mock
+    private SupportSQLiteStatement mInsertAuthor;
+
+    @Mock
+    private SupportSQLiteStatement mSelectAuthorId;
+
+    @Mock
+    private SupportSQLiteStatement mInsertLink;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        when(mDatabase.query(startsWith("SELECT rowid, authors FROM bookslist ")))
+                .thenReturn(mBooksListCursor);
+        when(mDatabase.query(startsWith("SELECT rowid, authors FROM book ")))
+                .thenReturn(mBooksCursor);
+        when(mDatabase.query(startsWith("SELECT id, description FROM book ")))
+                .thenReturn(mDescriptionsCursor);
+        when(mDatabase.query(startsWith("SELECT id, authors FROM bookslist ")))
+                .thenReturn(mBooksAuthorsCursor);
+        when(mDatabase.query(startsWith("SELECT rowid, title, authors FROM bookslist")))
+                .thenReturn(mSortKeysCursor);
+        when(mDatabase.compileStatement(anyString())).thenReturn(mUpdate);
+        when(mDatabase.compileStatement(startsWith("INSERT OR IGNORE INTO author ")))
+                .thenReturn(mInsertAuthor);
+        when(mDatabase.compileStatement(startsWith("SELECT id FROM author ")))
+                .thenReturn(mSelectAuthorId);
+        when(mDatabase.compileStatement(startsWith("INSERT INTO book_author ")))
+                .thenReturn(mInsertLink);
+    }
+
+    @Test
+    public void migration3To4_reencodesJsonAuthors() {
+        // Given a books list row stored as JSON and one already compact
+        when(mBooksListCursor.moveToNext()).thenReturn(true, true, false);
+        when(mBooksListCursor.getLong(0)).thenReturn(7L, 8L);
+        when(mBooksListCursor.getString(1)).thenReturn("[\"Larry Page\",\"Sergey Brin\"]",
+                "\u001EAlready compact");
+        when(mBooksCursor.moveToNext()).thenReturn(false);
+
+        // When migrating
+        BooksDatabase.MIGRATION_3_4.migrate(mDatabase);
+
+        // Then only the JSON row is rewritten
+        verify(mUpdate).bindString(1, "\u001ELarry Page\u001FSergey Brin");
+        verify(mUpdate).bindLong(2, 7L);
+        verify(mUpdate, never()).bindLong(2, 8L);
+        verify(mUpdate, times(1)).executeUpdateDelete();
+        verify(mBooksListCursor).close();
+        verify(mBooksCursor).close();
+    }
+
+    @Test
+    public void migration3To4_keepsEmptyTablesUntouched() {
+        when(mBooksListCursor.moveToNext()).thenReturn(false);
+        when(mBooksCursor.moveToNext()).thenReturn(false);
+
+        BooksDatabase.MIGRATION_3_4.migrate(mDatabase);
+
+        verify(mUpdate, never()).bindString(anyInt(), anyString());
+        verify(mUpdate, never()).bindLong(anyInt(), anyLong());
+        verify(mUpdate, never()).executeUpdateDelete();
+    }
+
+    @Test
+    public void migration3To4_storesLegacyNullListsAsNull() {
+        // Given a books list row whose null authors Gson stored as "null"
+        when(mBooksListCursor.moveToNext()).thenReturn(true, false);
+        when(mBooksListCursor.getLong(0)).thenReturn(7L);
+        when(mBooksListCursor.getString(1)).thenReturn("null");
+        when(mBooksCursor.moveToNext()).thenReturn(false);
+
+        // When migrating
+        BooksDatabase.MIGRATION_3_4.migrate(mDatabase);
+
+        // Then the row holds NULL rather than failing the upgrade
+        verify(mUpdate).bindNull(1);
+        verify(mUpdate).bindLong(2, 7L);
+        verify(mUpdate).executeUpdateDelete();
+    }
+
+    @Test
+    public void migration9To10_keysBooksWithLegacyNullAuthors() {
+        when(mSortKeysCursor.moveToNext()).thenReturn(true, false);
+        when(mSortKeysCursor.getLong(0)).thenReturn(7L);
+        when(mSortKeysCursor.getString(1)).thenReturn("Title");
+        when(mSortKeysCursor.getString(2)).thenReturn("null");
+
+        BooksSortKeys.MIGRATION_9_10.migrate(mDatabase);
+
+        verify(mUpdate).bindBlob(1, BooksCollation.key("Title"));
+        verify(mUpdate).bindNull(2);
+        verify(mUpdate).executeUpdateDelete();
+    }
+
+    @Test
+    public void migration7To8_movesEncodedDescriptionsBeforeRebuildingBooks() {
+        // Given a book with a description
+        when(mDescriptionsCursor.moveToNext()).thenReturn(true, false);
+        when(mDescriptionsCursor.getString(0)).thenReturn("id1");
+        when(mDescriptionsCursor.getString(1)).thenReturn("A description");
+
+        // When migrating
+        BooksDatabase.MIGRATION_7_8.migrate(mDatabase);
+
+        // Then the description is stored encoded, before the book table is rebuilt without it
+        InOrder inOrder = inOrder(mDatabase, mUpdate);
+        inOrder.verify(mUpdate).bindString(1, "id1");
+        inOrder.verify(mUpdate).bindBlob(2, DescriptionCodec.encode("A description"));
+        inOrder.verify(mUpdate).executeInsert();
+        inOrder.verify(mDatabase).execSQL("DROP TABLE book");
+        inOrder.verify(mDatabase).execSQL("ALTER TABLE book_new RENAME TO book");
+        verify(mDescriptionsCursor).close();
+    }
+
+    @Test
+    public void migration8To9_linksStoredBooksToTheirAuthors() {
+        // Given a book by two authors, the second listed twice in different cases
+        when(mBooksAuthorsCursor.moveToNext()).thenReturn(true, false);
+        when(mBooksAuthorsCursor.getString(0)).thenReturn("id1");
+        when(mBooksAuthorsCursor.getString(1))
+                .thenReturn("\u001ELarry Page\u001FSergey Brin\u001Fsergey brin");
+        when(mInsertAuthor.executeInsert()).thenReturn(1L, 2L, -1L);
+        when(mSelectAuthorId.simpleQueryForLong()).thenReturn(2L);
+
+        // When migrating
+        BooksAuthors.MIGRATION_8_9.migrate(mDatabase);
+
+        // Then the book is linked once to each author, in order
+        InOrder inOrder = inOrder(mInsertLink);
+        inOrder.verify(mInsertLink).bindLong(2, 1L);
+        inOrder.verify(mInsertLink).bindLong(3, 0);
+        inOrder.verify(mInsertLink).bindLong(2, 2L);
+        inOrder.verify(mInsertLink).bindLong(3, 1);
+        verify(mInsertLink, times(2)).executeInsert();
+        verify(mSelectAuthorId).bindString(1, "sergey brin");
+        verify(mBooksAuthorsCursor).close();
+    }
+
+    @Test
+    public void migration9To10_keysStoredBooksForSorting() {
+        // Given a book and an untitled book without authors
+        when(mSortKeysCursor.moveToNext()).thenReturn(true, true, false);
+        when(mSortKeysCursor.getLong(0)).thenReturn(7L, 8L);
+        when(mSortKeysCursor.getString(1)).thenReturn("Cien a\u00F1os de soledad", null);
+        when(mSortKeysCursor.getString(2)).thenReturn("\u001EGabriel Garc\u00EDa M\u00E1rquez",
+                null);
+
+        // When migrating
+        BooksSortKeys.MIGRATION_9_10.migrate(mDatabase);
+
+        // Then the columns are added before the keys of both books are stored
+        InOrder inOrder = inOrder(mDatabase, mUpdate);
+        inOrder.verify(mDatabase).execSQL("ALTER TABLE bookslist ADD COLUMN title_key BLOB");
+        inOrder.verify(mUpdate).bindBlob(1, BooksCollation.key("Cien a\u00F1os de soledad"));
+        inOrder.verify(mUpdate).bindBlob(2, BooksCollation.key("Gabriel Garc\u00EDa M\u00E1rquez"));
+        inOrder.verify(mUpdate).bindLong(3, 7L);
+        inOrder.verify(mUpdate).bindNull(1);
+        inOrder.verify(mUpdate).bindNull(2);
+        inOrder.verify(mUpdate).bindLong(3, 8L);
+        verify(mUpdate, times(2)).executeUpdateDelete();
+        verify(mDatabase).execSQL(startsWith("INSERT INTO sort_key_collation "),
+                any(Object[].class));
+        verify(mSortKeysCursor).close();
+    }
+}
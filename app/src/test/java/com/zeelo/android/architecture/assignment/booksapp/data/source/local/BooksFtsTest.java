@@ -0,0 +1,26 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Unit tests for the search expressions built by {@link BooksFts}.
+ */
+public class BooksFtsTest {
+
+    @Test
+    public void matchExpression_makesEveryTokenAPrefixQuery() {
+        assertThat(BooksFts.matchExpression(Arrays.asList("lord", "ring"), null),
+                is("lord* ring*"));
+    }
+
+    @Test
+    public void matchExpression_withColumn_restrictsEveryToken() {
+        assertThat(BooksFts.matchExpression(Arrays.asList("lord", "ring"), "title"),
+                is("title:lord* title:ring*"));
+    }
+}
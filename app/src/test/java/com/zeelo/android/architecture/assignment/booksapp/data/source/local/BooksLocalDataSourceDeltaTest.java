@@ -0,0 +1,115 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.room.InvalidationTracker;
+import android.support.annotation.NonNull;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksDelta;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksDeltaStore;
+import com.zeelo.android.architecture.assignment.booksapp.util.AppExecutors;
+import com.zeelo.android.architecture.assignment.booksapp.util.TaskPriority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.Executor;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link BooksLocalDataSource#applyDelta}, which the sync engine waits on.
+ */
+public class BooksLocalDataSourceDeltaTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    @Mock
+    private AppExecutors mAppExecutors;
+
+    @Mock
+    private BooksDatabase mDatabase;
+
+    @Mock
+    private BooksDao mBooksDao;
+
+    @Mock
+    private InvalidationTracker mInvalidationTracker;
+
+    @Mock
+    private BooksDeltaStore.ApplyDeltaCallback mCallback;
+
+    private BooksLocalDataSource mLocalDataSource;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        when(mAppExecutors.diskWrite()).thenReturn(DIRECT);
+        when(mAppExecutors.diskWrite(any(TaskPriority.class))).thenReturn(DIRECT);
+        when(mAppExecutors.mainThread()).thenReturn(DIRECT);
+        when(mDatabase.bookDao()).thenReturn(mBooksDao);
+        when(mDatabase.getInvalidationTracker()).thenReturn(mInvalidationTracker);
+        BooksLocalDataSource.clearInstance();
+        mLocalDataSource = BooksLocalDataSource.getInstance(mAppExecutors, mDatabase);
+    }
+
+    @After
+    public void cleanUp() {
+        BooksLocalDataSource.clearInstance();
+    }
+
+    @Test
+    public void applyDelta_reportsAppliedDelta() {
+        BooksDelta delta = BooksDelta.newBuilder(7L).delete("id1").build();
+
+        mLocalDataSource.applyDelta(delta, mCallback);
+
+        verify(mCallback).onDeltaApplied(any(BooksDelta.class));
+        verify(mCallback, never()).onDeltaFailed();
+    }
+
+    @Test
+    public void applyDelta_whenDatabaseFails_reportsFailure() {
+        // Given a database whose transaction throws
+        doThrow(new IllegalStateException("disk I/O error")).when(mBooksDao).applyDelta(
+                anyListOf(BookListItem.class), anyListOf(Book.class), anyListOf(String.class));
+        BooksDelta delta = BooksDelta.newBuilder(7L)
+                .upsert(new BookListItem("Title1", "id1"), null)
+                .build();
+
+        // When the delta is applied
+        mLocalDataSource.applyDelta(delta, mCallback);
+
+        // Then the failure is reported, so the sync engine can sync again
+        verify(mCallback).onDeltaFailed();
+        verify(mCallback, never()).onDeltaApplied(any(BooksDelta.class));
+    }
+
+    @Test
+    public void applyDelta_whenEtagsCannotBeRead_reportsFailure() {
+        when(mBooksDao.getEtags(anyListOf(String.class)))
+                .thenThrow(new IllegalStateException("disk I/O error"));
+        BooksDelta delta = BooksDelta.newBuilder(7L)
+                .upsert(new BookListItem("Title1", "id1"), null)
+                .build();
+
+        mLocalDataSource.applyDelta(delta, mCallback);
+
+        verify(mCallback).onDeltaFailed();
+        verify(mBooksDao, never()).applyDelta(anyListOf(BookListItem.class),
+                anyListOf(Book.class), anyListOf(String.class));
+    }
+}
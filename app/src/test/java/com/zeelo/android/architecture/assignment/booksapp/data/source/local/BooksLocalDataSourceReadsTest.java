@@ -0,0 +1,160 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.persistence.room.InvalidationTracker;
+import android.support.annotation.NonNull;
+
+import com.google.common.collect.Lists;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource;
+import com.zeelo.android.architecture.assignment.booksapp.util.AppExecutors;
+import com.zeelo.android.architecture.assignment.booksapp.util.TaskPriority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the reads of {@link BooksLocalDataSource}, which don't wait for the writes made
+ * in the background, and for how those writes are queued.
+ */
+public class BooksLocalDataSourceReadsTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    @Mock
+    private AppExecutors mAppExecutors;
+
+    @Mock
+    private BooksDatabase mDatabase;
+
+    @Mock
+    private BooksDao mBooksDao;
+
+    @Mock
+    private InvalidationTracker mInvalidationTracker;
+
+    @Mock
+    private BooksDataSource.GetBookDetailsCallback mGetBookDetailsCallback;
+
+    @Captor
+    private ArgumentCaptor<List<BookListItem>> mBooksListCaptor;
+
+    private ExecutorService mDiskRead;
+
+    private ExecutorService mDiskWrite;
+
+    private BooksLocalDataSource mLocalDataSource;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mDiskRead = Executors.newFixedThreadPool(2);
+        mDiskWrite = Executors.newSingleThreadExecutor();
+        when(mAppExecutors.diskRead()).thenReturn(mDiskRead);
+        when(mAppExecutors.diskRead(any(TaskPriority.class))).thenReturn(mDiskRead);
+        when(mAppExecutors.diskWrite()).thenReturn(mDiskWrite);
+        when(mAppExecutors.diskWrite(any(TaskPriority.class))).thenReturn(mDiskWrite);
+        when(mAppExecutors.mainThread()).thenReturn(DIRECT);
+        when(mDatabase.bookDao()).thenReturn(mBooksDao);
+        when(mDatabase.getInvalidationTracker()).thenReturn(mInvalidationTracker);
+        BooksLocalDataSource.clearInstance();
+        mLocalDataSource = BooksLocalDataSource.getInstance(mAppExecutors, mDatabase);
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        BooksLocalDataSource.clearInstance();
+        // Lets the blocked write return rather than interrupting it.
+        mDiskRead.shutdown();
+        mDiskWrite.shutdown();
+        mDiskRead.awaitTermination(1, TimeUnit.SECONDS);
+        mDiskWrite.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void userVisibleRead_finishesWhileBackgroundWriteIsBlocked() throws Exception {
+        // Given a background save of the list items that is blocked in the database
+        final CountDownLatch inserting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                inserting.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        }).when(mBooksDao).insertBookListItems(anyListOf(BookListItem.class));
+        Book book = new Book("Title1", "id1", "description");
+        when(mBooksDao.getBookById("id1")).thenReturn(book);
+        mLocalDataSource.saveBooksListItems(
+                Lists.newArrayList(new BookListItem("Title2", "id2")));
+        assertTrue(inserting.await(1, TimeUnit.SECONDS));
+
+        // When the user reads a book
+        mLocalDataSource.getBookDetails("id1", mGetBookDetailsCallback);
+
+        // Then it is loaded without waiting for the save
+        verify(mGetBookDetailsCallback, timeout(1000)).onBookDetailsLoaded(book);
+        release.countDown();
+    }
+
+    @Test
+    public void saves_queuedBehindAnotherWrite_areCoalescedIntoOneInsert() throws Exception {
+        // Given a save blocked in the database
+        final CountDownLatch inserting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                inserting.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        }).doNothing().when(mBooksDao).insertBookListItems(anyListOf(BookListItem.class));
+        mLocalDataSource.saveBooksListItems(
+                Lists.newArrayList(new BookListItem("Title1", "id1")));
+        assertTrue(inserting.await(1, TimeUnit.SECONDS));
+
+        // When more lists are saved meanwhile, one of them updating a book of the other
+        mLocalDataSource.saveBooksListItems(Lists.newArrayList(
+                new BookListItem("Title2", "id2"), new BookListItem("Title3", "id3")));
+        mLocalDataSource.saveBooksListItems(Lists.newArrayList(
+                new BookListItem("New title3", "id3"), new BookListItem("Title4", "id4")));
+        release.countDown();
+
+        // Then they are stored by a single insert, the later list items winning
+        verify(mBooksDao, timeout(1000).times(2)).insertBookListItems(mBooksListCaptor.capture());
+        List<BookListItem> coalesced = mBooksListCaptor.getValue();
+        assertThat(coalesced.size(), is(3));
+        assertThat(coalesced.get(1).getTitle(), is("New title3"));
+    }
+}
@@ -0,0 +1,437 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.support.annotation.NonNull;
+
+import com.google.common.collect.Lists;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link BooksWriteQueue}.
+ */
+public class BooksWriteQueueTest {
+
+    private static final long NEVER_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Mock
+    private BooksDao mBooksDao;
+
+    @Captor
+    private ArgumentCaptor<BooksWriteQueue.Batch> mBatchCaptor;
+
+    private Executor mDiskIO;
+
+    private ScheduledExecutorService mScheduler;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mDiskIO = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                command.run();
+            }
+        };
+        mScheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        mScheduler.shutdownNow();
+    }
+
+    @Test
+    public void favoriteToggles_areCoalescedIntoOneUpdate() throws Exception {
+        BooksWriteQueue queue = newQueue(10, NEVER_MILLIS);
+
+        queue.setFavorite("id1", true);
+        queue.setFavorite("id1", false);
+        queue.setFavorite("id1", true);
+        queue.awaitFlushed(1, TimeUnit.SECONDS);
+
+        verify(mBooksDao).applyWrites(mBatchCaptor.capture());
+        BooksWriteQueue.Batch batch = mBatchCaptor.getValue();
+        assertThat(batch.getFavorites().size(), is(1));
+        assertThat(batch.getFavorites().get("id1"), is(true));
+        assertTrue(batch.getBooks().isEmpty());
+    }
+
+    @Test
+    public void saveThenDelete_onlyDeletes() throws Exception {
+        BooksWriteQueue queue = newQueue(10, NEVER_MILLIS);
+
+        queue.save(new BookListItem("title", "id1"), new Book("title", "id1", "description"));
+        queue.setFavorite("id1", true);
+        queue.delete("id1");
+        queue.awaitFlushed(1, TimeUnit.SECONDS);
+
+        verify(mBooksDao).applyWrites(mBatchCaptor.capture());
+        BooksWriteQueue.Batch batch = mBatchCaptor.getValue();
+        assertThat(batch.getDeletedBookIds().size(), is(1));
+        assertTrue(batch.getBooks().isEmpty());
+        assertTrue(batch.getBookListItems().isEmpty());
+        assertTrue(batch.getFavorites().isEmpty());
+    }
+
+    @Test
+    public void deleteThenSave_onlySaves() throws Exception {
+        BooksWriteQueue queue = newQueue(10, NEVER_MILLIS);
+
+        queue.delete("id1");
+        queue.save(new BookListItem("title", "id1"), new Book("title", "id1", "description"));
+        queue.awaitFlushed(1, TimeUnit.SECONDS);
+
+        verify(mBooksDao).applyWrites(mBatchCaptor.capture());
+        BooksWriteQueue.Batch batch = mBatchCaptor.getValue();
+        assertTrue(batch.getDeletedBookIds().isEmpty());
+        assertThat(batch.getBooks().size(), is(1));
+    }
+
+    @Test
+    public void deleteAll_dropsEarlierWritesButKeepsLaterOnes() throws Exception {
+        BooksWriteQueue queue = newQueue(10, NEVER_MILLIS);
+
+        queue.save(new BookListItem("title1", "id1"), new Book("title1", "id1", "description"));
+        queue.deleteAll();
+        queue.save(new BookListItem("title2", "id2"), new Book("title2", "id2", "description"));
+        queue.awaitFlushed(1, TimeUnit.SECONDS);
+
+        verify(mBooksDao).applyWrites(mBatchCaptor.capture());
+        BooksWriteQueue.Batch batch = mBatchCaptor.getValue();
+        assertTrue(batch.isDeleteAll());
+        assertThat(batch.getBooks().size(), is(1));
+        assertThat(batch.getBooks().get(0).getId(), is("id2"));
+    }
+
+    @Test
+    public void reachingMaxBatchSize_flushesWithoutWaitingForTheDelay() {
+        QueuedExecutor diskIO = new QueuedExecutor();
+        BooksWriteQueue queue = new BooksWriteQueue(mBooksDao, diskIO, mScheduler, 3,
+                NEVER_MILLIS);
+
+        queue.setFavorite("id1", true);
+        queue.setFavorite("id2", true);
+        assertThat(diskIO.mPending.size(), is(0));
+
+        queue.setFavorite("id3", true);
+        assertThat(diskIO.mPending.size(), is(1));
+        diskIO.runAll();
+
+        verify(mBooksDao).applyWrites(mBatchCaptor.capture());
+        assertThat(mBatchCaptor.getValue().getFavorites().size(), is(3));
+    }
+
+    @Test
+    public void writesBelowMaxBatchSize_areFlushedAfterTheDelay() {
+        BooksWriteQueue queue = newQueue(100, 10);
+
+        queue.setFavorite("id1", true);
+        queue.setFavorite("id2", false);
+
+        verify(mBooksDao, timeout(1000)).applyWrites(mBatchCaptor.capture());
+        assertThat(mBatchCaptor.getValue().getFavorites().size(), is(2));
+    }
+
+    @Test
+    public void manyWrites_areAppliedInFewTransactions() throws Exception {
+        BooksWriteQueue queue = newQueue(100, NEVER_MILLIS);
+
+        for (int i = 0; i < 1000; i++) {
+            queue.setFavorite("id" + (i % 250), i % 2 == 0);
+        }
+        queue.awaitFlushed(1, TimeUnit.SECONDS);
+
+        // Every 100 distinct books pending make one transaction, instead of one per write.
+        verify(mBooksDao, times(10)).applyWrites(any(BooksWriteQueue.Batch.class));
+    }
+
+    @Test
+    public void awaitFlushed_withNothingPending_doesNotTouchTheDatabase() throws Exception {
+        BooksWriteQueue queue = newQueue(10, NEVER_MILLIS);
+
+        assertTrue(queue.awaitFlushed(1, TimeUnit.SECONDS));
+
+        verify(mBooksDao, never()).applyWrites(any(BooksWriteQueue.Batch.class));
+    }
+
+    @Test
+    public void drain_whileAnotherDrainIsApplying_waitsForIt() throws Exception {
+        final BooksWriteQueue queue = newQueue(100, NEVER_MILLIS);
+        final CountDownLatch applying = new CountDownLatch(1);
+        final CountDownLatch applied = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                applying.countDown();
+                applied.await(1, TimeUnit.SECONDS);
+                return null;
+            }
+        }).when(mBooksDao).applyWrites(any(BooksWriteQueue.Batch.class));
+        Runnable drain = new Runnable() {
+            @Override
+            public void run() {
+                queue.drain();
+            }
+        };
+        queue.setFavorite("id1", true);
+        new Thread(drain).start();
+        assertTrue(applying.await(1, TimeUnit.SECONDS));
+
+        // Nothing is left to apply, but the writes taken by the first drain aren't in yet.
+        Thread secondDrain = new Thread(drain);
+        secondDrain.start();
+        secondDrain.join(100);
+        assertTrue(secondDrain.isAlive());
+
+        applied.countDown();
+        secondDrain.join(1000);
+        assertFalse(secondDrain.isAlive());
+        verify(mBooksDao).applyWrites(any(BooksWriteQueue.Batch.class));
+    }
+
+    @Test
+    public void reachingMaxBatchSize_postsTheDrainOutsideTheQueueLock() throws Exception {
+        // Given an executor that drains on another thread and waits for it
+        final List<Thread> drains = new ArrayList<>();
+        Executor diskIO = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                Thread drain = new Thread(command);
+                drains.add(drain);
+                drain.start();
+                try {
+                    drain.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        BooksWriteQueue queue = new BooksWriteQueue(mBooksDao, diskIO, mScheduler, 1,
+                NEVER_MILLIS);
+
+        // When a write fills the batch
+        queue.setFavorite("id1", true);
+
+        // Then the drain took the queue lock, so it didn't wait on the writer
+        assertThat(drains.size(), is(1));
+        assertFalse(drains.get(0).isAlive());
+        verify(mBooksDao).applyWrites(any(BooksWriteQueue.Batch.class));
+    }
+
+    @Test
+    public void drain_whenTheTransactionFails_keepsItsWritesForTheNextDrain() {
+        // Given a transaction that fails once
+        doThrow(new IllegalStateException("database is locked")).doNothing()
+                .when(mBooksDao).applyWrites(any(BooksWriteQueue.Batch.class));
+        BooksWriteQueue queue = newQueue(10, NEVER_MILLIS);
+        queue.save(new BookListItem("title1", "id1"), new Book("title1", "id1", "description"));
+        queue.delete("id2");
+        drainFailing(queue);
+
+        // When writes are queued since, then drained
+        queue.setFavorite("id1", true);
+        queue.save(new BookListItem("title3", "id3"), new Book("title3", "id3", "description"));
+        queue.drain();
+
+        // Then the failed writes are applied with them, the later ones on top
+        verify(mBooksDao, times(2)).applyWrites(mBatchCaptor.capture());
+        BooksWriteQueue.Batch batch = mBatchCaptor.getValue();
+        assertThat(batch.getDeletedBookIds(), is((List<String>) Lists.newArrayList("id2")));
+        assertThat(batch.getBooks().size(), is(2));
+        assertThat(batch.getFavorites().get("id1"), is(true));
+    }
+
+    @Test
+    public void drain_whenTheTransactionFails_doesNotOverwriteLaterWrites() {
+        doThrow(new IllegalStateException("database is locked")).doNothing()
+                .when(mBooksDao).applyWrites(any(BooksWriteQueue.Batch.class));
+        BooksWriteQueue queue = newQueue(10, NEVER_MILLIS);
+        queue.save(new BookListItem("title1", "id1"), new Book("title1", "id1", "description"));
+        queue.setFavorite("id2", true);
+        drainFailing(queue);
+
+        queue.delete("id1");
+        queue.setFavorite("id2", false);
+        queue.drain();
+
+        verify(mBooksDao, times(2)).applyWrites(mBatchCaptor.capture());
+        BooksWriteQueue.Batch batch = mBatchCaptor.getValue();
+        assertThat(batch.getDeletedBookIds(), is((List<String>) Lists.newArrayList("id1")));
+        assertTrue(batch.getBooks().isEmpty());
+        assertThat(batch.getFavorites().get("id2"), is(false));
+    }
+
+    @Test
+    public void drain_whenTheTransactionFails_dropsItsWritesIfAllBooksAreDeletedSince() {
+        doThrow(new IllegalStateException("database is locked")).doNothing()
+                .when(mBooksDao).applyWrites(any(BooksWriteQueue.Batch.class));
+        BooksWriteQueue queue = newQueue(10, NEVER_MILLIS);
+        queue.save(new BookListItem("title1", "id1"), new Book("title1", "id1", "description"));
+        drainFailing(queue);
+
+        queue.deleteAll();
+        queue.drain();
+
+        verify(mBooksDao, times(2)).applyWrites(mBatchCaptor.capture());
+        BooksWriteQueue.Batch batch = mBatchCaptor.getValue();
+        assertTrue(batch.isDeleteAll());
+        assertTrue(batch.getBooks().isEmpty());
+    }
+
+    @Test
+    public void pendingWrites_applyToWhatIsReadWithoutFlushing() {
+        // Given a save, a favorite and a delete pending
+        BooksWriteQueue queue = newQueue(10, NEVER_MILLIS);
+        queue.save(new BookListItem("new title", "id1"), new Book("new title", "id1", "new"));
+        queue.setFavorite("id2", true);
+        queue.delete("id3");
+
+        // When list items are read from the database
+        List<BookListItem> read = queue.pendingWrites().apply(Lists.newArrayList(
+                new BookListItem("title1", "id1"), new BookListItem("title2", "id2"),
+                new BookListItem("title3", "id3"), new BookListItem("title4", "id4")));
+
+        // Then they are read as the writes leave them, without touching the database
+        assertThat(read.size(), is(3));
+        assertThat(read.get(0).getTitle(), is("new title"));
+        assertTrue(read.get(1).isFavorite());
+        assertThat(read.get(2).getId(), is("id4"));
+        verify(mBooksDao, never()).applyWrites(any(BooksWriteQueue.Batch.class));
+    }
+
+    @Test
+    public void pendingWrites_applyToBooksById() {
+        BooksWriteQueue queue = newQueue(10, NEVER_MILLIS);
+        queue.save(new BookListItem("new title", "id1"), new Book("new title", "id1", "new"));
+        queue.setFavorite("id1", true);
+        queue.setFavorite("id2", true);
+        queue.delete("id3");
+
+        BooksWriteQueue.PendingWrites pending = queue.pendingWrites();
+
+        Book saved = pending.apply("id1", new Book("title1", "id1", "old"));
+        assertThat(saved.getVolumeInfo().getDescription(), is("new"));
+        assertTrue(saved.isFavorite());
+        assertTrue(pending.apply("id2", new Book("title2", "id2", "description")).isFavorite());
+        assertThat(pending.apply("id3", new Book("title3", "id3", "description")), is((Book) null));
+        assertTrue(pending.isDeleted("id3"));
+        assertFalse(pending.isDeleted("id1"));
+        assertThat(pending.getSavedBook("id1").getVolumeInfo().getDescription(), is("new"));
+    }
+
+    @Test
+    public void pendingWrites_afterDeleteAll_onlyKeepTheBooksSavedSince() {
+        BooksWriteQueue queue = newQueue(10, NEVER_MILLIS);
+        queue.deleteAll();
+        queue.save(new BookListItem("title2", "id2"), new Book("title2", "id2", "description"));
+
+        BooksWriteQueue.PendingWrites pending = queue.pendingWrites();
+        List<BookListItem> read = pending.apply(Lists.newArrayList(
+                new BookListItem("title1", "id1"), new BookListItem("title2", "id2")));
+
+        assertThat(read.size(), is(1));
+        assertThat(read.get(0).getId(), is("id2"));
+        assertTrue(pending.isDeleted("id1"));
+        assertThat(pending.apply("id1", new Book("title1", "id1", "description")), is((Book) null));
+    }
+
+    @Test
+    public void pendingWrites_stillHoldTheWritesBeingApplied() throws Exception {
+        // Given a drain applying a favorite
+        final BooksWriteQueue queue = newQueue(100, NEVER_MILLIS);
+        final CountDownLatch applying = new CountDownLatch(1);
+        final CountDownLatch applied = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                applying.countDown();
+                applied.await(1, TimeUnit.SECONDS);
+                return null;
+            }
+        }).when(mBooksDao).applyWrites(any(BooksWriteQueue.Batch.class));
+        queue.setFavorite("id1", true);
+        Thread drain = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.drain();
+            }
+        });
+        drain.start();
+        assertTrue(applying.await(1, TimeUnit.SECONDS));
+
+        // When a read takes the pending writes before the transaction commits
+        BooksWriteQueue.PendingWrites pending = queue.pendingWrites();
+
+        // Then the favorite is still part of them
+        assertTrue(pending.apply("id1", new Book("title1", "id1", "description")).isFavorite());
+        applied.countDown();
+        drain.join(1000);
+        assertTrue(queue.pendingWrites().isEmpty());
+    }
+
+    /**
+     * Drains {@code queue}, whose transaction is expected to fail.
+     */
+    private static void drainFailing(BooksWriteQueue queue) {
+        try {
+            queue.drain();
+            fail("The drain should report the failed transaction");
+        } catch (IllegalStateException expected) {
+            // The writes are pending again.
+        }
+    }
+
+    private BooksWriteQueue newQueue(int maxBatchSize, long maxDelayMillis) {
+        return new BooksWriteQueue(mBooksDao, mDiskIO, mScheduler, maxBatchSize, maxDelayMillis);
+    }
+
+    /**
+     * Holds the posted commands until the test runs them.
+     */
+    private static class QueuedExecutor implements Executor {
+
+        final List<Runnable> mPending = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mPending.add(command);
+        }
+
+        void runAll() {
+            while (!mPending.isEmpty()) {
+                mPending.remove(0).run();
+            }
+        }
+    }
+}
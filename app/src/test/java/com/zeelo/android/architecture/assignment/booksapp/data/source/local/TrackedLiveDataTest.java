@@ -0,0 +1,118 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local;
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.lifecycle.Observer;
+import android.arch.persistence.room.InvalidationTracker;
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link TrackedLiveData}.
+ */
+public class TrackedLiveDataTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
+
+    private static final Executor INSTANT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    @Mock
+    private InvalidationTracker mInvalidationTracker;
+
+    @Captor
+    private ArgumentCaptor<InvalidationTracker.Observer> mTablesObserverCaptor;
+
+    private CountingLiveData mLiveData;
+
+    @Before
+    public void setupLiveData() {
+        MockitoAnnotations.initMocks(this);
+        mLiveData = new CountingLiveData(mInvalidationTracker);
+    }
+
+    @Test
+    public void observersComingAndGoing_loadOnce() {
+        Observer<Integer> first = observe();
+        Observer<Integer> second = observe();
+        mLiveData.removeObserver(first);
+        mLiveData.removeObserver(second);
+        observe();
+
+        assertThat(mLiveData.mLoads, is(1));
+        assertThat(mLiveData.getValue(), is(1));
+    }
+
+    @Test
+    public void changeWhileObserved_loadsAgain() {
+        observe();
+
+        invalidate();
+
+        assertThat(mLiveData.mLoads, is(2));
+        assertThat(mLiveData.getValue(), is(2));
+    }
+
+    @Test
+    public void changesWhileNotObserved_loadOnceObservedAgain() {
+        Observer<Integer> observer = observe();
+        mLiveData.removeObserver(observer);
+
+        // When the tables change twice while nothing observes them
+        invalidate();
+        invalidate();
+        assertThat(mLiveData.mLoads, is(1));
+
+        // Then they are loaded once, when observed again
+        observe();
+        assertThat(mLiveData.mLoads, is(2));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Observer<Integer> observe() {
+        Observer<Integer> observer = mock(Observer.class);
+        mLiveData.observeForever(observer);
+        return observer;
+    }
+
+    private void invalidate() {
+        verify(mInvalidationTracker).addObserver(mTablesObserverCaptor.capture());
+        mTablesObserverCaptor.getValue().onInvalidated(Collections.singleton("bookslist"));
+    }
+
+    /**
+     * Loads the number of times it was loaded.
+     */
+    private static class CountingLiveData extends TrackedLiveData<Integer> {
+
+        int mLoads;
+
+        CountingLiveData(InvalidationTracker invalidationTracker) {
+            super(invalidationTracker, INSTANT, INSTANT, "bookslist");
+        }
+
+        @Override
+        protected Integer load() {
+            return ++mLoads;
+        }
+    }
+}
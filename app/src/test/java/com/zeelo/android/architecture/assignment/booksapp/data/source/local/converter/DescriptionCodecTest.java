@@ -0,0 +1,72 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link DescriptionCodec}.
+ */
+public class DescriptionCodecTest {
+
+    private static final String SENTENCE = "Flowers for Algernon is a short story by Daniel Keyes, "
+            + "later expanded into a novel, about a man whose intelligence is raised. ";
+
+    @Test
+    public void roundTrip_keepsNullAndEmptyDescriptions() {
+        assertThat(DescriptionCodec.encode(null), is(nullValue()));
+        assertThat(DescriptionCodec.decode(null), is(nullValue()));
+        assertThat(DescriptionCodec.decode(DescriptionCodec.encode("")), is(""));
+    }
+
+    @Test
+    public void shortDescription_isStoredRaw() {
+        byte[] encoded = DescriptionCodec.encode(SENTENCE);
+
+        assertThat(encoded[0], is(DescriptionCodec.RAW));
+        assertThat(DescriptionCodec.decode(encoded), is(SENTENCE));
+    }
+
+    @Test
+    public void longDescription_isDeflated() {
+        String description = repeat(SENTENCE, 40);
+
+        byte[] encoded = DescriptionCodec.encode(description);
+
+        assertThat(encoded[0], is(DescriptionCodec.DEFLATED));
+        assertThat(encoded.length, lessThan(description.length() / 4));
+        assertThat(DescriptionCodec.decode(encoded), is(description));
+    }
+
+    @Test
+    public void roundTrip_keepsNonAsciiText() {
+        String description = repeat("Cien a\u00F1os de soledad, \u767E\u5E74\u5B64\u72EC. ", 30);
+
+        assertThat(DescriptionCodec.decode(DescriptionCodec.encode(description)), is(description));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_unknownFormat_throws() {
+        DescriptionCodec.decode(new byte[]{7, 'a'});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_truncatedDeflatedDescription_throws() {
+        byte[] encoded = DescriptionCodec.encode(repeat(SENTENCE, 40));
+        byte[] truncated = new byte[encoded.length / 2];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+
+        DescriptionCodec.decode(truncated);
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder repeated = new StringBuilder(text.length() * times);
+        for (int i = 0; i < times; i++) {
+            repeated.append(text);
+        }
+        return repeated.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link StringListCodec}.
+ */
+public class StringListCodecTest {
+
+    @Test
+    public void encode_joinsElementsAfterMarker() {
+        assertThat(StringListCodec.encode(Lists.newArrayList("Larry Page", "Sergey Brin")),
+                is("\u001ELarry Page\u001FSergey Brin"));
+    }
+
+    @Test
+    public void encode_isShorterThanJson() {
+        ArrayList<String> authors = Lists.newArrayList("P.K. Dixit");
+
+        assertThat(StringListCodec.encode(authors).length(), is("[\"P.K. Dixit\"]".length() - 3));
+    }
+
+    @Test
+    public void roundTrip_keepsEmptyAndNullLists() {
+        assertThat(StringListCodec.encode(null), is(nullValue()));
+        assertThat(StringListCodec.decode(null), is(nullValue()));
+        assertThat(StringListCodec.encode(new ArrayList<String>()), is(""));
+        assertThat(StringListCodec.decode(""), is(Collections.<String>emptyList()));
+    }
+
+    @Test
+    public void roundTrip_tellsSingleEmptyElementFromEmptyList() {
+        ArrayList<String> list = Lists.newArrayList("");
+
+        assertThat(StringListCodec.decode(StringListCodec.encode(list)), is((Object) list));
+    }
+
+    @Test
+    public void roundTrip_keepsEmptyElements() {
+        ArrayList<String> list = Lists.newArrayList("", "Author", "", "");
+
+        assertThat(StringListCodec.decode(StringListCodec.encode(list)), is((Object) list));
+    }
+
+    @Test
+    public void roundTrip_escapesControlCharacters() {
+        ArrayList<String> list = Lists.newArrayList("a\u001Fb", "\u001B", "\u001E[\"json\"]",
+                "trailing\u001B");
+
+        assertThat(StringListCodec.decode(StringListCodec.encode(list)), is((Object) list));
+    }
+
+    @Test
+    public void encode_writesNullElementsAsEmpty() {
+        ArrayList<String> list = Lists.newArrayList("Author", null);
+
+        assertThat(StringListCodec.decode(StringListCodec.encode(list)),
+                is((Object) Lists.newArrayList("Author", "")));
+    }
+
+    @Test
+    public void decode_readsLegacyJson() {
+        assertThat(StringListCodec.isLegacy("[\"Larry Page\",\"Sergey Brin\"]"), is(true));
+        assertThat(StringListCodec.decode("[\"Larry Page\",\"Sergey Brin\"]"),
+                is((Object) Lists.newArrayList("Larry Page", "Sergey Brin")));
+        assertThat(StringListCodec.decode("[]"), is(Collections.<String>emptyList()));
+    }
+
+    @Test
+    public void decode_readsLegacyNullAsNull() {
+        // Gson stored a null list as "null".
+        assertThat(StringListCodec.isLegacy("null"), is(true));
+        assertThat(StringListCodec.decode("null"), is(nullValue()));
+        assertThat(StringListCodec.decodeFirst("null"), is(nullValue()));
+    }
+
+    @Test
+    public void decodeFirst_readsOnlyTheFirstElement() {
+        assertThat(StringListCodec.decodeFirst(null), is(nullValue()));
+        assertThat(StringListCodec.decodeFirst(""), is(nullValue()));
+        assertThat(StringListCodec.decodeFirst("[]"), is(nullValue()));
+        assertThat(StringListCodec.decodeFirst("[\"Larry Page\",\"Sergey Brin\"]"),
+                is("Larry Page"));
+        assertThat(StringListCodec.decodeFirst(StringListCodec.encode(
+                Lists.newArrayList("Larry Page", "Sergey Brin"))), is("Larry Page"));
+        assertThat(StringListCodec.decodeFirst(StringListCodec.encode(
+                Lists.newArrayList("a\u001Fb\u001B", "c"))), is("a\u001Fb\u001B"));
+    }
+
+    @Test
+    public void isLegacy_isFalseForCompactValues() {
+        assertThat(StringListCodec.isLegacy(""), is(false));
+        assertThat(StringListCodec.isLegacy(StringListCodec.encode(Lists.newArrayList("[a]"))),
+                is(false));
+    }
+}
@@ -0,0 +1,116 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.remote;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Compares the streaming ingestion of {@link BooksJsonStreamParser} with the previous
+ * "read the whole asset, then parse it twice" path of {@link BooksRemoteDataSource}, on a
+ * synthetic catalogue. How long each takes is measured by the JMH benchmarks of the benchmark
+ * module.
+ */
+public class BooksJsonIngestionTest {
+
+    private static final int VOLUMES = 1000;
+
+    private static final int DESCRIPTION_LENGTH = 2048;
+
+    private static byte[] sCatalogue;
+
+    @BeforeClass
+    public static void writeCatalogue() throws IOException {
+        sCatalogue = SyntheticBooksJson.volumes(VOLUMES, DESCRIPTION_LENGTH).getBytes("UTF-8");
+    }
+
+    @Test
+    public void streaming_deliversFirstBatchBeforeReadingWholeFeed() throws IOException {
+        final CountingInputStream feed =
+                new CountingInputStream(new ByteArrayInputStream(sCatalogue));
+        final long[] readAtFirstBatch = {-1};
+
+        new BooksJsonStreamParser().parse(feed, new BooksJsonStreamParser.Consumer() {
+            @Override
+            public void onBatch(@NonNull List<BookListItem> bookListItems,
+                                @NonNull List<Book> books) {
+                if (readAtFirstBatch[0] < 0) {
+                    readAtFirstBatch[0] = feed.mCount;
+                }
+            }
+        });
+
+        assertThat(readAtFirstBatch[0], is(lessThan((long) sCatalogue.length / 2)));
+    }
+
+    @Test
+    public void streaming_readsTheVolumesOfTheWholeFileParse() throws IOException {
+        final List<BookListItem> streamedItems = new ArrayList<>();
+        final List<Book> streamedBooks = new ArrayList<>();
+        new BooksJsonStreamParser().parse(new ByteArrayInputStream(sCatalogue),
+                new BooksJsonStreamParser.Consumer() {
+                    @Override
+                    public void onBatch(@NonNull List<BookListItem> bookListItems,
+                                        @NonNull List<Book> books) {
+                        streamedItems.addAll(bookListItems);
+                        streamedBooks.addAll(books);
+                    }
+                });
+
+        String json = new String(sCatalogue, "UTF-8");
+        Type itemListType = new TypeToken<ArrayList<BookListItem>>(){}.getType();
+        List<BookListItem> bookListItems = new Gson().fromJson(json, itemListType);
+        Type bookListType = new TypeToken<ArrayList<Book>>(){}.getType();
+        List<Book> bookList = new Gson().fromJson(json, bookListType);
+
+        assertThat(streamedItems, is(bookListItems));
+        assertThat(streamedBooks, is(bookList));
+    }
+
+    /**
+     * Counts the bytes read from the feed.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        long mCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                mCount += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.remote;
+
+import android.support.annotation.NonNull;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link BooksJsonStreamParser}.
+ */
+public class BooksJsonStreamParserTest {
+
+    @Test
+    public void parse_emitsListItemAndBookForEachVolume() throws IOException {
+        // Given a feed with 3 volumes
+        RecordingConsumer consumer = new RecordingConsumer();
+
+        // When it is parsed
+        int count = new BooksJsonStreamParser().parse(
+                stream(SyntheticBooksJson.volumes(3, 64)), consumer);
+
+        // Then both models are read from every volume
+        assertThat(count, is(3));
+        assertThat(consumer.bookListItems.size(), is(3));
+        assertThat(consumer.books.size(), is(3));
+        assertThat(consumer.bookListItems.get(1).getId(), is("id1"));
+        assertThat(consumer.bookListItems.get(1).getTitle(), is("Title 1"));
+        assertThat(consumer.bookListItems.get(1).getVolumeInfo().getImageLinks().getThumbnail(),
+                is("http://books.google.com/t?id=1"));
+        assertThat(consumer.books.get(2).getId(), is("id2"));
+        assertThat(consumer.books.get(2).getVolumeInfo().getDescription().length(), is(64));
+        assertThat(consumer.books.get(2).getVolumeInfo().getAuthors().get(0), is("Author 2"));
+    }
+
+    @Test
+    public void parse_deliversBoundedBatches() throws IOException {
+        // Given a parser with a batch size of 10
+        RecordingConsumer consumer = new RecordingConsumer();
+        BooksJsonStreamParser parser = new BooksJsonStreamParser(10);
+
+        // When a feed with 25 volumes is parsed
+        parser.parse(stream(SyntheticBooksJson.volumes(25, 16)), consumer);
+
+        // Then the volumes arrive in batches of at most 10
+        assertThat(consumer.batchSizes.size(), is(3));
+        assertThat(consumer.batchSizes.get(0), is(10));
+        assertThat(consumer.batchSizes.get(1), is(10));
+        assertThat(consumer.batchSizes.get(2), is(5));
+    }
+
+    @Test
+    public void parse_readsBooksApiResponseObject() throws IOException {
+        // Given a Books API response wrapping the volumes in "items"
+        String json = "{\"kind\":\"books#volumes\",\"totalItems\":2,\"items\":"
+                + SyntheticBooksJson.volumes(2, 16) + "}";
+        RecordingConsumer consumer = new RecordingConsumer();
+
+        // When it is parsed
+        int count = new BooksJsonStreamParser().parse(stream(json), consumer);
+
+        // Then the wrapped volumes are read
+        assertThat(count, is(2));
+        assertThat(consumer.books.get(0).getId(), is("id0"));
+    }
+
+    @Test
+    public void parse_emptyFeed_noBatches() throws IOException {
+        RecordingConsumer consumer = new RecordingConsumer();
+
+        int count = new BooksJsonStreamParser().parse(stream("[]"), consumer);
+
+        assertThat(count, is(0));
+        assertTrue(consumer.batchSizes.isEmpty());
+    }
+
+    private static InputStream stream(String json) throws IOException {
+        return new ByteArrayInputStream(json.getBytes("UTF-8"));
+    }
+
+    private static class RecordingConsumer implements BooksJsonStreamParser.Consumer {
+
+        final List<BookListItem> bookListItems = new ArrayList<>();
+
+        final List<Book> books = new ArrayList<>();
+
+        final List<Integer> batchSizes = new ArrayList<>();
+
+        @Override
+        public void onBatch(@NonNull List<BookListItem> bookListItems, @NonNull List<Book> books) {
+            this.bookListItems.addAll(bookListItems);
+            this.books.addAll(books);
+            batchSizes.add(bookListItems.size());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.remote;
+
+/**
+ * Builds books.json feeds of arbitrary size, shaped like the Books API volumes in the asset.
+ */
+final class SyntheticBooksJson {
+
+    private SyntheticBooksJson() {
+    }
+
+    static String volumes(int count, int descriptionLength) {
+        StringBuilder description = new StringBuilder(descriptionLength);
+        while (description.length() < descriptionLength) {
+            description.append("Lorem ipsum dolor sit amet. ");
+        }
+        description.setLength(descriptionLength);
+
+        StringBuilder json = new StringBuilder(count * (descriptionLength + 600));
+        json.append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"kind\":\"books#volume\",\"id\":\"id").append(i)
+                    .append("\",\"etag\":\"etag").append(i)
+                    .append("\",\"volumeInfo\":{\"title\":\"Title ").append(i)
+                    .append("\",\"authors\":[\"Author ").append(i % 97).append("\"]")
+                    .append(",\"publishedDate\":\"2014\",\"description\":\"").append(description)
+                    .append("\",\"industryIdentifiers\":[{\"type\":\"ISBN_13\",\"identifier\":\"97893259")
+                    .append(i).append("\"}],\"readingModes\":{\"text\":false,\"image\":true}")
+                    .append(",\"pageCount\":").append(100 + i % 900)
+                    .append(",\"categories\":[\"Computers\"],\"language\":\"en\"")
+                    .append(",\"imageLinks\":{\"smallThumbnail\":\"http://books.google.com/s?id=").append(i)
+                    .append("\",\"thumbnail\":\"http://books.google.com/t?id=").append(i).append("\"}}")
+                    .append(",\"saleInfo\":{\"country\":\"AR\",\"saleability\":\"FOR_SALE\",\"isEbook\":true}}");
+        }
+        json.append(']');
+        return json.toString();
+    }
+}
@@ -0,0 +1,131 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.remote;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Unit tests for {@link VolumeTypeAdapter}, which must read volumes as Gson does by reflection.
+ */
+public class VolumeTypeAdapterTest {
+
+    private static final Gson REFLECTIVE_GSON = new Gson();
+
+    @Test
+    public void read_matchesReflectiveGson() {
+        String json = SyntheticBooksJson.volumes(5, 32);
+
+        List<BookListItem> items = BooksGson.get().fromJson(json,
+                new TypeToken<List<BookListItem>>() {
+                }.getType());
+        List<BookListItem> reflectiveItems = REFLECTIVE_GSON.fromJson(json,
+                new TypeToken<List<BookListItem>>() {
+                }.getType());
+        List<Book> books = BooksGson.get().fromJson(json, new TypeToken<List<Book>>() {
+        }.getType());
+        List<Book> reflectiveBooks = REFLECTIVE_GSON.fromJson(json, new TypeToken<List<Book>>() {
+        }.getType());
+
+        for (int i = 0; i < 5; i++) {
+            assertSameItem(items.get(i), reflectiveItems.get(i));
+            assertSameBook(books.get(i), reflectiveBooks.get(i));
+        }
+    }
+
+    @Test
+    public void read_volumeWithMissingAndNullFields_matchesReflectiveGson() {
+        String json = "{\"id\":\"id1\",\"etag\":null,\"link\":\"link1\",\"favorite\":true,"
+                + "\"volumeInfo\":{\"title\":\"Title\",\"imageLinks\":null,"
+                + "\"pageCount\":372,\"readingModes\":{\"text\":false}}}";
+
+        BookListItem item = BooksGson.get().fromJson(json, BookListItem.class);
+        Book book = BooksGson.get().fromJson(json, Book.class);
+
+        assertSameItem(item, REFLECTIVE_GSON.fromJson(json, BookListItem.class));
+        assertSameBook(book, REFLECTIVE_GSON.fromJson(json, Book.class));
+        assertThat(item.getLink(), is("link1"));
+        assertThat(item.isFavorite(), is(true));
+        assertThat(item.getVolumeInfo().getAuthors(), is(nullValue()));
+        assertThat(item.getVolumeInfo().getPublishedDate(), is(nullValue()));
+        assertThat(item.getVolumeInfo().getPageCount(), is(372));
+        assertThat(book.isFavorite(), is(false));
+    }
+
+    @Test
+    public void read_volumeWithoutVolumeInfo_hasNone() {
+        Volume volume = BooksGson.get().fromJson("{\"id\":\"id1\",\"kind\":\"books#volume\"}",
+                Volume.class);
+
+        assertThat(volume.getBookListItem().getId(), is("id1"));
+        assertThat(volume.getBookListItem().getVolumeInfo(), is(nullValue()));
+        assertThat(volume.getBook().getVolumeInfo(), is(nullValue()));
+    }
+
+    @Test
+    public void writeThenRead_keepsVolume() {
+        Volume volume = BooksGson.get().fromJson(
+                SyntheticBooksJson.volumes(1, 16).replaceAll("^\\[|\\]$", ""), Volume.class);
+
+        Volume read = BooksGson.get().fromJson(BooksGson.get().toJson(volume), Volume.class);
+
+        assertSameItem(read.getBookListItem(), volume.getBookListItem());
+        assertSameBook(read.getBook(), volume.getBook());
+    }
+
+    @Test
+    public void stringList_readsNullElements() {
+        ArrayList<String> list = BooksGson.get().fromJson("[\"a\",null,\"b\"]",
+                BooksGson.STRING_LIST_TYPE);
+
+        assertThat(list.size(), is(3));
+        assertThat(list.get(1), is(nullValue()));
+        assertThat(list.get(2), is("b"));
+    }
+
+    private static void assertSameItem(BookListItem item, BookListItem expected) {
+        assertThat(item.getId(), is(expected.getId()));
+        assertThat(item.getEtag(), is(expected.getEtag()));
+        assertThat(item.getLink(), is(expected.getLink()));
+        assertThat(item.isFavorite(), is(expected.isFavorite()));
+        BookListItem.VolumeInfo info = item.getVolumeInfo();
+        BookListItem.VolumeInfo expectedInfo = expected.getVolumeInfo();
+        assertThat(info.getTitle(), is(expectedInfo.getTitle()));
+        assertThat(info.getAuthors(), is(expectedInfo.getAuthors()));
+        assertThat(info.getLanguage(), is(expectedInfo.getLanguage()));
+        assertThat(info.getCategories(), is(expectedInfo.getCategories()));
+        assertThat(info.getPublishedDate(), is(expectedInfo.getPublishedDate()));
+        assertThat(info.getPageCount(), is(expectedInfo.getPageCount()));
+        if (expectedInfo.getImageLinks() == null) {
+            assertThat(info.getImageLinks(), is(nullValue()));
+        } else {
+            assertThat(info.getImageLinks().getThumbnail(),
+                    is(expectedInfo.getImageLinks().getThumbnail()));
+        }
+    }
+
+    private static void assertSameBook(Book book, Book expected) {
+        assertThat(book.getId(), is(expected.getId()));
+        assertThat(book.isFavorite(), is(expected.isFavorite()));
+        Book.VolumeInfo info = book.getVolumeInfo();
+        Book.VolumeInfo expectedInfo = expected.getVolumeInfo();
+        assertThat(info.getTitle(), is(expectedInfo.getTitle()));
+        assertThat(info.getAuthors(), is(expectedInfo.getAuthors()));
+        assertThat(info.getDescription(), is(expectedInfo.getDescription()));
+        if (expectedInfo.getImageLinks() == null) {
+            assertThat(info.getImageLinks(), is(nullValue()));
+        } else {
+            assertThat(info.getImageLinks().getThumbnail(),
+                    is(expectedInfo.getImageLinks().getThumbnail()));
+        }
+    }
+}
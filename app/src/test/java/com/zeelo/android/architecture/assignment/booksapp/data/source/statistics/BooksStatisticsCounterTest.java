@@ -0,0 +1,115 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.statistics;
+
+import com.google.common.collect.Lists;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link BooksStatisticsCounter} and the {@link BooksStatistics} it counts.
+ */
+public class BooksStatisticsCounterTest {
+
+    @Test
+    public void of_countsBooksByFavoriteAuthorLanguageAndCategory() {
+        BooksStatisticsCounter counter = BooksStatisticsCounter.of(Lists.newArrayList(
+                book("1", true, "en", "Larry Page", "Sergey Brin"),
+                book("2", false, "en", "Larry Page"),
+                book("3", false, "fr", "Victor Hugo")));
+
+        BooksStatistics statistics = counter.snapshot();
+
+        assertThat(statistics.getFavoriteBooks(), is(1));
+        assertThat(statistics.getNotFavoriteBooks(), is(2));
+        assertThat(statistics.getTotalBooks(), is(3));
+        assertThat(statistics.getBooksByAuthor().get("Larry Page"), is(2));
+        assertThat(statistics.getBooksByAuthor().get("Sergey Brin"), is(1));
+        assertThat(statistics.getBooksByLanguage().get("en"), is(2));
+        assertThat(statistics.getBooksByCategory().get("Computers"), is(3));
+    }
+
+    @Test
+    public void remove_dropsValuesWithoutBooks() {
+        BookListItem book = book("1", false, "fr", "Victor Hugo");
+        BooksStatisticsCounter counter = BooksStatisticsCounter.of(Lists.newArrayList(book));
+
+        counter.remove(book);
+
+        BooksStatistics statistics = counter.snapshot();
+        assertThat(statistics.isEmpty(), is(true));
+        assertThat(statistics.getBooksByAuthor().isEmpty(), is(true));
+        assertThat(statistics.getBooksByLanguage().isEmpty(), is(true));
+        assertThat(statistics.getBooksByCategory().isEmpty(), is(true));
+    }
+
+    @Test
+    public void setFavorite_movesTheBookOnlyWhenItChanges() {
+        BooksStatisticsCounter counter = BooksStatisticsCounter.of(Lists.newArrayList(
+                book("1", false, "en", "Larry Page")));
+
+        counter.setFavorite(false, false);
+        counter.setFavorite(false, true);
+
+        assertThat(counter.snapshot().getFavoriteBooks(), is(1));
+        assertThat(counter.snapshot().getNotFavoriteBooks(), is(0));
+    }
+
+    @Test
+    public void snapshot_isKeptUntilTheCountsChange() {
+        BooksStatisticsCounter counter = new BooksStatisticsCounter();
+        BooksStatistics first = counter.snapshot();
+
+        assertThat(counter.snapshot(), sameInstance(first));
+        counter.add(book("1", true, "en", "Larry Page"));
+        assertThat(counter.snapshot(), not(sameInstance(first)));
+        assertThat(first.isEmpty(), is(true));
+    }
+
+    @Test
+    public void counterFromStatistics_keepsCounting() {
+        BooksStatistics statistics = BooksStatistics.newBuilder()
+                .addBooks(false, 2)
+                .addAuthors(Lists.newArrayList("Larry Page"), 2)
+                .build();
+        BooksStatisticsCounter counter = new BooksStatisticsCounter(statistics);
+
+        counter.remove(book("1", false, "en", "Larry Page"));
+
+        assertThat(counter.snapshot().getNotFavoriteBooks(), is(1));
+        assertThat(counter.snapshot().getBooksByAuthor().get("Larry Page"), is(1));
+    }
+
+    @Test
+    public void mostCommon_sortsByCountThenAlphabetically() {
+        BooksStatistics statistics = BooksStatistics.newBuilder()
+                .addAuthors(Lists.newArrayList("B", "C"), 1)
+                .addAuthors(Lists.newArrayList("A"), 1)
+                .addAuthors(Lists.newArrayList("C"), 1)
+                .build();
+
+        List<Map.Entry<String, Integer>> mostCommon =
+                BooksStatistics.mostCommon(statistics.getBooksByAuthor(), 2);
+
+        assertThat(mostCommon.size(), is(2));
+        assertThat(mostCommon.get(0).getKey(), is("C"));
+        assertThat(mostCommon.get(1).getKey(), is("A"));
+    }
+
+    private static BookListItem book(String id, boolean favorite, String language,
+                                     String... authors) {
+        BookListItem book = new BookListItem("Title" + id, id);
+        book.setFavorite(favorite);
+        book.getVolumeInfo().setAuthors(Lists.newArrayList(authors));
+        book.getVolumeInfo().setLanguage(language);
+        book.getVolumeInfo().setCategories(Lists.newArrayList("Computers"));
+        return book;
+    }
+}
@@ -0,0 +1,209 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.sync;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link BooksSyncEngine}, syncing with an in-memory server.
+ */
+public class BooksSyncEngineTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private FakeBooksChangesSource mChangesSource;
+
+    @Mock
+    private BooksDeltaStore mDeltaStore;
+
+    @Mock
+    private BooksSyncEngine.SyncCallback mSyncCallback;
+
+    @Captor
+    private ArgumentCaptor<BooksDelta> mDeltaCaptor;
+
+    @Captor
+    private ArgumentCaptor<BooksDeltaStore.ApplyDeltaCallback> mApplyCallbackCaptor;
+
+    private long mWatermark;
+
+    private int mWatermarkReads;
+
+    private final List<Runnable> mSyncTasks = new ArrayList<>();
+
+    private BooksSyncEngine mSyncEngine;
+
+    @Before
+    public void setupSyncEngine() {
+        MockitoAnnotations.initMocks(this);
+        mChangesSource = new FakeBooksChangesSource();
+        mChangesSource.put(new BookListItem("Title1", "Id1"), new Book("Title1", "Id1", "Desc1"));
+        mChangesSource.put(new BookListItem("Title2", "Id2"), new Book("Title2", "Id2", "Desc2"));
+
+        mSyncEngine = newSyncEngine(DIRECT);
+    }
+
+    @Test
+    public void sync_readsWatermarkOnTheSyncExecutor() {
+        // Given a sync engine whose sync executor hasn't run yet
+        BooksSyncEngine syncEngine = newSyncEngine(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mSyncTasks.add(command);
+            }
+        });
+
+        // When syncing
+        syncEngine.sync(mSyncCallback);
+
+        // Then the watermark is only read, and the changes requested, once the executor runs
+        assertThat(mWatermarkReads, is(0));
+        assertThat(mChangesSource.getRequestCount(), is(0));
+        assertThat(mSyncTasks.size(), is(1));
+        mSyncTasks.get(0).run();
+        assertThat(mWatermarkReads, is(1));
+        assertThat(mChangesSource.getRequestCount(), is(1));
+    }
+
+    @Test
+    public void firstSync_appliesEveryBookWithItsEtag() {
+        // When syncing for the first time
+        mSyncEngine.sync(mSyncCallback);
+
+        // Then every book on the server is applied, along with its details
+        verify(mDeltaStore).applyDelta(mDeltaCaptor.capture(), any(BooksDeltaStore.ApplyDeltaCallback.class));
+        BooksDelta delta = mDeltaCaptor.getValue();
+        assertThat(mChangesSource.getLastWatermark(), is(0L));
+        assertThat(delta.getUpserts().size(), is(2));
+        assertThat(delta.getUpserts().get(0).getEtag(), notNullValue());
+        assertThat(delta.getBook("Id2").getVolumeInfo().getDescription(), is("Desc2"));
+        assertThat(delta.getDeletedIds().isEmpty(), is(true));
+    }
+
+    @Test
+    public void sync_appliesOnlyChangesSinceLastSync() {
+        // Given the books were synced once
+        syncAndApply();
+
+        // When a book is changed, one added and one deleted on the server
+        mChangesSource.put(new BookListItem("Title1 (2nd edition)", "Id1"), null);
+        mChangesSource.put(new BookListItem("Title3", "Id3"), null);
+        mChangesSource.delete("Id2");
+        mSyncEngine.sync(mSyncCallback);
+
+        // Then only those changes are asked for and applied
+        verify(mDeltaStore, times(2)).applyDelta(mDeltaCaptor.capture(),
+                any(BooksDeltaStore.ApplyDeltaCallback.class));
+        BooksDelta delta = mDeltaCaptor.getValue();
+        assertThat(mChangesSource.getLastWatermark(), is(2L));
+        assertThat(delta.getUpserts().size(), is(2));
+        assertThat(delta.getUpserts().get(0).getTitle(), is("Title1 (2nd edition)"));
+        assertThat(delta.getUpserts().get(1).getId(), is("Id3"));
+        assertThat(delta.getDeletedIds(), is(Collections.singletonList("Id2")));
+    }
+
+    @Test
+    public void sync_reportsTheAppliedDeltaAndMovesWatermark() {
+        // When the delta is applied
+        mSyncEngine.sync(mSyncCallback);
+        verify(mDeltaStore).applyDelta(mDeltaCaptor.capture(), mApplyCallbackCaptor.capture());
+        BooksDelta applied = BooksDelta.newBuilder(2).build();
+        mApplyCallbackCaptor.getValue().onDeltaApplied(applied);
+
+        // Then the watermark moves to the one of the delta and the applied changes are reported
+        assertThat(mWatermark, is(2L));
+        verify(mSyncCallback).onSynced(applied);
+    }
+
+    @Test
+    public void syncWithDeltaFailing_keepsWatermark() {
+        // When the delta can't be applied
+        mSyncEngine.sync(mSyncCallback);
+        verify(mDeltaStore).applyDelta(mDeltaCaptor.capture(), mApplyCallbackCaptor.capture());
+        mApplyCallbackCaptor.getValue().onDeltaFailed();
+
+        // Then the sync fails and the next one starts from the same point
+        assertThat(mWatermark, is(0L));
+        verify(mSyncCallback).onSyncFailed();
+    }
+
+    @Test
+    public void syncWithServerUnavailable_fails() {
+        // Given the server can't be reached
+        mChangesSource.setAvailable(false);
+
+        // When syncing
+        mSyncEngine.sync(mSyncCallback);
+
+        // Then nothing is applied and the sync fails
+        verify(mDeltaStore, never()).applyDelta(any(BooksDelta.class),
+                any(BooksDeltaStore.ApplyDeltaCallback.class));
+        verify(mSyncCallback).onSyncFailed();
+        assertThat(mWatermark, is(0L));
+    }
+
+    @Test
+    public void syncWhileSyncing_joinsTheRunningSync() {
+        // Given a sync waiting for its delta to be applied
+        mSyncEngine.sync(mSyncCallback);
+        BooksSyncEngine.SyncCallback otherCallback =
+                mock(BooksSyncEngine.SyncCallback.class);
+
+        // When another sync is requested
+        mSyncEngine.sync(otherCallback);
+
+        // Then the server is only asked once and both callbacks get its result
+        assertThat(mChangesSource.getRequestCount(), is(1));
+        verify(mDeltaStore).applyDelta(mDeltaCaptor.capture(), mApplyCallbackCaptor.capture());
+        BooksDelta applied = BooksDelta.newBuilder(2).build();
+        mApplyCallbackCaptor.getValue().onDeltaApplied(applied);
+        verify(mSyncCallback).onSynced(applied);
+        verify(otherCallback).onSynced(applied);
+    }
+
+    private BooksSyncEngine newSyncEngine(Executor syncExecutor) {
+        return new BooksSyncEngine(mChangesSource, mDeltaStore, new SyncStateStore() {
+            @Override
+            public long getWatermark() {
+                mWatermarkReads++;
+                return mWatermark;
+            }
+
+            @Override
+            public void setWatermark(long watermark) {
+                mWatermark = watermark;
+            }
+        }, syncExecutor, DIRECT);
+    }
+
+    private void syncAndApply() {
+        mSyncEngine.sync(mSyncCallback);
+        verify(mDeltaStore).applyDelta(mDeltaCaptor.capture(), mApplyCallbackCaptor.capture());
+        mApplyCallbackCaptor.getValue().onDeltaApplied(mDeltaCaptor.getValue());
+    }
+}
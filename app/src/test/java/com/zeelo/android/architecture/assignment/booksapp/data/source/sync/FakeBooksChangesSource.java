@@ -0,0 +1,68 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.sync;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory server to sync with in tests, without a network or the assets of the app.
+ */
+class FakeBooksChangesSource implements BooksChangesSource {
+
+    private final Map<String, BookListItem> mItems = new LinkedHashMap<>();
+
+    private final Map<String, Book> mBooks = new LinkedHashMap<>();
+
+    private final BooksChangeLog mChangeLog = new BooksChangeLog();
+
+    private boolean mAvailable = true;
+
+    private int mRequestCount;
+
+    private long mLastWatermark = -1;
+
+    /**
+     * Adds or changes a book on the server, giving it a new etag.
+     */
+    void put(@NonNull BookListItem item, @Nullable Book book) {
+        item.setEtag(mChangeLog.recordChange(item.getId()));
+        mItems.put(item.getId(), item);
+        if (book != null) {
+            mBooks.put(book.getId(), book);
+        }
+    }
+
+    void delete(@NonNull String id) {
+        mItems.remove(id);
+        mBooks.remove(id);
+        mChangeLog.recordChange(id);
+    }
+
+    void setAvailable(boolean available) {
+        mAvailable = available;
+    }
+
+    int getRequestCount() {
+        return mRequestCount;
+    }
+
+    long getLastWatermark() {
+        return mLastWatermark;
+    }
+
+    @Override
+    public void getChangesSince(long watermark, @NonNull LoadChangesCallback callback) {
+        mRequestCount++;
+        mLastWatermark = watermark;
+        if (mAvailable) {
+            callback.onChangesLoaded(mChangeLog.changesSince(watermark, mItems, mBooks));
+        } else {
+            callback.onDataNotAvailable();
+        }
+    }
+}
@@ -6,9 +6,9 @@ import android.app.Application;
 import android.arch.core.executor.testing.InstantTaskExecutorRule;
 
 import com.google.common.collect.Lists;
-import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksDataSource;
 import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksRepository;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -18,8 +18,6 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
-import java.util.List;
-
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
@@ -35,13 +33,11 @@ public class StatisticsViewModelTest {
     @Rule
     public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
 
-    private static List<BookListItem> BOOKS;
-
     @Mock
     private BooksRepository mBooksRepository;
 
     @Captor
-    private ArgumentCaptor<BooksDataSource.LoadBooksListCallback> mLoadBooksCallbackCaptor;
+    private ArgumentCaptor<BooksDataSource.GetStatisticsCallback> mGetStatisticsCallbackCaptor;
 
     private StatisticsViewModel mStatisticsViewModel;
 
@@ -53,23 +49,16 @@ public class StatisticsViewModelTest {
 
         // Get a reference to the class under test
         mStatisticsViewModel = new StatisticsViewModel(mock(Application.class), mBooksRepository);
-
-        // We initialise the books to 3, with one not favorite and two favorite
-        BOOKS = Lists.newArrayList(new BookListItem("Title1", "Description1"),
-                new BookListItem("Title2", "id2", "link2"), new BookListItem("Title3", "Description3", "link3"));
     }
 
     @Test
     public void loadEmptyBooksFromRepository_EmptyResults() {
-        // Given an initialized StatisticsViewModel with no books
-        BOOKS.clear();
-
-        // When loading of Books is requested
+        // When loading of statistics is requested
         mStatisticsViewModel.loadStatistics();
 
-        // Callback is captured and invoked with stubbed books
-        verify(mBooksRepository).getBooks(mLoadBooksCallbackCaptor.capture());
-        mLoadBooksCallbackCaptor.getValue().onBooksListLoaded(BOOKS);
+        // Callback is captured and invoked with the statistics of no books
+        verify(mBooksRepository).getStatistics(mGetStatisticsCallbackCaptor.capture());
+        mGetStatisticsCallbackCaptor.getValue().onStatisticsLoaded(BooksStatistics.empty());
 
         // Then the results are empty
         assertThat(mStatisticsViewModel.empty.get(), is(true));
@@ -77,26 +66,31 @@ public class StatisticsViewModelTest {
 
     @Test
     public void loadNonEmptyBooksFromRepository_NonEmptyResults() {
-        // When loading of Books is requested
+        // When loading of statistics is requested
         mStatisticsViewModel.loadStatistics();
 
-        // Callback is captured and invoked with stubbed books
-        verify(mBooksRepository).getBooks(mLoadBooksCallbackCaptor.capture());
-        mLoadBooksCallbackCaptor.getValue().onBooksListLoaded(BOOKS);
-
-        // Then the results are empty
-//        assertThat(mStatisticsViewModel.empty.get(), is(false));
+        // Callback is captured and invoked with the statistics of one not favorite and two
+        // favorite books
+        verify(mBooksRepository).getStatistics(mGetStatisticsCallbackCaptor.capture());
+        mGetStatisticsCallbackCaptor.getValue().onStatisticsLoaded(BooksStatistics.newBuilder()
+                .addBooks(false, 1)
+                .addBooks(true, 2)
+                .addAuthors(Lists.newArrayList("Author1"), 3)
+                .build());
+
+        // Then the results are not empty
+        assertThat(mStatisticsViewModel.empty.get(), is(false));
+        assertThat(mStatisticsViewModel.dataLoading.get(), is(false));
     }
 
-
     @Test
     public void loadStatisticsWhenBooksAreUnavailable_CallErrorToDisplay() {
         // When statistics are loaded
         mStatisticsViewModel.loadStatistics();
 
         // And books data isn't available
-        verify(mBooksRepository).getBooks(mLoadBooksCallbackCaptor.capture());
-        mLoadBooksCallbackCaptor.getValue().onDataNotAvailable();
+        verify(mBooksRepository).getStatistics(mGetStatisticsCallbackCaptor.capture());
+        mGetStatisticsCallbackCaptor.getValue().onDataNotAvailable();
 
         // Then an error message is shown
         assertEquals(mStatisticsViewModel.empty.get(), true);
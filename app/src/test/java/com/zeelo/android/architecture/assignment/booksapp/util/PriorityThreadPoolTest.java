@@ -0,0 +1,260 @@
+package com.zeelo.android.architecture.assignment.booksapp.util;
+
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link PriorityThreadPool}.
+ */
+public class PriorityThreadPoolTest {
+
+    private static final int PRODUCERS = 4;
+
+    private static final int TASKS_PER_PRODUCER = 50;
+
+    private PriorityThreadPool mPool;
+
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    private final List<String> mRan = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mRelease.countDown();
+        if (mPool != null) {
+            mPool.shutdown();
+            assertTrue(mPool.awaitTermination(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void userVisibleTasks_runBeforeBackgroundTasksQueuedEarlier() throws Exception {
+        mPool = PriorityThreadPool.newBuilder("test").build();
+        blockPool();
+
+        mPool.execute(record("background1"), TaskPriority.BACKGROUND);
+        mPool.execute(record("userVisible1"), TaskPriority.USER_VISIBLE);
+        mPool.execute(record("background2"), TaskPriority.BACKGROUND);
+        mPool.executor(TaskPriority.USER_VISIBLE).execute(record("userVisible2"));
+        runQueuedTasks();
+
+        assertThat(mRan, is(listOf("userVisible1", "userVisible2", "background1",
+                "background2")));
+    }
+
+    @Test
+    public void underContention_prioritiesAndQueueOrderAreKept() throws Exception {
+        mPool = PriorityThreadPool.newBuilder("test").build();
+        blockPool();
+
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    awaitQuietly(start);
+                    for (int i = 0; i < TASKS_PER_PRODUCER; i++) {
+                        TaskPriority priority =
+                                i % 2 == 0 ? TaskPriority.BACKGROUND : TaskPriority.USER_VISIBLE;
+                        mPool.execute(record(priority + " " + producer + " " + i), priority);
+                    }
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        runQueuedTasks();
+
+        assertThat(mRan.size(), is(PRODUCERS * TASKS_PER_PRODUCER));
+        int[] lastTaskOfProducer = new int[PRODUCERS];
+        TaskPriority lastPriority = TaskPriority.USER_VISIBLE;
+        for (String task : mRan) {
+            String[] parts = task.split(" ");
+            TaskPriority priority = TaskPriority.valueOf(parts[0]);
+            int producer = Integer.parseInt(parts[1]);
+            int index = Integer.parseInt(parts[2]);
+            // Every user visible task runs before the first background one...
+            assertThat(priority.compareTo(lastPriority), greaterThanOrEqualTo(0));
+            if (priority != lastPriority) {
+                lastTaskOfProducer = new int[PRODUCERS];
+                lastPriority = priority;
+            }
+            // ...and the tasks of each producer run in the order it queued them.
+            assertThat(index, greaterThanOrEqualTo(lastTaskOfProducer[producer]));
+            lastTaskOfProducer[producer] = index;
+        }
+    }
+
+    @Test
+    public void execute_usesTheDefaultPriority() throws Exception {
+        mPool = PriorityThreadPool.newBuilder("test")
+                .defaultPriority(TaskPriority.BACKGROUND)
+                .build();
+        blockPool();
+
+        mPool.execute(record("default"));
+        mPool.execute(record("userVisible"), TaskPriority.USER_VISIBLE);
+        runQueuedTasks();
+
+        assertThat(mRan, is(listOf("userVisible", "default")));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void fullQueue_rejectsTasksByDefault() throws Exception {
+        mPool = PriorityThreadPool.newBuilder("test").queueCapacity(2).build();
+        blockPool();
+
+        mPool.execute(record("queued1"));
+        mPool.execute(record("queued2"));
+        mPool.execute(record("rejected"));
+    }
+
+    @Test
+    public void fullQueue_withCallerRunsPolicy_runsTheTaskOnTheCaller() throws Exception {
+        mPool = PriorityThreadPool.newBuilder("test")
+                .queueCapacity(1)
+                .rejectionHandler(new ThreadPoolExecutor.CallerRunsPolicy())
+                .build();
+        blockPool();
+        mPool.execute(record("queued"));
+
+        final String[] threadName = new String[1];
+        mPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                threadName[0] = Thread.currentThread().getName();
+            }
+        });
+
+        assertThat(threadName[0], is(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void threads_areNamedAfterThePool() throws Exception {
+        mPool = PriorityThreadPool.newBuilder("diskRead").threads(2).build();
+        final List<String> names = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch bothRunning = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            mPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    names.add(Thread.currentThread().getName());
+                    bothRunning.countDown();
+                    awaitQuietly(bothRunning);
+                }
+            });
+        }
+
+        assertTrue(bothRunning.await(1, TimeUnit.SECONDS));
+        Collections.sort(names);
+        assertThat(names, is(listOf("diskRead-1", "diskRead-2")));
+    }
+
+    @Test
+    public void taskListener_getsTheWaitAndRunTimeOfEveryTask() throws Exception {
+        final List<TaskPriority> priorities =
+                Collections.synchronizedList(new ArrayList<TaskPriority>());
+        final CountDownLatch finished = new CountDownLatch(2);
+        mPool = PriorityThreadPool.newBuilder("test")
+                .taskListener(new PriorityThreadPool.TaskListener() {
+                    @Override
+                    public void onTaskFinished(@NonNull TaskPriority priority, long waitNanos,
+                                               long runNanos) {
+                        assertThat(waitNanos, greaterThanOrEqualTo(0L));
+                        assertThat(runNanos, greaterThanOrEqualTo(
+                                TimeUnit.MILLISECONDS.toNanos(5)));
+                        priorities.add(priority);
+                        finished.countDown();
+                    }
+                })
+                .build();
+        Runnable sleep = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        mPool.execute(sleep, TaskPriority.USER_VISIBLE);
+        mPool.execute(sleep, TaskPriority.BACKGROUND);
+
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        assertThat(priorities, is(listOf(TaskPriority.USER_VISIBLE, TaskPriority.BACKGROUND)));
+    }
+
+    /**
+     * Keeps the only thread of the pool busy until {@link #runQueuedTasks()}, so the tasks queue.
+     */
+    private void blockPool() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        mPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                awaitQuietly(mRelease);
+            }
+        });
+        assertTrue(blocked.await(1, TimeUnit.SECONDS));
+    }
+
+    private void runQueuedTasks() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        mPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        }, TaskPriority.BACKGROUND);
+        mRelease.countDown();
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+    }
+
+    private Runnable record(final String task) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                mRan.add(task);
+            }
+        };
+    }
+
+    @SafeVarargs
+    private static <T> List<T> listOf(T... values) {
+        List<T> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return list;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.glide;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link ThumbnailCacheSizes}.
+ */
+public class ThumbnailCacheSizesTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void sizes_scaleWithMemoryClass() {
+        ThumbnailCacheSizes sizes = ThumbnailCacheSizes.forMemoryClass(128, false);
+
+        assertThat(sizes.getMemoryCacheBytes(), is(16 * MB));
+        assertThat(sizes.getBitmapPoolBytes(), is(8 * MB));
+        assertThat(sizes.getDiskCacheBytes(), is(64 * MB));
+    }
+
+    @Test
+    public void lowRamDevice_getsHalfTheMemoryAndLessDisk() {
+        ThumbnailCacheSizes sizes = ThumbnailCacheSizes.forMemoryClass(128, true);
+
+        assertThat(sizes.getMemoryCacheBytes(), is(8 * MB));
+        assertThat(sizes.getBitmapPoolBytes(), is(4 * MB));
+        assertThat(sizes.getDiskCacheBytes(), is(16 * MB));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveMemoryClass_isRejected() {
+        ThumbnailCacheSizes.forMemoryClass(0, false);
+    }
+}
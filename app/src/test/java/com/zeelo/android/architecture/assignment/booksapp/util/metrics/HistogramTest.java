@@ -0,0 +1,116 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link Histogram}.
+ */
+public class HistogramTest {
+
+    @Test
+    public void smallValues_areCountedExactly() {
+        for (long value = 0; value < Histogram.LINEAR_LIMIT; value++) {
+            assertThat(Histogram.highestValueOf(Histogram.bucketOf(value)), is(value));
+        }
+    }
+
+    @Test
+    public void everyValue_fallsInABucketWithinOneSixteenthOfIt() {
+        long[] values = {Histogram.LINEAR_LIMIT, 33, 100, 1000, 123456789, Long.MAX_VALUE / 3,
+                Long.MAX_VALUE};
+        for (long value : values) {
+            long highest = Histogram.highestValueOf(Histogram.bucketOf(value));
+            assertThat(highest, greaterThanOrEqualTo(value));
+            assertThat(highest - value, lessThanOrEqualTo(value / Histogram.SUB_BUCKETS));
+        }
+    }
+
+    @Test
+    public void buckets_followEachOther() {
+        int previous = Histogram.bucketOf(0);
+        for (long value = 1; value < 1 << 16; value++) {
+            int bucket = Histogram.bucketOf(value);
+            assertThat(bucket - previous, lessThanOrEqualTo(1));
+            assertThat(bucket, greaterThanOrEqualTo(previous));
+            previous = bucket;
+        }
+    }
+
+    @Test
+    public void percentiles_ofUniformValues() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.getCount(), is(1000L));
+        assertThat(histogram.getMax(), is(1000L));
+        assertThat(histogram.getMean(), is(500.5));
+        assertWithinPrecision(histogram.getValueAtPercentile(50), 500);
+        assertWithinPrecision(histogram.getValueAtPercentile(99), 990);
+        assertThat(histogram.getValueAtPercentile(100), is(1000L));
+    }
+
+    @Test
+    public void emptyHistogram_reportsZero() {
+        Histogram histogram = new Histogram();
+
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMean(), is(0.0));
+        assertThat(histogram.getValueAtPercentile(99), is(0L));
+    }
+
+    @Test
+    public void negativeValues_areRecordedAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+
+        assertThat(histogram.getMax(), is(0L));
+        assertThat(histogram.getValueAtPercentile(50), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentileAbove100_isRejected() {
+        new Histogram().getValueAtPercentile(101);
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws InterruptedException {
+        final Histogram histogram = new Histogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final int thread = i;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int value = 0; value < 10000; value++) {
+                        histogram.record(thread * 10000 + value);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(histogram.getCount(), is(40000L));
+        assertThat(histogram.getMax(), is(39999L));
+        assertThat(histogram.getValueAtPercentile(100), is(39999L));
+    }
+
+    private static void assertWithinPrecision(long actual, long expected) {
+        assertThat(actual, greaterThanOrEqualTo(expected));
+        assertThat(actual - expected, lessThanOrEqualTo(expected / Histogram.SUB_BUCKETS));
+    }
+}
@@ -0,0 +1,125 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.metrics;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link MetricsRegistry} and {@link NoOpMetrics}.
+ */
+public class MetricsRegistryTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private final MetricsRegistry mRegistry = new MetricsRegistry();
+
+    @Test
+    public void timersWithTheSameName_recordTogether() {
+        Metrics.Timer first = mRegistry.timer("dao.getBooks");
+        Metrics.Timer second = mRegistry.timer("dao.getBooks");
+        first.stop(first.start());
+        second.stop(second.start());
+
+        JsonObject timer = toJson().getAsJsonObject("timers").getAsJsonObject("dao.getBooks");
+        assertThat(timer.get("count").getAsLong(), is(2L));
+        assertThat(timer.has("p50"), is(true));
+        assertThat(timer.has("p90"), is(true));
+        assertThat(timer.has("p99"), is(true));
+        assertThat(timer.has("max"), is(true));
+    }
+
+    @Test
+    public void hitRatio_countsHitsAndMisses() {
+        Metrics.HitRatio hitRatio = mRegistry.hitRatio("repository.booksCache");
+        hitRatio.hit();
+        hitRatio.hit();
+        hitRatio.hit();
+        hitRatio.miss();
+
+        JsonObject json = toJson().getAsJsonObject("hitRatios")
+                .getAsJsonObject("repository.booksCache");
+        assertThat(json.get("hits").getAsLong(), is(3L));
+        assertThat(json.get("misses").getAsLong(), is(1L));
+        assertThat(json.get("ratio").getAsDouble(), is(0.75));
+    }
+
+    @Test
+    public void meteredExecutor_runsCommandsAndRecordsTheirWait() {
+        final int[] runs = {0};
+        Executor executor = mRegistry.meter("diskIO", DIRECT_EXECUTOR);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                runs[0]++;
+            }
+        });
+
+        assertThat(runs[0], is(1));
+        JsonObject json = toJson().getAsJsonObject("executors").getAsJsonObject("diskIO");
+        assertThat(json.getAsJsonObject("queueDepth").get("max").getAsLong(), is(1L));
+        assertThat(json.getAsJsonObject("waitMicros").get("count").getAsLong(), is(1L));
+    }
+
+    @Test
+    public void meteredExecutor_doesNotCountRejectedCommandsAsQueued() {
+        // Given an executor that rejects its first command
+        Executor rejectingOnce = new Executor() {
+            private boolean mRejected;
+
+            @Override
+            public void execute(Runnable command) {
+                if (!mRejected) {
+                    mRejected = true;
+                    throw new RejectedExecutionException("queue full");
+                }
+                command.run();
+            }
+        };
+        Executor executor = mRegistry.meter("diskIO", rejectingOnce);
+
+        // When a command is rejected, then another one runs
+        try {
+            executor.execute(NO_OP);
+            fail("The rejection should reach the caller");
+        } catch (RejectedExecutionException expected) {
+            // The command wasn't queued.
+        }
+        executor.execute(NO_OP);
+
+        // Then the rejected command isn't counted in the queue depth
+        JsonObject json = toJson().getAsJsonObject("executors").getAsJsonObject("diskIO");
+        assertThat(json.getAsJsonObject("queueDepth").get("max").getAsLong(), is(1L));
+        assertThat(json.getAsJsonObject("waitMicros").get("count").getAsLong(), is(1L));
+    }
+
+    @Test
+    public void noOpMetrics_leaveTheExecutorAlone() {
+        assertThat(NoOpMetrics.INSTANCE.isEnabled(), is(false));
+        assertThat(NoOpMetrics.INSTANCE.meter("diskIO", DIRECT_EXECUTOR),
+                sameInstance(DIRECT_EXECUTOR));
+    }
+
+    private JsonObject toJson() {
+        return new JsonParser().parse(mRegistry.toJson()).getAsJsonObject();
+    }
+}
@@ -0,0 +1,95 @@
+package com.zeelo.android.architecture.assignment.booksapp.util.metrics;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link StartupTrace}.
+ */
+public class StartupTraceTest {
+
+    private StartupTrace mTrace;
+
+    @Before
+    public void setupTrace() {
+        mTrace = new StartupTrace();
+    }
+
+    @Test
+    public void phases_areRecordedInTheOrderTheyEnd() {
+        long first = mTrace.begin();
+        long second = mTrace.begin();
+        mTrace.end("second", second);
+        mTrace.end("first", first);
+
+        List<StartupTrace.Phase> phases = mTrace.getPhases();
+        assertThat(phases.size(), is(2));
+        assertThat(phases.get(0).getName(), is("second"));
+        assertThat(phases.get(1).getName(), is("first"));
+        // The first phase to start is the origin of the others
+        assertThat(phases.get(1).getStartNanos(), is(0L));
+        assertThat(phases.get(0).getStartNanos(), greaterThanOrEqualTo(0L));
+        assertThat(phases.get(1).getDurationNanos(),
+                greaterThanOrEqualTo(phases.get(0).getDurationNanos()));
+    }
+
+    @Test
+    public void submittedPhase_isTimedOnTheThreadItRunsOn() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            String thread = mTrace.submit("init", executor, new Callable<String>() {
+                @Override
+                public String call() {
+                    return Thread.currentThread().getName();
+                }
+            }).get();
+
+            StartupTrace.Phase phase = mTrace.getPhases().get(0);
+            assertThat(phase.getName(), is("init"));
+            assertThat(phase.getThread(), is(thread));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void failedPhase_isStillTimed() throws InterruptedException {
+        try {
+            mTrace.submit("init", MoreExecutors.directExecutor(), new Callable<Object>() {
+                @Override
+                public Object call() {
+                    throw new IllegalStateException();
+                }
+            }).get();
+            fail();
+        } catch (ExecutionException expected) {
+            // The trace doesn't swallow the failure
+        }
+
+        assertThat(mTrace.getPhases().get(0).getName(), is("init"));
+    }
+
+    @Test
+    public void toJson_listsEveryPhase() {
+        mTrace.end("repository", mTrace.begin());
+
+        String json = mTrace.toJson();
+
+        assertThat(json, containsString("\"phase\":\"repository\""));
+        assertThat(json, containsString("\"durationMillis\""));
+    }
+}
@@ -0,0 +1,76 @@
+package com.zeelo.android.architecture.assignment.booksapp.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code equals} and {@code hashCode} of the models, which the caches, the diffing of the
+ * books list and the hash based collections rely on.
+ * <p>
+ * Each call compares a model with an equal copy, so {@code equals} has to look at every field it
+ * compares. The models are cycled through so the JIT can't fold the results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BookEqualityBenchmark {
+
+    private static final int MODELS = 1024;
+
+    private final BookListItem[] mBookListItems = new BookListItem[MODELS];
+
+    private final BookListItem[] mBookListItemCopies = new BookListItem[MODELS];
+
+    private final Book[] mBooks = new Book[MODELS];
+
+    private final Book[] mBookCopies = new Book[MODELS];
+
+    private int mIndex;
+
+    @Setup
+    public void createModels() {
+        for (int i = 0; i < MODELS; i++) {
+            // Ids look like the ones of the Books API, titles share a long prefix.
+            String id = "zyTCAlFPjgYC" + i;
+            String title = "The Google story, volume " + i;
+            mBookListItems[i] = new BookListItem(title, id);
+            mBookListItemCopies[i] = new BookListItem(new String(title), new String(id));
+            mBooks[i] = new Book(title, id, "Description " + i);
+            mBookCopies[i] = new Book(new String(title), new String(id), "Description " + i);
+        }
+    }
+
+    @Benchmark
+    public boolean bookListItemEquals() {
+        int i = next();
+        return mBookListItems[i].equals(mBookListItemCopies[i]);
+    }
+
+    @Benchmark
+    public int bookListItemHashCode() {
+        return mBookListItems[next()].hashCode();
+    }
+
+    @Benchmark
+    public boolean bookEquals() {
+        int i = next();
+        return mBooks[i].equals(mBookCopies[i]);
+    }
+
+    @Benchmark
+    public int bookHashCode() {
+        return mBooks[next()].hashCode();
+    }
+
+    private int next() {
+        mIndex = (mIndex + 1) & (MODELS - 1);
+        return mIndex;
+    }
+}
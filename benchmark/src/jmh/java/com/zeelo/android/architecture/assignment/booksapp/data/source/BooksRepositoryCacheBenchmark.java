@@ -0,0 +1,151 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksSyncEngine;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.SyncStateStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the in-memory cache of {@link BooksRepository} on synthetic catalogues: looking up a
+ * book, serving the whole list, syncing a refresh that changed 1% of the books and reloading the
+ * list from the local data source.
+ * <p>
+ * The data sources answer synchronously from maps, so only the repository and its caches are
+ * measured. The books cache is bounded by weight, so the biggest catalogue doesn't fit and some
+ * lookups miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BooksRepositoryCacheBenchmark {
+
+    /**
+     * Syncs on the calling thread, like the data sources answer.
+     */
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogueSize;
+
+    private InMemoryBooksChangesSource mServer;
+
+    private InMemoryBooksDataSource mLocalDataSource;
+
+    private BooksSyncEngine mSyncEngine;
+
+    private BooksRepository mRepository;
+
+    private String[] mIds;
+
+    private int mNextId;
+
+    private final ResultCallback mCallback = new ResultCallback();
+
+    @Setup
+    public void createRepository() {
+        mServer = new InMemoryBooksChangesSource(catalogueSize);
+        mIds = mServer.getIds();
+        mLocalDataSource = new InMemoryBooksDataSource();
+        mSyncEngine = new BooksSyncEngine(mServer, mLocalDataSource, new SyncStateStore() {
+            private long mWatermark;
+
+            @Override
+            public long getWatermark() {
+                return mWatermark;
+            }
+
+            @Override
+            public void setWatermark(long watermark) {
+                mWatermark = watermark;
+            }
+        }, DIRECT, DIRECT);
+        mRepository = newRepository();
+
+        // Sync the catalogue into the local data source and the caches.
+        mRepository.refreshBooks();
+        mRepository.getBooks(mCallback);
+        for (String id : mIds) {
+            mRepository.getBookDetails(id, mCallback);
+        }
+    }
+
+    @TearDown
+    public void destroyRepository() {
+        BooksRepository.destroyInstance();
+    }
+
+    @Benchmark
+    public Book lookupBook() {
+        mRepository.getBookDetails(mIds[mNextId], mCallback);
+        mNextId = (mNextId + 1) % mIds.length;
+        return mCallback.mBook;
+    }
+
+    @Benchmark
+    public List<BookListItem> getCachedBooks() {
+        mRepository.getBooks(mCallback);
+        return mCallback.mBooks;
+    }
+
+    @Benchmark
+    public List<BookListItem> refreshWithChanges() {
+        mServer.change(Math.max(1, catalogueSize / 100));
+        mRepository.refreshBooks();
+        mRepository.getBooks(mCallback);
+        return mCallback.mBooks;
+    }
+
+    @Benchmark
+    public List<BookListItem> reloadFromLocalDataSource() {
+        mRepository = newRepository();
+        mRepository.getBooks(mCallback);
+        return mCallback.mBooks;
+    }
+
+    private BooksRepository newRepository() {
+        BooksRepository.destroyInstance();
+        return BooksRepository.getInstance(mLocalDataSource, mLocalDataSource, mSyncEngine, null);
+    }
+
+    private static class ResultCallback implements BooksDataSource.LoadBooksListCallback,
+            BooksDataSource.GetBookDetailsCallback {
+
+        private List<BookListItem> mBooks;
+
+        private Book mBook;
+
+        @Override
+        public void onBooksListLoaded(List<BookListItem> books) {
+            mBooks = books;
+        }
+
+        @Override
+        public void onBookDetailsLoaded(Book book) {
+            mBook = book;
+        }
+
+        @Override
+        public void onDataNotAvailable() {
+            throw new IllegalStateException("The in-memory data sources always have the books");
+        }
+    }
+}
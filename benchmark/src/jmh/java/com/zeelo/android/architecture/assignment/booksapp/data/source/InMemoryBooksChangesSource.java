@@ -0,0 +1,68 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksChangeLog;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksChangesSource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Server holding a synthetic catalogue, which answers synchronously.
+ */
+class InMemoryBooksChangesSource implements BooksChangesSource {
+
+    private final Map<String, BookListItem> mBookListItems = new LinkedHashMap<>();
+
+    private final Map<String, Book> mBooks = new LinkedHashMap<>();
+
+    private final BooksChangeLog mChangeLog = new BooksChangeLog();
+
+    private final String[] mIds;
+
+    private int mNextChange;
+
+    private int mEdition;
+
+    InMemoryBooksChangesSource(int catalogueSize) {
+        mIds = new String[catalogueSize];
+        for (int i = 0; i < catalogueSize; i++) {
+            mIds[i] = "book-" + i;
+            put(mIds[i], "Title of book " + i);
+        }
+    }
+
+    @NonNull
+    String[] getIds() {
+        return mIds.clone();
+    }
+
+    /**
+     * Retitles the next {@code count} books, going round the catalogue.
+     */
+    void change(int count) {
+        for (int i = 0; i < count; i++) {
+            if (mNextChange == 0) {
+                mEdition++;
+            }
+            String id = mIds[mNextChange];
+            put(id, "Title of " + id + ", edition " + mEdition);
+            mNextChange = (mNextChange + 1) % mIds.length;
+        }
+    }
+
+    @Override
+    public void getChangesSince(long watermark, @NonNull LoadChangesCallback callback) {
+        callback.onChangesLoaded(mChangeLog.changesSince(watermark, mBookListItems, mBooks));
+    }
+
+    private void put(String id, String title) {
+        BookListItem item = new BookListItem(title, id);
+        item.setEtag(mChangeLog.recordChange(id));
+        mBookListItems.put(id, item);
+        mBooks.put(id, new Book(title, id, "Description of " + title));
+    }
+}
@@ -0,0 +1,348 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source;
+
+import android.arch.lifecycle.LiveData;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.statistics.BooksStatistics;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksDelta;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.sync.BooksDeltaStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.zeelo.android.architecture.assignment.booksapp.data.source.remote.BooksRemoteDataSource.BOOK_DETAILS_API_PATH;
+
+/**
+ * Local data source kept in maps, which answers synchronously, so the benchmarks measure the
+ * repository rather than a database. Pages and searches scan the maps, in the order of the
+ * database.
+ * <p>
+ * The LiveData it returns read the maps when their value is read. They are never set, since
+ * setting them needs the main thread of Android, so observers aren't told about changes.
+ */
+class InMemoryBooksDataSource implements ObservableBooksDataSource, BooksDeltaStore {
+
+    private final Map<String, BookListItem> mBookListItems = new LinkedHashMap<>();
+
+    private final Map<String, Book> mBooks = new LinkedHashMap<>();
+
+    /**
+     * Incremented by every change of the books.
+     */
+    private long mVersion;
+
+    @Override
+    public void getBooks(@NonNull LoadBooksListCallback callback) {
+        if (mBookListItems.isEmpty()) {
+            callback.onDataNotAvailable();
+        } else {
+            callback.onBooksListLoaded(new ArrayList<>(mBookListItems.values()));
+        }
+    }
+
+    @Override
+    public void getBookDetails(@NonNull String bookId, @NonNull GetBookDetailsCallback callback) {
+        Book book = mBooks.get(bookId);
+        if (book != null) {
+            callback.onBookDetailsLoaded(book);
+        } else {
+            callback.onDataNotAvailable();
+        }
+    }
+
+    @Override
+    public void getBookDescription(@NonNull String bookId,
+                                   @NonNull GetBookDescriptionCallback callback) {
+        Book book = mBooks.get(bookId);
+        if (book != null) {
+            callback.onDescriptionLoaded(book.getVolumeInfo() != null
+                    ? book.getVolumeInfo().getDescription() : null);
+        } else {
+            callback.onDataNotAvailable();
+        }
+    }
+
+    /**
+     * Skips the books whose etag is already stored, like the database does.
+     */
+    @Override
+    public void applyDelta(@NonNull BooksDelta delta, @NonNull ApplyDeltaCallback callback) {
+        BooksDelta.Builder applied = BooksDelta.newBuilder(delta.getWatermark());
+        for (BookListItem item : delta.getUpserts()) {
+            BookListItem stored = mBookListItems.get(item.getId());
+            if (stored != null && item.getEtag() != null && item.getEtag().equals(stored.getEtag())) {
+                continue;
+            }
+            Book book = delta.getBook(item.getId());
+            mBookListItems.put(item.getId(), item);
+            if (book != null) {
+                mBooks.put(book.getId(), book);
+            } else {
+                mBooks.remove(item.getId());
+            }
+            applied.upsert(item, book);
+        }
+        for (String id : delta.getDeletedIds()) {
+            mBookListItems.remove(id);
+            mBooks.remove(id);
+            applied.delete(id);
+        }
+        mVersion++;
+        callback.onDeltaApplied(applied.build());
+    }
+
+    @Override
+    public void getBooksPage(@NonNull BooksFilterType filter, @Nullable BooksPageKey after,
+                             int pageSize, @NonNull LoadBooksPageCallback callback) {
+        getSortedBooksPage(BooksSortType.TITLE, filter, after, pageSize, callback);
+    }
+
+    @Override
+    public void getSortedBooksPage(@NonNull BooksSortType sortType,
+                                   @NonNull BooksFilterType filter, @Nullable BooksPageKey after,
+                                   int pageSize, @NonNull LoadBooksPageCallback callback) {
+        List<BookListItem> page = new ArrayList<>(pageSize);
+        for (BookListItem item : sorted(BooksPageKey.order(sortType))) {
+            if ((after == null || after.isBefore(item)) && filter.accepts(item.isFavorite())) {
+                page.add(item);
+                if (page.size() == pageSize) {
+                    break;
+                }
+            }
+        }
+        callback.onBooksPageLoaded(page, page.size() < pageSize ? null
+                : BooksPageKey.after(sortType, page.get(page.size() - 1)));
+    }
+
+    /**
+     * Books whose title matches come first, then the ones whose authors or description do.
+     */
+    @Override
+    public void searchBooks(@NonNull String query, int offset, int limit,
+                            @NonNull LoadBooksListCallback callback) {
+        BooksSearchQuery searchQuery = BooksSearchQuery.parse(query);
+        List<BookListItem> titleMatches = new ArrayList<>();
+        List<BookListItem> otherMatches = new ArrayList<>();
+        if (!searchQuery.isEmpty()) {
+            for (BookListItem item : sorted(BooksPageKey.ORDER)) {
+                if (searchQuery.matches(Collections.singletonList(item.getTitle()))) {
+                    titleMatches.add(item);
+                } else if (searchQuery.matches(searchableText(item))) {
+                    otherMatches.add(item);
+                }
+            }
+        }
+        titleMatches.addAll(otherMatches);
+
+        int from = Math.min(offset, titleMatches.size());
+        int to = Math.min(from + limit, titleMatches.size());
+        callback.onBooksListLoaded(new ArrayList<>(titleMatches.subList(from, to)));
+    }
+
+    @Override
+    public void getBooksByAuthorPage(@NonNull String author, @Nullable BooksPageKey after,
+                                     int pageSize, @NonNull LoadBooksPageCallback callback) {
+        List<BookListItem> page = new ArrayList<>(pageSize);
+        for (BookListItem item : sorted(BooksPageKey.ORDER)) {
+            if ((after == null || after.isBefore(item)) && isBy(item, author)) {
+                page.add(item);
+                if (page.size() == pageSize) {
+                    break;
+                }
+            }
+        }
+        callback.onBooksPageLoaded(page,
+                page.size() < pageSize ? null : BooksPageKey.after(page.get(page.size() - 1)));
+    }
+
+    @Override
+    public void findAuthors(@NonNull String prefix, int limit,
+                            @NonNull LoadAuthorsCallback callback) {
+        Set<String> authors = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (BookListItem item : mBookListItems.values()) {
+            for (String author : authorsOf(item)) {
+                if (author != null && !author.isEmpty()
+                        && author.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                    authors.add(author);
+                }
+            }
+        }
+        callback.onAuthorsLoaded(new ArrayList<>(authors).subList(0,
+                Math.min(limit, authors.size())));
+    }
+
+    @Override
+    public void getStatistics(@NonNull GetStatisticsCallback callback) {
+        callback.onStatisticsLoaded(statistics());
+    }
+
+    @Override
+    public void saveBooksListItems(@NonNull List<BookListItem> booksListItems) {
+        for (BookListItem item : booksListItems) {
+            mBookListItems.put(item.getId(), item);
+        }
+        mVersion++;
+    }
+
+    @Override
+    public void saveBooksListItems(@NonNull List<BookListItem> booksListItems,
+                                   @NonNull SaveBooksListItemsCallback callback) {
+        saveBooksListItems(booksListItems);
+        callback.onBooksListItemsSaved();
+    }
+
+    @Override
+    public void saveBook(@NonNull Book book) {
+        BookListItem item = new BookListItem(book.getTitle(), book.getId(),
+                BOOK_DETAILS_API_PATH + book.getId());
+        item.setFavorite(book.isFavorite());
+        mBookListItems.put(book.getId(), item);
+        mBooks.put(book.getId(), book);
+        mVersion++;
+    }
+
+    @Override
+    public void favoriteBook(@NonNull Book book) {
+        setFavorite(book.getId(), true);
+    }
+
+    @Override
+    public void favoriteBook(@NonNull String bookId) {
+        setFavorite(bookId, true);
+    }
+
+    @Override
+    public void unFavoriteBook(@NonNull Book book) {
+        setFavorite(book.getId(), false);
+    }
+
+    @Override
+    public void unFavoriteBook(@NonNull String bookId) {
+        setFavorite(bookId, false);
+    }
+
+    @Override
+    public void refreshBooks() {
+        // Nothing to refresh, the repository syncs the books.
+    }
+
+    @Override
+    public void deleteAllBooks() {
+        mBookListItems.clear();
+        mBooks.clear();
+        mVersion++;
+    }
+
+    @Override
+    public void deleteBook(@NonNull String bookId) {
+        mBookListItems.remove(bookId);
+        mBooks.remove(bookId);
+        mVersion++;
+    }
+
+    @NonNull
+    @Override
+    public LiveData<Long> observeBooksVersion() {
+        return new LiveData<Long>() {
+            @Override
+            public Long getValue() {
+                return mVersion;
+            }
+        };
+    }
+
+    @NonNull
+    @Override
+    public LiveData<Book> observeBook(@NonNull final String bookId) {
+        return new LiveData<Book>() {
+            @Override
+            public Book getValue() {
+                return mBooks.get(bookId);
+            }
+        };
+    }
+
+    @NonNull
+    @Override
+    public LiveData<BooksStatistics> observeStatistics() {
+        return new LiveData<BooksStatistics>() {
+            @Override
+            public BooksStatistics getValue() {
+                return statistics();
+            }
+        };
+    }
+
+    /**
+     * Replaces the stored list item and book with copies of the given favorite status, since the
+     * repository may still hold the stored ones.
+     */
+    private void setFavorite(@NonNull String bookId, boolean favorite) {
+        BookListItem item = mBookListItems.get(bookId);
+        if (item != null) {
+            BookListItem copy = new BookListItem(item.getTitle(), item.getId(), item.getLink());
+            copy.setEtag(item.getEtag());
+            copy.setVolumeInfo(item.getVolumeInfo());
+            copy.setFavorite(favorite);
+            mBookListItems.put(bookId, copy);
+        }
+        Book book = mBooks.get(bookId);
+        if (book != null) {
+            Book copy = new Book(book.getTitle(), book.getId(), null, favorite);
+            copy.setVolumeInfo(book.getVolumeInfo());
+            mBooks.put(bookId, copy);
+        }
+        mVersion++;
+    }
+
+    private List<BookListItem> sorted(@NonNull Comparator<BookListItem> order) {
+        List<BookListItem> sorted = new ArrayList<>(mBookListItems.values());
+        Collections.sort(sorted, order);
+        return sorted;
+    }
+
+    private BooksStatistics statistics() {
+        BooksStatistics.Builder statistics = BooksStatistics.newBuilder();
+        for (BookListItem item : mBookListItems.values()) {
+            statistics.addBook(item, item.isFavorite(), 1);
+        }
+        return statistics.build();
+    }
+
+    @NonNull
+    private static List<String> authorsOf(@NonNull BookListItem item) {
+        if (item.getVolumeInfo() == null || item.getVolumeInfo().getAuthors() == null) {
+            return Collections.emptyList();
+        }
+        return item.getVolumeInfo().getAuthors();
+    }
+
+    private static boolean isBy(@NonNull BookListItem item, @NonNull String author) {
+        for (String name : authorsOf(item)) {
+            if (author.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<String> searchableText(@NonNull BookListItem item) {
+        List<String> text = new ArrayList<>();
+        text.add(item.getTitle());
+        text.addAll(authorsOf(item));
+        Book book = mBooks.get(item.getId());
+        if (book != null && book.getVolumeInfo() != null) {
+            text.add(book.getVolumeInfo().getDescription());
+        }
+        return text;
+    }
+}
@@ -0,0 +1,127 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.cache;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.BooksPageKey;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.remote.BooksJsonStreamParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what a cold start takes to get the list items of the books list from a
+ * {@link BooksSnapshot}, against parsing them out of the books.json feed with
+ * {@link BooksJsonStreamParser}. Writing the snapshot, which happens in the background after a
+ * load, is measured too.
+ * <p>
+ * The feed is the books.json asset of the app, repeated {@code copies} times with distinct ids to
+ * get bigger catalogues. The snapshot file stays in the page cache between reads, as it does on a
+ * device that was just used. Reading the list items from the database, which a cold start does
+ * without a snapshot, needs Room and can't be measured on the JVM.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BooksSnapshotBenchmark {
+
+    private static final String BOOKS_ASSET = "/books.json";
+
+    /**
+     * The asset holds 40 volumes, so this is 40, 1000 and 10000 volumes.
+     */
+    @Param({"1", "25", "250"})
+    public int copies;
+
+    private byte[] mFeed;
+
+    private List<BookListItem> mBooks;
+
+    private File mSnapshot;
+
+    private File mWritten;
+
+    @Setup
+    public void createSnapshot() throws IOException {
+        JsonParser parser = new JsonParser();
+        Reader asset = new InputStreamReader(
+                BooksSnapshotBenchmark.class.getResourceAsStream(BOOKS_ASSET), "UTF-8");
+        JsonArray volumes;
+        try {
+            JsonElement feed = parser.parse(asset);
+            volumes = feed.isJsonArray() ? feed.getAsJsonArray()
+                    : feed.getAsJsonObject().getAsJsonArray("items");
+        } finally {
+            asset.close();
+        }
+
+        JsonArray items = new JsonArray();
+        for (int copy = 0; copy < copies; copy++) {
+            for (JsonElement volume : volumes) {
+                JsonObject item = parser.parse(volume.toString()).getAsJsonObject();
+                item.addProperty("id", item.get("id").getAsString() + "-" + copy);
+                items.add(item);
+            }
+        }
+        mFeed = items.toString().getBytes("UTF-8");
+
+        mBooks = parseFeed();
+        Collections.sort(mBooks, BooksPageKey.ORDER);
+        mSnapshot = File.createTempFile("books", ".snapshot");
+        mWritten = File.createTempFile("books-written", ".snapshot");
+        BooksSnapshot.write(mBooks, mSnapshot);
+    }
+
+    @TearDown
+    public void deleteSnapshots() {
+        mSnapshot.delete();
+        mWritten.delete();
+    }
+
+    @Benchmark
+    public List<BookListItem> readSnapshot() throws IOException {
+        return BooksSnapshot.read(mSnapshot);
+    }
+
+    @Benchmark
+    public List<BookListItem> parseFeed() throws IOException {
+        final List<BookListItem> bookListItems = new ArrayList<>();
+        new BooksJsonStreamParser().parse(new ByteArrayInputStream(mFeed),
+                new BooksJsonStreamParser.Consumer() {
+                    @Override
+                    public void onBatch(@NonNull List<BookListItem> batchItems,
+                                        @NonNull List<Book> batchBooks) {
+                        bookListItems.addAll(batchItems);
+                    }
+                });
+        return bookListItems;
+    }
+
+    @Benchmark
+    public long writeSnapshot() throws IOException {
+        BooksSnapshot.write(mBooks, mWritten);
+        return mWritten.length();
+    }
+}
@@ -0,0 +1,100 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link StringListConverter}, which Room calls for the authors of every row it reads
+ * or writes, against the JSON converter it replaced. The {@code legacy} benchmarks are a copy of
+ * that converter, which created a Gson instance on every call.
+ * <p>
+ * Run with the gc profiler (the default of this module) to compare the bytes allocated per call,
+ * reported as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringListConverterBenchmark {
+
+    /**
+     * Most books have one or two authors, anthologies have many more.
+     */
+    @Param({"1", "3", "10"})
+    public int authors;
+
+    private ArrayList<String> mList;
+
+    private String mEncoded;
+
+    private String mJson;
+
+    @Setup
+    public void createAuthors() {
+        mList = new ArrayList<>(authors);
+        for (int i = 0; i < authors; i++) {
+            mList.add("Author Name " + i);
+        }
+        mEncoded = StringListConverter.fromArrayList(mList);
+        mJson = legacyFromArrayList(mList);
+    }
+
+    @Benchmark
+    public String fromArrayList() {
+        return StringListConverter.fromArrayList(mList);
+    }
+
+    @Benchmark
+    public ArrayList<String> fromString() {
+        return StringListConverter.fromString(mEncoded);
+    }
+
+    /**
+     * Reads a row that was stored as JSON and not migrated yet.
+     */
+    @Benchmark
+    public ArrayList<String> fromJsonString() {
+        return StringListConverter.fromString(mJson);
+    }
+
+    @Benchmark
+    public ArrayList<String> roundTrip() {
+        return StringListConverter.fromString(StringListConverter.fromArrayList(mList));
+    }
+
+    @Benchmark
+    public String legacyFromArrayList() {
+        return legacyFromArrayList(mList);
+    }
+
+    @Benchmark
+    public ArrayList<String> legacyFromString() {
+        return legacyFromString(mJson);
+    }
+
+    @Benchmark
+    public ArrayList<String> legacyRoundTrip() {
+        return legacyFromString(legacyFromArrayList(mList));
+    }
+
+    private static ArrayList<String> legacyFromString(String value) {
+        Type listType = new TypeToken<ArrayList<String>>() {}.getType();
+        return new Gson().fromJson(value, listType);
+    }
+
+    private static String legacyFromArrayList(ArrayList<String> list) {
+        return new Gson().toJson(list);
+    }
+}
@@ -0,0 +1,149 @@
+package com.zeelo.android.architecture.assignment.booksapp.data.source.remote;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the ingestion of books.json by {@link BooksRemoteDataSource}: streaming the feed through
+ * {@link BooksJsonStreamParser} into maps keyed by id. The {@code reflective} benchmark streams the
+ * same feed, but reads every volume as the parser did before {@link VolumeTypeAdapter}: as a tree,
+ * mapped twice by reflection. The {@code wholeFile} benchmark is the path before streaming: the
+ * whole feed read into a string, then parsed twice.
+ * <p>
+ * The feed is the books.json asset of the app, repeated {@code copies} times with distinct ids to
+ * get bigger catalogues.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BooksJsonParsingBenchmark {
+
+    private static final String BOOKS_ASSET = "/books.json";
+
+    /**
+     * The asset holds 40 volumes, so this is 40, 1000 and 10000 volumes.
+     */
+    @Param({"1", "25", "250"})
+    public int copies;
+
+    private final Gson mReflectiveGson = new Gson();
+
+    private byte[] mFeed;
+
+    @Setup
+    public void createFeed() throws IOException {
+        JsonParser parser = new JsonParser();
+        Reader asset = new InputStreamReader(
+                BooksJsonParsingBenchmark.class.getResourceAsStream(BOOKS_ASSET), "UTF-8");
+        JsonArray volumes;
+        try {
+            JsonElement feed = parser.parse(asset);
+            // Like the parser, accept both a plain array and a Books API response.
+            volumes = feed.isJsonArray() ? feed.getAsJsonArray()
+                    : feed.getAsJsonObject().getAsJsonArray("items");
+        } finally {
+            asset.close();
+        }
+
+        JsonArray items = new JsonArray();
+        for (int copy = 0; copy < copies; copy++) {
+            for (JsonElement volume : volumes) {
+                JsonObject item = parser.parse(volume.toString()).getAsJsonObject();
+                item.addProperty("id", item.get("id").getAsString() + "-" + copy);
+                items.add(item);
+            }
+        }
+        mFeed = items.toString().getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public int parseFeed() throws IOException {
+        final Map<String, BookListItem> bookListItems = new LinkedHashMap<>();
+        final Map<String, Book> books = new LinkedHashMap<>();
+        new BooksJsonStreamParser().parse(new ByteArrayInputStream(mFeed),
+                new BooksJsonStreamParser.Consumer() {
+                    @Override
+                    public void onBatch(@NonNull List<BookListItem> batchItems,
+                                        @NonNull List<Book> batchBooks) {
+                        for (BookListItem item : batchItems) {
+                            bookListItems.put(item.getId(), item);
+                        }
+                        for (Book book : batchBooks) {
+                            books.put(book.getId(), book);
+                        }
+                    }
+                });
+        return bookListItems.size() + books.size();
+    }
+
+    @Benchmark
+    public int parseFeedReflectively() throws IOException {
+        Map<String, BookListItem> bookListItems = new LinkedHashMap<>();
+        Map<String, Book> books = new LinkedHashMap<>();
+        JsonParser parser = new JsonParser();
+        JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(mFeed), "UTF-8")));
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                JsonElement volume = parser.parse(reader);
+                BookListItem item = mReflectiveGson.fromJson(volume, BookListItem.class);
+                Book book = mReflectiveGson.fromJson(volume, Book.class);
+                bookListItems.put(item.getId(), item);
+                books.put(book.getId(), book);
+            }
+            reader.endArray();
+        } finally {
+            reader.close();
+        }
+        return bookListItems.size() + books.size();
+    }
+
+    @Benchmark
+    public int parseWholeFile() throws IOException {
+        Map<String, BookListItem> bookListItems = new LinkedHashMap<>();
+        Map<String, Book> books = new LinkedHashMap<>();
+        String json = new String(mFeed, "UTF-8");
+        Type itemListType = new TypeToken<ArrayList<BookListItem>>(){}.getType();
+        List<BookListItem> itemList = mReflectiveGson.fromJson(json, itemListType);
+        Type bookListType = new TypeToken<ArrayList<Book>>(){}.getType();
+        List<Book> bookList = mReflectiveGson.fromJson(json, bookListType);
+        for (BookListItem item : itemList) {
+            bookListItems.put(item.getId(), item);
+        }
+        for (Book book : bookList) {
+            books.put(book.getId(), book);
+        }
+        return bookListItems.size() + books.size();
+    }
+}
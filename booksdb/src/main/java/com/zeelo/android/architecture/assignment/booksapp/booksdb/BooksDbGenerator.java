@@ -0,0 +1,388 @@
+package com.zeelo.android.architecture.assignment.booksapp.booksdb;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.zeelo.android.architecture.assignment.booksapp.data.Book;
+import com.zeelo.android.architecture.assignment.booksapp.data.BookListItem;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.local.converter.StringListCodec;
+import com.zeelo.android.architecture.assignment.booksapp.data.source.remote.BooksJsonStreamParser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the catalogue database shipped with the app:
+ * <pre>
+ * BooksDbGenerator &lt;books.json&gt; &lt;schema directory&gt; &lt;books.db&gt;
+ * </pre>
+ * The tables, their indices and the identity hash Room checks are read from the latest schema
+ * Room exported to the schema directory, so Room opens the file as a database it created. The
+ * books list is filled the way {@code BooksDao#insertBookListItems} fills it, with the lists
+ * encoded by {@link StringListCodec}, and so are the authors and their links to the books. The
+ * other tables are left empty, as the app leaves them until a book is opened, and so are the
+ * collation keys of the titles and the authors, which only the device can compute.
+ */
+public final class BooksDbGenerator {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String TABLE_NAME_PLACEHOLDER = "${TABLE_NAME}";
+
+    private static final String BOOKS_LIST_TABLE = "bookslist";
+
+    private BooksDbGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.err.println("Usage: BooksDbGenerator <books.json> <schema directory> "
+                    + "<books.db>");
+            System.exit(2);
+        }
+        File feed = new File(args[0]);
+        Schema schema = Schema.readLatest(new File(args[1]));
+        File database = new File(args[2]);
+
+        int books = generate(feed, schema, database);
+        System.out.println("Wrote " + books + " books to " + database + ", version "
+                + schema.mVersion);
+    }
+
+    /**
+     * @return the number of books written
+     */
+    static int generate(File feed, Schema schema, File database)
+            throws IOException, SQLException {
+        File parent = database.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Couldn't create " + parent);
+        }
+        File partial = new File(database.getPath() + ".partial");
+        if (partial.exists() && !partial.delete()) {
+            throw new IOException("Couldn't delete " + partial);
+        }
+
+        int books;
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:"
+                + partial.getAbsolutePath());
+        try {
+            Statement statement = connection.createStatement();
+            try {
+                connection.setAutoCommit(false);
+                for (String sql : schema.mStatements) {
+                    statement.execute(sql);
+                }
+                books = insertBooksList(connection, schema.columnsOf(BOOKS_LIST_TABLE), feed);
+                // A book listed twice by the feed leaves the authors of its first listing behind.
+                statement.execute("DELETE FROM author WHERE NOT EXISTS "
+                        + "(SELECT 1 FROM book_author WHERE author_id = author.id)");
+                connection.commit();
+
+                connection.setAutoCommit(true);
+                statement.execute("PRAGMA user_version = " + schema.mVersion);
+                statement.execute("VACUUM");
+            } finally {
+                statement.close();
+            }
+        } finally {
+            connection.close();
+        }
+
+        if (database.exists() && !database.delete()) {
+            throw new IOException("Couldn't delete " + database);
+        }
+        if (!partial.renameTo(database)) {
+            throw new IOException("Couldn't rename " + partial + " to " + database);
+        }
+        return books;
+    }
+
+    private static int insertBooksList(Connection connection, final List<String> columns,
+                                       File feed) throws IOException, SQLException {
+        StringBuilder sql = new StringBuilder("INSERT OR REPLACE INTO ")
+                .append(BOOKS_LIST_TABLE).append(" (");
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+                values.append(", ");
+            }
+            sql.append('`').append(columns.get(i)).append('`');
+            values.append('?');
+        }
+        sql.append(") VALUES (").append(values).append(')');
+
+        final PreparedStatement insert = connection.prepareStatement(sql.toString());
+        final AuthorIndexer authors = new AuthorIndexer(connection);
+        try {
+            final SQLException[] failure = new SQLException[1];
+            int books = new BooksJsonStreamParser().parse(new FileInputStream(feed),
+                    new BooksJsonStreamParser.Consumer() {
+                        @Override
+                        public void onBatch(List<BookListItem> bookListItems, List<Book> books) {
+                            if (failure[0] != null) {
+                                return;
+                            }
+                            try {
+                                for (BookListItem item : bookListItems) {
+                                    for (int i = 0; i < columns.size(); i++) {
+                                        insert.setObject(i + 1, valueOf(item, columns.get(i)));
+                                    }
+                                    insert.addBatch();
+                                }
+                                insert.executeBatch();
+                                for (BookListItem item : bookListItems) {
+                                    authors.index(item);
+                                }
+                                authors.executeBatch();
+                            } catch (SQLException e) {
+                                failure[0] = e;
+                            }
+                        }
+                    });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            return books;
+        } finally {
+            authors.close();
+            insert.close();
+        }
+    }
+
+    /**
+     * @return the value of {@code column} of the books list for {@code item}, as Room binds it.
+     */
+    private static Object valueOf(BookListItem item, String column) {
+        BookListItem.VolumeInfo volumeInfo = item.getVolumeInfo();
+        switch (column) {
+            case "id":
+                return item.getId();
+            case "link":
+                return item.getLink();
+            case "etag":
+                return item.getEtag();
+            case "favorite":
+                return item.isFavorite() ? 1 : 0;
+            case "title":
+                return volumeInfo != null ? volumeInfo.getTitle() : null;
+            case "authors":
+                return volumeInfo != null ? StringListCodec.encode(volumeInfo.getAuthors()) : null;
+            case "language":
+                return volumeInfo != null ? volumeInfo.getLanguage() : null;
+            case "categories":
+                return volumeInfo != null
+                        ? StringListCodec.encode(volumeInfo.getCategories()) : null;
+            case "thumbnail":
+                return volumeInfo != null && volumeInfo.getImageLinks() != null
+                        ? volumeInfo.getImageLinks().getThumbnail() : null;
+            case "published_date":
+                return volumeInfo != null ? volumeInfo.getPublishedDate() : null;
+            case "page_count":
+                return volumeInfo != null ? volumeInfo.getPageCount() : null;
+            case "title_key":
+            case "author_key":
+                // The collator of the JVM makes other keys than the one of the device, which
+                // computes them as it first opens the database.
+                return null;
+            default:
+                // A column added to the books list has to be filled here too.
+                throw new IllegalStateException("Don't know how to fill " + BOOKS_LIST_TABLE
+                        + "." + column);
+        }
+    }
+
+    /**
+     * Links the books to their authors the way {@code BooksAuthors.Indexer} does. The generator
+     * is the only writer, so it numbers the authors itself rather than looking each one up.
+     */
+    private static final class AuthorIndexer {
+
+        private final Map<String, Long> mAuthorIds = new HashMap<>();
+
+        private final Set<String> mIndexedBooks = new HashSet<>();
+
+        private final PreparedStatement mInsertAuthor;
+
+        private final PreparedStatement mDeleteLinks;
+
+        private final PreparedStatement mInsertLink;
+
+        AuthorIndexer(Connection connection) throws SQLException {
+            mInsertAuthor = connection.prepareStatement(
+                    "INSERT INTO author (id, name) VALUES (?, ?)");
+            mDeleteLinks = connection.prepareStatement(
+                    "DELETE FROM book_author WHERE book_id = ?");
+            mInsertLink = connection.prepareStatement(
+                    "INSERT INTO book_author (book_id, author_id, position) VALUES (?, ?, ?)");
+        }
+
+        void index(BookListItem item) throws SQLException {
+            if (!mIndexedBooks.add(item.getId())) {
+                // Listed again: it replaces the row of the first listing, and so its links.
+                executeBatch();
+                mDeleteLinks.setString(1, item.getId());
+                mDeleteLinks.executeUpdate();
+            }
+            if (item.getVolumeInfo() == null || item.getVolumeInfo().getAuthors() == null) {
+                return;
+            }
+            List<Long> linked = new ArrayList<>();
+            for (String name : item.getVolumeInfo().getAuthors()) {
+                if (name == null || name.isEmpty()) {
+                    continue;
+                }
+                long authorId = authorId(name);
+                if (linked.contains(authorId)) {
+                    continue;
+                }
+                mInsertLink.setString(1, item.getId());
+                mInsertLink.setLong(2, authorId);
+                mInsertLink.setInt(3, linked.size());
+                mInsertLink.addBatch();
+                linked.add(authorId);
+            }
+        }
+
+        void executeBatch() throws SQLException {
+            mInsertAuthor.executeBatch();
+            mInsertLink.executeBatch();
+        }
+
+        void close() throws SQLException {
+            mInsertAuthor.close();
+            mDeleteLinks.close();
+            mInsertLink.close();
+        }
+
+        private long authorId(String name) throws SQLException {
+            String key = foldAscii(name);
+            Long id = mAuthorIds.get(key);
+            if (id == null) {
+                id = (long) mAuthorIds.size() + 1;
+                mAuthorIds.put(key, id);
+                mInsertAuthor.setLong(1, id);
+                mInsertAuthor.setString(2, name);
+                mInsertAuthor.addBatch();
+            }
+            return id;
+        }
+
+        /**
+         * Lower cases the ASCII letters only, as the {@code NOCASE} collation of the names
+         * compares them.
+         */
+        private static String foldAscii(String name) {
+            char[] chars = name.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                    chars[i] += 'a' - 'A';
+                }
+            }
+            return new String(chars);
+        }
+    }
+
+    /**
+     * The schema of a version of the database, as exported by Room.
+     */
+    static final class Schema {
+
+        final int mVersion;
+
+        /**
+         * Creates the tables, their indices and the table holding the identity hash.
+         */
+        final List<String> mStatements = new ArrayList<>();
+
+        private final JsonArray mEntities;
+
+        private Schema(JsonObject database) {
+            mVersion = database.get("version").getAsInt();
+            mEntities = database.getAsJsonArray("entities");
+            for (JsonElement element : mEntities) {
+                JsonObject entity = element.getAsJsonObject();
+                String table = entity.get("tableName").getAsString();
+                mStatements.add(withTable(entity.get("createSql"), table));
+                if (entity.has("indices")) {
+                    for (JsonElement index : entity.getAsJsonArray("indices")) {
+                        mStatements.add(withTable(index.getAsJsonObject().get("createSql"),
+                                table));
+                    }
+                }
+            }
+            for (JsonElement setupQuery : database.getAsJsonArray("setupQueries")) {
+                mStatements.add(setupQuery.getAsString());
+            }
+        }
+
+        /**
+         * Reads the highest version exported to {@code directory}, named {@code <version>.json}.
+         */
+        static Schema readLatest(File directory) throws IOException {
+            File latest = null;
+            int latestVersion = -1;
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName();
+                    if (!name.matches("\\d+\\.json")) {
+                        continue;
+                    }
+                    int version = Integer.parseInt(name.substring(0, name.indexOf('.')));
+                    if (version > latestVersion) {
+                        latest = file;
+                        latestVersion = version;
+                    }
+                }
+            }
+            if (latest == null) {
+                throw new FileNotFoundException("No schema exported to " + directory);
+            }
+
+            Reader reader = new InputStreamReader(new FileInputStream(latest), UTF_8);
+            try {
+                JsonObject root = new JsonParser().parse(reader).getAsJsonObject();
+                return new Schema(root.getAsJsonObject("database"));
+            } finally {
+                reader.close();
+            }
+        }
+
+        List<String> columnsOf(String table) {
+            for (JsonElement element : mEntities) {
+                JsonObject entity = element.getAsJsonObject();
+                if (table.equals(entity.get("tableName").getAsString())) {
+                    List<String> columns = new ArrayList<>();
+                    for (JsonElement field : entity.getAsJsonArray("fields")) {
+                        columns.add(field.getAsJsonObject().get("columnName").getAsString());
+                    }
+                    return columns;
+                }
+            }
+            throw new IllegalStateException("No table " + table + " in version " + mVersion);
+        }
+
+        private static String withTable(JsonElement sql, String table) {
+            return sql.getAsString().replace(TABLE_NAME_PLACEHOLDER, table);
+        }
+    }
+}